@@ -0,0 +1,125 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.StrictMode;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class checks that the main thread does no disk access while the list is loaded and while
+ * an entry is inserted and deleted. It drives the helper, executor, pager, and change notifier the
+ * way the main activity does, on the main thread, under a strict mode policy that kills the
+ * process on any disk read or write there. A violation therefore fails the run.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MainThreadStrictModeTest {
+
+    // Name of the database file made by the test.
+    private static final String DATABASE_NAME = "strict_mode_test.db";
+
+    // Seconds to wait for each callback.
+    private static final long TIMEOUT_SECONDS = 10;
+
+    // Class objects.
+    private Instrumentation instrumentation;
+    private Context context;
+    private DatabaseHelper db;
+    private DatabaseExecutor executor;
+    private WaitingListEntryPager pager;
+    private StrictMode.ThreadPolicy previousThreadPolicy;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        instrumentation.runOnMainSync(() -> {
+            previousThreadPolicy = StrictMode.getThreadPolicy();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .penaltyDeath()
+                    .build());
+            db = new DatabaseHelper(context, DATABASE_NAME);
+            executor = DatabaseExecutor.getInstance();
+            pager = new WaitingListEntryPager(db, new WaitingListEntryAdapter(context, db.getPerformanceMonitor()));
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        instrumentation.runOnMainSync(() -> StrictMode.setThreadPolicy(previousThreadPolicy));
+        executor.write(() -> {
+            db.close();
+            return null;
+        }, null).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void loadInsertAndDelete_doNoDiskAccessOnTheMainThread() throws Exception {
+
+        // Load the first page, as the main activity does when it is created.
+        final CountDownLatch loaded = new CountDownLatch(1);
+        instrumentation.runOnMainSync(() -> pager.loadInitialPage(loaded::countDown));
+        assertTrue(loaded.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(pager.isEmpty());
+
+        // Apply every change to the pager on the main thread, as the main activity does.
+        final AtomicInteger appliedCount = new AtomicInteger();
+        final CountDownLatch[] applied = {new CountDownLatch(1)};
+        final WaitingListChangeNotifier.Observer observer = change -> pager.onWaitingListChanged(change, () -> {
+            appliedCount.incrementAndGet();
+            applied[0].countDown();
+        });
+        instrumentation.runOnMainSync(() -> db.getChangeNotifier().addObserver(observer));
+
+        try {
+            // Insert an entry.
+            final AtomicLong insertedId = new AtomicLong(-1);
+            final CountDownLatch inserted = new CountDownLatch(1);
+            instrumentation.runOnMainSync(() -> executor.write(() -> db.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate"), id -> {
+                insertedId.set(id);
+                inserted.countDown();
+            }));
+            assertTrue(inserted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(applied[0].await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(insertedId.get() > 0);
+            assertFalse(pager.isEmpty());
+
+            // Delete it again.
+            applied[0] = new CountDownLatch(1);
+            final AtomicInteger deletedCount = new AtomicInteger();
+            final CountDownLatch deleted = new CountDownLatch(1);
+            instrumentation.runOnMainSync(() -> executor.write(() -> db.deleteWaitingListEntries(Collections.singletonList(insertedId.get())), count -> {
+                deletedCount.set(count);
+                deleted.countDown();
+            }));
+            assertTrue(deleted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(applied[0].await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertEquals(1, deletedCount.get());
+            assertEquals(2, appliedCount.get());
+            assertTrue(pager.isEmpty());
+        } finally {
+            instrumentation.runOnMainSync(() -> db.getChangeNotifier().removeObserver(observer));
+        }
+    }
+}
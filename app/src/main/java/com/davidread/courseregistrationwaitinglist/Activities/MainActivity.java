@@ -1,66 +1,156 @@
 package com.davidread.courseregistrationwaitinglist.Activities;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
+import androidx.appcompat.widget.SearchView;
 import androidx.appcompat.widget.Toolbar;
 import androidx.recyclerview.widget.DefaultItemAnimator;
 import androidx.recyclerview.widget.DividerItemDecoration;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.SQLException;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.util.Log;
+import android.text.TextUtils;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import com.davidread.courseregistrationwaitinglist.BuildConfig;
+import com.davidread.courseregistrationwaitinglist.Models.CourseDemand;
+import com.davidread.courseregistrationwaitinglist.Models.JournalEvent;
 import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
 import com.davidread.courseregistrationwaitinglist.R;
+import com.davidread.courseregistrationwaitinglist.Repositories.WaitingListQuery;
+import com.davidread.courseregistrationwaitinglist.Snapshots.BinarySnapshotReader;
+import com.davidread.courseregistrationwaitinglist.Snapshots.BinarySnapshotWriter;
+import com.davidread.courseregistrationwaitinglist.Snapshots.CsvWaitingListEntryReader;
+import com.davidread.courseregistrationwaitinglist.Snapshots.CsvWaitingListEntryWriter;
+import com.davidread.courseregistrationwaitinglist.Snapshots.SnapshotFormatException;
+import com.davidread.courseregistrationwaitinglist.Snapshots.WaitingListEntryReader;
+import com.davidread.courseregistrationwaitinglist.Snapshots.WaitingListEntryWriter;
+import com.davidread.courseregistrationwaitinglist.Sync.HttpSyncTransport;
+import com.davidread.courseregistrationwaitinglist.Sync.SyncEngine;
+import com.davidread.courseregistrationwaitinglist.Utilities.DatabaseExecutor;
 import com.davidread.courseregistrationwaitinglist.Utilities.DatabaseHelper;
+import com.davidread.courseregistrationwaitinglist.Utilities.PerformanceMonitor;
 import com.davidread.courseregistrationwaitinglist.Utilities.RecyclerTouchListener;
+import com.davidread.courseregistrationwaitinglist.Utilities.WaitingListChange;
+import com.davidread.courseregistrationwaitinglist.Utilities.WaitingListChangeNotifier;
 import com.davidread.courseregistrationwaitinglist.Utilities.WaitingListEntryAdapter;
+import com.davidread.courseregistrationwaitinglist.Utilities.WaitingListEntryPager;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.android.material.snackbar.Snackbar;
 import com.google.android.material.textfield.TextInputEditText;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 /**
  * This activity class represents a list of waiting list entry objects. A recycler view is used to
  * show the objects in a list. Two alert dialogs provide user interfaces for adding or updating
  * an object. Tapping on an object in the recycler view shows the update dialog. A floating action
- * button allows access to the add dialog.
+ * button allows access to the add dialog. A search view in the action bar filters the list by
+ * name or course as the user types. The list is refreshed from the change notifier of the database
+ * helper, so it reflects writes made anywhere in the app. Long pressing an object starts a
+ * selection mode in which many objects can be deleted, given a new priority, or moved to another
+ * course at once. The overflow menu sorts the list by arrival, priority, or name and filters it by
+ * course and priority, all in the database, and exports the waiting list to a compressed binary
+ * snapshot or to CSV, and imports either format, through documents chosen by the user.
  */
-public class MainActivity extends AppCompatActivity implements View.OnClickListener, RecyclerTouchListener.ClickListener {
+public class MainActivity extends AppCompatActivity implements View.OnClickListener, RecyclerTouchListener.ClickListener, SearchView.OnQueryTextListener, WaitingListChangeNotifier.Observer, ActionMode.Callback {
+
+    // Log tag.
+    private static final String TAG = "MainActivity";
+
+    // Performance monitor constants.
+    private static final String OPERATION_FIRST_PAGE = "ui_first_page";
+    private static final String METRICS_FILE_NAME = "metrics.txt";
+
+    // Search constants.
+    private static final long SEARCH_DEBOUNCE_MILLIS = 300;
+    private static final int SEARCH_RESULT_LIMIT = 200;
 
     private DatabaseHelper db;
-    private ArrayList<WaitingListEntry> waitingListEntries;
+    private DatabaseExecutor executor;
     private WaitingListEntryAdapter adapter;
+    private WaitingListEntryPager pager;
+    private RecyclerView recyclerViewWaitingListEntries;
     private TextView textViewEmpty;
     private long selectedWaitingListEntryId;
     private int selectedWaitingListEntryPosition;
     private TextInputEditText editTextFirstName, editTextLastName, editTextCourse;
     private AutoCompleteTextView autoCompleteTextViewPriority;
     private AlertDialog alertDialogAdd, alertDialogUpdate;
+    private ActionMode actionMode;
+    private final ActivityResultLauncher<String> exportSnapshotLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(), uri -> exportWaitingListEntries(uri, false));
+    private final ActivityResultLauncher<String> exportCsvLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(), uri -> exportWaitingListEntries(uri, true));
+    private final ActivityResultLauncher<String[]> importLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::importWaitingListEntries);
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::runSearch;
+    private String searchText = "";
+    private int searchSequence;
 
     /**
      * Called when the activity is initially created. It initializes several global objects, sets up
      * the custom action bar, sets up the recycler view, sets up the empty text view for the
-     * recycler view, and sets up a click listener for the add floating action button.
+     * recycler view, sets up a click listener for the add floating action button, and starts
+     * observing changes to the waiting list. In debug builds, any disk access on the main thread is
+     * reported by strict mode.
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
 
         Toolbar toolbar;
-        RecyclerView recyclerViewWaitingListEntries;
         FloatingActionButton floatingActionButtonAdd;
+        final long createdNanos = SystemClock.elapsedRealtimeNanos();
+
+        // Report disk access on the main thread in debug builds. All database work belongs on the database executor.
+        if (BuildConfig.DEBUG)
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .build());
 
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
         // Initialize objects.
-        db = new DatabaseHelper(this);
-        waitingListEntries = db.getAllWaitingListEntries();
-        adapter = new WaitingListEntryAdapter(this, waitingListEntries);
+        db = DatabaseHelper.getInstance(this);
+        executor = DatabaseExecutor.getInstance();
+        adapter = new WaitingListEntryAdapter(this, db);
+        pager = new WaitingListEntryPager(db, adapter);
         textViewEmpty = findViewById(R.id.text_view_empty);
         toolbar = findViewById(R.id.toolbar);
         recyclerViewWaitingListEntries = findViewById(R.id.recycler_view_waiting_list_entries);
@@ -75,15 +165,451 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         recyclerViewWaitingListEntries.setLayoutManager(new LinearLayoutManager(this.getApplicationContext()));
         recyclerViewWaitingListEntries.setItemAnimator(new DefaultItemAnimator());
         recyclerViewWaitingListEntries.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
+        recyclerViewWaitingListEntries.addOnScrollListener(pager);
+
+        // Load the first page of the waiting list. Further pages are loaded by the pager as the recycler view is scrolled.
+        // Once loaded, change the visibility of the empty text view depending on whether there are results, and record
+        // how long the first page took to show from the start of this method.
+        textViewEmpty.setVisibility(View.GONE);
+        pager.loadInitialPage(() -> {
+            db.getPerformanceMonitor().record(OPERATION_FIRST_PAGE, SystemClock.elapsedRealtimeNanos() - createdNanos, 0, 0);
+            updateEmptyTextView();
+        });
+
+        // Set click listener for add button.
+        floatingActionButtonAdd.setOnClickListener(this);
+
+        // Observe writes to the waiting list.
+        db.getChangeNotifier().addObserver(this);
+    }
+
+    /**
+     * Called when the activity is destroyed. It stops observing changes to the waiting list, since
+     * the database helper outlives the activity. In debug builds, the counters of the entry cache
+     * are logged. When the performance monitor is enabled, its metrics are logged and written to
+     * the metrics file in the files directory of the app.
+     */
+    @Override
+    protected void onDestroy() {
+        db.getChangeNotifier().removeObserver(this);
+        if (BuildConfig.DEBUG)
+            Log.d(TAG, db.getEntryCache().toString());
+        final PerformanceMonitor monitor = db.getPerformanceMonitor();
+        if (monitor.getRegistry().isEnabled()) {
+            monitor.dumpToLog();
+            final Context context = getApplicationContext();
+            executor.read(() -> {
+                try {
+                    monitor.dumpToFile(new File(context.getFilesDir(), METRICS_FILE_NAME));
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not write metrics", e);
+                }
+                return null;
+            }, null);
+        }
+        super.onDestroy();
+    }
+
+    /**
+     * Called on the main thread with the writes made to the waiting list during a frame. The
+     * changed rows are applied to the paged list, and the search is run again if one is showing.
+     * The queue positions of the rows shown are read again, since a write can move students it did
+     * not change.
+     */
+    @Override
+    public void onWaitingListChanged(WaitingListChange change) {
+        pager.onWaitingListChanged(change, this::updateEmptyTextView);
+        if (isSearching())
+            runSearch();
+        adapter.refreshQueuePositions();
+    }
 
-        // Change the visibility of the empty text view depending on whether there are results in the array list.
-        if (waitingListEntries.size() > 0)
+    /**
+     * Shows the empty text view if the paged list is showing and has no waiting list entry
+     * objects, and hides it otherwise. It says no entries match if the list is filtered.
+     */
+    private void updateEmptyTextView() {
+        if (isSearching())
+            return;
+        textViewEmpty.setText(pager.getQuery().isFiltered() ? R.string.text_view_no_results : R.string.text_view_empty);
+        if (!pager.isEmpty())
             textViewEmpty.setVisibility(View.GONE);
         else
             textViewEmpty.setVisibility(View.VISIBLE);
+    }
 
-        // Set click listener for add button.
-        floatingActionButtonAdd.setOnClickListener(this);
+    /**
+     * Called when the options menu is created. It inflates the menu and sets up the search view.
+     */
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+
+        SearchView searchView;
+
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+
+        // Setup search view.
+        searchView = (SearchView) menu.findItem(R.id.action_search).getActionView();
+        searchView.setQueryHint(getString(R.string.search_view_hint));
+        searchView.setOnQueryTextListener(this);
+
+        return true;
+    }
+
+    /**
+     * Handles overflow menu clicks by asking the user for a document to export to or import from.
+     */
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+
+        int id = item.getItemId();
+
+        if (id == R.id.action_sort)
+            showSortDialog();
+        else if (id == R.id.action_filter_course)
+            executor.read(db::getCourseDemand, this::showFilterCourseDialog);
+        else if (id == R.id.action_filter_priority)
+            showFilterPriorityDialog();
+        else if (id == R.id.action_course_demand)
+            executor.read(db::getCourseDemand, this::showCourseDemandDialog);
+        else if (id == R.id.action_release_seats)
+            showReleaseSeatsDialog();
+        else if (id == R.id.action_export_snapshot)
+            exportSnapshotLauncher.launch(getString(R.string.file_name_snapshot));
+        else if (id == R.id.action_export_csv)
+            exportCsvLauncher.launch(getString(R.string.file_name_csv));
+        else if (id == R.id.action_import)
+            importLauncher.launch(new String[]{"*/*"});
+        else if (id == R.id.action_sync)
+            syncWaitingList();
+        else
+            return super.onOptionsItemSelected(item);
+
+        return true;
+    }
+
+    /**
+     * Builds and shows an alert dialog listing the sort orders of the list with the current one
+     * checked. Choosing one sorts the list by it.
+     */
+    private void showSortDialog() {
+
+        final WaitingListQuery query = pager.getQuery();
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.dialog_sort_title)
+                .setSingleChoiceItems(R.array.dialog_sort_selections, query.getSort(), (dialog, which) -> {
+                    dialog.dismiss();
+                    showQuery(new WaitingListQuery(query.getCourse(), query.getPriorities(), which));
+                })
+                .setNeutralButton(R.string.dialog_neutral_button, null)
+                .show();
+    }
+
+    /**
+     * Builds and shows an alert dialog listing every course with a waiting list entry, after an
+     * item for all courses, with the course shown checked. Choosing one filters the list by it.
+     */
+    private void showFilterCourseDialog(ArrayList<CourseDemand> courseDemand) {
+
+        final WaitingListQuery query = pager.getQuery();
+        final ArrayList<String> courses = new ArrayList<>();
+        LinkedHashSet<String> distinctCourses = new LinkedHashSet<>();
+        int checkedItem;
+
+        // Course demand objects arrive sorted by course, one per priority.
+        for (CourseDemand demand : courseDemand)
+            distinctCourses.add(demand.getCourse());
+        courses.add(getString(R.string.dialog_filter_course_all));
+        courses.addAll(distinctCourses);
+        checkedItem = query.getCourse() == null ? 0 : Math.max(0, courses.indexOf(query.getCourse()));
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.dialog_filter_course_title)
+                .setSingleChoiceItems(courses.toArray(new String[0]), checkedItem, (dialog, which) -> {
+                    dialog.dismiss();
+                    showQuery(new WaitingListQuery(which == 0 ? null : courses.get(which), query.getPriorities(), query.getSort()));
+                })
+                .setNeutralButton(R.string.dialog_neutral_button, null)
+                .show();
+    }
+
+    /**
+     * Builds and shows an alert dialog listing the priorities with those shown checked. The list
+     * is filtered by the checked priorities once the user applies them, and shows every priority
+     * if none or all are checked.
+     */
+    private void showFilterPriorityDialog() {
+
+        final WaitingListQuery query = pager.getQuery();
+        final String[] priorities = getResources().getStringArray(R.array.auto_complete_text_view_priority_selections);
+        final boolean[] checkedItems = new boolean[priorities.length];
+        List<String> shownPriorities = query.getPriorities();
+
+        for (int i = 0; i < priorities.length; i++)
+            checkedItems[i] = shownPriorities.contains(priorities[i]);
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.dialog_filter_priority_title)
+                .setMultiChoiceItems(priorities, checkedItems, (dialog, which, isChecked) -> checkedItems[which] = isChecked)
+                .setPositiveButton(R.string.dialog_filter_priority_positive_button, (dialog, which) -> {
+                    ArrayList<String> checkedPriorities = new ArrayList<>();
+                    for (int i = 0; i < priorities.length; i++)
+                        if (checkedItems[i])
+                            checkedPriorities.add(priorities[i]);
+                    showQuery(new WaitingListQuery(query.getCourse(), checkedPriorities, query.getSort()));
+                })
+                .setNeutralButton(R.string.dialog_neutral_button, null)
+                .show();
+    }
+
+    /**
+     * Shows the waiting list entry objects of the specified query in the paged list, from the top.
+     * Nothing happens if the list already shows the query.
+     */
+    private void showQuery(WaitingListQuery query) {
+        if (query.equals(pager.getQuery()))
+            return;
+        pager.setQuery(query, () -> {
+            recyclerViewWaitingListEntries.scrollToPosition(0);
+            updateEmptyTextView();
+        });
+    }
+
+    /**
+     * Builds and shows an alert dialog listing how many students are waiting for each course,
+     * followed by the count for each priority.
+     */
+    private void showCourseDemandDialog(ArrayList<CourseDemand> courseDemand) {
+
+        ArrayList<String> lines = new ArrayList<>();
+        ArrayList<String> priorityCounts = new ArrayList<>();
+        int courseCount = 0;
+
+        // Course demand objects arrive sorted by course, so each course is one run of the list.
+        for (int i = 0; i < courseDemand.size(); i++) {
+            CourseDemand demand = courseDemand.get(i);
+            priorityCounts.add(getString(R.string.format_course_demand_priority, demand.getPriority(), demand.getEntryCount()));
+            courseCount += demand.getEntryCount();
+            if (i == courseDemand.size() - 1 || !courseDemand.get(i + 1).getCourse().equals(demand.getCourse())) {
+                lines.add(getString(R.string.format_course_demand, demand.getCourse(), courseCount, TextUtils.join(", ", priorityCounts)));
+                priorityCounts.clear();
+                courseCount = 0;
+            }
+        }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                .setTitle(R.string.dialog_course_demand_title)
+                .setNeutralButton(R.string.dialog_course_demand_neutral_button, null);
+        if (lines.isEmpty())
+            builder.setMessage(R.string.text_view_empty);
+        else
+            builder.setItems(lines.toArray(new String[0]), null);
+        builder.show();
+    }
+
+    /**
+     * Builds and shows an alert dialog asking for a course and a number of released seats. That
+     * many students next in line for the course are admitted and removed from the waiting list.
+     */
+    private void showReleaseSeatsDialog() {
+
+        final AlertDialog alertDialogReleaseSeats;
+        final TextInputEditText editTextCourse, editTextSeatCount;
+        View dialogView;
+
+        dialogView = getLayoutInflater().inflate(R.layout.dialog_release_seats, null);
+        editTextCourse = dialogView.findViewById(R.id.edit_text_course);
+        editTextSeatCount = dialogView.findViewById(R.id.edit_text_seat_count);
+
+        alertDialogReleaseSeats = new AlertDialog.Builder(this)
+                .setTitle(R.string.dialog_release_seats_title)
+                .setView(dialogView)
+                .setPositiveButton(R.string.dialog_release_seats_positive_button, null)
+                .setNeutralButton(R.string.dialog_neutral_button, null)
+                .create();
+        alertDialogReleaseSeats.show();
+
+        // Validate the course and seat count before closing the dialog.
+        alertDialogReleaseSeats.getButton(AlertDialog.BUTTON_POSITIVE).setOnClickListener(v -> {
+            final String course = editTextCourse.getText().toString();
+            final String seatCountText = editTextSeatCount.getText().toString();
+            if (course.isEmpty()) {
+                editTextCourse.setError(getString(R.string.toast_error_empty));
+                return;
+            }
+            if (seatCountText.isEmpty()) {
+                editTextSeatCount.setError(getString(R.string.toast_error_empty));
+                return;
+            }
+            final int seatCount;
+            try {
+                seatCount = Integer.parseInt(seatCountText);
+            } catch (NumberFormatException e) {
+                editTextSeatCount.setError(getString(R.string.toast_error_seat_count));
+                return;
+            }
+            alertDialogReleaseSeats.dismiss();
+            executor.write(() -> db.admitNextInLine(course, seatCount).size(), admittedCount ->
+                    Toast.makeText(this, getResources().getQuantityString(R.plurals.toast_release_seats_complete, admittedCount, admittedCount),
+                            Toast.LENGTH_SHORT).show(), this::showDatabaseError);
+        });
+    }
+
+    /**
+     * Writes every waiting list entry object to the document with the specified uri, as CSV if csv
+     * is true and as a gzip compressed binary snapshot otherwise. The export runs on the writer
+     * thread of the database executor, so it sees no partially applied writes. A failure is logged
+     * and reported to the user. Nothing happens if the user did not choose a document.
+     */
+    private void exportWaitingListEntries(Uri uri, final boolean csv) {
+
+        if (uri == null)
+            return;
+
+        final ContentResolver contentResolver = getContentResolver();
+
+        executor.write(() -> {
+            try (OutputStream out = contentResolver.openOutputStream(uri)) {
+                if (out == null)
+                    throw new FileNotFoundException("Could not open " + uri);
+                try (WaitingListEntryWriter writer = csv ? new CsvWaitingListEntryWriter(out) : new BinarySnapshotWriter(out, true)) {
+                    return db.exportWaitingListEntries(writer);
+                }
+            }
+        }, exportedCount -> Toast.makeText(this, getString(R.string.toast_export_complete, exportedCount), Toast.LENGTH_SHORT).show(), e -> {
+            Log.w(TAG, "Export failed", e);
+            Toast.makeText(this, R.string.toast_export_failed, Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    /**
+     * Inserts every waiting list entry object in the document with the specified uri. Binary
+     * snapshots are recognized by their header and anything else is read as CSV. The import runs
+     * on the writer thread of the database executor, and the list is refreshed by the change
+     * notifier as batches are committed. A failure is logged, and the user is told whether the
+     * document is cut short or malformed or could not be read at all. Nothing happens if the user
+     * did not choose a document.
+     */
+    private void importWaitingListEntries(Uri uri) {
+
+        if (uri == null)
+            return;
+
+        final ContentResolver contentResolver = getContentResolver();
+
+        executor.write(() -> {
+            try (InputStream rawIn = contentResolver.openInputStream(uri)) {
+                if (rawIn == null)
+                    throw new FileNotFoundException("Could not open " + uri);
+                BufferedInputStream in = new BufferedInputStream(rawIn);
+                try (WaitingListEntryReader reader = BinarySnapshotReader.isBinarySnapshot(in) ? new BinarySnapshotReader(in) : new CsvWaitingListEntryReader(in)) {
+                    return db.importWaitingListEntries(reader);
+                }
+            }
+        }, importedCount -> Toast.makeText(this, getString(R.string.toast_import_complete, importedCount), Toast.LENGTH_SHORT).show(), e -> {
+            Log.w(TAG, "Import failed", e);
+            Toast.makeText(this, e instanceof SnapshotFormatException ? R.string.toast_import_invalid_file : R.string.toast_import_failed,
+                    Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    /**
+     * Pushes the local changes to the registrar backend and pulls the changes made on other
+     * devices. The sync runs on the writer thread of the database executor, so no local write
+     * interleaves with applying a pulled batch, and the list is refreshed by the change notifier
+     * once pulled changes are applied. A failed sync keeps every batch that completed, so the
+     * next one resumes after them.
+     */
+    private void syncWaitingList() {
+
+        final String baseUrl = getString(R.string.sync_base_url);
+        if (baseUrl.isEmpty()) {
+            Toast.makeText(this, R.string.toast_sync_not_configured, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        executor.write(() -> {
+            try {
+                return new SyncEngine(db, new HttpSyncTransport(new URL(baseUrl))).sync();
+            } catch (IOException | SQLException e) {
+                Log.w(TAG, "Sync failed", e);
+                return null;
+            }
+        }, syncResult -> {
+            if (syncResult == null)
+                Toast.makeText(this, R.string.toast_sync_failed, Toast.LENGTH_SHORT).show();
+            else
+                Toast.makeText(this, getString(R.string.toast_sync_complete, syncResult.getPushedCount(), syncResult.getAppliedCount()),
+                        Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    /**
+     * Handles search view submissions. It runs the search right away rather than waiting for the
+     * debounce delay.
+     */
+    @Override
+    public boolean onQueryTextSubmit(String query) {
+        searchText = query.trim();
+        searchHandler.removeCallbacks(searchRunnable);
+        if (!searchText.isEmpty())
+            runSearch();
+        return true;
+    }
+
+    /**
+     * Handles search view text changes. The search runs once the text has stopped changing for the
+     * debounce delay. Clearing the text returns to the paged list.
+     */
+    @Override
+    public boolean onQueryTextChange(String newText) {
+
+        searchText = newText.trim();
+        searchHandler.removeCallbacks(searchRunnable);
+
+        if (searchText.isEmpty())
+            endSearch();
+        else
+            searchHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MILLIS);
+
+        return true;
+    }
+
+    /**
+     * Searches for waiting list entry objects matching the search text on the database executor and
+     * shows them in the recycler view. Results of a search superseded by a later one are ignored.
+     */
+    private void runSearch() {
+
+        final int sequence = ++searchSequence;
+        final String text = searchText;
+
+        pager.pause();
+        executor.read(() -> db.searchWaitingListEntries(text, SEARCH_RESULT_LIMIT), results -> {
+            if (sequence != searchSequence)
+                return;
+            adapter.submitList(results);
+            textViewEmpty.setText(R.string.text_view_no_results);
+            textViewEmpty.setVisibility(results.isEmpty() ? View.VISIBLE : View.GONE);
+        });
+    }
+
+    /**
+     * Returns the recycler view to the paged list of the waiting list entry objects shown by its
+     * query.
+     */
+    private void endSearch() {
+        searchSequence++;
+        pager.resume();
+        updateEmptyTextView();
+    }
+
+    /**
+     * Returns true if the recycler view is showing search results.
+     */
+    private boolean isSearching() {
+        return !searchText.isEmpty();
     }
 
     /**
@@ -112,16 +638,94 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
     }
 
     /**
-     * Handles recycler view clicks. It shows an update entry alert dialog corresponding to the
-     * selected waiting list entry. It also updates the global position of the selected waiting list
+     * Handles recycler view clicks. In selection mode it toggles the selection of the clicked
+     * waiting list entry. Otherwise, it shows an update entry alert dialog corresponding to the
+     * selected waiting list entry and updates the global position of the selected waiting list
      * entry.
      */
     @Override
     public void onClick(View view, int position) {
+        if (position == RecyclerView.NO_POSITION)
+            return;
+        if (actionMode != null) {
+            toggleSelection(position);
+            return;
+        }
         selectedWaitingListEntryPosition = position;
         showUpdateEntryDialog();
     }
 
+    /**
+     * Handles recycler view long clicks. It starts selection mode if it is not started and toggles
+     * the selection of the long clicked waiting list entry.
+     */
+    @Override
+    public void onLongClick(View view, int position) {
+        if (position == RecyclerView.NO_POSITION)
+            return;
+        if (actionMode == null)
+            actionMode = startSupportActionMode(this);
+        toggleSelection(position);
+    }
+
+    /**
+     * Toggles the selection of the waiting list entry at the specified position and updates the
+     * selection mode title. Selection mode ends when nothing is left selected.
+     */
+    private void toggleSelection(int position) {
+        adapter.toggleSelection(position);
+        int selectedCount = adapter.getSelectedCount();
+        if (selectedCount == 0)
+            actionMode.finish();
+        else
+            actionMode.setTitle(getResources().getQuantityString(R.plurals.action_mode_title_selected, selectedCount, selectedCount));
+    }
+
+    /**
+     * Called when selection mode starts. It inflates the selection menu.
+     */
+    @Override
+    public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+        mode.getMenuInflater().inflate(R.menu.menu_selection, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+        return false;
+    }
+
+    /**
+     * Handles selection menu clicks by showing the dialog for the chosen batch operation.
+     */
+    @Override
+    public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+
+        int id = item.getItemId();
+
+        if (id == R.id.action_delete_selected)
+            showDeleteSelectedDialog();
+        else if (id == R.id.action_change_priority)
+            showChangePriorityDialog();
+        else if (id == R.id.action_move_course)
+            showMoveCourseDialog();
+        else if (id == R.id.action_history)
+            readHistory();
+        else
+            return false;
+
+        return true;
+    }
+
+    /**
+     * Called when selection mode ends. It deselects every waiting list entry.
+     */
+    @Override
+    public void onDestroyActionMode(ActionMode mode) {
+        adapter.clearSelection();
+        actionMode = null;
+    }
+
     /**
      * Returns true if the text in the global edit texts are valid to be attributes for a new
      * waiting list entry object. If invalid text is detected, an error is set on the edit text from
@@ -205,7 +809,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         // Initialize helper objects.
         builder = new AlertDialog.Builder(this);
         dialogView = getLayoutInflater().inflate(R.layout.dialog_waiting_list_entry, null);
-        selectedWaitingListEntry = waitingListEntries.get(selectedWaitingListEntryPosition);
+        selectedWaitingListEntry = adapter.getCurrentList().get(selectedWaitingListEntryPosition);
         arrayAdapterPriority = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, getResources().getStringArray(R.array.auto_complete_text_view_priority_selections));
 
         // Update global id of selected waiting list entry.
@@ -242,81 +846,238 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         alertDialogUpdate.getButton(AlertDialog.BUTTON_NEGATIVE).setOnClickListener(this);
     }
 
+    /**
+     * Builds and shows an alert dialog confirming the deletion of the selected entries.
+     */
+    private void showDeleteSelectedDialog() {
+
+        final ArrayList<Long> ids = adapter.getSelectedIds();
+
+        new AlertDialog.Builder(this)
+                .setMessage(getResources().getQuantityString(R.plurals.dialog_delete_selected_message, ids.size(), ids.size()))
+                .setPositiveButton(R.string.dialog_delete_selected_positive_button, (dialog, which) -> {
+                    executor.write(() -> db.deleteWaitingListEntries(ids), deletedCount -> showDeletedSnackbar(ids, deletedCount), this::showDatabaseError);
+                    finishActionMode();
+                })
+                .setNeutralButton(R.string.dialog_neutral_button, null)
+                .show();
+    }
+
+    /**
+     * Builds and shows an alert dialog listing the priorities. Choosing one gives it to every
+     * selected entry.
+     */
+    private void showChangePriorityDialog() {
+
+        final ArrayList<Long> ids = adapter.getSelectedIds();
+        final String[] priorities = getResources().getStringArray(R.array.auto_complete_text_view_priority_selections);
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.dialog_change_priority_title)
+                .setItems(priorities, (dialog, which) -> {
+                    executor.write(() -> db.updateWaitingListEntryPriorities(ids, priorities[which]), null, this::showDatabaseError);
+                    finishActionMode();
+                })
+                .setNeutralButton(R.string.dialog_neutral_button, null)
+                .show();
+    }
+
+    /**
+     * Builds and shows an alert dialog asking for a course. Every selected entry is moved to it.
+     */
+    private void showMoveCourseDialog() {
+
+        final ArrayList<Long> ids = adapter.getSelectedIds();
+        final AlertDialog alertDialogMoveCourse;
+        final TextInputEditText editTextNewCourse;
+        View dialogView;
+
+        dialogView = getLayoutInflater().inflate(R.layout.dialog_move_course, null);
+        editTextNewCourse = dialogView.findViewById(R.id.edit_text_course);
+
+        alertDialogMoveCourse = new AlertDialog.Builder(this)
+                .setTitle(R.string.dialog_move_course_title)
+                .setView(dialogView)
+                .setPositiveButton(R.string.dialog_move_course_positive_button, null)
+                .setNeutralButton(R.string.dialog_neutral_button, null)
+                .create();
+        alertDialogMoveCourse.show();
+
+        // Validate the course before closing the dialog.
+        alertDialogMoveCourse.getButton(AlertDialog.BUTTON_POSITIVE).setOnClickListener(v -> {
+            final String newCourse = editTextNewCourse.getText().toString();
+            if (newCourse.isEmpty()) {
+                editTextNewCourse.setError(getString(R.string.toast_error_empty));
+                return;
+            }
+            alertDialogMoveCourse.dismiss();
+            executor.write(() -> db.updateWaitingListEntryCourses(ids, newCourse), null, this::showDatabaseError);
+            finishActionMode();
+        });
+    }
+
+    /**
+     * Reads the change journal of every selected entry on the database executor and shows it in an
+     * alert dialog, oldest event first. Selection mode stays started.
+     */
+    private void readHistory() {
+
+        final ArrayList<Long> ids = adapter.getSelectedIds();
+
+        executor.read(() -> {
+            List<JournalEvent> events = new ArrayList<>();
+            for (long id : ids)
+                events.addAll(db.getJournalEventsForEntry(id));
+            Collections.sort(events, (first, second) -> Long.compare(first.getSeq(), second.getSeq()));
+            return events;
+        }, this::showHistoryDialog);
+    }
+
+    /**
+     * Builds and shows an alert dialog listing the specified journal events, each with the time it
+     * was recorded, what happened, and the attributes of the entry it left behind or removed.
+     */
+    private void showHistoryDialog(List<JournalEvent> events) {
+
+        String[] eventTypes = getResources().getStringArray(R.array.dialog_history_event_types);
+        DateFormat dateFormat = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.MEDIUM);
+        String[] lines = new String[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            JournalEvent event = events.get(i);
+            lines[i] = getString(R.string.format_history_event,
+                    dateFormat.format(new Date(event.getRecordedAt())),
+                    eventTypes[event.getType()],
+                    event.getFirstName(),
+                    event.getLastName(),
+                    event.getCourse(),
+                    event.getPriority());
+        }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                .setTitle(R.string.dialog_history_title)
+                .setNeutralButton(R.string.dialog_history_neutral_button, null);
+        if (lines.length == 0)
+            builder.setMessage(R.string.dialog_history_empty);
+        else
+            builder.setItems(lines, null);
+        builder.show();
+    }
+
+    /**
+     * Ends selection mode if it is started.
+     */
+    private void finishActionMode() {
+        if (actionMode != null)
+            actionMode.finish();
+    }
+
     /**
      * Inserts a new waiting list entry object into the database. The attributes are specified in
-     * globally referenced edit texts. Then, the recycler view is updated appropriately.
+     * globally referenced edit texts. If the student already waits for the course, the stored
+     * object takes the new priority instead, so a repeated registration does not add a duplicate.
+     * The database work is done on the database executor, and the recycler view is updated when
+     * the change notifier reports the write.
      */
     private void insertWaitingListEntry() {
 
         if (areEditTextsValid()) {
 
-            long newId;
-            WaitingListEntry insertedWaitingListEntry;
+            final String firstName, lastName, course, priority;
 
             // Hide add entry alert dialog.
             alertDialogAdd.hide();
 
-            // Insert object into database.
-            newId = db.insertWaitingListEntry(
-                    editTextFirstName.getText().toString(),
-                    editTextLastName.getText().toString(),
-                    editTextCourse.getText().toString(),
-                    autoCompleteTextViewPriority.getText().toString()
-            );
-
-            // Update recycler view.
-            insertedWaitingListEntry = db.getWaitingListEntry(newId);
-            waitingListEntries.add(0, insertedWaitingListEntry);
-            adapter.notifyItemInserted(0);
-            textViewEmpty.setVisibility(View.GONE);
+            // Read attributes from the dialog before leaving the main thread.
+            firstName = editTextFirstName.getText().toString();
+            lastName = editTextLastName.getText().toString();
+            course = editTextCourse.getText().toString();
+            priority = autoCompleteTextViewPriority.getText().toString();
+
+            // Insert object into database, or update the student's existing object for the course.
+            executor.write(() -> db.upsertWaitingListEntry(firstName, lastName, course, priority), null, this::showDatabaseError);
         }
     }
 
     /**
      * Updates a waiting list entry object in the database. The attributes are specified in globally
-     * referenced edit texts. Then, the recycler view is updated appropriately.
+     * referenced edit texts. The database work is done on the database executor, and the recycler
+     * view is updated when the change notifier reports the update.
      */
     private void updateWaitingListEntry() {
 
         if (areEditTextsValid()) {
 
-            WaitingListEntry updatedWaitingListEntry;
+            final long id;
+            final String firstName, lastName, course, priority;
 
             // Hide update entry alert dialog.
             alertDialogUpdate.hide();
 
+            // Read attributes from the dialog before leaving the main thread.
+            id = selectedWaitingListEntryId;
+            firstName = editTextFirstName.getText().toString();
+            lastName = editTextLastName.getText().toString();
+            course = editTextCourse.getText().toString();
+            priority = autoCompleteTextViewPriority.getText().toString();
+
             // Update object in database.
-            db.updateWaitingListEntry(
-                    selectedWaitingListEntryId,
-                    editTextFirstName.getText().toString(),
-                    editTextLastName.getText().toString(),
-                    editTextCourse.getText().toString(),
-                    autoCompleteTextViewPriority.getText().toString()
-            );
-
-            // Update recycler view.
-            updatedWaitingListEntry = db.getWaitingListEntry(selectedWaitingListEntryId);
-            waitingListEntries.set(selectedWaitingListEntryPosition, updatedWaitingListEntry);
-            adapter.notifyItemChanged(selectedWaitingListEntryPosition);
+            executor.write(() -> {
+                db.updateWaitingListEntry(id, firstName, lastName, course, priority);
+                return null;
+            }, null, this::showDatabaseError);
         }
     }
 
     /**
      * Deletes a waiting list entry object from the database. The attributes are specified in
-     * globally referenced edit texts. Then, the recycler view is updated appropriately.
+     * globally referenced edit texts. The database work is done on the database executor, and the
+     * recycler view is updated when the change notifier reports the delete. A snackbar then offers
+     * to undo the delete.
      */
     private void deleteWaitingListEntry() {
 
+        final List<Long> ids = Collections.singletonList(selectedWaitingListEntryId);
+
         // Hide update entry alert dialog.
         alertDialogUpdate.hide();
 
         // Remove object in database.
-        db.deleteWaitingListEntry(selectedWaitingListEntryId);
+        executor.write(() -> db.deleteWaitingListEntries(ids), deletedCount -> showDeletedSnackbar(ids, deletedCount), this::showDatabaseError);
+    }
 
-        // Update recycler view.
-        waitingListEntries.remove(selectedWaitingListEntryPosition);
-        adapter.notifyItemRemoved(selectedWaitingListEntryPosition);
-        if (waitingListEntries.size() <= 0)
-            textViewEmpty.setVisibility(View.VISIBLE);
+    /**
+     * Shows a snackbar saying how many entries were deleted, with an action that restores them. The
+     * recycler view is updated when the change notifier reports the restored entries as inserted.
+     * Nothing is shown if no entry was deleted.
+     */
+    private void showDeletedSnackbar(final Collection<Long> ids, final int deletedCount) {
+        if (deletedCount == 0)
+            return;
+        Snackbar.make(recyclerViewWaitingListEntries, getResources().getQuantityString(R.plurals.snackbar_deleted_message, deletedCount, deletedCount), Snackbar.LENGTH_LONG)
+                .setAction(R.string.snackbar_deleted_action, view -> executor.write(() -> db.restoreWaitingListEntries(ids), restoredCount -> showNotRestoredSnackbar(deletedCount - restoredCount),
+                        this::showDatabaseError))
+                .show();
+    }
+
+    /**
+     * Shows a snackbar saying how many deleted entries could not be restored because their
+     * students have since been added to the same course again. Those entries stay deleted until
+     * they are purged. Nothing is shown if every entry was restored.
+     */
+    private void showNotRestoredSnackbar(int notRestoredCount) {
+        if (notRestoredCount <= 0)
+            return;
+        Snackbar.make(recyclerViewWaitingListEntries, getResources().getQuantityString(R.plurals.snackbar_not_restored_message, notRestoredCount, notRestoredCount), Snackbar.LENGTH_LONG)
+                .show();
+    }
+
+    /**
+     * Shows a toast saying a change to the waiting list could not be saved. It is the error
+     * callback of every write the user starts, so a failed write is reported rather than lost or
+     * crashing the app.
+     */
+    private void showDatabaseError(Exception e) {
+        Log.w(TAG, "Database write failed", e);
+        Toast.makeText(this, R.string.toast_database_error, Toast.LENGTH_SHORT).show();
     }
 }
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class runs database work off the main thread. Writes are run one at a time, in the order
+ * they are submitted, on a single writer thread. Reads are run on a small pool of reader threads.
+ * Results are delivered to callbacks on the main thread. The exception of a task that throws is
+ * delivered to its error callback on the main thread, or logged if it has none, and is also held
+ * by its future. It is never rethrown on the main thread, so a failed write cannot crash the app
+ * while it is in the background. Idle tasks, such as checkpointing the write-ahead log, run on the writer thread
+ * once no write has been submitted for a while.
+ */
+public class DatabaseExecutor {
+
+    // Log tag.
+    private static final String TAG = "DatabaseExecutor";
+
+    // Executor constants. The default reader count matches the reader connections SQLite keeps open
+    // in write-ahead logging mode by default.
+    private static final int DEFAULT_READER_THREAD_COUNT = 3;
+    private static final long IDLE_DELAY_MILLIS = 5000;
+
+    // Process-wide instance and configuration.
+    private static DatabaseExecutor instance;
+    private static int readerThreadCount = DEFAULT_READER_THREAD_COUNT;
+
+    // Class objects.
+    private final ExecutorService writeExecutor;
+    private final ExecutorService readExecutor;
+    private final Handler mainThreadHandler;
+    private final List<Runnable> idleTasks = new CopyOnWriteArrayList<>();
+    private final Runnable idleRunnable = this::runIdleTasks;
+
+    /**
+     * Returns the process-wide database executor, creating it on first use.
+     */
+    public static synchronized DatabaseExecutor getInstance() {
+        if (instance == null)
+            instance = new DatabaseExecutor();
+        return instance;
+    }
+
+    /**
+     * Sets the number of reader threads. It must be called before the executor is first used.
+     */
+    public static synchronized void setReaderThreadCount(int count) {
+        if (instance != null)
+            throw new IllegalStateException("The database executor has already been created");
+        if (count < 1)
+            throw new IllegalArgumentException("There must be at least one reader thread");
+        readerThreadCount = count;
+    }
+
+    /**
+     * Constructs a database executor with one writer thread and a pool of reader threads.
+     */
+    private DatabaseExecutor() {
+        writeExecutor = Executors.newSingleThreadExecutor(new DatabaseThreadFactory("database-writer"));
+        readExecutor = Executors.newFixedThreadPool(readerThreadCount, new DatabaseThreadFactory("database-reader"));
+        mainThreadHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Adds a task to run on the writer thread whenever the writer has been idle for a while.
+     */
+    public void addIdleTask(@NonNull Runnable task) {
+        idleTasks.add(task);
+    }
+
+    /**
+     * Submits a task that writes to the database. Write tasks run in submission order. The result
+     * of the task is passed to the callback on the main thread. An exception thrown by the task is
+     * logged.
+     */
+    public <T> Future<T> write(@NonNull Callable<T> task, @Nullable Callback<T> callback) {
+        return write(task, callback, null);
+    }
+
+    /**
+     * Submits a task that writes to the database. Write tasks run in submission order. The result
+     * of the task is passed to the callback on the main thread, or if the task throws, its
+     * exception is passed to the error callback on the main thread.
+     */
+    public <T> Future<T> write(@NonNull Callable<T> task, @Nullable Callback<T> callback, @Nullable ErrorCallback errorCallback) {
+        mainThreadHandler.removeCallbacks(idleRunnable);
+        mainThreadHandler.postDelayed(idleRunnable, IDLE_DELAY_MILLIS);
+        return submit(writeExecutor, task, callback, errorCallback);
+    }
+
+    /**
+     * Submits a task that only reads from the database. Read tasks may run concurrently with each
+     * other and with a write task. The result of the task is passed to the callback on the main
+     * thread. An exception thrown by the task is logged.
+     */
+    public <T> Future<T> read(@NonNull Callable<T> task, @Nullable Callback<T> callback) {
+        return read(task, callback, null);
+    }
+
+    /**
+     * Submits a task that only reads from the database. Read tasks may run concurrently with each
+     * other and with a write task. The result of the task is passed to the callback on the main
+     * thread, or if the task throws, its exception is passed to the error callback on the main
+     * thread.
+     */
+    public <T> Future<T> read(@NonNull Callable<T> task, @Nullable Callback<T> callback, @Nullable ErrorCallback errorCallback) {
+        return submit(readExecutor, task, callback, errorCallback);
+    }
+
+    /**
+     * Submits the task to the specified executor and posts its outcome to the main thread. A
+     * failure is posted to the error callback, or logged if there is none, and is rethrown on the
+     * executor thread only, so it is held by the returned future.
+     */
+    private <T> Future<T> submit(ExecutorService executor, final Callable<T> task, @Nullable final Callback<T> callback,
+                                 @Nullable final ErrorCallback errorCallback) {
+        return executor.submit(() -> {
+            final T result;
+            try {
+                result = task.call();
+            } catch (final Exception e) {
+                if (errorCallback != null)
+                    mainThreadHandler.post(() -> errorCallback.onError(e));
+                else
+                    Log.e(TAG, "Database task failed", e);
+                throw e;
+            }
+            if (callback != null)
+                mainThreadHandler.post(() -> callback.onComplete(result));
+            return result;
+        });
+    }
+
+    /**
+     * Submits every idle task to the writer thread. Idle tasks do not delay further idle runs. They
+     * are submitted like write tasks without callbacks, so an idle task that throws is logged rather
+     * than killing the writer thread and, with it, the app.
+     */
+    private void runIdleTasks() {
+        for (Runnable task : idleTasks)
+            submit(writeExecutor, Executors.callable(task), null, null);
+    }
+
+    /**
+     * This interface provides a callback for the result of a database task. It is always called on
+     * the main thread.
+     */
+    public interface Callback<T> {
+        void onComplete(T result);
+    }
+
+    /**
+     * This interface provides a callback for the exception thrown by a failed database task. It
+     * is always called on the main thread.
+     */
+    public interface ErrorCallback {
+        void onError(Exception e);
+    }
+
+    /**
+     * This class creates named background priority threads for the executors.
+     */
+    private static class DatabaseThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        DatabaseThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, namePrefix + "-" + threadCount.incrementAndGet());
+        }
+    }
+}
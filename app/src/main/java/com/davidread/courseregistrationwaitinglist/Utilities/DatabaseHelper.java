@@ -1,36 +1,264 @@
 package com.davidread.courseregistrationwaitinglist.Utilities;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
+import com.davidread.courseregistrationwaitinglist.BuildConfig;
+import com.davidread.courseregistrationwaitinglist.Journal.JournalSchema;
+import com.davidread.courseregistrationwaitinglist.Journal.JournalStore;
+import com.davidread.courseregistrationwaitinglist.Models.Admission;
+import com.davidread.courseregistrationwaitinglist.Models.CourseDemand;
+import com.davidread.courseregistrationwaitinglist.Models.JournalEvent;
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
 import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+import com.davidread.courseregistrationwaitinglist.R;
+import com.davidread.courseregistrationwaitinglist.Repositories.DeletedEntrySchema;
+import com.davidread.courseregistrationwaitinglist.Repositories.WaitingListQuery;
+import com.davidread.courseregistrationwaitinglist.Repositories.WaitingListRepository;
+import com.davidread.courseregistrationwaitinglist.Snapshots.WaitingListEntryReader;
+import com.davidread.courseregistrationwaitinglist.Snapshots.WaitingListEntryWriter;
+import com.davidread.courseregistrationwaitinglist.Sync.SyncSchema;
+import com.davidread.courseregistrationwaitinglist.Sync.SyncStore;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This class provides functions to manipulate waiting list entry objects stored in an SQLite
- * database.
+ * database. A single instance is shared for the lifetime of the process. It keeps one database
+ * connection open and reuses precompiled statements for writes rather than opening and closing
+ * the database file on every call. The database runs in write-ahead logging mode, so reads on the
+ * reader threads of the database executor do not wait for the writer, and the log is checkpointed
+ * when the writer is idle. Every committed write is recorded with the change notifier, so
+ * observers learn of changes without reading the written rows back. Triggers mark every local
+ * change for sync with the registrar backend, and the helper is the sync store the sync engine
+ * pushes from and pulls into. Deleted rows are moved aside so they can be restored, and the
+ * database maintenance purges them and compacts the file when the writer is idle. Triggers also
+ * append every change to the change journal in the transaction that made it, and the helper is
+ * the journal store the list is rebuilt from as it was at any time. Queries, row writes, and
+ * transactions are timed by the performance monitor, which costs nothing beyond a flag check
+ * while it is disabled.
  */
-public class DatabaseHelper extends SQLiteOpenHelper {
+public class DatabaseHelper extends SQLiteOpenHelper implements WaitingListRepository, SyncStore, JournalStore {
 
     // Database helper variables.
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 11;
     private static final String DATABASE_NAME = "db";
+    @VisibleForTesting
+    static final int BULK_INSERT_BATCH_SIZE = 500;
+    private static final int BACKFILL_CHUNK_SIZE = 2000;
+    private static final int BATCH_ID_CHUNK_SIZE = 500;
+    private static final int EXPORT_PAGE_SIZE = 1000;
+    private static final int ENTRY_CACHE_SIZE = 256;
+    private static final long SLOW_OPERATION_MILLIS = 50;
+
+    // Names of the operations timed by the performance monitor.
+    private static final String OPERATION_SELECT_BY_ID = "db_select_by_id";
+    private static final String OPERATION_SELECT_BY_KEYS = "db_select_by_keys";
+    private static final String OPERATION_SELECT_ALL = "db_select_all";
+    private static final String OPERATION_SELECT_FOLLOWING = "db_select_following";
+    private static final String OPERATION_SELECT_PRECEDING = "db_select_preceding";
+    private static final String OPERATION_SELECT_NEXT_IN_LINE = "db_select_next_in_line";
+    private static final String OPERATION_SEARCH = "db_search";
+    private static final String OPERATION_COURSE_DEMAND = "db_course_demand";
+    private static final String OPERATION_QUEUE_INDEX_BUILD = "db_queue_index_build";
+    private static final String OPERATION_INSERT_ROW = "db_insert_row";
+    private static final String OPERATION_UPDATE_ROW = "db_update_row";
+    private static final String OPERATION_UPDATE_PRIORITY_ROW = "db_update_priority_row";
+    private static final String OPERATION_DELETE_ROW = "db_delete_row";
+    private static final String OPERATION_DELETE_IDS = "db_delete_ids";
+    private static final String OPERATION_UPDATE_IDS = "db_update_ids";
+    private static final String OPERATION_INSERT_ADMISSIONS = "db_insert_admissions";
+    private static final String OPERATION_UPSERT = "tx_upsert";
+    private static final String OPERATION_UPDATE = "tx_update";
+    private static final String OPERATION_DELETE_BATCH = "tx_delete_batch";
+    private static final String OPERATION_UPDATE_BATCH = "tx_update_batch";
+    private static final String OPERATION_BULK_INSERT_BATCH = "tx_bulk_insert_batch";
+    private static final String OPERATION_ADMIT = "tx_admit";
+    private static final String OPERATION_BACKFILL_CHUNK = "tx_backfill_chunk";
+    private static final String OPERATION_SYNC_PENDING = "db_sync_pending";
+    private static final String OPERATION_SYNC_APPLY = "tx_sync_apply";
+    private static final String OPERATION_COPY_TO_DELETED_IDS = "db_copy_to_deleted_ids";
+    private static final String OPERATION_SELECT_RESTORABLE_IDS = "db_select_restorable_ids";
+    private static final String OPERATION_RESTORE_IDS = "db_restore_ids";
+    private static final String OPERATION_DELETE_DELETED_IDS = "db_delete_deleted_ids";
+    private static final String OPERATION_RESTORE_BATCH = "tx_restore_batch";
+    private static final String OPERATION_PURGE_CHUNK = "db_purge_chunk";
+    private static final String OPERATION_VACUUM = "db_vacuum";
+    private static final String OPERATION_INCREMENTAL_VACUUM = "db_incremental_vacuum";
+    private static final String OPERATION_ANALYZE = "db_analyze";
+    private static final String OPERATION_JOURNAL_SNAPSHOT_READ = "db_journal_snapshot_read";
+    private static final String OPERATION_JOURNAL_EVENTS_READ = "db_journal_events_read";
+    private static final String OPERATION_JOURNAL_SNAPSHOT = "tx_journal_snapshot";
+    private static final String OPERATION_JOURNAL_COMPACT_CHUNK = "tx_journal_compact_chunk";
+
+    // SQL strings compiled once per connection.
+    private static final String INSERT_WAITING_LIST_ENTRY_STATEMENT = "INSERT INTO " + WaitingListEntry.TABLE_NAME + "("
+            + WaitingListEntry.COLUMN_FIRST_NAME + ","
+            + WaitingListEntry.COLUMN_LAST_NAME + ","
+            + WaitingListEntry.COLUMN_COURSE + ","
+            + WaitingListEntry.COLUMN_PRIORITY + ","
+            + WaitingListEntry.COLUMN_PRIORITY_RANK + ","
+            + WaitingListEntry.COLUMN_NAME_KEY + ","
+            + WaitingListEntry.COLUMN_COURSE_KEY
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_WAITING_LIST_ENTRY_STATEMENT = "UPDATE " + WaitingListEntry.TABLE_NAME + " SET "
+            + WaitingListEntry.COLUMN_FIRST_NAME + " = ?,"
+            + WaitingListEntry.COLUMN_LAST_NAME + " = ?,"
+            + WaitingListEntry.COLUMN_COURSE + " = ?,"
+            + WaitingListEntry.COLUMN_PRIORITY + " = ?,"
+            + WaitingListEntry.COLUMN_PRIORITY_RANK + " = ?,"
+            + WaitingListEntry.COLUMN_NAME_KEY + " = ?,"
+            + WaitingListEntry.COLUMN_COURSE_KEY + " = ?"
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " = ?";
+    private static final String UPDATE_WAITING_LIST_ENTRY_PRIORITY_STATEMENT = "UPDATE " + WaitingListEntry.TABLE_NAME + " SET "
+            + WaitingListEntry.COLUMN_PRIORITY + " = ?,"
+            + WaitingListEntry.COLUMN_PRIORITY_RANK + " = ?"
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " = ?";
+    private static final String DELETE_WAITING_LIST_ENTRY_STATEMENT = "DELETE FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " = ?";
+    private static final String SELECT_WAITING_LIST_ENTRY_QUERY = "SELECT " + WaitingListEntryMapper.COLUMNS + " FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " = ?";
+    private static final String SELECT_WAITING_LIST_ENTRY_BY_KEYS_QUERY = "SELECT " + WaitingListEntryMapper.COLUMNS + " FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_NAME_KEY + " = ?"
+            + " AND " + WaitingListEntry.COLUMN_COURSE_KEY + " = ?";
+    private static final String SELECT_ALL_WAITING_LIST_ENTRIES_QUERY = "SELECT " + WaitingListEntryMapper.COLUMNS + " FROM " + WaitingListEntry.TABLE_NAME
+            + " ORDER BY " + WaitingListEntry.COLUMN_ID + " DESC";
+    private static final String SELECT_NEXT_IN_LINE_QUERY = "SELECT " + WaitingListEntryMapper.COLUMNS + " FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_COURSE_KEY + " = ?"
+            + " ORDER BY " + WaitingListEntry.COLUMN_PRIORITY_RANK + ", " + WaitingListEntry.COLUMN_ID + " LIMIT ?";
+    private static final String SEARCH_WAITING_LIST_ENTRIES_QUERY = "SELECT " + WaitingListEntryMapper.COLUMNS + " FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN ("
+            + "SELECT " + WaitingListEntry.SEARCH_COLUMN_DOCID + " FROM " + WaitingListEntry.SEARCH_TABLE_NAME
+            + " WHERE " + WaitingListEntry.SEARCH_TABLE_NAME + " MATCH ?"
+            + ") ORDER BY " + WaitingListEntry.COLUMN_ID + " DESC LIMIT ?";
+
+    // SQL string prefixes completed with one placeholder per id of a batch and a closing parenthesis.
+    private static final String DELETE_WAITING_LIST_ENTRIES_STATEMENT_PREFIX = "DELETE FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (";
+    private static final String UPDATE_WAITING_LIST_ENTRY_PRIORITIES_STATEMENT_PREFIX = "UPDATE " + WaitingListEntry.TABLE_NAME + " SET "
+            + WaitingListEntry.COLUMN_PRIORITY + " = ?,"
+            + WaitingListEntry.COLUMN_PRIORITY_RANK + " = ?"
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (";
+    private static final String UPDATE_WAITING_LIST_ENTRY_COURSES_STATEMENT_PREFIX = "UPDATE OR IGNORE " + WaitingListEntry.TABLE_NAME + " SET "
+            + WaitingListEntry.COLUMN_COURSE + " = ?,"
+            + WaitingListEntry.COLUMN_COURSE_KEY + " = ?"
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (";
+    private static final String INSERT_ADMISSIONS_STATEMENT_PREFIX = "INSERT INTO " + Admission.TABLE_NAME + "("
+            + Admission.COLUMN_ID + ","
+            + Admission.COLUMN_FIRST_NAME + ","
+            + Admission.COLUMN_LAST_NAME + ","
+            + Admission.COLUMN_COURSE + ","
+            + Admission.COLUMN_PRIORITY + ","
+            + Admission.COLUMN_ADMITTED_AT
+            + ") SELECT " + WaitingListEntryMapper.COLUMNS + ", ? FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (";
+    private static final String SELECT_WAITING_LIST_ENTRIES_BY_ID_QUERY_PREFIX = "SELECT " + WaitingListEntryMapper.COLUMNS + " FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (";
+
+    private static final String SELECT_ALL_COURSE_DEMAND_QUERY = "SELECT "
+            + CourseDemand.COLUMN_COURSE + ","
+            + CourseDemand.COLUMN_PRIORITY + ","
+            + CourseDemand.COLUMN_ENTRY_COUNT
+            + " FROM " + CourseDemand.TABLE_NAME;
+    private static final String SELECT_COURSE_DEMAND_QUERY = SELECT_ALL_COURSE_DEMAND_QUERY
+            + " WHERE " + CourseDemand.COLUMN_COURSE_KEY + " = ?";
+
+    private static final String SELECT_QUEUE_INDEX_QUERY = "SELECT "
+            + WaitingListEntry.COLUMN_ID + ","
+            + WaitingListEntry.COLUMN_COURSE_KEY + ","
+            + WaitingListEntry.COLUMN_COURSE + ","
+            + WaitingListEntry.COLUMN_PRIORITY
+            + " FROM " + WaitingListEntry.TABLE_NAME;
+
+    // Process-wide instance.
+    private static DatabaseHelper instance;
+
+    // Format used to precompute the full names of objects read from the database.
+    private final String fullNameFormat;
+
+    // Connection and statement objects.
+    private SQLiteDatabase db;
+    private SQLiteStatement insertStatement;
+    private SQLiteStatement updateStatement;
+    private SQLiteStatement updatePriorityStatement;
+    private SQLiteStatement deleteStatement;
+
+    // Queue index objects. The index is built on first use and guarded by its lock.
+    private final Object queueIndexLock = new Object();
+    private WaitingListQueueIndex queueIndex;
+
+    // Publishes committed writes to observers on the main thread.
+    private final WaitingListChangeNotifier changeNotifier = new WaitingListChangeNotifier();
+
+    // Serves repeated lookups by id from memory. Writes go through it after they are committed.
+    private final WaitingListEntryCache entryCache = new WaitingListEntryCache(ENTRY_CACHE_SIZE);
+
+    // Performance monitor timing the operations of this helper and of the list showing its rows.
+    private final PerformanceMonitor monitor = new PerformanceMonitor(PerformanceMonitor.isEnabledByDefault(BuildConfig.DEBUG), SLOW_OPERATION_MILLIS);
+
+    /**
+     * Returns the process-wide database helper, creating it on first use. The application context
+     * is retained so that no activity is leaked by the shared instance.
+     */
+    public static synchronized DatabaseHelper getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+            DatabaseExecutor.getInstance().addIdleTask(new DatabaseMaintenance(instance, DatabaseExecutor.getInstance()));
+            DatabaseExecutor.getInstance().addIdleTask(instance::checkpoint);
+        }
+        return instance;
+    }
+
+    /**
+     * Constructs a database helper with the application context.
+     */
+    private DatabaseHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * Constructs a database helper over the database file with the specified name. Tests use it to
+     * create and upgrade databases of their own beside the one of the app.
+     */
+    @VisibleForTesting
+    DatabaseHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+        fullNameFormat = context.getString(R.string.format_full_name);
+    }
 
     /**
-     * Constructs a database helper with context from the origin activity.
+     * Called when the connection is configured, before the database is created or upgraded. It
+     * asks for incremental auto vacuum, so pages freed by deletes can be returned to the file
+     * system a few at a time. The mode takes effect when the database is created. An existing
+     * database is converted by the database maintenance, which needs a full vacuum to do so.
      */
-    public DatabaseHelper(@Nullable Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
     }
 
     /**
-     * Called when the object is initially created. It creates the waiting list entry table.
+     * Called when the object is initially created. It creates the waiting list entry table, its
+     * index for per course key ranking, its unique index over normalized student and course keys, the
+     * indexes serving the sorts of the list, its full text search table, the admission table, the course demand table, the sync tables,
+     * the deleted entry table, and the journal tables with their triggers.
      */
     @Override
     public void onCreate(SQLiteDatabase db) {
@@ -39,126 +267,1778 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + WaitingListEntry.COLUMN_FIRST_NAME + " TEXT,"
                 + WaitingListEntry.COLUMN_LAST_NAME + " TEXT,"
                 + WaitingListEntry.COLUMN_COURSE + " TEXT,"
-                + WaitingListEntry.COLUMN_PRIORITY + " TEXT"
+                + WaitingListEntry.COLUMN_PRIORITY + " TEXT,"
+                + WaitingListEntry.COLUMN_PRIORITY_RANK + " INTEGER NOT NULL DEFAULT " + WaitingListEntry.PRIORITIES.length + ","
+                + WaitingListEntry.COLUMN_NAME_KEY + " TEXT,"
+                + WaitingListEntry.COLUMN_COURSE_KEY + " TEXT,"
+                + SyncSchema.entryColumnDefinitions()
                 + ")";
         db.execSQL(createTableWaitingListEntryQuery);
+        createCourseKeyPriorityRankIndex(db);
+        createNameKeyCourseKeyIndex(db);
+        for (String createIndexQuery : WaitingListQuery.createIndexStatements())
+            db.execSQL(createIndexQuery);
+        createSearchTable(db);
+        createAdmissionTable(db);
+        createCourseDemandTable(db);
+        for (String createSyncQuery : SyncSchema.createStatements())
+            db.execSQL(createSyncQuery);
+        for (String createDeletedEntryQuery : DeletedEntrySchema.createStatements())
+            db.execSQL(createDeletedEntryQuery);
+        for (String createJournalQuery : JournalSchema.createStatements())
+            db.execSQL(createJournalQuery);
+        DatabaseMigration.createPendingBackfillsTable(db);
     }
 
     /**
-     * Called when the object is upgraded. It drops the old waiting list entry table and creates
-     * a new one.
+     * Called when the object is upgraded. It runs each migration between the old and the new
+     * version in order, each in its own transaction, keeping the rows already stored. Migrations
+     * with a backfill are recorded as pending so their rows are rewritten in chunks after the
+     * database is open.
      */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        String dropTableWaitingListEntryQuery = "DROP TABLE IF EXISTS " + WaitingListEntry.TABLE_NAME;
-        db.execSQL(dropTableWaitingListEntryQuery);
-        onCreate(db);
+
+        DatabaseMigration.createPendingBackfillsTable(db);
+
+        for (DatabaseMigration migration : DatabaseMigrations.MIGRATIONS) {
+
+            if (migration.getEndVersion() <= oldVersion || migration.getEndVersion() > newVersion)
+                continue;
+
+            db.beginTransaction();
+            try {
+                migration.migrate(db);
+                if (migration.getBackfillTable() != null) {
+                    String insertPendingBackfillQuery = "INSERT INTO " + DatabaseMigration.TABLE_PENDING_BACKFILLS + "("
+                            + DatabaseMigration.COLUMN_VERSION + ","
+                            + DatabaseMigration.COLUMN_NEXT_ID + ","
+                            + DatabaseMigration.COLUMN_END_ID
+                            + ") SELECT ?, 0, IFNULL(MAX(rowid), 0) FROM " + migration.getBackfillTable();
+                    db.execSQL(insertPendingBackfillQuery, new Object[]{migration.getEndVersion()});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    /**
+     * Runs the backfills of every pending migration to completion, oldest migration first. Each
+     * chunk of ids is rewritten in its own transaction along with the recorded progress, so other
+     * database work can run between chunks and an interrupted backfill resumes where it stopped.
+     * After each chunk of a visible backfill the queue index and the entry cache are dropped so
+     * they are rebuilt from the rewritten rows, and observers are told to reload once the backfill
+     * is done.
+     */
+    public void runPendingBackfills() {
+
+        SQLiteDatabase db = getDatabase();
+
+        for (DatabaseMigration migration : DatabaseMigrations.MIGRATIONS) {
+
+            if (migration.getBackfillTable() == null)
+                continue;
+
+            long nextId, endId;
+            String selectPendingBackfillQuery = "SELECT " + DatabaseMigration.COLUMN_NEXT_ID + "," + DatabaseMigration.COLUMN_END_ID
+                    + " FROM " + DatabaseMigration.TABLE_PENDING_BACKFILLS
+                    + " WHERE " + DatabaseMigration.COLUMN_VERSION + " = ?";
+            Cursor cursor = db.rawQuery(selectPendingBackfillQuery, new String[]{String.valueOf(migration.getEndVersion())});
+            try {
+                if (!cursor.moveToFirst())
+                    continue;
+                nextId = cursor.getLong(0);
+                endId = cursor.getLong(1);
+            } finally {
+                cursor.close();
+            }
+
+            while (nextId < endId) {
+                long chunkEndId = Math.min(nextId + BACKFILL_CHUNK_SIZE, endId);
+                long start = monitor.begin(OPERATION_BACKFILL_CHUNK);
+                db.beginTransaction();
+                try {
+                    migration.backfill(db, nextId, chunkEndId);
+                    String updatePendingBackfillQuery = "UPDATE " + DatabaseMigration.TABLE_PENDING_BACKFILLS
+                            + " SET " + DatabaseMigration.COLUMN_NEXT_ID + " = ?"
+                            + " WHERE " + DatabaseMigration.COLUMN_VERSION + " = ?";
+                    db.execSQL(updatePendingBackfillQuery, new Object[]{chunkEndId, migration.getEndVersion()});
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                    monitor.end(OPERATION_BACKFILL_CHUNK, start, 0, 0, null);
+                }
+                if (migration.isBackfillVisible()) {
+                    synchronized (queueIndexLock) {
+                        queueIndex = null;
+                    }
+                    entryCache.clear();
+                }
+                nextId = chunkEndId;
+            }
+
+            db.delete(DatabaseMigration.TABLE_PENDING_BACKFILLS, DatabaseMigration.COLUMN_VERSION + " = ?", new String[]{String.valueOf(migration.getEndVersion())});
+            if (migration.isBackfillVisible())
+                changeNotifier.notifyTableInvalidated();
+        }
+    }
+
+    /**
+     * Creates the composite index that lets next in line queries for a course read rows in ranked
+     * order without a scan or a sort. It is keyed on the course key, so every spelling of a course
+     * is read as one queue.
+     */
+    private static void createCourseKeyPriorityRankIndex(SQLiteDatabase db) {
+        String createIndexQuery = "CREATE INDEX " + WaitingListEntry.INDEX_COURSE_KEY_PRIORITY_RANK
+                + " ON " + WaitingListEntry.TABLE_NAME + "("
+                + WaitingListEntry.COLUMN_COURSE_KEY + ","
+                + WaitingListEntry.COLUMN_PRIORITY_RANK + ","
+                + WaitingListEntry.COLUMN_ID
+                + ")";
+        db.execSQL(createIndexQuery);
+    }
+
+    /**
+     * Creates the unique index over the normalized name and course keys, which keeps a student
+     * from waiting for the same course twice and lets upserts find the stored row by its keys.
+     * Rows without keys, which only exist while a migration backfill is pending, do not conflict.
+     */
+    private static void createNameKeyCourseKeyIndex(SQLiteDatabase db) {
+        String createIndexQuery = "CREATE UNIQUE INDEX " + WaitingListEntry.INDEX_NAME_KEY_COURSE_KEY
+                + " ON " + WaitingListEntry.TABLE_NAME + "("
+                + WaitingListEntry.COLUMN_NAME_KEY + ","
+                + WaitingListEntry.COLUMN_COURSE_KEY
+                + ")";
+        db.execSQL(createIndexQuery);
+    }
+
+    /**
+     * Creates the full text search table over the name and course columns, along with the triggers
+     * that keep it in sync with the waiting list entry table. The search table stores its own copy
+     * of the indexed text and uses the waiting list entry id as its docid.
+     */
+    private static void createSearchTable(SQLiteDatabase db) {
+
+        String searchColumns = WaitingListEntry.COLUMN_FIRST_NAME + ","
+                + WaitingListEntry.COLUMN_LAST_NAME + ","
+                + WaitingListEntry.COLUMN_COURSE;
+        String insertSearchRowStatement = "INSERT INTO " + WaitingListEntry.SEARCH_TABLE_NAME + "("
+                + WaitingListEntry.SEARCH_COLUMN_DOCID + "," + searchColumns
+                + ") VALUES (new." + WaitingListEntry.COLUMN_ID
+                + ",new." + WaitingListEntry.COLUMN_FIRST_NAME
+                + ",new." + WaitingListEntry.COLUMN_LAST_NAME
+                + ",new." + WaitingListEntry.COLUMN_COURSE + ");";
+        String deleteSearchRowStatement = "DELETE FROM " + WaitingListEntry.SEARCH_TABLE_NAME
+                + " WHERE " + WaitingListEntry.SEARCH_COLUMN_DOCID + " = old." + WaitingListEntry.COLUMN_ID + ";";
+
+        db.execSQL("CREATE VIRTUAL TABLE " + WaitingListEntry.SEARCH_TABLE_NAME + " USING fts4(" + searchColumns + ")");
+        db.execSQL("CREATE TRIGGER " + WaitingListEntry.SEARCH_TABLE_NAME + "_insert AFTER INSERT ON " + WaitingListEntry.TABLE_NAME
+                + " BEGIN " + insertSearchRowStatement + " END");
+        db.execSQL("CREATE TRIGGER " + WaitingListEntry.SEARCH_TABLE_NAME + "_update AFTER UPDATE OF " + searchColumns + " ON " + WaitingListEntry.TABLE_NAME
+                + " BEGIN " + deleteSearchRowStatement + " " + insertSearchRowStatement + " END");
+        db.execSQL("CREATE TRIGGER " + WaitingListEntry.SEARCH_TABLE_NAME + "_delete AFTER DELETE ON " + WaitingListEntry.TABLE_NAME
+                + " BEGIN " + deleteSearchRowStatement + " END");
+    }
+
+    /**
+     * Creates the admission table and the index used to list the admissions of a course.
+     */
+    private static void createAdmissionTable(SQLiteDatabase db) {
+        String createTableAdmissionQuery = "CREATE TABLE " + Admission.TABLE_NAME + "("
+                + Admission.COLUMN_ID + " INTEGER PRIMARY KEY,"
+                + Admission.COLUMN_FIRST_NAME + " TEXT,"
+                + Admission.COLUMN_LAST_NAME + " TEXT,"
+                + Admission.COLUMN_COURSE + " TEXT,"
+                + Admission.COLUMN_PRIORITY + " TEXT,"
+                + Admission.COLUMN_ADMITTED_AT + " INTEGER NOT NULL"
+                + ")";
+        db.execSQL(createTableAdmissionQuery);
+        db.execSQL("CREATE INDEX " + Admission.INDEX_COURSE + " ON " + Admission.TABLE_NAME + "(" + Admission.COLUMN_COURSE + ")");
+    }
+
+    /**
+     * Creates the course demand table along with the triggers that count each waiting list entry
+     * into it by course key and priority. Because the counts are kept by triggers, every write path
+     * keeps them current, including set based statements, deletes made by admissions, and keys
+     * given to old rows by a migration backfill.
+     */
+    private static void createCourseDemandTable(SQLiteDatabase db) {
+
+        String createTableCourseDemandQuery = "CREATE TABLE " + CourseDemand.TABLE_NAME + "("
+                + CourseDemand.COLUMN_COURSE_KEY + " TEXT NOT NULL,"
+                + CourseDemand.COLUMN_PRIORITY + " TEXT NOT NULL,"
+                + CourseDemand.COLUMN_COURSE + " TEXT NOT NULL,"
+                + CourseDemand.COLUMN_ENTRY_COUNT + " INTEGER NOT NULL,"
+                + "PRIMARY KEY(" + CourseDemand.COLUMN_COURSE_KEY + "," + CourseDemand.COLUMN_PRIORITY + ")"
+                + ")";
+
+        db.execSQL(createTableCourseDemandQuery);
+        db.execSQL("CREATE TRIGGER " + CourseDemand.TABLE_NAME + "_insert AFTER INSERT ON " + WaitingListEntry.TABLE_NAME
+                + " BEGIN " + courseDemandStatements("new", true) + " END");
+        db.execSQL("CREATE TRIGGER " + CourseDemand.TABLE_NAME + "_update AFTER UPDATE OF "
+                + WaitingListEntry.COLUMN_COURSE + "," + WaitingListEntry.COLUMN_COURSE_KEY + "," + WaitingListEntry.COLUMN_PRIORITY
+                + " ON " + WaitingListEntry.TABLE_NAME
+                + " WHEN old." + WaitingListEntry.COLUMN_COURSE + " IS NOT new." + WaitingListEntry.COLUMN_COURSE
+                + " OR old." + WaitingListEntry.COLUMN_COURSE_KEY + " IS NOT new." + WaitingListEntry.COLUMN_COURSE_KEY
+                + " OR old." + WaitingListEntry.COLUMN_PRIORITY + " IS NOT new." + WaitingListEntry.COLUMN_PRIORITY
+                + " BEGIN " + courseDemandStatements("old", false) + " " + courseDemandStatements("new", true) + " END");
+        db.execSQL("CREATE TRIGGER " + CourseDemand.TABLE_NAME + "_delete AFTER DELETE ON " + WaitingListEntry.TABLE_NAME
+                + " BEGIN " + courseDemandStatements("old", false) + " END");
+    }
+
+    /**
+     * Returns the trigger statements that count the specified row, which is either new or old,
+     * into or out of the course demand count of its course key and priority. A count is created at
+     * zero before it is first incremented and removed once it is decremented to zero. Counting a
+     * row in also makes its spelling of the course the one shown for the count. Null course keys,
+     * courses, and priorities are counted under the empty string.
+     */
+    private static String courseDemandStatements(String row, boolean increment) {
+        String courseKey = "IFNULL(" + row + "." + WaitingListEntry.COLUMN_COURSE_KEY + ",'')";
+        String course = "IFNULL(" + row + "." + WaitingListEntry.COLUMN_COURSE + ",'')";
+        String priority = "IFNULL(" + row + "." + WaitingListEntry.COLUMN_PRIORITY + ",'')";
+        String where = " WHERE " + CourseDemand.COLUMN_COURSE_KEY + " = " + courseKey + " AND " + CourseDemand.COLUMN_PRIORITY + " = " + priority;
+        if (increment)
+            return "INSERT OR IGNORE INTO " + CourseDemand.TABLE_NAME + "("
+                    + CourseDemand.COLUMN_COURSE_KEY + "," + CourseDemand.COLUMN_COURSE + "," + CourseDemand.COLUMN_PRIORITY + "," + CourseDemand.COLUMN_ENTRY_COUNT
+                    + ") VALUES (" + courseKey + "," + course + "," + priority + ",0);"
+                    + " UPDATE " + CourseDemand.TABLE_NAME + " SET " + CourseDemand.COLUMN_ENTRY_COUNT + " = " + CourseDemand.COLUMN_ENTRY_COUNT + " + 1,"
+                    + CourseDemand.COLUMN_COURSE + " = " + course + where + ";";
+        return "UPDATE " + CourseDemand.TABLE_NAME + " SET " + CourseDemand.COLUMN_ENTRY_COUNT + " = " + CourseDemand.COLUMN_ENTRY_COUNT + " - 1" + where + ";"
+                + " DELETE FROM " + CourseDemand.TABLE_NAME + where + " AND " + CourseDemand.COLUMN_ENTRY_COUNT + " = 0;";
+    }
+
+    /**
+     * Closes the shared connection along with every precompiled statement. Calls made after this
+     * one reopen the database.
+     */
+    @Override
+    public synchronized void close() {
+        if (insertStatement != null)
+            insertStatement.close();
+        if (updateStatement != null)
+            updateStatement.close();
+        if (updatePriorityStatement != null)
+            updatePriorityStatement.close();
+        if (deleteStatement != null)
+            deleteStatement.close();
+        insertStatement = null;
+        updateStatement = null;
+        updatePriorityStatement = null;
+        deleteStatement = null;
+        db = null;
+        super.close();
+    }
+
+    /**
+     * Returns the shared database connection, opening it if this is the first call. Opening the
+     * database schedules any pending migration backfills on the database executor.
+     */
+    private synchronized SQLiteDatabase getDatabase() {
+        if (db == null || !db.isOpen()) {
+            db = getWritableDatabase();
+            DatabaseExecutor.getInstance().write(() -> {
+                runPendingBackfills();
+                return null;
+            }, null);
+        }
+        return db;
+    }
+
+    /**
+     * Copies committed pages from the write-ahead log back into the database file without waiting
+     * for readers, which keeps the log and the cost of reading through it small. Nothing happens if
+     * the database has not been opened.
+     */
+    public void checkpoint() {
+
+        SQLiteDatabase db;
+        synchronized (this) {
+            db = this.db;
+        }
+        if (db == null || !db.isOpen())
+            return;
+
+        Cursor cursor = db.rawQuery("PRAGMA wal_checkpoint(PASSIVE)", null);
+        cursor.moveToFirst();
+        cursor.close();
+    }
+
+    /**
+     * Returns the size of the database file in pages and the number of those pages that are free.
+     */
+    public StorageStats getStorageStats() {
+        SQLiteDatabase db = getDatabase();
+        return new StorageStats(
+                DatabaseUtils.longForQuery(db, "PRAGMA page_size", null),
+                DatabaseUtils.longForQuery(db, "PRAGMA page_count", null),
+                DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null));
+    }
+
+    /**
+     * Returns true if the database is in incremental auto vacuum mode.
+     */
+    public boolean isIncrementalVacuumEnabled() {
+        return DatabaseUtils.longForQuery(getDatabase(), "PRAGMA auto_vacuum", null) == 2;
+    }
+
+    /**
+     * Rebuilds the database file in incremental auto vacuum mode, which also returns every free
+     * page to the file system. It rewrites the whole file, so it is only run once, to convert a
+     * database created before the mode was asked for. Call it on the writer thread, outside of any
+     * transaction.
+     */
+    public void enableIncrementalVacuum() {
+        SQLiteDatabase db = getDatabase();
+        long start = monitor.begin(OPERATION_VACUUM);
+        try {
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+        } finally {
+            monitor.end(OPERATION_VACUUM, start, 0, 0, "VACUUM");
+        }
+    }
+
+    /**
+     * Returns at most the specified number of free pages to the file system by moving pages from
+     * the end of the file into free ones and truncating it. The pragma frees one page per step of
+     * its statement, so every row of its cursor is read. Nothing is freed unless the database is in
+     * incremental auto vacuum mode. Call it on the writer thread.
+     */
+    public void incrementalVacuum(int pageCount) {
+        long start = monitor.begin(OPERATION_INCREMENTAL_VACUUM);
+        Cursor cursor = getDatabase().rawQuery("PRAGMA incremental_vacuum(" + pageCount + ")", null);
+        try {
+            while (cursor.moveToNext()) {
+                // Each step frees one page.
+            }
+        } finally {
+            cursor.close();
+            monitor.end(OPERATION_INCREMENTAL_VACUUM, start, 0, 0, null);
+        }
+    }
+
+    /**
+     * Returns true if statistics on the tables and indexes have been gathered.
+     */
+    public boolean hasStatistics() {
+        return DatabaseUtils.longForQuery(getDatabase(), "SELECT COUNT(*) FROM sqlite_master WHERE name = 'sqlite_stat1'", null) > 0;
+    }
+
+    /**
+     * Gathers statistics on the tables and indexes, which the query planner uses to choose between
+     * indexes. Call it on the writer thread.
+     */
+    public void analyze() {
+        long start = monitor.begin(OPERATION_ANALYZE);
+        try {
+            getDatabase().execSQL("ANALYZE");
+        } finally {
+            monitor.end(OPERATION_ANALYZE, start, 0, 0, "ANALYZE");
+        }
+    }
+
+    /**
+     * Returns the precompiled insert statement, compiling it if this is the first call.
+     */
+    private synchronized SQLiteStatement getInsertStatement() {
+        if (insertStatement == null)
+            insertStatement = getDatabase().compileStatement(INSERT_WAITING_LIST_ENTRY_STATEMENT);
+        return insertStatement;
+    }
+
+    /**
+     * Returns the precompiled update statement, compiling it if this is the first call.
+     */
+    private synchronized SQLiteStatement getUpdateStatement() {
+        if (updateStatement == null)
+            updateStatement = getDatabase().compileStatement(UPDATE_WAITING_LIST_ENTRY_STATEMENT);
+        return updateStatement;
+    }
+
+    /**
+     * Returns the precompiled priority update statement, compiling it if this is the first call.
+     */
+    private synchronized SQLiteStatement getUpdatePriorityStatement() {
+        if (updatePriorityStatement == null)
+            updatePriorityStatement = getDatabase().compileStatement(UPDATE_WAITING_LIST_ENTRY_PRIORITY_STATEMENT);
+        return updatePriorityStatement;
+    }
+
+    /**
+     * Returns the precompiled delete statement, compiling it if this is the first call.
+     */
+    private synchronized SQLiteStatement getDeleteStatement() {
+        if (deleteStatement == null)
+            deleteStatement = getDatabase().compileStatement(DELETE_WAITING_LIST_ENTRY_STATEMENT);
+        return deleteStatement;
+    }
+
+    /**
+     * Binds the attributes of a waiting list entry, its priority rank, and its keys to the first
+     * seven parameters of the statement.
+     */
+    private static void bindWaitingListEntry(SQLiteStatement statement, String firstName, String lastName, String course, String priority) {
+        bindStringOrNull(statement, 1, firstName);
+        bindStringOrNull(statement, 2, lastName);
+        bindStringOrNull(statement, 3, course);
+        bindStringOrNull(statement, 4, priority);
+        statement.bindLong(5, WaitingListEntry.getPriorityRank(priority));
+        statement.bindString(6, WaitingListEntry.getNameKey(firstName, lastName));
+        statement.bindString(7, WaitingListEntry.getCourseKey(course));
+    }
+
+    /**
+     * Binds the given string to the statement, binding null when the string is null.
+     */
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null)
+            statement.bindNull(index);
+        else
+            statement.bindString(index, value);
     }
 
     /**
      * Inserts a waiting list entry object with the specified attributes into the database. It
-     * returns the id of the inserted object.
+     * returns the id of the inserted object. It throws an SQLiteConstraintException if the student
+     * already waits for the course.
      */
+    @Override
     public long insertWaitingListEntry(String firstName, String lastName, String course, String priority) {
+        long id = insertRow(firstName, lastName, course, priority);
+        WaitingListEntry waitingListEntry = newWaitingListEntry(id, firstName, lastName, course, priority);
+        onWaitingListEntryWritten(waitingListEntry);
+        changeNotifier.notifyInserted(waitingListEntry);
+        return id;
+    }
 
-        SQLiteDatabase db = this.getWritableDatabase();
-
-        ContentValues values = new ContentValues();
-        values.put(WaitingListEntry.COLUMN_FIRST_NAME, firstName);
-        values.put(WaitingListEntry.COLUMN_LAST_NAME, lastName);
-        values.put(WaitingListEntry.COLUMN_COURSE, course);
-        values.put(WaitingListEntry.COLUMN_PRIORITY, priority);
+    /**
+     * Inserts a waiting list entry object with the specified attributes, or if the student already
+     * waits for the course, sets the priority of the existing object instead. The lookup and the
+     * write run in one transaction. It returns the id of the inserted or updated object.
+     */
+    @Override
+    public long upsertWaitingListEntry(String firstName, String lastName, String course, String priority) {
 
-        long id = db.insert(WaitingListEntry.TABLE_NAME, null, values);
+        SQLiteDatabase db = getDatabase();
+        WaitingListEntry existing;
+        long id;
 
-        db.close();
+        long start = monitor.begin(OPERATION_UPSERT);
+        db.beginTransaction();
+        try {
+            existing = selectWaitingListEntryByKeys(firstName, lastName, course);
+            id = existing == null ? insertRow(firstName, lastName, course, priority) : existing.getId();
+            if (existing != null)
+                updatePriorityRow(id, priority);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            monitor.end(OPERATION_UPSERT, start, 0, 0, null);
+        }
 
+        if (existing == null) {
+            WaitingListEntry waitingListEntry = newWaitingListEntry(id, firstName, lastName, course, priority);
+            onWaitingListEntryWritten(waitingListEntry);
+            changeNotifier.notifyInserted(waitingListEntry);
+        } else {
+            existing.setPriority(priority);
+            String previousCourseKey = onWaitingListEntryWritten(existing);
+            changeNotifier.notifyUpdated(existing, previousCourseKey);
+        }
         return id;
     }
 
     /**
-     * Returns the waiting list entry object stored in the database given its id. It returns a null
-     * object if no such object is found.
+     * Returns the waiting list entry object of the student waiting for the course, found through
+     * the unique key index, or null if there is none.
      */
-    public WaitingListEntry getWaitingListEntry(long id) {
+    @Nullable
+    private WaitingListEntry selectWaitingListEntryByKeys(String firstName, String lastName, String course) {
+        ArrayList<WaitingListEntry> waitingListEntries = queryWaitingListEntries(OPERATION_SELECT_BY_KEYS, SELECT_WAITING_LIST_ENTRY_BY_KEYS_QUERY,
+                new String[]{WaitingListEntry.getNameKey(firstName, lastName), WaitingListEntry.getCourseKey(course)}, false);
+        return waitingListEntries.isEmpty() ? null : waitingListEntries.get(0);
+    }
+
+    /**
+     * Inserts a row with the precompiled insert statement and returns its id. It neither updates
+     * the queue index nor notifies observers.
+     */
+    private long insertRow(String firstName, String lastName, String course, String priority) {
+        SQLiteStatement statement = getInsertStatement();
+        long start = monitor.begin(OPERATION_INSERT_ROW);
+        long id = -1;
+        synchronized (statement) {
+            try {
+                bindWaitingListEntry(statement, firstName, lastName, course, priority);
+                id = statement.executeInsert();
+                if (id == -1)
+                    throw new SQLException("Failed to insert waiting list entry");
+                return id;
+            } finally {
+                statement.clearBindings();
+                monitor.end(OPERATION_INSERT_ROW, start, 0, id == -1 ? 0 : 1, INSERT_WAITING_LIST_ENTRY_STATEMENT);
+            }
+        }
+    }
+
+    /**
+     * Sets the priority and priority rank of the row with the specified id with the precompiled
+     * priority update statement. It returns true if the row exists.
+     */
+    private boolean updatePriorityRow(long id, String priority) {
+        SQLiteStatement statement = getUpdatePriorityStatement();
+        long start = monitor.begin(OPERATION_UPDATE_PRIORITY_ROW);
+        int updatedCount = 0;
+        synchronized (statement) {
+            try {
+                bindStringOrNull(statement, 1, priority);
+                statement.bindLong(2, WaitingListEntry.getPriorityRank(priority));
+                statement.bindLong(3, id);
+                updatedCount = statement.executeUpdateDelete();
+                return updatedCount > 0;
+            } finally {
+                statement.clearBindings();
+                monitor.end(OPERATION_UPDATE_PRIORITY_ROW, start, 0, updatedCount, UPDATE_WAITING_LIST_ENTRY_PRIORITY_STATEMENT);
+            }
+        }
+    }
+
+    /**
+     * Upserts the specified waiting list entry objects into the database, starting at the given
+     * index of the list. Rows are written in batches, each batch in its own transaction, and the
+     * listener is notified after every committed batch. An object whose student already waits for
+     * its course sets the priority of the stored object rather than adding a second one. The id of
+     * each inserted or updated object is set on it. It returns the index of the first object that
+     * was not written, which equals the size of the list when every object was written. When a
+     * batch fails it is rolled back as a whole, so passing the returned index back in resumes the
+     * import without duplicating rows. Each committed batch invalidates the whole table for
+     * observers of the change notifier rather than describing every row.
+     */
+    public int insertWaitingListEntries(List<WaitingListEntry> waitingListEntries, int fromIndex, @Nullable BulkInsertListener listener) {
+
+        SQLiteDatabase db = getDatabase();
+        int totalCount = waitingListEntries.size();
+        int committedIndex = fromIndex;
 
-        WaitingListEntry waitingListEntry = null;
+        while (committedIndex < totalCount) {
 
-        SQLiteDatabase db = this.getReadableDatabase();
+            int batchEnd = Math.min(committedIndex + BULK_INSERT_BATCH_SIZE, totalCount);
+            long[] batchIds = new long[batchEnd - committedIndex];
+            String[] batchCourses = new String[batchEnd - committedIndex];
 
-        String query = "SELECT * FROM " + WaitingListEntry.TABLE_NAME + " WHERE " + WaitingListEntry.COLUMN_ID + " = ?";
-        Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(id)});
+            long start = monitor.begin(OPERATION_BULK_INSERT_BATCH);
+            db.beginTransaction();
+            try {
+                for (int i = committedIndex; i < batchEnd; i++) {
+                    WaitingListEntry waitingListEntry = waitingListEntries.get(i);
+                    WaitingListEntry existing = selectWaitingListEntryByKeys(waitingListEntry.getFirstName(), waitingListEntry.getLastName(), waitingListEntry.getCourse());
+                    if (existing == null) {
+                        batchIds[i - committedIndex] = insertRow(waitingListEntry.getFirstName(), waitingListEntry.getLastName(),
+                                waitingListEntry.getCourse(), waitingListEntry.getPriority());
+                        batchCourses[i - committedIndex] = waitingListEntry.getCourse();
+                    } else {
+                        updatePriorityRow(existing.getId(), waitingListEntry.getPriority());
+                        batchIds[i - committedIndex] = existing.getId();
+                        batchCourses[i - committedIndex] = existing.getCourse();
+                    }
+                }
+                db.setTransactionSuccessful();
+            } catch (SQLException e) {
+                if (listener != null)
+                    listener.onBulkInsertFailed(committedIndex, e);
+                return committedIndex;
+            } finally {
+                db.endTransaction();
+                monitor.end(OPERATION_BULK_INSERT_BATCH, start, 0, 0, null);
+            }
 
-        if (cursor != null && cursor.moveToFirst()) {
-            waitingListEntry = new WaitingListEntry(
-                    cursor.getLong(cursor.getColumnIndex(WaitingListEntry.COLUMN_ID)),
-                    cursor.getString(cursor.getColumnIndex(WaitingListEntry.COLUMN_FIRST_NAME)),
-                    cursor.getString(cursor.getColumnIndex(WaitingListEntry.COLUMN_LAST_NAME)),
-                    cursor.getString(cursor.getColumnIndex(WaitingListEntry.COLUMN_COURSE)),
-                    cursor.getString(cursor.getColumnIndex(WaitingListEntry.COLUMN_PRIORITY))
-            );
+            // Ids are only assigned once the batch is known to be committed.
+            for (int i = committedIndex; i < batchEnd; i++) {
+                WaitingListEntry waitingListEntry = waitingListEntries.get(i);
+                waitingListEntry.setId(batchIds[i - committedIndex]);
+                onWaitingListEntryWritten(waitingListEntry.getId(), batchCourses[i - committedIndex], waitingListEntry.getPriority());
+            }
+            changeNotifier.notifyTableInvalidated();
+
+            committedIndex = batchEnd;
+            if (listener != null)
+                listener.onBulkInsertProgress(committedIndex, totalCount);
         }
 
-        cursor.close();
-        db.close();
+        return committedIndex;
+    }
+
+    /**
+     * Writes every waiting list entry object in the database to the writer in id order. Rows are
+     * read one keyset page at a time, so memory use does not grow with the size of the table. Run
+     * it on the writer thread of the database executor to keep other writes from interleaving
+     * with the pages. The writer is not closed. It returns the number of objects written.
+     */
+    public long exportWaitingListEntries(WaitingListEntryWriter writer) throws IOException {
+
+        long exportedCount = 0;
+
+        // The list shows the newest object first, so the objects preceding an anchor are the ones added after it. The first
+        // anchor comes before every id, and each page is written from its end, so the objects are written oldest first.
+        WaitingListEntry anchor = new WaitingListEntry(0, null, null, null, null);
+
+        while (true) {
+            ArrayList<WaitingListEntry> page = getWaitingListEntriesPreceding(WaitingListQuery.ALL, anchor, EXPORT_PAGE_SIZE);
+            for (int i = page.size() - 1; i >= 0; i--)
+                writer.write(page.get(i));
+            exportedCount += page.size();
+            if (page.size() < EXPORT_PAGE_SIZE)
+                return exportedCount;
+            anchor = page.get(0);
+        }
+    }
+
+    /**
+     * Inserts every waiting list entry object the reader returns. Objects are read and inserted one
+     * bulk insert batch at a time, so memory use does not grow with the size of the import. Each
+     * object gets a new id, and objects keep the order they were read in, so imported queues keep
+     * their order. An object whose student already waits for its course sets the priority of the
+     * stored object instead. Batches that were committed before a failure stay in the database.
+     * The reader is not closed. It returns the number of objects written.
+     */
+    public int importWaitingListEntries(WaitingListEntryReader reader) throws IOException {
+        return importWaitingListEntries(reader, 0, null);
+    }
+
+    /**
+     * Inserts the waiting list entry objects the reader returns, skipping the specified number of
+     * objects read first, as the bulk insert does for a list. The listener is told the number of
+     * objects read so far, counting the skipped ones, after every committed batch, with a total
+     * of -1 since a stream does not know its length. When a batch fails it is rolled back as a
+     * whole, the listener is told the index to resume from, and an exception is thrown. Reading
+     * the same document again with that index resumes the import without duplicating rows. The
+     * reader is not closed. It returns the number of objects read, counting the skipped ones.
+     */
+    public int importWaitingListEntries(WaitingListEntryReader reader, int fromIndex, @Nullable BulkInsertListener listener) throws IOException {
+
+        ArrayList<WaitingListEntry> batch = new ArrayList<>(BULK_INSERT_BATCH_SIZE);
+        int readCount = 0;
+        int committedIndex = fromIndex;
+        WaitingListEntry waitingListEntry;
+
+        do {
+            waitingListEntry = reader.read();
+            if (waitingListEntry != null && readCount++ >= fromIndex)
+                batch.add(waitingListEntry);
+            if (batch.size() == BULK_INSERT_BATCH_SIZE || (waitingListEntry == null && !batch.isEmpty())) {
+                int insertedCount = insertWaitingListEntries(batch, 0, null);
+                if (insertedCount < batch.size()) {
+                    SQLException e = new SQLException("Import stopped after " + committedIndex + " waiting list entries");
+                    if (listener != null)
+                        listener.onBulkInsertFailed(committedIndex, e);
+                    throw e;
+                }
+                committedIndex += insertedCount;
+                batch.clear();
+                if (listener != null)
+                    listener.onBulkInsertProgress(committedIndex, -1);
+            }
+        } while (waitingListEntry != null);
+
+        return committedIndex;
+    }
 
+    /**
+     * Returns the waiting list entry object stored in the database given its id. It returns a null
+     * object if no such object is found. Objects are served from the entry cache when they are in
+     * it. A miss is read from the database and cached, unless it was read inside a transaction
+     * that may still roll back. The returned object must not be modified.
+     */
+    @Override
+    public WaitingListEntry getWaitingListEntry(long id) {
+
+        WaitingListEntry waitingListEntry = entryCache.get(id);
+        if (waitingListEntry != null)
+            return waitingListEntry;
+
+        long generation = entryCache.getGeneration();
+        SQLiteDatabase db = getDatabase();
+        ArrayList<WaitingListEntry> waitingListEntries = queryWaitingListEntries(OPERATION_SELECT_BY_ID, SELECT_WAITING_LIST_ENTRY_QUERY, new String[]{String.valueOf(id)}, false);
+        if (waitingListEntries.isEmpty())
+            return null;
+
+        waitingListEntry = waitingListEntries.get(0);
+        if (!db.inTransaction())
+            entryCache.putIfUnchanged(waitingListEntry, generation);
         return waitingListEntry;
     }
 
+    /**
+     * Returns the entry cache, whose counters report how many lookups by id were served from
+     * memory.
+     */
+    public WaitingListEntryCache getEntryCache() {
+        return entryCache;
+    }
+
+    /**
+     * Returns the performance monitor timing the operations of this helper. The list showing its
+     * rows records into it too, so one dump covers both.
+     */
+    public PerformanceMonitor getPerformanceMonitor() {
+        return monitor;
+    }
+
     /**
      * Returns an array list containing all waiting list entry objects stored in the database.
      */
     public ArrayList<WaitingListEntry> getAllWaitingListEntries() {
+        return queryWaitingListEntries(OPERATION_SELECT_ALL, SELECT_ALL_WAITING_LIST_ENTRIES_QUERY, null, false);
+    }
 
-        ArrayList<WaitingListEntry> waitingListEntries = new ArrayList<>();
+    /**
+     * Returns an array list containing at most the specified number of waiting list entry objects
+     * shown by the specified query that follow the specified anchor object in the order of the
+     * query, or the first of them if the anchor is null. The indexes created for the query serve it
+     * in order, so each page costs the same however deep into the list it is.
+     */
+    @Override
+    public ArrayList<WaitingListEntry> getWaitingListEntriesFollowing(WaitingListQuery query, @Nullable WaitingListEntry anchor, int limit) {
+        return queryWaitingListEntries(OPERATION_SELECT_FOLLOWING, query.getSelectQuery(WaitingListEntryMapper.COLUMNS, anchor != null, true),
+                toSelectionArgs(query.getSelectionArgs(anchor, limit)), false);
+    }
 
-        SQLiteDatabase db = this.getReadableDatabase();
+    /**
+     * Returns an array list containing at most the specified number of waiting list entry objects
+     * shown by the specified query that precede the specified anchor object in the order of the
+     * query. The objects closest to the anchor are chosen, but the array list is in the order of the
+     * query like every other page.
+     */
+    @Override
+    public ArrayList<WaitingListEntry> getWaitingListEntriesPreceding(WaitingListQuery query, WaitingListEntry anchor, int limit) {
+        return queryWaitingListEntries(OPERATION_SELECT_PRECEDING, query.getSelectQuery(WaitingListEntryMapper.COLUMNS, true, false),
+                toSelectionArgs(query.getSelectionArgs(anchor, limit)), true);
+    }
 
-        String query = "SELECT * FROM " + WaitingListEntry.TABLE_NAME + " ORDER BY " + WaitingListEntry.COLUMN_ID + " DESC";
-        Cursor cursor = db.rawQuery(query, null);
+    /**
+     * Returns the specified query parameters as strings for a raw query. The columns they are
+     * compared with have integer or text affinity, so numbers passed as strings compare as numbers.
+     */
+    private static String[] toSelectionArgs(Object[] args) {
+        String[] selectionArgs = new String[args.length];
+        for (int i = 0; i < args.length; i++)
+            selectionArgs[i] = String.valueOf(args[i]);
+        return selectionArgs;
+    }
 
-        if (cursor != null && cursor.moveToFirst())
-            do {
-                WaitingListEntry waitingListEntry = new WaitingListEntry(
-                        cursor.getLong(cursor.getColumnIndex(WaitingListEntry.COLUMN_ID)),
-                        cursor.getString(cursor.getColumnIndex(WaitingListEntry.COLUMN_FIRST_NAME)),
-                        cursor.getString(cursor.getColumnIndex(WaitingListEntry.COLUMN_LAST_NAME)),
-                        cursor.getString(cursor.getColumnIndex(WaitingListEntry.COLUMN_COURSE)),
-                        cursor.getString(cursor.getColumnIndex(WaitingListEntry.COLUMN_PRIORITY))
-                );
-                waitingListEntries.add(waitingListEntry);
-            } while (cursor.moveToNext());
+    /**
+     * Returns an array list containing at most the specified number of waiting list entry objects
+     * for the specified course, in the order they should be admitted: highest priority first, then
+     * earliest added first. The course key priority rank index serves this query directly, so its cost
+     * depends on the number of rows returned rather than the size of the table.
+     */
+    @Override
+    public ArrayList<WaitingListEntry> getNextInLine(String course, int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Negative number of entries: " + n);
+        return queryWaitingListEntries(OPERATION_SELECT_NEXT_IN_LINE, SELECT_NEXT_IN_LINE_QUERY,
+                new String[]{WaitingListEntry.getCourseKey(course), String.valueOf(n)}, false);
+    }
 
-            cursor.close();
-            db.close();
+    /**
+     * Returns an array list containing at most the specified number of waiting list entry objects
+     * whose first name, last name, or course contain words starting with every word of the
+     * specified text, ordered by id descending. It returns an empty array list if the text has no
+     * words.
+     */
+    public ArrayList<WaitingListEntry> searchWaitingListEntries(String text, int limit) {
 
-        return waitingListEntries;
+        // Turn each word of the text into a prefix term. Anything but letters and digits is dropped so user input cannot form query syntax.
+        StringBuilder matchExpression = new StringBuilder();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty())
+                continue;
+            if (matchExpression.length() > 0)
+                matchExpression.append(' ');
+            matchExpression.append(word).append('*');
+        }
+
+        if (matchExpression.length() == 0)
+            return new ArrayList<>();
+
+        return queryWaitingListEntries(OPERATION_SEARCH, SEARCH_WAITING_LIST_ENTRIES_QUERY, new String[]{matchExpression.toString(), String.valueOf(limit)}, false);
     }
 
     /**
-     * Updates the waiting list entry object with the specified old id with the specified new
-     * attributes.
+     * Runs a query selecting the mapper columns and returns its rows as waiting list entry objects.
+     * When reverse is true the rows are prepended so the resulting array list is in the opposite
+     * order of the cursor. The query and the mapping of its rows are timed as the specified
+     * operation.
      */
-    public void updateWaitingListEntry(long oldId, String newFirstName, String newLastName, String newCourse, String newPriority) {
+    private ArrayList<WaitingListEntry> queryWaitingListEntries(String operation, String query, @Nullable String[] selectionArgs, boolean reverse) {
+        ArrayList<WaitingListEntry> waitingListEntries = new ArrayList<>();
+        long start = monitor.begin(operation);
+        try {
+            Cursor cursor = getDatabase().rawQuery(query, selectionArgs);
+            new WaitingListEntryMapper(fullNameFormat).mapAll(cursor, waitingListEntries, reverse);
+        } finally {
+            monitor.end(operation, start, waitingListEntries.size(), 0, query);
+        }
+        return waitingListEntries;
+    }
 
-        SQLiteDatabase db = this.getWritableDatabase();
+    /**
+     * Returns the number of waiting list entry objects for every course and priority that has at
+     * least one, ordered by course, then by priority from highest to lowest. The counts are read
+     * from the course demand table, so the time taken grows with the number of courses rather
+     * than the number of entries.
+     */
+    @Override
+    public ArrayList<CourseDemand> getCourseDemand() {
+        return queryCourseDemand(SELECT_ALL_COURSE_DEMAND_QUERY, null);
+    }
 
-        ContentValues values = new ContentValues();
-        values.put(WaitingListEntry.COLUMN_FIRST_NAME, newFirstName);
-        values.put(WaitingListEntry.COLUMN_LAST_NAME, newLastName);
-        values.put(WaitingListEntry.COLUMN_COURSE, newCourse);
-        values.put(WaitingListEntry.COLUMN_PRIORITY, newPriority);
+    /**
+     * Returns the number of waiting list entry objects for every priority of the specified course
+     * that has at least one, ordered by priority from highest to lowest.
+     */
+    @Override
+    public ArrayList<CourseDemand> getCourseDemand(String course) {
+        return queryCourseDemand(SELECT_COURSE_DEMAND_QUERY, new String[]{WaitingListEntry.getCourseKey(course)});
+    }
 
-        db.update(WaitingListEntry.TABLE_NAME, values, WaitingListEntry.COLUMN_ID + " = ?", new String[]{String.valueOf(oldId)});
-        db.close();
+    /**
+     * Runs a query selecting the course demand columns and returns its rows as sorted course
+     * demand objects.
+     */
+    private ArrayList<CourseDemand> queryCourseDemand(String query, @Nullable String[] selectionArgs) {
+        ArrayList<CourseDemand> courseDemand = new ArrayList<>();
+        long start = monitor.begin(OPERATION_COURSE_DEMAND);
+        Cursor cursor = getDatabase().rawQuery(query, selectionArgs);
+        try {
+            while (cursor.moveToNext())
+                courseDemand.add(new CourseDemand(cursor.getString(0), cursor.getString(1), cursor.getInt(2)));
+        } finally {
+            cursor.close();
+            monitor.end(OPERATION_COURSE_DEMAND, start, courseDemand.size(), 0, query);
+        }
+        Collections.sort(courseDemand);
+        return courseDemand;
     }
 
     /**
-     * Deletes the waiting list entry object with the specified id.
+     * Updates the waiting list entry object with the specified old id with the specified new
+     * attributes. If the new attributes name a student who already waits for the new course in
+     * another object, the two are merged in the same transaction: the object added first is kept
+     * with the new priority, so the student keeps their place in line, and the other is deleted.
      */
-    public void deleteWaitingListEntry(long id) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(WaitingListEntry.TABLE_NAME, WaitingListEntry.COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
-        db.close();
+    @Override
+    public void updateWaitingListEntry(long oldId, String newFirstName, String newLastName, String newCourse, String newPriority) {
+
+        SQLiteDatabase db = getDatabase();
+        WaitingListEntry other = null;
+        boolean isUpdated;
+
+        long start = monitor.begin(OPERATION_UPDATE);
+        db.beginTransaction();
+        try {
+            // Only an existing row is merged with the row already holding its new keys.
+            if (getWaitingListEntry(oldId) != null)
+                other = selectWaitingListEntryByKeys(newFirstName, newLastName, newCourse);
+            if (other != null && other.getId() == oldId)
+                other = null;
+            if (other != null)
+                deleteRow(Math.max(oldId, other.getId()));
+            if (other != null && other.getId() < oldId)
+                isUpdated = updatePriorityRow(other.getId(), newPriority);
+            else
+                isUpdated = updateRow(oldId, newFirstName, newLastName, newCourse, newPriority);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            monitor.end(OPERATION_UPDATE, start, 0, 0, null);
+        }
+
+        if (other != null) {
+            long deletedId = Math.max(oldId, other.getId());
+            String deletedCourseKey = deletedId == oldId ? null : WaitingListEntry.getCourseKey(other.getCourse());
+            String indexedCourseKey = onWaitingListEntryDeleted(deletedId);
+            changeNotifier.notifyDeleted(deletedId, indexedCourseKey != null ? indexedCourseKey : deletedCourseKey);
+        }
+
+        if (!isUpdated) {
+            entryCache.remove(oldId);
+            return;
+        }
+
+        WaitingListEntry waitingListEntry = other != null && other.getId() < oldId
+                ? newWaitingListEntry(other.getId(), other.getFirstName(), other.getLastName(), other.getCourse(), newPriority)
+                : newWaitingListEntry(oldId, newFirstName, newLastName, newCourse, newPriority);
+        String previousCourseKey = onWaitingListEntryWritten(waitingListEntry);
+        changeNotifier.notifyUpdated(waitingListEntry, previousCourseKey);
+    }
+
+    /**
+     * Sets every attribute of the row with the specified id with the precompiled update statement.
+     * It returns true if the row exists. It neither updates the queue index nor notifies
+     * observers.
+     */
+    private boolean updateRow(long id, String firstName, String lastName, String course, String priority) {
+        SQLiteStatement statement = getUpdateStatement();
+        long start = monitor.begin(OPERATION_UPDATE_ROW);
+        int updatedCount = 0;
+        synchronized (statement) {
+            try {
+                bindWaitingListEntry(statement, firstName, lastName, course, priority);
+                statement.bindLong(8, id);
+                updatedCount = statement.executeUpdateDelete();
+                return updatedCount > 0;
+            } finally {
+                statement.clearBindings();
+                monitor.end(OPERATION_UPDATE_ROW, start, 0, updatedCount, UPDATE_WAITING_LIST_ENTRY_STATEMENT);
+            }
+        }
+    }
+
+    /**
+     * Deletes the row with the specified id with the precompiled delete statement. It returns true
+     * if the row existed. It neither updates the queue index nor notifies observers.
+     */
+    private boolean deleteRow(long id) {
+        SQLiteStatement statement = getDeleteStatement();
+        long start = monitor.begin(OPERATION_DELETE_ROW);
+        int deletedCount = 0;
+        synchronized (statement) {
+            try {
+                statement.bindLong(1, id);
+                deletedCount = statement.executeUpdateDelete();
+                return deletedCount > 0;
+            } finally {
+                statement.clearBindings();
+                monitor.end(OPERATION_DELETE_ROW, start, 0, deletedCount, DELETE_WAITING_LIST_ENTRY_STATEMENT);
+            }
+        }
+    }
+
+    /**
+     * Deletes the waiting list entry object with the specified id. It is moved to the deleted
+     * entry table, so it can be restored until it is purged.
+     */
+    @Override
+    public void deleteWaitingListEntry(long id) {
+        deleteWaitingListEntries(Collections.singletonList(id));
+    }
+
+    /**
+     * Deletes every waiting list entry object with one of the specified ids. Each chunk of rows is
+     * copied into the deleted entry table and then deleted with one set based statement each, all
+     * in a single transaction, so either every object is deleted or none are. They can be restored
+     * until they are purged. It returns the number of objects deleted.
+     */
+    @Override
+    public int deleteWaitingListEntries(Collection<Long> ids) {
+
+        SQLiteDatabase db = getDatabase();
+        List<long[]> chunks = chunkIds(ids);
+        Object[] deletedAt = new Object[]{System.currentTimeMillis()};
+        int deletedCount = 0;
+
+        long start = monitor.begin(OPERATION_DELETE_BATCH);
+        db.beginTransaction();
+        try {
+            for (long[] chunk : chunks) {
+                executeForIds(db, OPERATION_COPY_TO_DELETED_IDS, DeletedEntrySchema.COPY_TO_DELETED_STATEMENT_PREFIX, deletedAt, chunk);
+                deletedCount += executeForIds(db, OPERATION_DELETE_IDS, DELETE_WAITING_LIST_ENTRIES_STATEMENT_PREFIX, new Object[0], chunk);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            monitor.end(OPERATION_DELETE_BATCH, start, 0, 0, null);
+        }
+
+        for (long[] chunk : chunks)
+            for (long id : chunk)
+                changeNotifier.notifyDeleted(id, onWaitingListEntryDeleted(id));
+
+        return deletedCount;
+    }
+
+    /**
+     * Restores every deleted waiting list entry object with one of the specified ids that has not
+     * been purged. For each chunk of ids, the rows that can be restored are read first, then only
+     * those are copied back with their ids and removed from the deleted entry table, all in a
+     * single transaction, so a row whose student waits for the course again stays deleted. The
+     * restored rows are read back in the same transaction so observers learn of exactly those as
+     * inserted objects. It returns the number of objects restored.
+     */
+    @Override
+    public int restoreWaitingListEntries(Collection<Long> ids) {
+
+        SQLiteDatabase db = getDatabase();
+        ArrayList<WaitingListEntry> restoredWaitingListEntries = new ArrayList<>();
+        int restoredCount = 0;
+
+        long start = monitor.begin(OPERATION_RESTORE_BATCH);
+        db.beginTransaction();
+        try {
+            for (long[] chunk : chunkIds(ids)) {
+                long[] restorableIds = selectIds(db, OPERATION_SELECT_RESTORABLE_IDS, DeletedEntrySchema.SELECT_RESTORABLE_IDS_QUERY_PREFIX, chunk);
+                if (restorableIds.length == 0)
+                    continue;
+                restoredCount += executeForIds(db, OPERATION_RESTORE_IDS, DeletedEntrySchema.RESTORE_STATEMENT_PREFIX, new Object[0], restorableIds);
+                executeForIds(db, OPERATION_DELETE_DELETED_IDS, DeletedEntrySchema.DELETE_DELETED_STATEMENT_PREFIX, new Object[0], restorableIds);
+                Cursor cursor = db.rawQuery(SELECT_WAITING_LIST_ENTRIES_BY_ID_QUERY_PREFIX + placeholders(restorableIds.length) + ")", idSelectionArgs(restorableIds));
+                new WaitingListEntryMapper(fullNameFormat).mapAll(cursor, restoredWaitingListEntries, false);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            monitor.end(OPERATION_RESTORE_BATCH, start, restoredWaitingListEntries.size(), restoredCount, null);
+        }
+
+        for (WaitingListEntry waitingListEntry : restoredWaitingListEntries) {
+            onWaitingListEntryWritten(waitingListEntry);
+            changeNotifier.notifyInserted(waitingListEntry);
+        }
+
+        return restoredCount;
+    }
+
+    /**
+     * Permanently removes at most the specified number of deleted waiting list entry objects that
+     * were deleted before the specified time, oldest first, with one statement. Observers are not
+     * notified, since the objects are no longer shown. It returns the number of objects removed.
+     */
+    @Override
+    public int purgeDeletedWaitingListEntries(long deletedBefore, int limit) {
+        long start = monitor.begin(OPERATION_PURGE_CHUNK);
+        int purgedCount = 0;
+        SQLiteStatement statement = getDatabase().compileStatement(DeletedEntrySchema.PURGE_STATEMENT);
+        try {
+            statement.bindLong(1, deletedBefore);
+            statement.bindLong(2, limit);
+            purgedCount = statement.executeUpdateDelete();
+            return purgedCount;
+        } finally {
+            statement.close();
+            monitor.end(OPERATION_PURGE_CHUNK, start, 0, purgedCount, DeletedEntrySchema.PURGE_STATEMENT);
+        }
+    }
+
+    /**
+     * Sets the priority of every waiting list entry object with one of the specified ids, in a
+     * single transaction. It returns the number of objects updated.
+     */
+    @Override
+    public int updateWaitingListEntryPriorities(Collection<Long> ids, String newPriority) {
+        return updateWaitingListEntries(ids, UPDATE_WAITING_LIST_ENTRY_PRIORITIES_STATEMENT_PREFIX,
+                new Object[]{newPriority, (long) WaitingListEntry.getPriorityRank(newPriority)});
+    }
+
+    /**
+     * Moves every waiting list entry object with one of the specified ids to the specified course,
+     * in a single transaction. It returns the number of objects updated.
+     */
+    @Override
+    public int updateWaitingListEntryCourses(Collection<Long> ids, String newCourse) {
+        return updateWaitingListEntries(ids, UPDATE_WAITING_LIST_ENTRY_COURSES_STATEMENT_PREFIX,
+                new Object[]{newCourse, WaitingListEntry.getCourseKey(newCourse)});
+    }
+
+    /**
+     * Runs a set based update statement once per chunk of ids, all in a single transaction. The
+     * updated rows are read back in the same transaction, one query per chunk, so the queue index
+     * and the change notifier learn their new attributes. Rows a statement left alone, such as
+     * students who already wait for the course they would be moved to, are read back unchanged.
+     * It returns the number of objects updated.
+     */
+    private int updateWaitingListEntries(Collection<Long> ids, String statementPrefix, Object[] setArgs) {
+
+        SQLiteDatabase db = getDatabase();
+        List<long[]> chunks = chunkIds(ids);
+        ArrayList<WaitingListEntry> updatedWaitingListEntries = new ArrayList<>();
+        int updatedCount = 0;
+
+        long start = monitor.begin(OPERATION_UPDATE_BATCH);
+        db.beginTransaction();
+        try {
+            for (long[] chunk : chunks) {
+                int chunkUpdatedCount = executeForIds(db, OPERATION_UPDATE_IDS, statementPrefix, setArgs, chunk);
+                if (chunkUpdatedCount == 0)
+                    continue;
+                updatedCount += chunkUpdatedCount;
+                String[] selectionArgs = new String[chunk.length];
+                for (int i = 0; i < chunk.length; i++)
+                    selectionArgs[i] = String.valueOf(chunk[i]);
+                Cursor cursor = db.rawQuery(SELECT_WAITING_LIST_ENTRIES_BY_ID_QUERY_PREFIX + placeholders(chunk.length) + ")", selectionArgs);
+                new WaitingListEntryMapper(fullNameFormat).mapAll(cursor, updatedWaitingListEntries, false);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            monitor.end(OPERATION_UPDATE_BATCH, start, updatedWaitingListEntries.size(), 0, null);
+        }
+
+        for (WaitingListEntry waitingListEntry : updatedWaitingListEntries) {
+            String previousCourseKey = onWaitingListEntryWritten(waitingListEntry);
+            changeNotifier.notifyUpdated(waitingListEntry, previousCourseKey);
+        }
+
+        return updatedCount;
+    }
+
+    /**
+     * Admits at most the specified number of waiting list entry objects for the specified course,
+     * highest priority first, then earliest added first. It returns the admissions in the order
+     * they were admitted.
+     */
+    @Override
+    public List<Admission> admitNextInLine(String course, int seatCount) {
+        return admitNextInLine(Collections.singletonMap(course, seatCount));
+    }
+
+    /**
+     * Admits the next in line for every course in the map, all in a single transaction, so either
+     * every released seat is filled or none are. For each course the ranked rows are read through
+     * the course key priority rank index, then copied into the admission table and deleted from the
+     * waiting list with one set based statement per chunk of ids. It returns the admissions course
+     * by course in map order.
+     */
+    @Override
+    public List<Admission> admitNextInLine(Map<String, Integer> seatCounts) {
+
+        for (int seatCount : seatCounts.values())
+            if (seatCount < 0)
+                throw new IllegalArgumentException("Negative seat count: " + seatCount);
+
+        SQLiteDatabase db = getDatabase();
+        List<Admission> admissions = new ArrayList<>();
+        long admittedAt = System.currentTimeMillis();
+
+        long start = monitor.begin(OPERATION_ADMIT);
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, Integer> seatCount : seatCounts.entrySet()) {
+                ArrayList<WaitingListEntry> waitingListEntries = queryWaitingListEntries(OPERATION_SELECT_NEXT_IN_LINE, SELECT_NEXT_IN_LINE_QUERY,
+                        new String[]{WaitingListEntry.getCourseKey(seatCount.getKey()), String.valueOf(seatCount.getValue())}, false);
+                if (waitingListEntries.isEmpty())
+                    continue;
+                List<Long> ids = new ArrayList<>(waitingListEntries.size());
+                for (WaitingListEntry waitingListEntry : waitingListEntries) {
+                    ids.add(waitingListEntry.getId());
+                    admissions.add(new Admission(waitingListEntry, admittedAt));
+                }
+                for (long[] chunk : chunkIds(ids)) {
+                    executeForIds(db, OPERATION_INSERT_ADMISSIONS, INSERT_ADMISSIONS_STATEMENT_PREFIX, new Object[]{admittedAt}, chunk);
+                    executeForIds(db, OPERATION_DELETE_IDS, DELETE_WAITING_LIST_ENTRIES_STATEMENT_PREFIX, new Object[0], chunk);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            monitor.end(OPERATION_ADMIT, start, 0, 0, null);
+        }
+
+        for (Admission admission : admissions) {
+            onWaitingListEntryDeleted(admission.getId());
+            changeNotifier.notifyDeleted(admission.getId(), WaitingListEntry.getCourseKey(admission.getCourse()));
+        }
+
+        return admissions;
+    }
+
+    /**
+     * Returns the id of this device, which was generated when the sync tables were created.
+     */
+    @Override
+    public String getDeviceId() {
+        Cursor cursor = getDatabase().rawQuery(SyncSchema.SELECT_STATE_QUERY, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Returns up to the specified number of local changes that have not been pushed, oldest first.
+     * Edited rows are read as they are now, and deleted rows from their tombstones.
+     */
+    @Override
+    public List<SyncChange> getPendingChanges(int limit) {
+        List<SyncChange> changes = new ArrayList<>();
+        long start = monitor.begin(OPERATION_SYNC_PENDING);
+        Cursor cursor = getDatabase().rawQuery(SyncSchema.SELECT_PENDING_CHANGES_QUERY, new String[]{String.valueOf(limit)});
+        try {
+            while (cursor.moveToNext()) {
+                SyncChange change = new SyncChange(
+                        cursor.getString(0),
+                        cursor.getString(1),
+                        cursor.getString(2),
+                        cursor.getString(3),
+                        cursor.getLong(4),
+                        cursor.getString(5),
+                        cursor.getInt(6) != 0
+                );
+                change.setChangeSeq(cursor.getLong(7));
+                changes.add(change);
+            }
+        } finally {
+            cursor.close();
+            monitor.end(OPERATION_SYNC_PENDING, start, changes.size(), 0, SyncSchema.SELECT_PENDING_CHANGES_QUERY);
+        }
+        return changes;
+    }
+
+    /**
+     * Records that the local changes up to the specified change sequence number were pushed and
+     * removes the tombstones pushed with them, in a single transaction.
+     */
+    @Override
+    public void markPushed(long changeSeq) {
+        SQLiteDatabase db = getDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL(SyncSchema.UPDATE_PUSHED_CHANGE_SEQ_STATEMENT, new Object[]{changeSeq});
+            db.execSQL(SyncSchema.DELETE_PUSHED_TOMBSTONES_STATEMENT, new Object[]{changeSeq});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Returns the cursor of the last change pulled from the backend.
+     */
+    @Override
+    public long getPullCursor() {
+        Cursor cursor = getDatabase().rawQuery(SyncSchema.SELECT_STATE_QUERY, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(2) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Applies the specified changes pulled from the backend and stores the new pull cursor, in a
+     * single transaction with the sync triggers standing aside. A change is written only if it wins
+     * against the local row or tombstone with the same keys. Rows changed this way are not known
+     * by id, so the queue index and the entry cache are dropped and observers are told to reload.
+     * It returns the number of changes applied.
+     */
+    @Override
+    public int applyRemoteChanges(List<SyncChange> changes, long pullCursor) {
+
+        SQLiteDatabase db = getDatabase();
+        int appliedCount = 0;
+
+        long start = monitor.begin(OPERATION_SYNC_APPLY);
+        db.beginTransaction();
+        SQLiteStatement insertRemoteStatement = db.compileStatement(SyncSchema.INSERT_REMOTE_ROW_STATEMENT);
+        SQLiteStatement updateRemoteStatement = db.compileStatement(SyncSchema.UPDATE_REMOTE_ROW_STATEMENT);
+        try {
+            db.execSQL(SyncSchema.UPDATE_APPLYING_REMOTE_STATEMENT, new Object[]{1});
+
+            for (SyncChange change : changes) {
+
+                String[] keys = {change.getNameKey(), change.getCourseKey()};
+
+                // Find the local version of the row, which is either the row or its tombstone.
+                long localId = 0;
+                SyncChange localVersion = null;
+                Cursor cursor = db.rawQuery(SyncSchema.SELECT_ROW_VERSION_QUERY, keys);
+                try {
+                    if (cursor.moveToFirst()) {
+                        localId = cursor.getLong(0);
+                        localVersion = new SyncChange(null, null, null, null, cursor.getLong(1), cursor.getString(2), false);
+                    }
+                } finally {
+                    cursor.close();
+                }
+                if (localVersion == null) {
+                    cursor = db.rawQuery(SyncSchema.SELECT_TOMBSTONE_VERSION_QUERY, keys);
+                    try {
+                        if (cursor.moveToFirst())
+                            localVersion = new SyncChange(null, null, null, null, cursor.getLong(0), cursor.getString(1), true);
+                    } finally {
+                        cursor.close();
+                    }
+                }
+                if (localVersion != null && SyncChange.compareVersions(change, localVersion) <= 0)
+                    continue;
+
+                if (change.isDeleted()) {
+                    if (localId != 0)
+                        db.execSQL(SyncSchema.DELETE_REMOTE_ROW_STATEMENT, new Object[]{localId});
+                } else if (localId != 0) {
+                    bindWaitingListEntry(updateRemoteStatement, change.getFirstName(), change.getLastName(), change.getCourse(), change.getPriority());
+                    updateRemoteStatement.bindLong(8, change.getUpdatedAt());
+                    bindStringOrNull(updateRemoteStatement, 9, change.getOrigin());
+                    updateRemoteStatement.bindLong(10, localId);
+                    updateRemoteStatement.executeUpdateDelete();
+                } else {
+                    bindWaitingListEntry(insertRemoteStatement, change.getFirstName(), change.getLastName(), change.getCourse(), change.getPriority());
+                    insertRemoteStatement.bindLong(8, change.getUpdatedAt());
+                    bindStringOrNull(insertRemoteStatement, 9, change.getOrigin());
+                    insertRemoteStatement.executeInsert();
+                }
+                db.execSQL(SyncSchema.DELETE_TOMBSTONE_STATEMENT, keys);
+                appliedCount++;
+            }
+
+            db.execSQL(SyncSchema.UPDATE_PULL_CURSOR_STATEMENT, new Object[]{pullCursor});
+            db.execSQL(SyncSchema.UPDATE_APPLYING_REMOTE_STATEMENT, new Object[]{0});
+            db.setTransactionSuccessful();
+        } finally {
+            insertRemoteStatement.close();
+            updateRemoteStatement.close();
+            db.endTransaction();
+            monitor.end(OPERATION_SYNC_APPLY, start, changes.size(), appliedCount, null);
+        }
+
+        if (appliedCount > 0) {
+            synchronized (queueIndexLock) {
+                queueIndex = null;
+            }
+            entryCache.clear();
+            changeNotifier.notifyTableInvalidated();
+        }
+
+        return appliedCount;
+    }
+
+    /**
+     * Returns the number of the last journal snapshot taken at or before the specified time, or -1
+     * if there is none left.
+     */
+    @Override
+    public long getSnapshotSeqAt(long time) {
+        Cursor cursor = getDatabase().rawQuery(JournalSchema.SELECT_SNAPSHOT_SEQ_AT_QUERY, new String[]{String.valueOf(time)});
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Returns every waiting list entry object held by the journal snapshot with the specified
+     * number, ordered by id.
+     */
+    @Override
+    public List<WaitingListEntry> getSnapshotEntries(long snapshotSeq) {
+        List<WaitingListEntry> waitingListEntries = new ArrayList<>();
+        long start = monitor.begin(OPERATION_JOURNAL_SNAPSHOT_READ);
+        Cursor cursor = getDatabase().rawQuery(JournalSchema.SELECT_SNAPSHOT_ENTRIES_QUERY, new String[]{String.valueOf(snapshotSeq)});
+        try {
+            new WaitingListEntryMapper(fullNameFormat).mapAll(cursor, waitingListEntries, false);
+        } finally {
+            cursor.close();
+            monitor.end(OPERATION_JOURNAL_SNAPSHOT_READ, start, waitingListEntries.size(), 0, JournalSchema.SELECT_SNAPSHOT_ENTRIES_QUERY);
+        }
+        return waitingListEntries;
+    }
+
+    /**
+     * Returns at most the specified number of journal events recorded after the event with the
+     * specified number, oldest first.
+     */
+    @Override
+    public List<JournalEvent> getJournalEventsAfter(long afterSeq, int limit) {
+        List<JournalEvent> events = new ArrayList<>();
+        long start = monitor.begin(OPERATION_JOURNAL_EVENTS_READ);
+        Cursor cursor = getDatabase().rawQuery(JournalSchema.SELECT_EVENTS_AFTER_QUERY, new String[]{String.valueOf(afterSeq), String.valueOf(limit)});
+        try {
+            readJournalEvents(cursor, events);
+        } finally {
+            cursor.close();
+            monitor.end(OPERATION_JOURNAL_EVENTS_READ, start, events.size(), 0, JournalSchema.SELECT_EVENTS_AFTER_QUERY);
+        }
+        return events;
+    }
+
+    /**
+     * Returns every journal event left for the waiting list entry object with the specified id,
+     * oldest first, read through the entry id index.
+     */
+    @Override
+    public List<JournalEvent> getJournalEventsForEntry(long entryId) {
+        List<JournalEvent> events = new ArrayList<>();
+        Cursor cursor = getDatabase().rawQuery(JournalSchema.SELECT_ENTRY_EVENTS_QUERY, new String[]{String.valueOf(entryId)});
+        try {
+            readJournalEvents(cursor, events);
+        } finally {
+            cursor.close();
+        }
+        return events;
+    }
+
+    /**
+     * Returns the number of journal events recorded since the last snapshot.
+     */
+    @Override
+    public int countJournalEventsSinceSnapshot() {
+        return (int) DatabaseUtils.longForQuery(getDatabase(), JournalSchema.COUNT_EVENTS_SINCE_SNAPSHOT_QUERY, null);
+    }
+
+    /**
+     * Takes a journal snapshot of every waiting list entry object in a single transaction, unless
+     * no event has been recorded since the last one. It returns the number of the snapshot, or -1
+     * if none was taken. Call it on the writer thread.
+     */
+    @Override
+    public long takeJournalSnapshot() {
+        SQLiteDatabase db = getDatabase();
+        long snapshotSeq = -1;
+        long start = monitor.begin(OPERATION_JOURNAL_SNAPSHOT);
+        db.beginTransaction();
+        SQLiteStatement snapshotStatement = db.compileStatement(JournalSchema.INSERT_SNAPSHOT_STATEMENT);
+        SQLiteStatement snapshotEntriesStatement = db.compileStatement(JournalSchema.INSERT_SNAPSHOT_ENTRIES_STATEMENT);
+        try {
+            if (snapshotStatement.executeUpdateDelete() > 0) {
+                snapshotEntriesStatement.executeUpdateDelete();
+                snapshotSeq = DatabaseUtils.longForQuery(db, JournalSchema.SELECT_LAST_SNAPSHOT_SEQ_QUERY, null);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            snapshotStatement.close();
+            snapshotEntriesStatement.close();
+            db.endTransaction();
+            monitor.end(OPERATION_JOURNAL_SNAPSHOT, start, 0, 0, JournalSchema.INSERT_SNAPSHOT_ENTRIES_STATEMENT);
+        }
+        return snapshotSeq;
+    }
+
+    /**
+     * Removes every journal snapshot but the specified number of latest ones, then at most the
+     * specified number of snapshot rows and events they leave behind, in a single transaction. It
+     * returns the number of rows removed. Call it on the writer thread.
+     */
+    @Override
+    public int compactJournal(int keptSnapshotCount, int limit) {
+        SQLiteDatabase db = getDatabase();
+        int removedCount = 0;
+        long start = monitor.begin(OPERATION_JOURNAL_COMPACT_CHUNK);
+        db.beginTransaction();
+        SQLiteStatement snapshotsStatement = db.compileStatement(JournalSchema.DELETE_EXPIRED_SNAPSHOTS_STATEMENT);
+        SQLiteStatement snapshotEntriesStatement = db.compileStatement(JournalSchema.DELETE_EXPIRED_SNAPSHOT_ENTRIES_STATEMENT);
+        SQLiteStatement eventsStatement = db.compileStatement(JournalSchema.DELETE_EXPIRED_EVENTS_STATEMENT);
+        try {
+            snapshotsStatement.bindLong(1, keptSnapshotCount);
+            snapshotsStatement.executeUpdateDelete();
+            snapshotEntriesStatement.bindLong(1, limit);
+            removedCount = snapshotEntriesStatement.executeUpdateDelete();
+            if (removedCount < limit) {
+                eventsStatement.bindLong(1, limit - removedCount);
+                removedCount += eventsStatement.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            snapshotsStatement.close();
+            snapshotEntriesStatement.close();
+            eventsStatement.close();
+            db.endTransaction();
+            monitor.end(OPERATION_JOURNAL_COMPACT_CHUNK, start, 0, removedCount, null);
+        }
+        return removedCount;
+    }
+
+    /**
+     * Maps each row of the cursor to a journal event object and adds it to the list.
+     */
+    private static void readJournalEvents(Cursor cursor, List<JournalEvent> events) {
+        while (cursor.moveToNext())
+            events.add(new JournalEvent(
+                    cursor.getLong(0),
+                    cursor.getLong(1),
+                    cursor.getInt(2),
+                    cursor.getLong(3),
+                    cursor.getString(4),
+                    cursor.getString(5),
+                    cursor.getString(6),
+                    cursor.getString(7)
+            ));
+    }
+
+    /**
+     * Compiles and runs a statement prefix completed with a placeholder for each id of the chunk,
+     * timed as the specified operation. The leading arguments are bound before the ids. It returns
+     * the number of rows changed.
+     */
+    private int executeForIds(SQLiteDatabase db, String operation, String statementPrefix, Object[] leadingArgs, long[] chunk) {
+        long start = monitor.begin(operation);
+        int changedCount = 0;
+        SQLiteStatement statement = db.compileStatement(statementPrefix + placeholders(chunk.length) + ")");
+        try {
+            for (int i = 0; i < leadingArgs.length; i++) {
+                if (leadingArgs[i] instanceof Long)
+                    statement.bindLong(i + 1, (Long) leadingArgs[i]);
+                else
+                    bindStringOrNull(statement, i + 1, (String) leadingArgs[i]);
+            }
+            for (int i = 0; i < chunk.length; i++)
+                statement.bindLong(leadingArgs.length + i + 1, chunk[i]);
+            changedCount = statement.executeUpdateDelete();
+            return changedCount;
+        } finally {
+            statement.close();
+            monitor.end(operation, start, 0, changedCount, statementPrefix);
+        }
+    }
+
+    /**
+     * Runs a query prefix completed with a placeholder for each id of the chunk, timed as the
+     * specified operation, and returns the ids it selects.
+     */
+    private long[] selectIds(SQLiteDatabase db, String operation, String queryPrefix, long[] chunk) {
+        long start = monitor.begin(operation);
+        long[] selectedIds = new long[0];
+        Cursor cursor = db.rawQuery(queryPrefix + placeholders(chunk.length) + ")", idSelectionArgs(chunk));
+        try {
+            selectedIds = new long[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++)
+                selectedIds[i] = cursor.getLong(0);
+            return selectedIds;
+        } finally {
+            cursor.close();
+            monitor.end(operation, start, selectedIds.length, 0, queryPrefix);
+        }
+    }
+
+    /**
+     * Returns the ids of the chunk as selection arguments.
+     */
+    private static String[] idSelectionArgs(long[] chunk) {
+        String[] selectionArgs = new String[chunk.length];
+        for (int i = 0; i < chunk.length; i++)
+            selectionArgs[i] = String.valueOf(chunk[i]);
+        return selectionArgs;
+    }
+
+    /**
+     * Splits the distinct ids into chunks small enough to bind to one statement.
+     */
+    private static List<long[]> chunkIds(Collection<Long> ids) {
+        long[] distinctIds = new long[ids.size()];
+        int count = 0;
+        for (long id : new LinkedHashSet<>(ids))
+            distinctIds[count++] = id;
+        List<long[]> chunks = new ArrayList<>();
+        for (int start = 0; start < count; start += BATCH_ID_CHUNK_SIZE)
+            chunks.add(Arrays.copyOfRange(distinctIds, start, Math.min(start + BATCH_ID_CHUNK_SIZE, count)));
+        return chunks;
+    }
+
+    /**
+     * Returns the specified number of comma separated parameter placeholders.
+     */
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++)
+            placeholders.append(i == 0 ? "?" : ",?");
+        return placeholders.toString();
+    }
+
+    /**
+     * Returns the change notifier that publishes writes made through this database helper.
+     */
+    public WaitingListChangeNotifier getChangeNotifier() {
+        return changeNotifier;
+    }
+
+    /**
+     * Returns a waiting list entry object with the specified attributes and its full name
+     * formatted, as if it had been read from the database.
+     */
+    private WaitingListEntry newWaitingListEntry(long id, String firstName, String lastName, String course, String priority) {
+        WaitingListEntry waitingListEntry = new WaitingListEntry(id, firstName, lastName, course, priority);
+        waitingListEntry.setFullName(String.format(fullNameFormat, firstName, lastName));
+        return waitingListEntry;
+    }
+
+    /**
+     * Returns the position of the waiting list entry object with the specified id in the queue
+     * for its course, where 1 is next in line. It returns -1 if no such object is found.
+     */
+    @Override
+    public int getQueuePosition(long id) {
+        synchronized (queueIndexLock) {
+            return getQueueIndex().positionOf(id);
+        }
+    }
+
+    /**
+     * Returns the positions of the waiting list entry objects with the specified ids in the queues
+     * for their courses, in the order of the ids, where 1 is next in line and -1 means no such
+     * object is found. The positions are read under one hold of the queue index lock, so they are
+     * consistent with each other.
+     */
+    public int[] getQueuePositions(List<Long> ids) {
+        int[] positions = new int[ids.size()];
+        synchronized (queueIndexLock) {
+            WaitingListQueueIndex index = getQueueIndex();
+            for (int i = 0; i < positions.length; i++)
+                positions[i] = index.positionOf(ids.get(i));
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the waiting list entry object next in line for the specified course without removing
+     * it. It returns a null object if no one is waiting for the course.
+     */
+    public WaitingListEntry peekNextInLine(String course) {
+        long id;
+        synchronized (queueIndexLock) {
+            id = getQueueIndex().peekNext(WaitingListEntry.getCourseKey(course));
+        }
+        return id == -1 ? null : getWaitingListEntry(id);
+    }
+
+    /**
+     * Returns the queue index, building it from the database if this is the first call. The caller
+     * must hold the queue index lock. Because writes update the index under the same lock after
+     * their rows are stored, a write racing with the build is applied exactly once. Entries are
+     * queued by course key. Ranks, and the keys of rows a backfill has not reached yet, are
+     * computed from the text columns so the index is correct even while a backfill is pending.
+     */
+    private WaitingListQueueIndex getQueueIndex() {
+
+        if (queueIndex != null)
+            return queueIndex;
+
+        WaitingListQueueIndex newQueueIndex = new WaitingListQueueIndex();
+        int rowCount = 0;
+
+        long start = monitor.begin(OPERATION_QUEUE_INDEX_BUILD);
+        Cursor cursor = getDatabase().rawQuery(SELECT_QUEUE_INDEX_QUERY, null);
+        try {
+            while (cursor.moveToNext()) {
+                String courseKey = cursor.isNull(1) ? WaitingListEntry.getCourseKey(cursor.getString(2)) : cursor.getString(1);
+                newQueueIndex.add(cursor.getLong(0), courseKey, WaitingListEntry.getPriorityRank(cursor.getString(3)));
+                rowCount++;
+            }
+        } finally {
+            cursor.close();
+            monitor.end(OPERATION_QUEUE_INDEX_BUILD, start, rowCount, 0, SELECT_QUEUE_INDEX_QUERY);
+        }
+
+        queueIndex = newQueueIndex;
+        return queueIndex;
+    }
+
+    /**
+     * Updates the queue index and caches the object after a waiting list entry object is inserted
+     * or updated with the specified attributes. It returns the key of the course the object was
+     * indexed under before, or null if it was not indexed.
+     */
+    @Nullable
+    private String onWaitingListEntryWritten(WaitingListEntry waitingListEntry) {
+        entryCache.put(waitingListEntry);
+        return updateQueueIndex(waitingListEntry.getId(), waitingListEntry.getCourse(), waitingListEntry.getPriority());
+    }
+
+    /**
+     * Updates the queue index and drops the cached object after a waiting list entry object is
+     * inserted or updated without all of its stored attributes being known. It returns the key of
+     * the course the object was indexed under before, or null if it was not indexed.
+     */
+    @Nullable
+    private String onWaitingListEntryWritten(long id, String course, String priority) {
+        entryCache.remove(id);
+        return updateQueueIndex(id, course, priority);
+    }
+
+    /**
+     * Adds or moves an object in the queue index under the key of its course. It returns the key
+     * of the course the object was indexed under before, or null if it was not indexed. Nothing
+     * happens and null is returned if the index has not been built yet.
+     */
+    @Nullable
+    private String updateQueueIndex(long id, String course, String priority) {
+        synchronized (queueIndexLock) {
+            if (queueIndex == null)
+                return null;
+            String previousCourseKey = queueIndex.courseOf(id);
+            queueIndex.add(id, WaitingListEntry.getCourseKey(course), WaitingListEntry.getPriorityRank(priority));
+            return previousCourseKey;
+        }
+    }
+
+    /**
+     * Updates the queue index and drops the cached object after a waiting list entry object is
+     * deleted. It returns the key of the course the object was indexed under, or null if it was
+     * not indexed. Nothing happens to the index and null is returned if it has not been built yet.
+     */
+    @Nullable
+    private String onWaitingListEntryDeleted(long id) {
+        entryCache.remove(id);
+        synchronized (queueIndexLock) {
+            if (queueIndex == null)
+                return null;
+            String courseKey = queueIndex.courseOf(id);
+            queueIndex.remove(id);
+            return courseKey;
+        }
+    }
+
+    /**
+     * This class holds the size of the database file in pages and how many of those pages are
+     * free. Free pages are left behind by deleted rows until they are reused or vacuumed away.
+     */
+    public static class StorageStats {
+
+        // Storage variables.
+        private final long pageSize;
+        private final long pageCount;
+        private final long freePageCount;
+
+        /**
+         * Constructs storage stats with the specified page size in bytes and page counts.
+         */
+        public StorageStats(long pageSize, long pageCount, long freePageCount) {
+            this.pageSize = pageSize;
+            this.pageCount = pageCount;
+            this.freePageCount = freePageCount;
+        }
+
+        public long getPageCount() {
+            return pageCount;
+        }
+
+        public long getFreePageCount() {
+            return freePageCount;
+        }
+
+        /**
+         * Returns the size of the database file in bytes, not counting the write-ahead log.
+         */
+        public long getFileSizeBytes() {
+            return pageSize * pageCount;
+        }
+
+        /**
+         * Returns the fraction of the pages of the file that are free, from 0 to 1.
+         */
+        public double getFragmentation() {
+            return pageCount == 0 ? 0 : (double) freePageCount / pageCount;
+        }
+    }
+
+    /**
+     * This interface provides callbacks for the progress of a bulk insert.
+     */
+    public interface BulkInsertListener {
+
+        /**
+         * Called after each batch is committed with the number of objects of the list that are
+         * now stored in the database, counting any skipped by the starting index. The total is
+         * -1 for an import, whose length is not known in advance.
+         */
+        void onBulkInsertProgress(int insertedCount, int totalCount);
+
+        /**
+         * Called when a batch fails and is rolled back. The index is where a retry should resume.
+         */
+        void onBulkInsertFailed(int resumeIndex, SQLException e);
     }
-}
\ No newline at end of file
+}
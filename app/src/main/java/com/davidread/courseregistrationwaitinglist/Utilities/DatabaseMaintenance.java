@@ -0,0 +1,173 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import android.database.SQLException;
+import android.util.Log;
+
+import com.davidread.courseregistrationwaitinglist.Journal.WaitingListJournal;
+
+import java.util.Locale;
+
+/**
+ * This class keeps the database file compact over a busy term. It is an idle task of the database
+ * executor, so it runs on the writer thread once no write has been submitted for a while, and it
+ * starts a pass at most once per pass interval.
+ *
+ * <p>A pass takes a snapshot of the change journal once enough events have been recorded since the
+ * last one and compacts what the latest snapshots leave behind, purges deleted entries older than
+ * the retention period, reclaims the pages freed by both with incremental vacuum, and gathers
+ * statistics for the query planner with ANALYZE if there are none, then at most once per analyze
+ * interval. A database created before incremental auto vacuum was asked for is converted with a
+ * full vacuum on its first pass. The work is split into small steps, each in its own transaction,
+ * and each step after the first is submitted as a write behind any writes queued meanwhile, so the
+ * user never waits for more than one step. The longest step is a journal snapshot, which copies
+ * the list once every few thousand changes. The size of the file and the fraction of it that is
+ * free are logged before and after every pass that changed anything.
+ */
+public class DatabaseMaintenance implements Runnable {
+
+    // Log tag.
+    private static final String TAG = "DatabaseMaintenance";
+
+    // Maintenance constants. Deleted entries are kept well past the undo window of the list.
+    private static final long PASS_INTERVAL_MILLIS = 15 * 60 * 1000L;
+    private static final long ANALYZE_INTERVAL_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long DELETED_ENTRY_RETENTION_MILLIS = 60 * 60 * 1000L;
+    private static final int PURGE_CHUNK_SIZE = 500;
+    private static final int VACUUM_STEP_PAGES = 256;
+
+    // A few free pages are left in place, since the next inserts would only grow the file again.
+    private static final int MIN_FREE_PAGES_TO_VACUUM = 64;
+
+    // Steps of a pass, in the order they run.
+    private static final int STEP_JOURNAL = 0;
+    private static final int STEP_PURGE = 1;
+    private static final int STEP_VACUUM = 2;
+    private static final int STEP_ANALYZE = 3;
+    private static final int STEP_DONE = 4;
+
+    // Class objects.
+    private final DatabaseHelper db;
+    private final DatabaseExecutor executor;
+    private final WaitingListJournal journal;
+
+    // Pass variables. They are only used on the writer thread.
+    private int step = STEP_DONE;
+    private long passStartMillis;
+    private long lastAnalyzeMillis;
+    private DatabaseHelper.StorageStats statsBefore;
+    private int purgedCount;
+    private boolean isFileChanged;
+    private boolean isStepQueued;
+
+    /**
+     * Constructs the maintenance of the specified database helper, whose writes are submitted to
+     * the specified executor.
+     */
+    public DatabaseMaintenance(DatabaseHelper db, DatabaseExecutor executor) {
+        this.db = db;
+        this.executor = executor;
+        journal = new WaitingListJournal(db);
+    }
+
+    /**
+     * Called when the writer has been idle for a while. It runs the next step of the current pass,
+     * or starts a pass, unless a step is already queued behind other writes.
+     */
+    @Override
+    public void run() {
+        if (!isStepQueued)
+            runNextStep();
+    }
+
+    /**
+     * Runs the next step of the current pass, starting a pass if none is running and the pass
+     * interval has passed. If the pass is not done, the next step is submitted as a write. A
+     * failed step is logged and ends the pass, since maintenance can wait for the next one.
+     */
+    private void runNextStep() {
+
+        long now = System.currentTimeMillis();
+        try {
+            if (step == STEP_DONE) {
+                if (passStartMillis != 0 && now - passStartMillis < PASS_INTERVAL_MILLIS)
+                    return;
+                passStartMillis = now;
+                statsBefore = db.getStorageStats();
+                purgedCount = 0;
+                isFileChanged = false;
+                step = STEP_JOURNAL;
+            }
+            runStep(now);
+            if (step == STEP_DONE && (purgedCount > 0 || isFileChanged))
+                logPass(statsBefore, db.getStorageStats());
+        } catch (SQLException e) {
+            Log.w(TAG, "Database maintenance failed", e);
+            step = STEP_DONE;
+        }
+
+        if (step != STEP_DONE) {
+            isStepQueued = true;
+            executor.write(() -> {
+                isStepQueued = false;
+                runNextStep();
+                return null;
+            }, null);
+        }
+    }
+
+    /**
+     * Runs one step of the current pass and advances to the next step once the current one has
+     * nothing left to do.
+     */
+    private void runStep(long now) {
+
+        if (step == STEP_JOURNAL) {
+            if (journal.maintain())
+                isFileChanged = true;
+            else
+                step = STEP_PURGE;
+
+        } else if (step == STEP_PURGE) {
+            int chunkPurgedCount = db.purgeDeletedWaitingListEntries(now - DELETED_ENTRY_RETENTION_MILLIS, PURGE_CHUNK_SIZE);
+            purgedCount += chunkPurgedCount;
+            if (chunkPurgedCount < PURGE_CHUNK_SIZE)
+                step = STEP_VACUUM;
+
+        } else if (step == STEP_VACUUM) {
+            if (!db.isIncrementalVacuumEnabled()) {
+                db.enableIncrementalVacuum();
+                isFileChanged = true;
+                step = STEP_ANALYZE;
+                return;
+            }
+            if (db.getStorageStats().getFreePageCount() <= MIN_FREE_PAGES_TO_VACUUM) {
+                step = STEP_ANALYZE;
+                return;
+            }
+            db.incrementalVacuum(VACUUM_STEP_PAGES);
+            isFileChanged = true;
+
+        } else if (step == STEP_ANALYZE) {
+            if (lastAnalyzeMillis == 0 && db.hasStatistics())
+                lastAnalyzeMillis = now;
+            if (lastAnalyzeMillis == 0 || now - lastAnalyzeMillis >= ANALYZE_INTERVAL_MILLIS) {
+                db.analyze();
+                lastAnalyzeMillis = now;
+                isFileChanged = true;
+            }
+            step = STEP_DONE;
+        }
+    }
+
+    /**
+     * Logs the size of the database file and the fraction of it that is free before and after a
+     * pass, along with the number of deleted entries purged.
+     */
+    private void logPass(DatabaseHelper.StorageStats before, DatabaseHelper.StorageStats after) {
+        Log.i(TAG, String.format(Locale.ROOT, "Purged %d deleted entries, file %.1f KB -> %.1f KB, free pages %d (%.1f%%) -> %d (%.1f%%)",
+                purgedCount,
+                before.getFileSizeBytes() / 1024.0, after.getFileSizeBytes() / 1024.0,
+                before.getFreePageCount(), before.getFragmentation() * 100,
+                after.getFreePageCount(), after.getFragmentation() * 100));
+    }
+}
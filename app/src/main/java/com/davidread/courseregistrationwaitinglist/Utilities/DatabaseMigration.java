@@ -0,0 +1,78 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * This class represents one step of a database schema upgrade. A step moves the database to its
+ * end version from the version before it. The schema change itself is made by migrate(), which
+ * runs inside a transaction while the database is being opened and so should only do work that
+ * does not grow with the size of a table. Steps that must rewrite existing rows do so in
+ * backfill(), which is called later on the database executor for one chunk of ids at a time.
+ */
+public abstract class DatabaseMigration {
+
+    // SQLite constants for the table tracking unfinished backfills.
+    public static final String TABLE_PENDING_BACKFILLS = "pending_backfills";
+    public static final String COLUMN_VERSION = "version";
+    public static final String COLUMN_NEXT_ID = "next_id";
+    public static final String COLUMN_END_ID = "end_id";
+
+    // Class variables.
+    private final int endVersion;
+
+    /**
+     * Constructs a migration that upgrades the database to the specified version.
+     */
+    protected DatabaseMigration(int endVersion) {
+        this.endVersion = endVersion;
+    }
+
+    /**
+     * Returns the version this migration upgrades the database to.
+     */
+    public int getEndVersion() {
+        return endVersion;
+    }
+
+    /**
+     * Makes the schema change of this migration.
+     */
+    public abstract void migrate(SQLiteDatabase db);
+
+    /**
+     * Returns the name of the table whose rows are rewritten by backfill(), or null if this
+     * migration has no backfill.
+     */
+    public String getBackfillTable() {
+        return null;
+    }
+
+    /**
+     * Returns true if the backfill of this migration deletes rows or changes attributes that are
+     * shown or queued, so cached state must be dropped after each chunk. It returns false by
+     * default, for backfills that only fill in derived columns or tables.
+     */
+    public boolean isBackfillVisible() {
+        return false;
+    }
+
+    /**
+     * Rewrites the rows of the backfill table with an id greater than the first id and less than
+     * or equal to the second id. It is called inside a transaction.
+     */
+    public void backfill(SQLiteDatabase db, long fromIdExclusive, long toIdInclusive) {
+    }
+
+    /**
+     * Creates the table tracking unfinished backfills. Each row records how far the backfill of one
+     * migration has progressed, so it resumes where it stopped if the process is killed.
+     */
+    public static void createPendingBackfillsTable(SQLiteDatabase db) {
+        String createTablePendingBackfillsQuery = "CREATE TABLE IF NOT EXISTS " + TABLE_PENDING_BACKFILLS + "("
+                + COLUMN_VERSION + " INTEGER PRIMARY KEY,"
+                + COLUMN_NEXT_ID + " INTEGER NOT NULL,"
+                + COLUMN_END_ID + " INTEGER NOT NULL"
+                + ")";
+        db.execSQL(createTablePendingBackfillsQuery);
+    }
+}
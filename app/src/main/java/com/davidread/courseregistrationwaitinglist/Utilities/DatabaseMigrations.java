@@ -0,0 +1,436 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+/**
+ * This class lists every database migration in version order. The SQL of a migration describes
+ * the schema as it was at that version and must not change once the version has shipped.
+ */
+public final class DatabaseMigrations {
+
+    /**
+     * Every migration, ordered by end version. The first database version is 1, so the first
+     * migration upgrades to version 2.
+     */
+    public static final DatabaseMigration[] MIGRATIONS = {
+            new MigrationTo2(),
+            new MigrationTo3(),
+            new MigrationTo4(),
+            new MigrationTo5(),
+            new MigrationTo6(),
+            new MigrationTo7(),
+            new MigrationTo8(),
+            new MigrationTo9(),
+            new MigrationTo10(),
+            new MigrationTo11()
+    };
+
+    private DatabaseMigrations() {
+    }
+
+    /**
+     * Adds the priority rank column and the course priority rank index. Existing rows are given
+     * their rank by the backfill.
+     */
+    private static class MigrationTo2 extends DatabaseMigration {
+
+        MigrationTo2() {
+            super(2);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE waiting_list_entries ADD COLUMN priority_rank INTEGER NOT NULL DEFAULT 5");
+            db.execSQL("CREATE INDEX index_waiting_list_entries_course_priority_rank ON waiting_list_entries(course,priority_rank,id)");
+        }
+
+        @Override
+        public String getBackfillTable() {
+            return "waiting_list_entries";
+        }
+
+        @Override
+        public void backfill(SQLiteDatabase db, long fromIdExclusive, long toIdInclusive) {
+            StringBuilder rankExpression = new StringBuilder("CASE priority");
+            String[] priorities = {"Graduate", "4th Year", "3rd Year", "2nd Year", "1st Year"};
+            for (int i = 0; i < priorities.length; i++)
+                rankExpression.append(" WHEN ").append(DatabaseUtils.sqlEscapeString(priorities[i])).append(" THEN ").append(i);
+            rankExpression.append(" ELSE ").append(priorities.length).append(" END");
+            db.execSQL("UPDATE waiting_list_entries SET priority_rank = " + rankExpression + " WHERE id > ? AND id <= ?",
+                    new Object[]{fromIdExclusive, toIdInclusive});
+        }
+    }
+
+    /**
+     * Adds the full text search table and the triggers keeping it in sync with the waiting list
+     * entry table. Existing rows are indexed by the backfill. Rows written before the backfill
+     * reaches them are indexed by the triggers, so the backfill skips rows already indexed.
+     */
+    private static class MigrationTo3 extends DatabaseMigration {
+
+        MigrationTo3() {
+            super(3);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE waiting_list_entries_fts USING fts4(first_name,last_name,course)");
+            db.execSQL("CREATE TRIGGER waiting_list_entries_fts_insert AFTER INSERT ON waiting_list_entries BEGIN"
+                    + " INSERT INTO waiting_list_entries_fts(docid,first_name,last_name,course) VALUES (new.id,new.first_name,new.last_name,new.course);"
+                    + " END");
+            db.execSQL("CREATE TRIGGER waiting_list_entries_fts_update AFTER UPDATE OF first_name,last_name,course ON waiting_list_entries BEGIN"
+                    + " DELETE FROM waiting_list_entries_fts WHERE docid = old.id;"
+                    + " INSERT INTO waiting_list_entries_fts(docid,first_name,last_name,course) VALUES (new.id,new.first_name,new.last_name,new.course);"
+                    + " END");
+            db.execSQL("CREATE TRIGGER waiting_list_entries_fts_delete AFTER DELETE ON waiting_list_entries BEGIN"
+                    + " DELETE FROM waiting_list_entries_fts WHERE docid = old.id;"
+                    + " END");
+        }
+
+        @Override
+        public String getBackfillTable() {
+            return "waiting_list_entries";
+        }
+
+        @Override
+        public void backfill(SQLiteDatabase db, long fromIdExclusive, long toIdInclusive) {
+            db.execSQL("INSERT INTO waiting_list_entries_fts(docid,first_name,last_name,course)"
+                            + " SELECT id,first_name,last_name,course FROM waiting_list_entries"
+                            + " WHERE id > ? AND id <= ?"
+                            + " AND id NOT IN (SELECT docid FROM waiting_list_entries_fts WHERE docid > ? AND docid <= ?)",
+                    new Object[]{fromIdExclusive, toIdInclusive, fromIdExclusive, toIdInclusive});
+        }
+    }
+
+    /**
+     * Adds the admission table that records students admitted from the waiting list, along with
+     * its course index.
+     */
+    private static class MigrationTo4 extends DatabaseMigration {
+
+        MigrationTo4() {
+            super(4);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE admissions(id INTEGER PRIMARY KEY,first_name TEXT,last_name TEXT,course TEXT,priority TEXT,admitted_at INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX index_admissions_course ON admissions(course)");
+        }
+    }
+
+    /**
+     * Adds the course demand table and the triggers that keep its counts current. The counts of
+     * existing rows are filled in by one aggregate in the same transaction as the triggers, since
+     * a chunked backfill would miss rows the triggers count out before it reaches them.
+     */
+    private static class MigrationTo5 extends DatabaseMigration {
+
+        MigrationTo5() {
+            super(5);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            String increment = " INSERT OR IGNORE INTO course_demand(course,priority,entry_count) VALUES (IFNULL(new.course,''),IFNULL(new.priority,''),0);"
+                    + " UPDATE course_demand SET entry_count = entry_count + 1 WHERE course = IFNULL(new.course,'') AND priority = IFNULL(new.priority,'');";
+            String decrement = " UPDATE course_demand SET entry_count = entry_count - 1 WHERE course = IFNULL(old.course,'') AND priority = IFNULL(old.priority,'');"
+                    + " DELETE FROM course_demand WHERE course = IFNULL(old.course,'') AND priority = IFNULL(old.priority,'') AND entry_count = 0;";
+            db.execSQL("CREATE TABLE course_demand(course TEXT NOT NULL,priority TEXT NOT NULL,entry_count INTEGER NOT NULL,PRIMARY KEY(course,priority))");
+            db.execSQL("CREATE TRIGGER course_demand_insert AFTER INSERT ON waiting_list_entries BEGIN" + increment + " END");
+            db.execSQL("CREATE TRIGGER course_demand_update AFTER UPDATE OF course,priority ON waiting_list_entries"
+                    + " WHEN old.course IS NOT new.course OR old.priority IS NOT new.priority BEGIN" + decrement + increment + " END");
+            db.execSQL("CREATE TRIGGER course_demand_delete AFTER DELETE ON waiting_list_entries BEGIN" + decrement + " END");
+            db.execSQL("INSERT INTO course_demand(course,priority,entry_count)"
+                    + " SELECT IFNULL(course,''),IFNULL(priority,''),COUNT(*) FROM waiting_list_entries GROUP BY IFNULL(course,''),IFNULL(priority,'')");
+        }
+    }
+
+    /**
+     * Adds the normalized name and course key columns and the unique index over them. Existing
+     * rows are given their keys by the backfill, which merges rows that turn out to register the
+     * same student for the same course: the row added first is kept, with the priority of the row
+     * added last. Keys are computed with the functions of the model rather than frozen SQL,
+     * because SQLite has no Unicode normalization. Rows written before the backfill reaches them
+     * already have keys, so the backfill skips them.
+     */
+    private static class MigrationTo6 extends DatabaseMigration {
+
+        MigrationTo6() {
+            super(6);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE waiting_list_entries ADD COLUMN name_key TEXT");
+            db.execSQL("ALTER TABLE waiting_list_entries ADD COLUMN course_key TEXT");
+            db.execSQL("CREATE UNIQUE INDEX index_waiting_list_entries_name_key_course_key ON waiting_list_entries(name_key,course_key)");
+        }
+
+        @Override
+        public String getBackfillTable() {
+            return "waiting_list_entries";
+        }
+
+        @Override
+        public boolean isBackfillVisible() {
+            return true;
+        }
+
+        @Override
+        public void backfill(SQLiteDatabase db, long fromIdExclusive, long toIdInclusive) {
+
+            Cursor cursor = db.rawQuery("SELECT id,first_name,last_name,course,priority FROM waiting_list_entries"
+                            + " WHERE id > ? AND id <= ? AND name_key IS NULL ORDER BY id",
+                    new String[]{String.valueOf(fromIdExclusive), String.valueOf(toIdInclusive)});
+            try {
+                while (cursor.moveToNext()) {
+
+                    long id = cursor.getLong(0);
+                    String priority = cursor.getString(4);
+                    String nameKey = WaitingListEntry.getNameKey(cursor.getString(1), cursor.getString(2));
+                    String courseKey = WaitingListEntry.getCourseKey(cursor.getString(3));
+                    int priorityRank = WaitingListEntry.getPriorityRank(priority);
+
+                    long existingId = -1;
+                    Cursor existingCursor = db.rawQuery("SELECT id FROM waiting_list_entries WHERE name_key = ? AND course_key = ?",
+                            new String[]{nameKey, courseKey});
+                    try {
+                        if (existingCursor.moveToFirst())
+                            existingId = existingCursor.getLong(0);
+                    } finally {
+                        existingCursor.close();
+                    }
+
+                    if (existingId == -1) {
+                        db.execSQL("UPDATE waiting_list_entries SET name_key = ?, course_key = ? WHERE id = ?",
+                                new Object[]{nameKey, courseKey, id});
+                    } else if (existingId < id) {
+                        db.execSQL("UPDATE waiting_list_entries SET priority = ?, priority_rank = ? WHERE id = ?",
+                                new Object[]{priority, priorityRank, existingId});
+                        db.execSQL("DELETE FROM waiting_list_entries WHERE id = ?", new Object[]{id});
+                    } else {
+                        // A newer row written since the upgrade holds the keys and the latest priority.
+                        Cursor newerCursor = db.rawQuery("SELECT priority FROM waiting_list_entries WHERE id = ?",
+                                new String[]{String.valueOf(existingId)});
+                        try {
+                            if (newerCursor.moveToFirst()) {
+                                priority = newerCursor.getString(0);
+                                priorityRank = WaitingListEntry.getPriorityRank(priority);
+                            }
+                        } finally {
+                            newerCursor.close();
+                        }
+                        // Its keys are cleared before it is deleted, so the sync delete trigger
+                        // leaves no tombstone for the keys this row takes over, and this row is
+                        // stamped as changed, so the next sync pushes it in place of the newer one.
+                        db.execSQL("UPDATE waiting_list_entries SET name_key = NULL, course_key = NULL WHERE id = ?", new Object[]{existingId});
+                        db.execSQL("DELETE FROM waiting_list_entries WHERE id = ?", new Object[]{existingId});
+                        db.execSQL("UPDATE waiting_list_entries SET name_key = ?, course_key = ?, priority = ?, priority_rank = ? WHERE id = ?",
+                                new Object[]{nameKey, courseKey, priority, priorityRank, id});
+                        db.execSQL("UPDATE sync_state SET last_change_seq = last_change_seq + 1 WHERE id = 0");
+                        db.execSQL("UPDATE waiting_list_entries SET change_seq = (SELECT last_change_seq FROM sync_state WHERE id = 0),"
+                                        + " updated_at = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),"
+                                        + " origin = (SELECT device_id FROM sync_state WHERE id = 0) WHERE id = ?",
+                                new Object[]{id});
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Adds the sync columns, the sync state and tombstone tables, and the triggers that mark local
+     * changes for sync. Existing rows are marked as changed by the backfill, numbered in id order
+     * below the change sequence numbers the triggers hand out, so the first sync pushes them all.
+     */
+    private static class MigrationTo7 extends DatabaseMigration {
+
+        MigrationTo7() {
+            super(7);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE waiting_list_entries ADD COLUMN change_seq INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE waiting_list_entries ADD COLUMN updated_at INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE waiting_list_entries ADD COLUMN origin TEXT");
+            db.execSQL("CREATE TABLE sync_state(id INTEGER PRIMARY KEY CHECK (id = 0),device_id TEXT NOT NULL,"
+                    + "last_change_seq INTEGER NOT NULL,pushed_change_seq INTEGER NOT NULL,pull_cursor INTEGER NOT NULL,applying_remote INTEGER NOT NULL)");
+            db.execSQL("INSERT INTO sync_state(id,device_id,last_change_seq,pushed_change_seq,pull_cursor,applying_remote)"
+                    + " SELECT 0, lower(hex(randomblob(16))), IFNULL(MAX(id), 0), 0, 0, 0 FROM waiting_list_entries");
+            db.execSQL("CREATE TABLE sync_tombstones(name_key TEXT NOT NULL,course_key TEXT NOT NULL,first_name TEXT,last_name TEXT,course TEXT,"
+                    + "change_seq INTEGER NOT NULL,updated_at INTEGER NOT NULL,origin TEXT,PRIMARY KEY(name_key,course_key))");
+            db.execSQL("CREATE INDEX index_sync_tombstones_change_seq ON sync_tombstones(change_seq)");
+            db.execSQL("CREATE INDEX index_waiting_list_entries_change_seq ON waiting_list_entries(change_seq)");
+            db.execSQL("CREATE TRIGGER sync_insert AFTER INSERT ON waiting_list_entries"
+                    + " WHEN (SELECT applying_remote FROM sync_state WHERE id = 0) = 0"
+                    + " BEGIN UPDATE sync_state SET last_change_seq = last_change_seq + 1 WHERE id = 0;"
+                    + " UPDATE waiting_list_entries SET change_seq = (SELECT last_change_seq FROM sync_state WHERE id = 0),"
+                    + "updated_at = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),"
+                    + "origin = (SELECT device_id FROM sync_state WHERE id = 0) WHERE id = new.id;"
+                    + " DELETE FROM sync_tombstones WHERE name_key = new.name_key AND course_key = new.course_key; END");
+            db.execSQL("CREATE TRIGGER sync_update AFTER UPDATE OF first_name,last_name,course,priority ON waiting_list_entries"
+                    + " WHEN (SELECT applying_remote FROM sync_state WHERE id = 0) = 0"
+                    + " AND (old.first_name IS NOT new.first_name OR old.last_name IS NOT new.last_name"
+                    + " OR old.course IS NOT new.course OR old.priority IS NOT new.priority)"
+                    + " BEGIN UPDATE sync_state SET last_change_seq = last_change_seq + 1 WHERE id = 0;"
+                    + " INSERT OR REPLACE INTO sync_tombstones(name_key,course_key,first_name,last_name,course,change_seq,updated_at,origin)"
+                    + " SELECT old.name_key,old.course_key,old.first_name,old.last_name,old.course,last_change_seq,"
+                    + "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),device_id FROM sync_state"
+                    + " WHERE id = 0 AND old.name_key IS NOT NULL AND (old.name_key IS NOT new.name_key OR old.course_key IS NOT new.course_key);"
+                    + " UPDATE sync_state SET last_change_seq = last_change_seq + 1 WHERE id = 0;"
+                    + " UPDATE waiting_list_entries SET change_seq = (SELECT last_change_seq FROM sync_state WHERE id = 0),"
+                    + "updated_at = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),"
+                    + "origin = (SELECT device_id FROM sync_state WHERE id = 0) WHERE id = new.id;"
+                    + " DELETE FROM sync_tombstones WHERE name_key = new.name_key AND course_key = new.course_key; END");
+            db.execSQL("CREATE TRIGGER sync_delete AFTER DELETE ON waiting_list_entries"
+                    + " WHEN (SELECT applying_remote FROM sync_state WHERE id = 0) = 0 AND old.name_key IS NOT NULL"
+                    + " BEGIN UPDATE sync_state SET last_change_seq = last_change_seq + 1 WHERE id = 0;"
+                    + " INSERT OR REPLACE INTO sync_tombstones(name_key,course_key,first_name,last_name,course,change_seq,updated_at,origin)"
+                    + " SELECT old.name_key,old.course_key,old.first_name,old.last_name,old.course,last_change_seq,"
+                    + "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),device_id FROM sync_state WHERE id = 0; END");
+        }
+
+        @Override
+        public String getBackfillTable() {
+            return "waiting_list_entries";
+        }
+
+        @Override
+        public void backfill(SQLiteDatabase db, long fromIdExclusive, long toIdInclusive) {
+            db.execSQL("UPDATE waiting_list_entries SET change_seq = id,"
+                            + " updated_at = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),"
+                            + " origin = (SELECT device_id FROM sync_state WHERE id = 0)"
+                            + " WHERE id > ? AND id <= ? AND change_seq = 0",
+                    new Object[]{fromIdExclusive, toIdInclusive});
+        }
+    }
+
+    /**
+     * Adds the indexes serving the sorts of the list: by arrival within a course, and by priority
+     * and by name within every course or one course. Priority within one course is served by the
+     * course priority rank index added in version 2. Version 11 moves the course indexes onto the
+     * course key.
+     */
+    private static class MigrationTo8 extends DatabaseMigration {
+
+        MigrationTo8() {
+            super(8);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE INDEX index_waiting_list_entries_course_id ON waiting_list_entries(course,id)");
+            db.execSQL("CREATE INDEX index_waiting_list_entries_priority_rank_id ON waiting_list_entries(priority_rank,id)");
+            db.execSQL("CREATE INDEX index_waiting_list_entries_name_key_id ON waiting_list_entries(name_key,id)");
+            db.execSQL("CREATE INDEX index_waiting_list_entries_course_name_key_id ON waiting_list_entries(course,name_key,id)");
+        }
+    }
+
+    /**
+     * Adds the deleted entry table, which keeps deleted rows until they are restored or purged,
+     * and its index on the deleted time.
+     */
+    private static class MigrationTo9 extends DatabaseMigration {
+
+        MigrationTo9() {
+            super(9);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE deleted_waiting_list_entries(id INTEGER PRIMARY KEY,first_name TEXT,last_name TEXT,course TEXT,priority TEXT,"
+                    + "priority_rank INTEGER NOT NULL,name_key TEXT,course_key TEXT,deleted_at INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX index_deleted_waiting_list_entries_deleted_at ON deleted_waiting_list_entries(deleted_at)");
+        }
+    }
+
+    /**
+     * Adds the change journal: the journal event table with its entry id index, the snapshot
+     * tables, and the triggers recording every change. The rows already stored are copied into the
+     * first snapshot, since the journal starts from them.
+     */
+    private static class MigrationTo10 extends DatabaseMigration {
+
+        MigrationTo10() {
+            super(10);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE journal_events(seq INTEGER PRIMARY KEY AUTOINCREMENT,entry_id INTEGER NOT NULL,type INTEGER NOT NULL,"
+                    + "recorded_at INTEGER NOT NULL,first_name TEXT,last_name TEXT,course TEXT,priority TEXT)");
+            db.execSQL("CREATE INDEX index_journal_events_entry_id ON journal_events(entry_id)");
+            db.execSQL("CREATE TABLE journal_snapshots(seq INTEGER PRIMARY KEY,taken_at INTEGER NOT NULL)");
+            db.execSQL("CREATE TABLE journal_snapshot_entries(snapshot_seq INTEGER NOT NULL,id INTEGER NOT NULL,first_name TEXT,last_name TEXT,"
+                    + "course TEXT,priority TEXT,PRIMARY KEY(snapshot_seq,id))");
+            db.execSQL("INSERT INTO journal_snapshot_entries(snapshot_seq,id,first_name,last_name,course,priority)"
+                    + " SELECT 0,id,first_name,last_name,course,priority FROM waiting_list_entries");
+            db.execSQL("INSERT INTO journal_snapshots(seq,taken_at) VALUES (0,CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))");
+            db.execSQL("CREATE TRIGGER journal_insert AFTER INSERT ON waiting_list_entries BEGIN "
+                    + "INSERT INTO journal_events(entry_id,type,recorded_at,first_name,last_name,course,priority)"
+                    + " VALUES (new.id,0,CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),new.first_name,new.last_name,new.course,new.priority); END");
+            db.execSQL("CREATE TRIGGER journal_update AFTER UPDATE OF first_name,last_name,course,priority ON waiting_list_entries"
+                    + " WHEN old.first_name IS NOT new.first_name OR old.last_name IS NOT new.last_name"
+                    + " OR old.course IS NOT new.course OR old.priority IS NOT new.priority BEGIN "
+                    + "INSERT INTO journal_events(entry_id,type,recorded_at,first_name,last_name,course,priority)"
+                    + " VALUES (new.id,1,CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),new.first_name,new.last_name,new.course,new.priority); END");
+            db.execSQL("CREATE TRIGGER journal_delete AFTER DELETE ON waiting_list_entries BEGIN "
+                    + "INSERT INTO journal_events(entry_id,type,recorded_at,first_name,last_name,course,priority)"
+                    + " VALUES (old.id,2,CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),old.first_name,old.last_name,old.course,old.priority); END");
+        }
+    }
+
+    /**
+     * Keys the course indexes and the course demand counts on the course key rather than the
+     * course as typed, so every spelling of a course shares one queue, one filter, and one count.
+     * The course demand table is made again and refilled from the stored rows, each count shown
+     * under the spelling of the row added last. Rows a pending version 6 backfill has not reached
+     * yet are counted under the empty key until the backfill gives them theirs.
+     */
+    private static class MigrationTo11 extends DatabaseMigration {
+
+        MigrationTo11() {
+            super(11);
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("DROP INDEX index_waiting_list_entries_course_priority_rank");
+            db.execSQL("DROP INDEX index_waiting_list_entries_course_id");
+            db.execSQL("DROP INDEX index_waiting_list_entries_course_name_key_id");
+            db.execSQL("CREATE INDEX index_waiting_list_entries_course_key_priority_rank ON waiting_list_entries(course_key,priority_rank,id)");
+            db.execSQL("CREATE INDEX index_waiting_list_entries_course_key_id ON waiting_list_entries(course_key,id)");
+            db.execSQL("CREATE INDEX index_waiting_list_entries_course_key_name_key_id ON waiting_list_entries(course_key,name_key,id)");
+
+            db.execSQL("DROP TRIGGER course_demand_insert");
+            db.execSQL("DROP TRIGGER course_demand_update");
+            db.execSQL("DROP TRIGGER course_demand_delete");
+            db.execSQL("DROP TABLE course_demand");
+            String increment = " INSERT OR IGNORE INTO course_demand(course_key,course,priority,entry_count)"
+                    + " VALUES (IFNULL(new.course_key,''),IFNULL(new.course,''),IFNULL(new.priority,''),0);"
+                    + " UPDATE course_demand SET entry_count = entry_count + 1,course = IFNULL(new.course,'')"
+                    + " WHERE course_key = IFNULL(new.course_key,'') AND priority = IFNULL(new.priority,'');";
+            String decrement = " UPDATE course_demand SET entry_count = entry_count - 1"
+                    + " WHERE course_key = IFNULL(old.course_key,'') AND priority = IFNULL(old.priority,'');"
+                    + " DELETE FROM course_demand WHERE course_key = IFNULL(old.course_key,'') AND priority = IFNULL(old.priority,'') AND entry_count = 0;";
+            db.execSQL("CREATE TABLE course_demand(course_key TEXT NOT NULL,priority TEXT NOT NULL,course TEXT NOT NULL,entry_count INTEGER NOT NULL,"
+                    + "PRIMARY KEY(course_key,priority))");
+            db.execSQL("CREATE TRIGGER course_demand_insert AFTER INSERT ON waiting_list_entries BEGIN" + increment + " END");
+            db.execSQL("CREATE TRIGGER course_demand_update AFTER UPDATE OF course,course_key,priority ON waiting_list_entries"
+                    + " WHEN old.course IS NOT new.course OR old.course_key IS NOT new.course_key OR old.priority IS NOT new.priority"
+                    + " BEGIN" + decrement + increment + " END");
+            db.execSQL("CREATE TRIGGER course_demand_delete AFTER DELETE ON waiting_list_entries BEGIN" + decrement + " END");
+            db.execSQL("INSERT INTO course_demand(course_key,priority,course,entry_count)"
+                    + " SELECT course_key,priority,course,entry_count FROM (SELECT IFNULL(course_key,'') AS course_key,IFNULL(priority,'') AS priority,"
+                    + "IFNULL(course,'') AS course,COUNT(*) AS entry_count,MAX(id) FROM waiting_list_entries GROUP BY 1,2)");
+        }
+    }
+}
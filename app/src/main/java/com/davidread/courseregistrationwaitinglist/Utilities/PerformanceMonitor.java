@@ -0,0 +1,119 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.davidread.courseregistrationwaitinglist.Metrics.MetricsRegistry;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * This class times operations of the data layer and the list for the metrics registry. An
+ * operation is timed by passing the value begin() returns to end() on the same thread, which also
+ * opens and closes a trace section named after the operation so it shows up in system traces.
+ * Operations slower than the slow threshold are logged with the SQL they ran and the rows they
+ * touched.
+ *
+ * When the monitor is disabled, begin() returns 0 after one volatile read and end() returns at
+ * once, so the calls can stay in hot paths. It is enabled in debug builds, and in release builds
+ * by running adb shell setprop log.tag.PerformanceMonitor DEBUG before the app starts.
+ */
+public class PerformanceMonitor {
+
+    // Log tag, also used to enable the monitor in release builds.
+    public static final String TAG = "PerformanceMonitor";
+
+    // Class objects.
+    private final MetricsRegistry registry;
+
+    /**
+     * Constructs a monitor that logs operations taking at least the specified number of
+     * milliseconds.
+     */
+    public PerformanceMonitor(boolean isEnabled, long slowThresholdMillis) {
+        registry = new MetricsRegistry(isEnabled, slowThresholdMillis * 1_000_000);
+    }
+
+    /**
+     * Returns true if the monitor should be enabled in this build, as described for the class.
+     */
+    public static boolean isEnabledByDefault(boolean isDebugBuild) {
+        return isDebugBuild || Log.isLoggable(TAG, Log.DEBUG);
+    }
+
+    /**
+     * Starts timing the operation with the specified name and opens its trace section. It returns
+     * the start time to pass to end(), or 0 if the monitor is disabled.
+     */
+    public long begin(String operation) {
+        if (!registry.isEnabled())
+            return 0;
+        Trace.beginSection(operation);
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Stops timing the operation begun at the specified start time, closes its trace section, and
+     * records it with the specified row counts. A slow operation is logged with the specified SQL,
+     * which may be null. Nothing happens if the start time is 0.
+     */
+    public void end(String operation, long startNanos, long rowsRead, long rowsWritten, @Nullable String sql) {
+        if (startNanos == 0)
+            return;
+        long elapsedNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        Trace.endSection();
+        if (registry.record(operation, elapsedNanos, rowsRead, rowsWritten))
+            Log.w(TAG, String.format(Locale.ROOT, "Slow %s took %.1f ms, %d rows read, %d rows written%s",
+                    operation, elapsedNanos / 1e6, rowsRead, rowsWritten, sql == null ? "" : ": " + sql));
+    }
+
+    /**
+     * Records an operation timed by the caller, such as one that spans several callbacks and so
+     * has no trace section of its own. Nothing happens if the monitor is disabled.
+     */
+    public void record(String operation, long elapsedNanos, long rowsRead, long rowsWritten) {
+        if (registry.isEnabled() && registry.record(operation, elapsedNanos, rowsRead, rowsWritten))
+            Log.w(TAG, String.format(Locale.ROOT, "Slow %s took %.1f ms, %d rows read, %d rows written",
+                    operation, elapsedNanos / 1e6, rowsRead, rowsWritten));
+    }
+
+    /**
+     * Returns the registry holding the metrics recorded so far.
+     */
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Writes the metrics recorded so far to logcat, one line per operation.
+     */
+    public void dumpToLog() {
+        StringBuilder dump = new StringBuilder();
+        try {
+            registry.dump(dump);
+        } catch (IOException e) {
+            // A string builder does not throw.
+        }
+        for (String line : dump.toString().split("\n"))
+            Log.i(TAG, line);
+    }
+
+    /**
+     * Writes the metrics recorded so far to the specified file as a text table, replacing its
+     * contents. Call it off the main thread.
+     */
+    public void dumpToFile(File file) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            registry.dump(writer);
+        }
+    }
+}
@@ -27,6 +27,9 @@ public class RecyclerTouchListener implements RecyclerView.OnItemTouchListener {
 
             @Override
             public void onLongPress(MotionEvent e) {
+                View child = recycleView.findChildViewUnder(e.getX(), e.getY());
+                if (child != null && clickListener != null)
+                    clickListener.onLongClick(child, recycleView.getChildAdapterPosition(child));
             }
         });
     }
@@ -52,9 +55,11 @@ public class RecyclerTouchListener implements RecyclerView.OnItemTouchListener {
     }
 
     /**
-     * This interface provides an on click listener for a recycler view.
+     * This interface provides on click and on long click listeners for a recycler view.
      */
     public interface ClickListener {
         void onClick(View view, int position);
+
+        void onLongClick(View view, int position);
     }
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import androidx.annotation.Nullable;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * This class describes the writes made to the waiting list entry table during one frame. Writes
+ * to the same object are merged, so an object inserted and then updated is reported once as
+ * inserted with its latest attributes, and an object inserted and then deleted is not reported at
+ * all. Inserted and updated objects carry the attributes that were written, so observers do not
+ * need to read them back. When a write is too large to describe row by row, such as a bulk insert,
+ * the whole table is reported as invalidated instead. A change is built on the writer thread by
+ * the change notifier and must not be modified once it has been dispatched.
+ */
+public class WaitingListChange {
+
+    // Class objects.
+    private final LinkedHashMap<Long, WaitingListEntry> insertedWaitingListEntries = new LinkedHashMap<>();
+    private final LinkedHashMap<Long, WaitingListEntry> updatedWaitingListEntries = new LinkedHashMap<>();
+    private final LinkedHashSet<Long> deletedIds = new LinkedHashSet<>();
+    private final HashSet<String> courseKeys = new HashSet<>();
+    private boolean isTableInvalidated;
+    private boolean isCourseUnknown;
+
+    /**
+     * Records an inserted waiting list entry object.
+     */
+    void onInserted(WaitingListEntry waitingListEntry) {
+        insertedWaitingListEntries.put(waitingListEntry.getId(), waitingListEntry);
+        courseKeys.add(WaitingListEntry.getCourseKey(waitingListEntry.getCourse()));
+    }
+
+    /**
+     * Records an updated waiting list entry object along with the key of the course it had before
+     * the update, which is null if it is not known.
+     */
+    void onUpdated(WaitingListEntry waitingListEntry, @Nullable String previousCourseKey) {
+        long id = waitingListEntry.getId();
+        if (insertedWaitingListEntries.containsKey(id))
+            insertedWaitingListEntries.put(id, waitingListEntry);
+        else
+            updatedWaitingListEntries.put(id, waitingListEntry);
+        courseKeys.add(WaitingListEntry.getCourseKey(waitingListEntry.getCourse()));
+        onCourseAffected(previousCourseKey);
+    }
+
+    /**
+     * Records a deleted waiting list entry object along with the key of its course, which is null
+     * if it is not known.
+     */
+    void onDeleted(long id, @Nullable String courseKey) {
+        updatedWaitingListEntries.remove(id);
+        if (insertedWaitingListEntries.remove(id) == null)
+            deletedIds.add(id);
+        onCourseAffected(courseKey);
+    }
+
+    /**
+     * Records that the whole table changed in ways not described row by row.
+     */
+    void onTableInvalidated() {
+        isTableInvalidated = true;
+    }
+
+    /**
+     * Records that rows of the course with the specified key changed. A null key means the course
+     * is not known, so every course is treated as affected.
+     */
+    private void onCourseAffected(@Nullable String courseKey) {
+        if (courseKey == null)
+            isCourseUnknown = true;
+        else
+            courseKeys.add(courseKey);
+    }
+
+    /**
+     * Returns true if nothing has been recorded.
+     */
+    boolean isEmpty() {
+        return !isTableInvalidated && !isCourseUnknown && courseKeys.isEmpty()
+                && insertedWaitingListEntries.isEmpty() && updatedWaitingListEntries.isEmpty() && deletedIds.isEmpty();
+    }
+
+    /**
+     * Returns the inserted waiting list entry objects in the order they were inserted.
+     */
+    public Collection<WaitingListEntry> getInsertedWaitingListEntries() {
+        return Collections.unmodifiableCollection(insertedWaitingListEntries.values());
+    }
+
+    /**
+     * Returns the updated waiting list entry objects with their latest attributes.
+     */
+    public Collection<WaitingListEntry> getUpdatedWaitingListEntries() {
+        return Collections.unmodifiableCollection(updatedWaitingListEntries.values());
+    }
+
+    /**
+     * Returns the updated waiting list entry object with the specified id, or null if that object
+     * was not updated.
+     */
+    @Nullable
+    public WaitingListEntry getUpdatedWaitingListEntry(long id) {
+        return updatedWaitingListEntries.get(id);
+    }
+
+    /**
+     * Returns the ids of the deleted waiting list entry objects.
+     */
+    public Set<Long> getDeletedIds() {
+        return Collections.unmodifiableSet(deletedIds);
+    }
+
+    /**
+     * Returns true if the whole table changed. Observers should reload whatever they show rather
+     * than apply the row changes, which may be incomplete.
+     */
+    public boolean isTableInvalidated() {
+        return isTableInvalidated;
+    }
+
+    /**
+     * Returns true if rows of the specified course, or of any spelling of it with the same key, may
+     * have been inserted, updated, or deleted.
+     */
+    public boolean affectsCourse(String course) {
+        return isTableInvalidated || isCourseUnknown || courseKeys.contains(WaitingListEntry.getCourseKey(course));
+    }
+}
@@ -0,0 +1,154 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class publishes the writes made to the waiting list entry table to observers on the main
+ * thread. The database helper records each write as it is committed. Writes recorded before the
+ * next frame are merged into a single waiting list change, so a burst of writes causes one
+ * refresh rather than one per row. Observers may watch the whole table or a single course. A
+ * course observer is only called for changes that may affect that course.
+ */
+public class WaitingListChangeNotifier {
+
+    // Class objects.
+    private final List<ObserverRegistration> observerRegistrations = new CopyOnWriteArrayList<>();
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+    private final Object pendingChangeLock = new Object();
+    private final Runnable scheduleDispatchRunnable = this::scheduleDispatch;
+    private final Choreographer.FrameCallback dispatchFrameCallback = frameTimeNanos -> dispatch();
+    private WaitingListChange pendingChange;
+
+    /**
+     * Registers an observer called for every change to the waiting list entry table.
+     */
+    public void addObserver(@NonNull Observer observer) {
+        observerRegistrations.add(new ObserverRegistration(null, observer));
+    }
+
+    /**
+     * Registers an observer called only for changes that may affect the specified course.
+     */
+    public void addObserver(@NonNull String course, @NonNull Observer observer) {
+        observerRegistrations.add(new ObserverRegistration(course, observer));
+    }
+
+    /**
+     * Unregisters every registration of the specified observer.
+     */
+    public void removeObserver(@NonNull Observer observer) {
+        for (ObserverRegistration observerRegistration : observerRegistrations)
+            if (observerRegistration.observer == observer)
+                observerRegistrations.remove(observerRegistration);
+    }
+
+    /**
+     * Records an inserted waiting list entry object.
+     */
+    void notifyInserted(WaitingListEntry waitingListEntry) {
+        synchronized (pendingChangeLock) {
+            getPendingChange().onInserted(waitingListEntry);
+        }
+    }
+
+    /**
+     * Records an updated waiting list entry object along with the key of the course it had before
+     * the update, which is null if it is not known.
+     */
+    void notifyUpdated(WaitingListEntry waitingListEntry, @Nullable String previousCourseKey) {
+        synchronized (pendingChangeLock) {
+            getPendingChange().onUpdated(waitingListEntry, previousCourseKey);
+        }
+    }
+
+    /**
+     * Records a deleted waiting list entry object along with the key of its course, which is null
+     * if it is not known.
+     */
+    void notifyDeleted(long id, @Nullable String courseKey) {
+        synchronized (pendingChangeLock) {
+            getPendingChange().onDeleted(id, courseKey);
+        }
+    }
+
+    /**
+     * Records that the whole table changed in ways not described row by row.
+     */
+    void notifyTableInvalidated() {
+        synchronized (pendingChangeLock) {
+            getPendingChange().onTableInvalidated();
+        }
+    }
+
+    /**
+     * Returns the change being built, starting a new one and scheduling its dispatch if there is
+     * none. The caller must hold the pending change lock.
+     */
+    private WaitingListChange getPendingChange() {
+        if (pendingChange == null) {
+            pendingChange = new WaitingListChange();
+            mainThreadHandler.post(scheduleDispatchRunnable);
+        }
+        return pendingChange;
+    }
+
+    /**
+     * Schedules the dispatch of the pending change for the next frame. The choreographer belongs to
+     * the main thread, so this is posted there first.
+     */
+    private void scheduleDispatch() {
+        Choreographer.getInstance().postFrameCallback(dispatchFrameCallback);
+    }
+
+    /**
+     * Takes the pending change and passes it to every observer it concerns. Writes recorded during
+     * dispatch start a new change.
+     */
+    private void dispatch() {
+
+        WaitingListChange change;
+        synchronized (pendingChangeLock) {
+            change = pendingChange;
+            pendingChange = null;
+        }
+
+        if (change == null || change.isEmpty())
+            return;
+
+        for (ObserverRegistration observerRegistration : observerRegistrations)
+            if (observerRegistration.course == null || change.affectsCourse(observerRegistration.course))
+                observerRegistration.observer.onWaitingListChanged(change);
+    }
+
+    /**
+     * This interface provides a callback for changes to the waiting list entry table. It is always
+     * called on the main thread.
+     */
+    public interface Observer {
+        void onWaitingListChanged(WaitingListChange change);
+    }
+
+    /**
+     * This class pairs an observer with the course it watches, which is null for the whole table.
+     */
+    private static class ObserverRegistration {
+
+        final String course;
+        final Observer observer;
+
+        ObserverRegistration(@Nullable String course, Observer observer) {
+            this.course = course;
+            this.observer = observer;
+        }
+    }
+}
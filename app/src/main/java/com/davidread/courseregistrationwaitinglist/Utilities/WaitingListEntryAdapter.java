@@ -6,29 +6,75 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.RecyclerView;
+import androidx.core.util.ObjectsCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 
 import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
 import com.davidread.courseregistrationwaitinglist.R;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 /**
- * This class defines how waiting list entry objects from an array list should be adapted to be
- * displayed within a recycler view.
+ * This class defines how waiting list entry objects from a list should be adapted to be displayed
+ * within a recycler view. New lists are submitted as immutable snapshots and diffed against the
+ * current list on a background thread, so only the rows that actually changed are rebound. Rows
+ * can be selected by id, and selected rows are shown as activated. Each row shows the position of
+ * its object in the queue for its course, read from the queue index of the database helper on the
+ * database executor whenever the list changes. Binding a row is timed by the performance monitor.
  */
-public class WaitingListEntryAdapter extends RecyclerView.Adapter<WaitingListEntryViewHolder> {
+public class WaitingListEntryAdapter extends ListAdapter<WaitingListEntry, WaitingListEntryViewHolder> {
+
+    /**
+     * Compares waiting list entry objects by id to detect moved rows and by attributes to detect
+     * changed rows.
+     */
+    private static final DiffUtil.ItemCallback<WaitingListEntry> DIFF_CALLBACK = new DiffUtil.ItemCallback<WaitingListEntry>() {
+
+        @Override
+        public boolean areItemsTheSame(@NonNull WaitingListEntry oldItem, @NonNull WaitingListEntry newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull WaitingListEntry oldItem, @NonNull WaitingListEntry newItem) {
+            return ObjectsCompat.equals(oldItem.getFirstName(), newItem.getFirstName())
+                    && ObjectsCompat.equals(oldItem.getLastName(), newItem.getLastName())
+                    && ObjectsCompat.equals(oldItem.getCourse(), newItem.getCourse())
+                    && ObjectsCompat.equals(oldItem.getPriority(), newItem.getPriority());
+        }
+    };
+
+    // Name of the operation timed by the performance monitor.
+    private static final String OPERATION_BIND_VIEW_HOLDER = "ui_bind_view_holder";
+
+    // Payload of a row rebound only because its queue position changed.
+    private static final Object PAYLOAD_QUEUE_POSITION = new Object();
 
     // Class objects.
     private Context context;
-    private ArrayList<WaitingListEntry> waitingListEntries;
+    private final DatabaseHelper db;
+    private final DatabaseExecutor executor;
+    private final PerformanceMonitor monitor;
+    private final LinkedHashSet<Long> selectedIds = new LinkedHashSet<>();
+    private HashMap<Long, Integer> queuePositions = new HashMap<>();
+    private int queuePositionSequence;
 
     /**
-     * Constructs a waiting list entry adapter.
+     * Constructs a waiting list entry adapter that reads queue positions from the specified
+     * database helper and times its row binds with its performance monitor. Rows are identified by
+     * the ids of their waiting list entry objects.
      */
-    public WaitingListEntryAdapter(Context context, ArrayList<WaitingListEntry> waitingListEntries) {
+    public WaitingListEntryAdapter(Context context, DatabaseHelper db) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.waitingListEntries = waitingListEntries;
+        this.db = db;
+        this.executor = DatabaseExecutor.getInstance();
+        this.monitor = db.getPerformanceMonitor();
+        setHasStableIds(true);
     }
 
     /**
@@ -44,21 +90,125 @@ public class WaitingListEntryAdapter extends RecyclerView.Adapter<WaitingListEnt
 
     /**
      * Called for each view holder when they are bound to the adapter. It passes data about the
-     * corresponding waiting list entry object to the view holder.
+     * corresponding waiting list entry object to the view holder. The full name formatted when the
+     * object was read is used if there is one.
      */
     @Override
     public void onBindViewHolder(@NonNull WaitingListEntryViewHolder holder, int position) {
-        WaitingListEntry waitingListEntry = waitingListEntries.get(position);
-        holder.getTextViewFullName().setText(context.getString(R.string.format_full_name, waitingListEntry.getFirstName(), waitingListEntry.getLastName()));
+        long start = monitor.begin(OPERATION_BIND_VIEW_HOLDER);
+        WaitingListEntry waitingListEntry = getItem(position);
+        String fullName = waitingListEntry.getFullName();
+        if (fullName == null) {
+            fullName = context.getString(R.string.format_full_name, waitingListEntry.getFirstName(), waitingListEntry.getLastName());
+            waitingListEntry.setFullName(fullName);
+        }
+        holder.getTextViewFullName().setText(fullName);
         holder.getTextViewCourse().setText(waitingListEntry.getCourse());
         holder.getTextViewPriority().setText(waitingListEntry.getPriority());
+        bindQueuePosition(holder, waitingListEntry);
+        holder.itemView.setActivated(selectedIds.contains(waitingListEntry.getId()));
+        monitor.end(OPERATION_BIND_VIEW_HOLDER, start, 1, 0, null);
+    }
+
+    /**
+     * Called for each view holder when it is bound, with the payloads of the changes since it was
+     * last bound. The only payload is a changed queue position, so a row with payloads has only its
+     * queue position rebound, and the item animator does not fade it out and in.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull WaitingListEntryViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty())
+            onBindViewHolder(holder, position);
+        else
+            bindQueuePosition(holder, getItem(position));
+    }
+
+    /**
+     * Shows the queue position of the waiting list entry object in the view holder, or nothing if
+     * it has not been read yet or the object is no longer queued.
+     */
+    private void bindQueuePosition(WaitingListEntryViewHolder holder, WaitingListEntry waitingListEntry) {
+        Integer queuePosition = queuePositions.get(waitingListEntry.getId());
+        if (queuePosition == null || queuePosition < 1)
+            holder.getTextViewQueuePosition().setText(null);
+        else
+            holder.getTextViewQueuePosition().setText(context.getString(R.string.format_queue_position, queuePosition));
+    }
+
+    /**
+     * Called once a submitted list is shown. It reads the queue positions of the new rows.
+     */
+    @Override
+    public void onCurrentListChanged(@NonNull List<WaitingListEntry> previousList, @NonNull List<WaitingListEntry> currentList) {
+        refreshQueuePositions();
+    }
+
+    /**
+     * Reads the queue position of every row on the database executor, then rebinds the rows whose
+     * position changed. Positions read for a list that has been replaced since are ignored. Call it
+     * after a write, since a write can move rows in their queues without changing the rows.
+     */
+    public void refreshQueuePositions() {
+
+        final int sequence = ++queuePositionSequence;
+        final List<WaitingListEntry> waitingListEntries = getCurrentList();
+        final ArrayList<Long> ids = new ArrayList<>(waitingListEntries.size());
+        for (WaitingListEntry waitingListEntry : waitingListEntries)
+            ids.add(waitingListEntry.getId());
+
+        executor.read(() -> db.getQueuePositions(ids), positions -> {
+            if (sequence != queuePositionSequence)
+                return;
+            HashMap<Long, Integer> previousQueuePositions = queuePositions;
+            queuePositions = new HashMap<>();
+            for (int i = 0; i < positions.length; i++) {
+                queuePositions.put(ids.get(i), positions[i]);
+                Integer previousQueuePosition = previousQueuePositions.get(ids.get(i));
+                if (previousQueuePosition == null || previousQueuePosition != positions[i])
+                    notifyItemChanged(i, PAYLOAD_QUEUE_POSITION);
+            }
+        });
+    }
+
+    /**
+     * Selects the row at the specified position if it is not selected, and deselects it otherwise.
+     */
+    public void toggleSelection(int position) {
+        long id = getItemId(position);
+        if (!selectedIds.remove(id))
+            selectedIds.add(id);
+        notifyItemChanged(position);
+    }
+
+    /**
+     * Deselects every row.
+     */
+    public void clearSelection() {
+        if (selectedIds.isEmpty())
+            return;
+        selectedIds.clear();
+        notifyItemRangeChanged(0, getItemCount());
+    }
+
+    /**
+     * Returns the ids of the selected rows in the order they were selected.
+     */
+    public ArrayList<Long> getSelectedIds() {
+        return new ArrayList<>(selectedIds);
+    }
+
+    /**
+     * Returns the number of selected rows.
+     */
+    public int getSelectedCount() {
+        return selectedIds.size();
     }
 
     /**
-     * Returns the size of the waiting list entries array list.
+     * Returns the id of the waiting list entry object at the specified position.
      */
     @Override
-    public int getItemCount() {
-        return waitingListEntries.size();
+    public long getItemId(int position) {
+        return getItem(position).getId();
     }
 }
@@ -0,0 +1,114 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.util.Locale;
+
+/**
+ * This class caches waiting list entry objects by id in front of the database, keeping up to a
+ * fixed number of the most recently used ones. Writes go through it after they are committed, so
+ * a written object is cached with its new attributes and a deleted one is dropped. Cached objects
+ * are shared with every caller and must not be modified.
+ *
+ * A read that misses fills the cache only if no write went through it since the read began, so a
+ * reader racing with a write cannot cache the attributes the write replaced. Hits, misses, and
+ * evictions are counted by the underlying LruCache, and objects dropped by writes are counted as
+ * invalidations.
+ */
+public class WaitingListEntryCache {
+
+    // Class objects.
+    private final LruCache<Long, WaitingListEntry> cache;
+    private long generation;
+    private int invalidationCount;
+
+    /**
+     * Constructs a cache holding up to the specified number of waiting list entry objects.
+     */
+    public WaitingListEntryCache(int maxSize) {
+        cache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Returns the cached waiting list entry object with the specified id, or null if it is not
+     * cached. Every call counts as a hit or a miss.
+     */
+    @Nullable
+    public WaitingListEntry get(long id) {
+        return cache.get(id);
+    }
+
+    /**
+     * Returns a number that changes whenever a write goes through the cache. Read it before a
+     * database read and pass it to putIfUnchanged() with the result.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Caches a waiting list entry object read from the database, unless a write went through the
+     * cache since the specified generation was read.
+     */
+    public synchronized void putIfUnchanged(WaitingListEntry waitingListEntry, long generation) {
+        if (this.generation == generation)
+            cache.put(waitingListEntry.getId(), waitingListEntry);
+    }
+
+    /**
+     * Caches a waiting list entry object whose write was just committed.
+     */
+    public synchronized void put(WaitingListEntry waitingListEntry) {
+        generation++;
+        cache.put(waitingListEntry.getId(), waitingListEntry);
+    }
+
+    /**
+     * Drops the waiting list entry object with the specified id after a write that deleted it or
+     * changed it without its new attributes being known.
+     */
+    public synchronized void remove(long id) {
+        generation++;
+        if (cache.remove(id) != null)
+            invalidationCount++;
+    }
+
+    /**
+     * Drops every cached waiting list entry object, as after a write that changed rows without
+     * naming them.
+     */
+    public synchronized void clear() {
+        generation++;
+        invalidationCount += cache.size();
+        for (Long id : cache.snapshot().keySet())
+            cache.remove(id);
+    }
+
+    public int hitCount() {
+        return cache.hitCount();
+    }
+
+    public int missCount() {
+        return cache.missCount();
+    }
+
+    public int evictionCount() {
+        return cache.evictionCount();
+    }
+
+    public synchronized int invalidationCount() {
+        return invalidationCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        int accesses = cache.hitCount() + cache.missCount();
+        int hitPercent = accesses == 0 ? 0 : 100 * cache.hitCount() / accesses;
+        return String.format(Locale.ROOT, "WaitingListEntryCache[size=%d,maxSize=%d,hits=%d,misses=%d,hitRate=%d%%,evictions=%d,invalidations=%d]",
+                cache.size(), cache.maxSize(), cache.hitCount(), cache.missCount(), hitPercent, cache.evictionCount(), invalidationCount);
+    }
+}
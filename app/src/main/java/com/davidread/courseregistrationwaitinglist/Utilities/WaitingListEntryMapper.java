@@ -0,0 +1,112 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import android.database.Cursor;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This class maps the rows of a cursor to waiting list entry objects. Column indices are resolved
+ * once per cursor rather than once per row. Course and priority strings that repeat across rows
+ * are shared rather than copied, and the full name shown in the recycler view is formatted here so
+ * it is not formatted again on every bind. A mapper is meant to be used for a single query.
+ */
+public class WaitingListEntryMapper {
+
+    // The columns a cursor must select to be mapped.
+    public static final String COLUMNS = WaitingListEntry.COLUMN_ID + ","
+            + WaitingListEntry.COLUMN_FIRST_NAME + ","
+            + WaitingListEntry.COLUMN_LAST_NAME + ","
+            + WaitingListEntry.COLUMN_COURSE + ","
+            + WaitingListEntry.COLUMN_PRIORITY;
+
+    // Class objects.
+    private final String fullNameFormat;
+    private final HashMap<String, String> courses = new HashMap<>();
+    private Cursor cursor;
+    private int columnIndexId, columnIndexFirstName, columnIndexLastName, columnIndexCourse, columnIndexPriority;
+
+    /**
+     * Constructs a waiting list entry mapper that formats full names with the specified format.
+     */
+    public WaitingListEntryMapper(String fullNameFormat) {
+        this.fullNameFormat = fullNameFormat;
+    }
+
+    /**
+     * Maps every remaining row of the cursor and adds the objects to the end of the list. When
+     * reverse is true the added objects are in the opposite order of the cursor. The cursor is
+     * closed.
+     */
+    public void mapAll(Cursor cursor, List<WaitingListEntry> waitingListEntries, boolean reverse) {
+        int startIndex = waitingListEntries.size();
+        try {
+            while (cursor.moveToNext())
+                waitingListEntries.add(map(cursor));
+        } finally {
+            cursor.close();
+        }
+        if (reverse)
+            Collections.reverse(waitingListEntries.subList(startIndex, waitingListEntries.size()));
+    }
+
+    /**
+     * Maps the row the cursor is positioned at.
+     */
+    public WaitingListEntry map(Cursor cursor) {
+
+        if (cursor != this.cursor)
+            resolveColumnIndices(cursor);
+
+        String firstName = cursor.getString(columnIndexFirstName);
+        String lastName = cursor.getString(columnIndexLastName);
+
+        WaitingListEntry waitingListEntry = new WaitingListEntry(
+                cursor.getLong(columnIndexId),
+                firstName,
+                lastName,
+                shareCourse(cursor.getString(columnIndexCourse)),
+                sharePriority(cursor.getString(columnIndexPriority))
+        );
+        waitingListEntry.setFullName(String.format(fullNameFormat, firstName, lastName));
+
+        return waitingListEntry;
+    }
+
+    /**
+     * Looks up the column indices of the cursor.
+     */
+    private void resolveColumnIndices(Cursor cursor) {
+        this.cursor = cursor;
+        columnIndexId = cursor.getColumnIndexOrThrow(WaitingListEntry.COLUMN_ID);
+        columnIndexFirstName = cursor.getColumnIndexOrThrow(WaitingListEntry.COLUMN_FIRST_NAME);
+        columnIndexLastName = cursor.getColumnIndexOrThrow(WaitingListEntry.COLUMN_LAST_NAME);
+        columnIndexCourse = cursor.getColumnIndexOrThrow(WaitingListEntry.COLUMN_COURSE);
+        columnIndexPriority = cursor.getColumnIndexOrThrow(WaitingListEntry.COLUMN_PRIORITY);
+    }
+
+    /**
+     * Returns the first equal course string seen by this mapper, so rows of the same course share
+     * one string.
+     */
+    private String shareCourse(String course) {
+        if (course == null)
+            return null;
+        String sharedCourse = courses.get(course);
+        if (sharedCourse != null)
+            return sharedCourse;
+        courses.put(course, course);
+        return course;
+    }
+
+    /**
+     * Returns the priority constant equal to the priority string, so rows share the constants.
+     */
+    private static String sharePriority(String priority) {
+        int priorityRank = WaitingListEntry.getPriorityRank(priority);
+        return priorityRank < WaitingListEntry.PRIORITIES.length ? WaitingListEntry.PRIORITIES[priorityRank] : priority;
+    }
+}
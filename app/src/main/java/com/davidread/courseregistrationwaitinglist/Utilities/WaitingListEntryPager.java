@@ -0,0 +1,304 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+import com.davidread.courseregistrationwaitinglist.Repositories.WaitingListQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ListIterator;
+
+/**
+ * This class loads waiting list entry objects into an array list one page at a time as the
+ * recycler view is scrolled. Only the objects shown by a waiting list query are loaded, in the
+ * order of the query. Pages are fetched by the sort keys of the object at the edge of the window
+ * rather than by offset, so each page costs the same regardless of how deep into the waiting list
+ * it is. Only a bounded window of pages is kept
+ * in memory. Pages that scroll far enough out of view are dropped and fetched again if the user
+ * scrolls back to them. Pages are read on the database executor and applied on the main thread.
+ * After each change the window is submitted to the adapter as a new snapshot. Writes reach the
+ * window as waiting list changes from the change notifier, so written rows are not read back. The
+ * pager can be paused while the adapter shows something else, such as search results.
+ */
+public class WaitingListEntryPager extends RecyclerView.OnScrollListener {
+
+    // Paging constants.
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_PAGES_IN_WINDOW = 5;
+    private static final int PREFETCH_DISTANCE = 20;
+
+    // Class objects.
+    private final DatabaseHelper db;
+    private final DatabaseExecutor executor;
+    private final ArrayList<WaitingListEntry> waitingListEntries;
+    private final WaitingListEntryAdapter adapter;
+    private WaitingListQuery query = WaitingListQuery.ALL;
+    private boolean hasPrecedingEntries;
+    private boolean hasFollowingEntries;
+    private boolean isLoadPending;
+    private boolean isPaused;
+
+    /**
+     * Constructs a waiting list entry pager that submits its window to the specified adapter.
+     */
+    public WaitingListEntryPager(DatabaseHelper db, WaitingListEntryAdapter adapter) {
+        this.db = db;
+        this.executor = DatabaseExecutor.getInstance();
+        this.waitingListEntries = new ArrayList<>();
+        this.adapter = adapter;
+    }
+
+    /**
+     * Replaces the query the window shows and loads its first page. The specified runnable is run
+     * on the main thread once the page is applied.
+     */
+    public void setQuery(WaitingListQuery query, @Nullable Runnable onLoaded) {
+        this.query = query;
+        loadInitialPage(onLoaded);
+    }
+
+    public WaitingListQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Replaces the contents of the array list with the first page of waiting list entry objects
+     * shown by the query. The specified runnable is run on the main thread once the page is
+     * applied. The page is discarded if the query was replaced while it was being read.
+     */
+    public void loadInitialPage(@Nullable final Runnable onLoaded) {
+        isLoadPending = true;
+        final WaitingListQuery pageQuery = query;
+        executor.read(() -> db.getWaitingListEntriesFollowing(pageQuery, null, PAGE_SIZE), page -> {
+            if (pageQuery != query)
+                return;
+            isLoadPending = false;
+            waitingListEntries.clear();
+            waitingListEntries.addAll(page);
+            hasPrecedingEntries = false;
+            hasFollowingEntries = page.size() == PAGE_SIZE;
+            if (!isPaused)
+                adapter.submitList(new ArrayList<>(waitingListEntries), onLoaded);
+            else if (onLoaded != null)
+                onLoaded.run();
+        });
+    }
+
+    /**
+     * Called when the recycler view is scrolled. It starts a page load when the visible rows come
+     * within the prefetch distance of either end of the window. Because the page is applied from a
+     * later main thread callback, the adapter is never notified from inside a scroll callback.
+     */
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (layoutManager == null || isLoadPending || isPaused)
+            return;
+
+        final int firstVisiblePosition = layoutManager.findFirstVisibleItemPosition();
+        final int lastVisiblePosition = layoutManager.findLastVisibleItemPosition();
+        if (firstVisiblePosition == RecyclerView.NO_POSITION)
+            return;
+
+        if (hasFollowingEntries && lastVisiblePosition >= waitingListEntries.size() - PREFETCH_DISTANCE) {
+            loadFollowingPage();
+        } else if (hasPrecedingEntries && firstVisiblePosition <= PREFETCH_DISTANCE) {
+            loadPrecedingPage();
+        }
+    }
+
+    /**
+     * Appends the page of waiting list entry objects that follows the end of the window, then
+     * drops pages from the start of the window if it has grown too large. The page is discarded if
+     * the end of the window or the query changed while it was being read.
+     */
+    private void loadFollowingPage() {
+
+        if (waitingListEntries.isEmpty())
+            return;
+
+        isLoadPending = true;
+        final WaitingListQuery pageQuery = query;
+        final WaitingListEntry anchor = waitingListEntries.get(waitingListEntries.size() - 1);
+        executor.read(() -> db.getWaitingListEntriesFollowing(pageQuery, anchor, PAGE_SIZE), page -> {
+
+            if (pageQuery != query)
+                return;
+            isLoadPending = false;
+            if (waitingListEntries.isEmpty() || waitingListEntries.get(waitingListEntries.size() - 1) != anchor)
+                return;
+
+            hasFollowingEntries = page.size() == PAGE_SIZE;
+
+            waitingListEntries.addAll(page);
+
+            int overflow = waitingListEntries.size() - PAGE_SIZE * MAX_PAGES_IN_WINDOW;
+            if (overflow > 0) {
+                waitingListEntries.subList(0, overflow).clear();
+                hasPrecedingEntries = true;
+            }
+
+            submitWindow();
+        });
+    }
+
+    /**
+     * Prepends the page of waiting list entry objects that precedes the start of the window, then
+     * drops pages from the end of the window if it has grown too large. The page is discarded if
+     * the start of the window or the query changed while it was being read.
+     */
+    private void loadPrecedingPage() {
+
+        if (waitingListEntries.isEmpty())
+            return;
+
+        isLoadPending = true;
+        final WaitingListQuery pageQuery = query;
+        final WaitingListEntry anchor = waitingListEntries.get(0);
+        executor.read(() -> db.getWaitingListEntriesPreceding(pageQuery, anchor, PAGE_SIZE), page -> {
+
+            if (pageQuery != query)
+                return;
+            isLoadPending = false;
+            if (waitingListEntries.isEmpty() || waitingListEntries.get(0) != anchor)
+                return;
+
+            hasPrecedingEntries = page.size() == PAGE_SIZE;
+
+            waitingListEntries.addAll(0, page);
+
+            int overflow = waitingListEntries.size() - PAGE_SIZE * MAX_PAGES_IN_WINDOW;
+            if (overflow > 0) {
+                waitingListEntries.subList(waitingListEntries.size() - overflow, waitingListEntries.size()).clear();
+                hasFollowingEntries = true;
+            }
+
+            submitWindow();
+        });
+    }
+
+    /**
+     * Applies a change to the waiting list entry table to the window. Deleted objects are removed.
+     * Updated and inserted objects shown by the query are put in their place in the order of the
+     * query if that place is within the window, and left to be loaded with their page otherwise.
+     * An end of the window past which nothing remains to be loaded takes every object beyond it,
+     * so objects inserted at the top of the list appear there. If the window grows too large the
+     * objects past its end are dropped. If the whole table was invalidated, or the change removed
+     * every object in the window while more remain to be loaded, the first page is loaded again
+     * instead, since an empty window has no anchor to load from and no rows to scroll. If the
+     * change left the window shorter than a page, the next page is loaded from the end of the
+     * window that lost objects. The specified runnable is run on the main thread once the change is
+     * applied.
+     */
+    public void onWaitingListChanged(WaitingListChange change, @Nullable Runnable onApplied) {
+
+        if (change.isTableInvalidated()) {
+            loadInitialPage(onApplied);
+            return;
+        }
+
+        boolean isWindowChanged = false;
+
+        // The window covers the objects between its ends as they were before the change.
+        WaitingListEntry first = waitingListEntries.isEmpty() ? null : waitingListEntries.get(0);
+        WaitingListEntry last = waitingListEntries.isEmpty() ? null : waitingListEntries.get(waitingListEntries.size() - 1);
+
+        // Remove deleted and updated objects in a single pass over the window. Updated objects are added back below if they still belong.
+        ListIterator<WaitingListEntry> iterator = waitingListEntries.listIterator();
+        while (iterator.hasNext()) {
+            long id = iterator.next().getId();
+            if (change.getDeletedIds().contains(id) || change.getUpdatedWaitingListEntry(id) != null) {
+                iterator.remove();
+                isWindowChanged = true;
+            }
+        }
+
+        isWindowChanged |= addWithinWindow(change.getUpdatedWaitingListEntries(), first, last);
+        isWindowChanged |= addWithinWindow(change.getInsertedWaitingListEntries(), first, last);
+
+        if (waitingListEntries.isEmpty() && (hasPrecedingEntries || hasFollowingEntries)) {
+            loadInitialPage(onApplied);
+            return;
+        }
+
+        if (isWindowChanged) {
+            Collections.sort(waitingListEntries, query);
+            int overflow = waitingListEntries.size() - PAGE_SIZE * MAX_PAGES_IN_WINDOW;
+            if (overflow > 0) {
+                waitingListEntries.subList(waitingListEntries.size() - overflow, waitingListEntries.size()).clear();
+                hasFollowingEntries = true;
+            }
+        }
+
+        if (isWindowChanged && !isPaused)
+            adapter.submitList(new ArrayList<>(waitingListEntries), onApplied);
+        else if (onApplied != null)
+            onApplied.run();
+
+        // A short window may not fill the screen, so no scroll would load the rows past it.
+        if (!waitingListEntries.isEmpty() && waitingListEntries.size() < PAGE_SIZE && !isLoadPending) {
+            boolean isEndRemoved = waitingListEntries.get(waitingListEntries.size() - 1) != last;
+            if (hasFollowingEntries && (isEndRemoved || !hasPrecedingEntries))
+                loadFollowingPage();
+            else if (hasPrecedingEntries)
+                loadPrecedingPage();
+        }
+    }
+
+    /**
+     * Adds the specified objects that are shown by the query and ordered within the specified
+     * ends of the window to the window, unsorted. An end that is null, or past which nothing
+     * remains to be loaded, does not bound the window. It returns true if any object was added.
+     */
+    private boolean addWithinWindow(Collection<WaitingListEntry> candidates, @Nullable WaitingListEntry first, @Nullable WaitingListEntry last) {
+        boolean isAdded = false;
+        for (WaitingListEntry candidate : candidates) {
+            if (!query.matches(candidate))
+                continue;
+            if (hasPrecedingEntries && (first == null || query.compare(candidate, first) < 0))
+                continue;
+            if (hasFollowingEntries && (last == null || query.compare(candidate, last) > 0))
+                continue;
+            waitingListEntries.add(candidate);
+            isAdded = true;
+        }
+        return isAdded;
+    }
+
+    /**
+     * Stops submitting the window to the adapter and stops loading pages on scroll. Changes to the
+     * window are still tracked while paused.
+     */
+    public void pause() {
+        isPaused = true;
+    }
+
+    /**
+     * Resumes the pager and submits the current window to the adapter.
+     */
+    public void resume() {
+        isPaused = false;
+        submitWindow();
+    }
+
+    /**
+     * Submits a snapshot of the window to the adapter unless the pager is paused.
+     */
+    private void submitWindow() {
+        if (!isPaused)
+            adapter.submitList(new ArrayList<>(waitingListEntries));
+    }
+
+    /**
+     * Returns true if no waiting list entry objects are loaded and none remain to be loaded.
+     */
+    public boolean isEmpty() {
+        return waitingListEntries.isEmpty() && !hasPrecedingEntries && !hasFollowingEntries;
+    }
+}
@@ -17,6 +17,7 @@ public class WaitingListEntryViewHolder extends RecyclerView.ViewHolder {
     private TextView textViewFullName;
     private TextView textViewCourse;
     private TextView textViewPriority;
+    private TextView textViewQueuePosition;
 
     /**
      * Constructs a waiting list entry view holder.
@@ -26,6 +27,7 @@ public class WaitingListEntryViewHolder extends RecyclerView.ViewHolder {
         textViewFullName = itemView.findViewById(R.id.text_view_full_name);
         textViewCourse = itemView.findViewById(R.id.text_view_course);
         textViewPriority = itemView.findViewById(R.id.text_view_priority);
+        textViewQueuePosition = itemView.findViewById(R.id.text_view_queue_position);
     }
 
     public TextView getTextViewFullName() {
@@ -39,4 +41,8 @@ public class WaitingListEntryViewHolder extends RecyclerView.ViewHolder {
     public TextView getTextViewPriority() {
         return textViewPriority;
     }
+
+    public TextView getTextViewQueuePosition() {
+        return textViewQueuePosition;
+    }
 }
@@ -0,0 +1,82 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import android.os.Looper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * This class tests how the database executor delivers the outcome of a task to the main thread.
+ * A failed task must reach its error callback, or only the log, and never be rethrown on the main
+ * thread, where it would crash the app.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DatabaseExecutorTest {
+
+    @Test
+    public void write_deliversTheResultToTheCallback() throws Exception {
+        AtomicReference<Integer> delivered = new AtomicReference<>();
+
+        Future<Integer> future = DatabaseExecutor.getInstance().write(() -> 42, delivered::set);
+
+        assertEquals(42, (int) future.get());
+        shadowOf(Looper.getMainLooper()).idle();
+        assertEquals(42, (int) delivered.get());
+    }
+
+    @Test
+    public void write_withFailingTask_deliversTheExceptionToTheErrorCallback() throws Exception {
+        IllegalStateException failure = new IllegalStateException("Write failed");
+        AtomicReference<Object> delivered = new AtomicReference<>();
+        AtomicReference<Exception> deliveredError = new AtomicReference<>();
+
+        Future<Object> future = DatabaseExecutor.getInstance().write(() -> {
+            throw failure;
+        }, delivered::set, deliveredError::set);
+
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertSame(failure, e.getCause());
+        shadowOf(Looper.getMainLooper()).idle();
+        assertSame(failure, deliveredError.get());
+        assertNull(delivered.get());
+    }
+
+    @Test
+    public void read_withFailingTask_deliversTheExceptionToTheErrorCallback() throws Exception {
+        IllegalStateException failure = new IllegalStateException("Read failed");
+        AtomicReference<Exception> deliveredError = new AtomicReference<>();
+
+        Future<Object> future = DatabaseExecutor.getInstance().read(() -> {
+            throw failure;
+        }, null, deliveredError::set);
+
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertSame(failure, e.getCause());
+        shadowOf(Looper.getMainLooper()).idle();
+        assertSame(failure, deliveredError.get());
+    }
+
+    @Test
+    public void write_withFailingTaskAndNoErrorCallback_doesNotThrowOnTheMainThread() throws Exception {
+        IllegalStateException failure = new IllegalStateException("Write failed");
+
+        Future<Object> future = DatabaseExecutor.getInstance().write(() -> {
+            throw failure;
+        }, null);
+
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertSame(failure, e.getCause());
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}
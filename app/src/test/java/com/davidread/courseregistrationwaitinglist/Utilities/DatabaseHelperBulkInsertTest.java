@@ -0,0 +1,237 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import android.content.Context;
+import android.database.SQLException;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+import com.davidread.courseregistrationwaitinglist.Snapshots.CsvWaitingListEntryReader;
+import com.davidread.courseregistrationwaitinglist.Snapshots.CsvWaitingListEntryWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the bulk insert of a list and the import and export of a CSV document. A batch
+ * that fails must be rolled back as a whole, and resuming from the index reported for it must store
+ * every object exactly once. A trigger that aborts the insert of one student stands in for the
+ * failure. An export must write every object once, in the order the objects were added.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DatabaseHelperBulkInsertTest {
+
+    // Name of the database file made by the test.
+    private static final String DATABASE_NAME = "bulk_insert_test.db";
+
+    // Objects inserted by each test, spanning three batches.
+    private static final int ENTRY_COUNT = 1200;
+
+    // Index of the object whose insert fails, in the second batch.
+    private static final int FAILING_INDEX = 700;
+
+    // First name the failure trigger aborts on.
+    private static final String FAILING_FIRST_NAME = "Fail";
+
+    // Failure trigger statements.
+    private static final String CREATE_FAILURE_TRIGGER = "CREATE TEMP TRIGGER fail_insert BEFORE INSERT ON main.waiting_list_entries "
+            + "WHEN new.first_name = '" + FAILING_FIRST_NAME + "' BEGIN SELECT RAISE(ABORT, 'Insert failed'); END";
+    private static final String DROP_FAILURE_TRIGGER = "DROP TRIGGER fail_insert";
+
+    // Class objects.
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        helper = new DatabaseHelper(context, DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        onWriterThread(() -> {
+            helper.close();
+            return null;
+        });
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void insertWaitingListEntries_reportsProgressPerBatch() throws Exception {
+        List<WaitingListEntry> entries = createEntries(-1);
+        RecordingListener listener = new RecordingListener();
+
+        int resumeIndex = onWriterThread(() -> helper.insertWaitingListEntries(entries, 0, listener));
+
+        assertEquals(ENTRY_COUNT, resumeIndex);
+        assertEquals("500/1200 1000/1200 1200/1200", listener.progress.toString().trim());
+        assertNull(listener.failure);
+        assertStoredOnce(entries);
+    }
+
+    @Test
+    public void insertWaitingListEntries_afterFailedBatch_resumesWithoutDuplicates() throws Exception {
+        List<WaitingListEntry> entries = createEntries(FAILING_INDEX);
+        RecordingListener listener = new RecordingListener();
+
+        int resumeIndex = onWriterThread(() -> {
+            helper.getWritableDatabase().execSQL(CREATE_FAILURE_TRIGGER);
+            return helper.insertWaitingListEntries(entries, 0, listener);
+        });
+
+        assertEquals(DatabaseHelper.BULK_INSERT_BATCH_SIZE, resumeIndex);
+        assertEquals(resumeIndex, (int) listener.failureIndex);
+        assertEquals(resumeIndex, (int) onWriterThread(() -> helper.getAllWaitingListEntries().size()));
+
+        int finalIndex = onWriterThread(() -> {
+            helper.getWritableDatabase().execSQL(DROP_FAILURE_TRIGGER);
+            return helper.insertWaitingListEntries(entries, resumeIndex, listener);
+        });
+
+        assertEquals(ENTRY_COUNT, finalIndex);
+        assertStoredOnce(entries);
+    }
+
+    @Test
+    public void importWaitingListEntries_afterFailedBatch_resumesWithoutDuplicates() throws Exception {
+        byte[] document = writeCsv(createEntries(FAILING_INDEX));
+        RecordingListener listener = new RecordingListener();
+
+        onWriterThread(() -> {
+            helper.getWritableDatabase().execSQL(CREATE_FAILURE_TRIGGER);
+            return null;
+        });
+        assertThrows(Exception.class, () -> onWriterThread(() -> {
+            try (CsvWaitingListEntryReader reader = new CsvWaitingListEntryReader(new ByteArrayInputStream(document))) {
+                return helper.importWaitingListEntries(reader, 0, listener);
+            }
+        }));
+
+        int resumeIndex = listener.failureIndex;
+        assertEquals(DatabaseHelper.BULK_INSERT_BATCH_SIZE, resumeIndex);
+        assertEquals("500/-1", listener.progress.toString().trim());
+
+        int importedCount = onWriterThread(() -> {
+            helper.getWritableDatabase().execSQL(DROP_FAILURE_TRIGGER);
+            try (CsvWaitingListEntryReader reader = new CsvWaitingListEntryReader(new ByteArrayInputStream(document))) {
+                return helper.importWaitingListEntries(reader, resumeIndex, listener);
+            }
+        });
+
+        assertEquals(ENTRY_COUNT, importedCount);
+        assertEquals("500/-1 1000/-1 1200/-1", listener.progress.toString().trim());
+        assertStoredOnce(createEntries(FAILING_INDEX));
+    }
+
+    @Test
+    public void exportWaitingListEntries_writesEveryPageInIdOrder() throws Exception {
+        List<WaitingListEntry> entries = createEntries(-1);
+        onWriterThread(() -> helper.insertWaitingListEntries(entries, 0, null));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exportedCount = onWriterThread(() -> {
+            try (CsvWaitingListEntryWriter writer = new CsvWaitingListEntryWriter(out)) {
+                return helper.exportWaitingListEntries(writer);
+            }
+        });
+
+        assertEquals(ENTRY_COUNT, exportedCount);
+        List<WaitingListEntry> exported = new ArrayList<>();
+        try (CsvWaitingListEntryReader reader = new CsvWaitingListEntryReader(new ByteArrayInputStream(out.toByteArray()))) {
+            WaitingListEntry entry;
+            while ((entry = reader.read()) != null)
+                exported.add(entry);
+        }
+        assertEquals(ENTRY_COUNT, exported.size());
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            assertEquals(entries.get(i).getId(), exported.get(i).getId());
+            assertEquals(entries.get(i).getLastName(), exported.get(i).getLastName());
+        }
+    }
+
+    /**
+     * Returns the objects each test inserts, with distinct students, where the object at the
+     * specified index, if any, is one whose insert the failure trigger aborts.
+     */
+    private static List<WaitingListEntry> createEntries(int failingIndex) {
+        List<WaitingListEntry> entries = new ArrayList<>(ENTRY_COUNT);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            String firstName = i == failingIndex ? FAILING_FIRST_NAME : "Student";
+            entries.add(new WaitingListEntry(-1, firstName, "Number " + i, "CS " + (100 + i % 7), i % 2 == 0 ? "Graduate" : "Senior"));
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the specified objects written as a CSV document.
+     */
+    private static byte[] writeCsv(List<WaitingListEntry> entries) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvWaitingListEntryWriter writer = new CsvWaitingListEntryWriter(out)) {
+            for (WaitingListEntry entry : entries)
+                writer.write(entry);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Asserts that the database holds exactly one row for each of the specified objects.
+     */
+    private void assertStoredOnce(List<WaitingListEntry> entries) throws Exception {
+        List<WaitingListEntry> stored = onWriterThread(() -> helper.getAllWaitingListEntries());
+        assertEquals(entries.size(), stored.size());
+        Set<String> storedKeys = new HashSet<>();
+        for (WaitingListEntry entry : stored)
+            storedKeys.add(entry.getFirstName() + "|" + entry.getLastName() + "|" + entry.getCourse());
+        for (WaitingListEntry entry : entries)
+            assertTrue(storedKeys.contains(entry.getFirstName() + "|" + entry.getLastName() + "|" + entry.getCourse()));
+    }
+
+    /**
+     * Runs the specified task on the writer thread of the database executor, as the app does, and
+     * returns its result.
+     */
+    private static <T> T onWriterThread(Callable<T> task) throws Exception {
+        return DatabaseExecutor.getInstance().write(task, null).get();
+    }
+
+    /**
+     * This class records the calls a bulk insert makes to its listener.
+     */
+    private static class RecordingListener implements DatabaseHelper.BulkInsertListener {
+
+        // Class objects.
+        private final StringBuilder progress = new StringBuilder();
+        private Integer failureIndex;
+        private SQLException failure;
+
+        @Override
+        public void onBulkInsertProgress(int insertedCount, int totalCount) {
+            progress.append(insertedCount).append('/').append(totalCount).append(' ');
+        }
+
+        @Override
+        public void onBulkInsertFailed(int resumeIndex, SQLException e) {
+            failureIndex = resumeIndex;
+            failure = e;
+        }
+    }
+}
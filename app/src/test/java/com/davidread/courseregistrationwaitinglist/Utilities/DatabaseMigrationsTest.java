@@ -0,0 +1,387 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.davidread.courseregistrationwaitinglist.Models.CourseDemand;
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the database migrations. Each test seeds a database with the schema onCreate
+ * made at an old version, read from a frozen copy under the schemas resource folder, and with the
+ * rows the app would have written then. It then opens it with the current helper, which upgrades it
+ * and runs the pending backfills, and checks that the schema matches that of a newly created
+ * database and that every row survived with its derived columns filled in.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DatabaseMigrationsTest {
+
+    // Names of the database files made by each test.
+    private static final String UPGRADED_DATABASE_NAME = "upgraded.db";
+    private static final String CREATED_DATABASE_NAME = "created.db";
+
+    // First name, last name, course, and priority of the rows seeded at every version.
+    private static final String[][] SEEDED_ROWS = {
+            {"Ada", "Lovelace", "CS 101", "Graduate"},
+            {"Alan", "Turing", "CS 101", "1st Year"},
+            {"Grace", "Hopper", "MATH 200", "3rd Year"},
+            {"Ada", "Lovelace", "MATH 200", "2nd Year"},
+            {"Édouard", "Lucas", "CS 101", "4th Year"}
+    };
+
+    // Class objects.
+    private Context context;
+    private DatabaseHelper upgradedHelper;
+    private DatabaseHelper createdHelper;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(UPGRADED_DATABASE_NAME);
+        context.deleteDatabase(CREATED_DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        onWriterThread(() -> {
+            if (upgradedHelper != null)
+                upgradedHelper.close();
+            if (createdHelper != null)
+                createdHelper.close();
+            return null;
+        });
+        context.deleteDatabase(UPGRADED_DATABASE_NAME);
+        context.deleteDatabase(CREATED_DATABASE_NAME);
+    }
+
+    @Test
+    public void upgrade_fromVersion1_matchesCreatedDatabase() throws Exception {
+        assertUpgradeFrom(1);
+    }
+
+    @Test
+    public void upgrade_fromVersion2_matchesCreatedDatabase() throws Exception {
+        assertUpgradeFrom(2);
+    }
+
+    @Test
+    public void upgrade_fromVersion3_matchesCreatedDatabase() throws Exception {
+        assertUpgradeFrom(3);
+    }
+
+    @Test
+    public void upgrade_fromVersion4_matchesCreatedDatabase() throws Exception {
+        assertUpgradeFrom(4);
+    }
+
+    @Test
+    public void upgrade_fromVersion5_matchesCreatedDatabase() throws Exception {
+        assertUpgradeFrom(5);
+    }
+
+    @Test
+    public void upgrade_fromVersion6_matchesCreatedDatabase() throws Exception {
+        assertUpgradeFrom(6);
+    }
+
+    @Test
+    public void upgrade_fromVersion7_matchesCreatedDatabase() throws Exception {
+        assertUpgradeFrom(7);
+    }
+
+    @Test
+    public void upgrade_fromVersion8_matchesCreatedDatabase() throws Exception {
+        assertUpgradeFrom(8);
+    }
+
+    @Test
+    public void upgrade_fromVersion9_matchesCreatedDatabase() throws Exception {
+        assertUpgradeFrom(9);
+    }
+
+    @Test
+    public void upgrade_fromVersion10_matchesCreatedDatabase() throws Exception {
+        assertUpgradeFrom(10);
+    }
+
+    @Test
+    public void upgrade_fromVersion10_queuesAndCountsEverySpellingOfACourseTogether() throws Exception {
+
+        SQLiteDatabase oldDb = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(UPGRADED_DATABASE_NAME), null);
+        try {
+            for (String statement : readSchema(10))
+                oldDb.execSQL(statement);
+            String[][] rows = {{"Ada", "Lovelace", "CS 101", "Graduate"}, {"Alan", "Turing", "cs  101", "Graduate"}};
+            for (String[] row : rows)
+                oldDb.execSQL("INSERT INTO waiting_list_entries(first_name,last_name,course,priority,priority_rank,name_key,course_key) VALUES (?,?,?,?,?,?,?)",
+                        new Object[]{row[0], row[1], row[2], row[3], WaitingListEntry.getPriorityRank(row[3]),
+                                WaitingListEntry.getNameKey(row[0], row[1]), WaitingListEntry.getCourseKey(row[2])});
+            oldDb.setVersion(10);
+        } finally {
+            oldDb.close();
+        }
+
+        upgradedHelper = new DatabaseHelper(context, UPGRADED_DATABASE_NAME);
+        onWriterThread(() -> {
+            List<CourseDemand> courseDemand = upgradedHelper.getCourseDemand("Cs 101");
+            assertEquals(1, courseDemand.size());
+            assertEquals("cs  101", courseDemand.get(0).getCourse());
+            assertEquals(2, courseDemand.get(0).getEntryCount());
+            List<WaitingListEntry> nextInLine = upgradedHelper.getNextInLine("CS 101", 10);
+            assertEquals(2, nextInLine.size());
+            assertEquals("Lovelace", nextInLine.get(0).getLastName());
+            assertEquals("Turing", nextInLine.get(1).getLastName());
+            return null;
+        });
+    }
+
+    @Test
+    public void upgrade_fromVersion5_mergesNewerDuplicateWithoutTombstone() throws Exception {
+
+        SQLiteDatabase oldDb = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(UPGRADED_DATABASE_NAME), null);
+        try {
+            for (String statement : readSchema(5))
+                oldDb.execSQL(statement);
+            oldDb.execSQL("INSERT INTO waiting_list_entries(first_name,last_name,course,priority,priority_rank) VALUES ('Ada','Lovelace','CS 101','Graduate',0)");
+            oldDb.setVersion(5);
+        } finally {
+            oldDb.close();
+        }
+
+        // The newer row is written with keys before the backfill reaches the older one, which
+        // takes over its keys.
+        upgradedHelper = new DatabaseHelper(context, UPGRADED_DATABASE_NAME);
+        long newerId = onWriterThread(() -> upgradedHelper.insertWaitingListEntry("ada", "LOVELACE", "cs 101", "Graduate"));
+        assertTrue(newerId > 1);
+        onWriterThread(() -> {
+            upgradedHelper.runPendingBackfills();
+            return null;
+        });
+
+        onWriterThread(() -> {
+            SQLiteDatabase db = upgradedHelper.getWritableDatabase();
+            assertEquals(1, longForQuery(db, "SELECT COUNT(*) FROM waiting_list_entries"));
+            assertEquals(1, longForQuery(db, "SELECT id FROM waiting_list_entries WHERE name_key = '"
+                    + WaitingListEntry.getNameKey("Ada", "Lovelace") + "' AND course_key = '" + WaitingListEntry.getCourseKey("CS 101") + "'"));
+            assertEquals(0, longForQuery(db, "SELECT COUNT(*) FROM sync_tombstones"));
+            List<SyncChange> changes = upgradedHelper.getPendingChanges(10);
+            assertEquals(1, changes.size());
+            assertFalse(changes.get(0).isDeleted());
+            assertEquals("Ada", changes.get(0).getFirstName());
+            assertEquals("Graduate", changes.get(0).getPriority());
+            return null;
+        });
+    }
+
+    /**
+     * Seeds a database at the specified version, upgrades it, and checks its schema and rows.
+     */
+    private void assertUpgradeFrom(int version) throws Exception {
+
+        SQLiteDatabase oldDb = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(UPGRADED_DATABASE_NAME), null);
+        try {
+            for (String statement : readSchema(version))
+                oldDb.execSQL(statement);
+            seedRows(oldDb, version);
+            oldDb.setVersion(version);
+        } finally {
+            oldDb.close();
+        }
+
+        upgradedHelper = new DatabaseHelper(context, UPGRADED_DATABASE_NAME);
+        createdHelper = new DatabaseHelper(context, CREATED_DATABASE_NAME);
+        onWriterThread(() -> {
+            upgradedHelper.runPendingBackfills();
+            return null;
+        });
+
+        List<String> createdSchema = onWriterThread(() -> readSchema(createdHelper.getWritableDatabase()));
+        List<String> upgradedSchema = onWriterThread(() -> readSchema(upgradedHelper.getWritableDatabase()));
+        assertEquals(createdSchema, upgradedSchema);
+
+        onWriterThread(() -> {
+            assertRowsSurvived(upgradedHelper, version);
+            return null;
+        });
+    }
+
+    /**
+     * Inserts the seeded rows, with the columns the app wrote at the specified version, and for
+     * versions with an admission or deleted entry table, one row of each.
+     */
+    private static void seedRows(SQLiteDatabase db, int version) {
+        for (String[] row : SEEDED_ROWS) {
+            if (version >= 6)
+                db.execSQL("INSERT INTO waiting_list_entries(first_name,last_name,course,priority,priority_rank,name_key,course_key) VALUES (?,?,?,?,?,?,?)",
+                        new Object[]{row[0], row[1], row[2], row[3], WaitingListEntry.getPriorityRank(row[3]),
+                                WaitingListEntry.getNameKey(row[0], row[1]), WaitingListEntry.getCourseKey(row[2])});
+            else if (version >= 2)
+                db.execSQL("INSERT INTO waiting_list_entries(first_name,last_name,course,priority,priority_rank) VALUES (?,?,?,?,?)",
+                        new Object[]{row[0], row[1], row[2], row[3], WaitingListEntry.getPriorityRank(row[3])});
+            else
+                db.execSQL("INSERT INTO waiting_list_entries(first_name,last_name,course,priority) VALUES (?,?,?,?)",
+                        new Object[]{row[0], row[1], row[2], row[3]});
+        }
+        if (version >= 4)
+            db.execSQL("INSERT INTO admissions(id,first_name,last_name,course,priority,admitted_at) VALUES (100,'Barbara','Liskov','CS 101','Graduate',1)");
+        if (version >= 9)
+            db.execSQL("INSERT INTO deleted_waiting_list_entries(id,first_name,last_name,course,priority,priority_rank,name_key,course_key,deleted_at)"
+                    + " VALUES (101,'Donald','Knuth','CS 101','Graduate',0,?,?,1)",
+                    new Object[]{WaitingListEntry.getNameKey("Donald", "Knuth"), WaitingListEntry.getCourseKey("CS 101")});
+    }
+
+    /**
+     * Checks that every seeded row is stored with its id, attributes, and derived columns, and is
+     * counted, searchable, marked for sync, and journaled: held by the first snapshot when the
+     * journal was added by the upgrade, or recorded as inserted when it was already there.
+     */
+    private static void assertRowsSurvived(DatabaseHelper helper, int version) {
+
+        SQLiteDatabase db = helper.getWritableDatabase();
+        Cursor cursor = db.rawQuery("SELECT id,first_name,last_name,course,priority,priority_rank,name_key,course_key,change_seq"
+                + " FROM waiting_list_entries ORDER BY id", null);
+        try {
+            assertEquals(SEEDED_ROWS.length, cursor.getCount());
+            for (int i = 0; cursor.moveToNext(); i++) {
+                String[] row = SEEDED_ROWS[i];
+                assertEquals(i + 1, cursor.getLong(0));
+                assertEquals(row[0], cursor.getString(1));
+                assertEquals(row[1], cursor.getString(2));
+                assertEquals(row[2], cursor.getString(3));
+                assertEquals(row[3], cursor.getString(4));
+                assertEquals(WaitingListEntry.getPriorityRank(row[3]), cursor.getInt(5));
+                assertEquals(WaitingListEntry.getNameKey(row[0], row[1]), cursor.getString(6));
+                assertEquals(WaitingListEntry.getCourseKey(row[2]), cursor.getString(7));
+                assertTrue(cursor.getLong(8) > 0);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        assertEquals(0, longForQuery(db, "SELECT COUNT(*) FROM pending_backfills"));
+        assertEquals(1, helper.searchWaitingListEntries("hopper", 10).size());
+        assertEquals(2, helper.searchWaitingListEntries("lovelace", 10).size());
+        int countedEntries = 0;
+        for (CourseDemand courseDemand : helper.getCourseDemand())
+            countedEntries += courseDemand.getEntryCount();
+        assertEquals(SEEDED_ROWS.length, countedEntries);
+        if (version >= 10)
+            assertEquals(SEEDED_ROWS.length, longForQuery(db, "SELECT COUNT(*) FROM journal_events WHERE type = 0"));
+        else
+            assertEquals(SEEDED_ROWS.length, helper.getSnapshotEntries(0).size());
+        assertNotNull(helper.getDeviceId());
+
+        if (version >= 4)
+            assertEquals(1, longForQuery(db, "SELECT COUNT(*) FROM admissions WHERE id = 100 AND last_name = 'Liskov'"));
+        if (version >= 9)
+            assertEquals(1, longForQuery(db, "SELECT COUNT(*) FROM deleted_waiting_list_entries WHERE id = 101 AND last_name = 'Knuth'"));
+    }
+
+    /**
+     * Returns the statements of the frozen schema of the specified version.
+     */
+    private static List<String> readSchema(int version) throws IOException {
+        List<String> statements = new ArrayList<>();
+        InputStream inputStream = DatabaseMigrationsTest.class.getClassLoader().getResourceAsStream("schemas/" + version + ".sql");
+        assertNotNull("No schema for version " + version, inputStream);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                if (!line.isEmpty() && !line.startsWith("--"))
+                    statements.add(line.endsWith(";") ? line.substring(0, line.length() - 1) : line);
+        }
+        return statements;
+    }
+
+    /**
+     * Returns a description of every table, index, and trigger of the database, sorted by type and
+     * name. Tables are described by their columns, since columns added by a migration are
+     * appended to the stored create statement with different spacing. Indexes and triggers are
+     * described by their create statements with runs of whitespace collapsed.
+     */
+    private static List<String> readSchema(SQLiteDatabase db) {
+        List<String> schema = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT type,name,tbl_name,sql FROM sqlite_master"
+                + " WHERE name NOT LIKE 'sqlite_autoindex_%' ORDER BY type,name", null);
+        try {
+            while (cursor.moveToNext()) {
+                String type = cursor.getString(0);
+                String name = cursor.getString(1);
+                String sql = cursor.getString(3);
+                if (type.equals("table") && sql != null && !sql.startsWith("CREATE VIRTUAL"))
+                    schema.add(type + " " + name + " " + readColumns(db, name));
+                else
+                    schema.add(type + " " + name + " on " + cursor.getString(2) + ": " + (sql == null ? null : sql.replaceAll("\\s+", " ")));
+            }
+        } finally {
+            cursor.close();
+        }
+        return schema;
+    }
+
+    /**
+     * Returns the name, type, not null flag, default value, and primary key position of each column
+     * of the specified table, in column order.
+     */
+    private static String readColumns(SQLiteDatabase db, String table) {
+        StringBuilder columns = new StringBuilder();
+        Cursor cursor = db.rawQuery("PRAGMA table_info('" + table.replace("'", "''") + "')", null);
+        try {
+            while (cursor.moveToNext())
+                columns.append('(').append(cursor.getString(1)).append(' ').append(cursor.getString(2))
+                        .append(cursor.getInt(3) == 1 ? " NOT NULL" : "")
+                        .append(cursor.isNull(4) ? "" : " DEFAULT " + cursor.getString(4))
+                        .append(cursor.getInt(5) > 0 ? " PK" + cursor.getInt(5) : "")
+                        .append(')');
+        } finally {
+            cursor.close();
+        }
+        return columns.toString();
+    }
+
+    /**
+     * Returns the single number the query selects.
+     */
+    private static long longForQuery(SQLiteDatabase db, String query) {
+        Cursor cursor = db.rawQuery(query, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Runs the task on the writer thread of the database executor and returns its result once it
+     * and every task queued before it have finished, so the test sees the database as the app
+     * would, including backfills the helper queues when it opens a database.
+     */
+    private static <T> T onWriterThread(Callable<T> task) throws Exception {
+        return DatabaseExecutor.getInstance().write(task, null).get();
+    }
+}
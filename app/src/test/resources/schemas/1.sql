@@ -0,0 +1,2 @@
+-- The schema onCreate made at database version 1, one statement per line.
+CREATE TABLE waiting_list_entries(id INTEGER PRIMARY KEY AUTOINCREMENT,first_name TEXT,last_name TEXT,course TEXT,priority TEXT);
@@ -0,0 +1,36 @@
+-- The schema onCreate made at database version 10, one statement per line.
+CREATE TABLE waiting_list_entries(id INTEGER PRIMARY KEY AUTOINCREMENT,first_name TEXT,last_name TEXT,course TEXT,priority TEXT,priority_rank INTEGER NOT NULL DEFAULT 5,name_key TEXT,course_key TEXT,change_seq INTEGER NOT NULL DEFAULT 0,updated_at INTEGER NOT NULL DEFAULT 0,origin TEXT);
+CREATE INDEX index_waiting_list_entries_course_priority_rank ON waiting_list_entries(course,priority_rank,id);
+CREATE UNIQUE INDEX index_waiting_list_entries_name_key_course_key ON waiting_list_entries(name_key,course_key);
+CREATE INDEX index_waiting_list_entries_course_id ON waiting_list_entries(course,id);
+CREATE INDEX index_waiting_list_entries_priority_rank_id ON waiting_list_entries(priority_rank,id);
+CREATE INDEX index_waiting_list_entries_name_key_id ON waiting_list_entries(name_key,id);
+CREATE INDEX index_waiting_list_entries_course_name_key_id ON waiting_list_entries(course,name_key,id);
+CREATE VIRTUAL TABLE waiting_list_entries_fts USING fts4(first_name,last_name,course);
+CREATE TRIGGER waiting_list_entries_fts_insert AFTER INSERT ON waiting_list_entries BEGIN INSERT INTO waiting_list_entries_fts(docid,first_name,last_name,course) VALUES (new.id,new.first_name,new.last_name,new.course); END;
+CREATE TRIGGER waiting_list_entries_fts_update AFTER UPDATE OF first_name,last_name,course ON waiting_list_entries BEGIN DELETE FROM waiting_list_entries_fts WHERE docid = old.id; INSERT INTO waiting_list_entries_fts(docid,first_name,last_name,course) VALUES (new.id,new.first_name,new.last_name,new.course); END;
+CREATE TRIGGER waiting_list_entries_fts_delete AFTER DELETE ON waiting_list_entries BEGIN DELETE FROM waiting_list_entries_fts WHERE docid = old.id; END;
+CREATE TABLE admissions(id INTEGER PRIMARY KEY,first_name TEXT,last_name TEXT,course TEXT,priority TEXT,admitted_at INTEGER NOT NULL);
+CREATE INDEX index_admissions_course ON admissions(course);
+CREATE TABLE course_demand(course TEXT NOT NULL,priority TEXT NOT NULL,entry_count INTEGER NOT NULL,PRIMARY KEY(course,priority));
+CREATE TRIGGER course_demand_insert AFTER INSERT ON waiting_list_entries BEGIN INSERT OR IGNORE INTO course_demand(course,priority,entry_count) VALUES (IFNULL(new.course,''),IFNULL(new.priority,''),0); UPDATE course_demand SET entry_count = entry_count + 1 WHERE course = IFNULL(new.course,'') AND priority = IFNULL(new.priority,''); END;
+CREATE TRIGGER course_demand_update AFTER UPDATE OF course,priority ON waiting_list_entries WHEN old.course IS NOT new.course OR old.priority IS NOT new.priority BEGIN UPDATE course_demand SET entry_count = entry_count - 1 WHERE course = IFNULL(old.course,'') AND priority = IFNULL(old.priority,''); DELETE FROM course_demand WHERE course = IFNULL(old.course,'') AND priority = IFNULL(old.priority,'') AND entry_count = 0; INSERT OR IGNORE INTO course_demand(course,priority,entry_count) VALUES (IFNULL(new.course,''),IFNULL(new.priority,''),0); UPDATE course_demand SET entry_count = entry_count + 1 WHERE course = IFNULL(new.course,'') AND priority = IFNULL(new.priority,''); END;
+CREATE TRIGGER course_demand_delete AFTER DELETE ON waiting_list_entries BEGIN UPDATE course_demand SET entry_count = entry_count - 1 WHERE course = IFNULL(old.course,'') AND priority = IFNULL(old.priority,''); DELETE FROM course_demand WHERE course = IFNULL(old.course,'') AND priority = IFNULL(old.priority,'') AND entry_count = 0; END;
+CREATE TABLE sync_state(id INTEGER PRIMARY KEY CHECK (id = 0),device_id TEXT NOT NULL,last_change_seq INTEGER NOT NULL,pushed_change_seq INTEGER NOT NULL,pull_cursor INTEGER NOT NULL,applying_remote INTEGER NOT NULL);
+CREATE TABLE sync_tombstones(name_key TEXT NOT NULL,course_key TEXT NOT NULL,first_name TEXT,last_name TEXT,course TEXT,change_seq INTEGER NOT NULL,updated_at INTEGER NOT NULL,origin TEXT,PRIMARY KEY(name_key,course_key));
+CREATE INDEX index_sync_tombstones_change_seq ON sync_tombstones(change_seq);
+CREATE INDEX index_waiting_list_entries_change_seq ON waiting_list_entries(change_seq);
+CREATE TRIGGER sync_insert AFTER INSERT ON waiting_list_entries WHEN (SELECT applying_remote FROM sync_state WHERE id = 0) = 0 BEGIN UPDATE sync_state SET last_change_seq = last_change_seq + 1 WHERE id = 0; UPDATE waiting_list_entries SET change_seq = (SELECT last_change_seq FROM sync_state WHERE id = 0),updated_at = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),origin = (SELECT device_id FROM sync_state WHERE id = 0) WHERE id = new.id; DELETE FROM sync_tombstones WHERE name_key = new.name_key AND course_key = new.course_key; END;
+CREATE TRIGGER sync_update AFTER UPDATE OF first_name,last_name,course,priority ON waiting_list_entries WHEN (SELECT applying_remote FROM sync_state WHERE id = 0) = 0 AND (old.first_name IS NOT new.first_name OR old.last_name IS NOT new.last_name OR old.course IS NOT new.course OR old.priority IS NOT new.priority) BEGIN UPDATE sync_state SET last_change_seq = last_change_seq + 1 WHERE id = 0; INSERT OR REPLACE INTO sync_tombstones(name_key,course_key,first_name,last_name,course,change_seq,updated_at,origin) SELECT old.name_key,old.course_key,old.first_name,old.last_name,old.course,last_change_seq,CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),device_id FROM sync_state WHERE id = 0 AND old.name_key IS NOT NULL AND (old.name_key IS NOT new.name_key OR old.course_key IS NOT new.course_key); UPDATE sync_state SET last_change_seq = last_change_seq + 1 WHERE id = 0; UPDATE waiting_list_entries SET change_seq = (SELECT last_change_seq FROM sync_state WHERE id = 0),updated_at = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),origin = (SELECT device_id FROM sync_state WHERE id = 0) WHERE id = new.id; DELETE FROM sync_tombstones WHERE name_key = new.name_key AND course_key = new.course_key; END;
+CREATE TRIGGER sync_delete AFTER DELETE ON waiting_list_entries WHEN (SELECT applying_remote FROM sync_state WHERE id = 0) = 0 AND old.name_key IS NOT NULL BEGIN UPDATE sync_state SET last_change_seq = last_change_seq + 1 WHERE id = 0; INSERT OR REPLACE INTO sync_tombstones(name_key,course_key,first_name,last_name,course,change_seq,updated_at,origin) SELECT old.name_key,old.course_key,old.first_name,old.last_name,old.course,last_change_seq,CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),device_id FROM sync_state WHERE id = 0; END;
+CREATE TABLE deleted_waiting_list_entries(id INTEGER PRIMARY KEY,first_name TEXT,last_name TEXT,course TEXT,priority TEXT,priority_rank INTEGER NOT NULL,name_key TEXT,course_key TEXT,deleted_at INTEGER NOT NULL);
+CREATE INDEX index_deleted_waiting_list_entries_deleted_at ON deleted_waiting_list_entries(deleted_at);
+CREATE TABLE journal_events(seq INTEGER PRIMARY KEY AUTOINCREMENT,entry_id INTEGER NOT NULL,type INTEGER NOT NULL,recorded_at INTEGER NOT NULL,first_name TEXT,last_name TEXT,course TEXT,priority TEXT);
+CREATE INDEX index_journal_events_entry_id ON journal_events(entry_id);
+CREATE TABLE journal_snapshots(seq INTEGER PRIMARY KEY,taken_at INTEGER NOT NULL);
+CREATE TABLE journal_snapshot_entries(snapshot_seq INTEGER NOT NULL,id INTEGER NOT NULL,first_name TEXT,last_name TEXT,course TEXT,priority TEXT,PRIMARY KEY(snapshot_seq,id));
+CREATE TRIGGER journal_insert AFTER INSERT ON waiting_list_entries BEGIN INSERT INTO journal_events(entry_id,type,recorded_at,first_name,last_name,course,priority) VALUES (new.id,0,CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),new.first_name,new.last_name,new.course,new.priority); END;
+CREATE TRIGGER journal_update AFTER UPDATE OF first_name,last_name,course,priority ON waiting_list_entries WHEN old.first_name IS NOT new.first_name OR old.last_name IS NOT new.last_name OR old.course IS NOT new.course OR old.priority IS NOT new.priority BEGIN INSERT INTO journal_events(entry_id,type,recorded_at,first_name,last_name,course,priority) VALUES (new.id,1,CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),new.first_name,new.last_name,new.course,new.priority); END;
+CREATE TRIGGER journal_delete AFTER DELETE ON waiting_list_entries BEGIN INSERT INTO journal_events(entry_id,type,recorded_at,first_name,last_name,course,priority) VALUES (old.id,2,CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER),old.first_name,old.last_name,old.course,old.priority); END;
+CREATE TABLE pending_backfills(version INTEGER PRIMARY KEY,next_id INTEGER NOT NULL,end_id INTEGER NOT NULL);
+INSERT INTO sync_state(id,device_id,last_change_seq,pushed_change_seq,pull_cursor,applying_remote) VALUES (0,'00112233445566778899aabbccddeeff',0,0,0,0);
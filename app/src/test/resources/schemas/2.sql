@@ -0,0 +1,4 @@
+-- The schema onCreate made at database version 2, one statement per line.
+CREATE TABLE waiting_list_entries(id INTEGER PRIMARY KEY AUTOINCREMENT,first_name TEXT,last_name TEXT,course TEXT,priority TEXT,priority_rank INTEGER NOT NULL DEFAULT 5);
+CREATE INDEX index_waiting_list_entries_course_priority_rank ON waiting_list_entries(course,priority_rank,id);
+CREATE TABLE pending_backfills(version INTEGER PRIMARY KEY,next_id INTEGER NOT NULL,end_id INTEGER NOT NULL);
@@ -0,0 +1,10 @@
+-- The schema onCreate made at database version 4, one statement per line.
+CREATE TABLE waiting_list_entries(id INTEGER PRIMARY KEY AUTOINCREMENT,first_name TEXT,last_name TEXT,course TEXT,priority TEXT,priority_rank INTEGER NOT NULL DEFAULT 5);
+CREATE INDEX index_waiting_list_entries_course_priority_rank ON waiting_list_entries(course,priority_rank,id);
+CREATE VIRTUAL TABLE waiting_list_entries_fts USING fts4(first_name,last_name,course);
+CREATE TRIGGER waiting_list_entries_fts_insert AFTER INSERT ON waiting_list_entries BEGIN INSERT INTO waiting_list_entries_fts(docid,first_name,last_name,course) VALUES (new.id,new.first_name,new.last_name,new.course); END;
+CREATE TRIGGER waiting_list_entries_fts_update AFTER UPDATE OF first_name,last_name,course ON waiting_list_entries BEGIN DELETE FROM waiting_list_entries_fts WHERE docid = old.id; INSERT INTO waiting_list_entries_fts(docid,first_name,last_name,course) VALUES (new.id,new.first_name,new.last_name,new.course); END;
+CREATE TRIGGER waiting_list_entries_fts_delete AFTER DELETE ON waiting_list_entries BEGIN DELETE FROM waiting_list_entries_fts WHERE docid = old.id; END;
+CREATE TABLE admissions(id INTEGER PRIMARY KEY,first_name TEXT,last_name TEXT,course TEXT,priority TEXT,admitted_at INTEGER NOT NULL);
+CREATE INDEX index_admissions_course ON admissions(course);
+CREATE TABLE pending_backfills(version INTEGER PRIMARY KEY,next_id INTEGER NOT NULL,end_id INTEGER NOT NULL);
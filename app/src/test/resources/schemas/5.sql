@@ -0,0 +1,14 @@
+-- The schema onCreate made at database version 5, one statement per line.
+CREATE TABLE waiting_list_entries(id INTEGER PRIMARY KEY AUTOINCREMENT,first_name TEXT,last_name TEXT,course TEXT,priority TEXT,priority_rank INTEGER NOT NULL DEFAULT 5);
+CREATE INDEX index_waiting_list_entries_course_priority_rank ON waiting_list_entries(course,priority_rank,id);
+CREATE VIRTUAL TABLE waiting_list_entries_fts USING fts4(first_name,last_name,course);
+CREATE TRIGGER waiting_list_entries_fts_insert AFTER INSERT ON waiting_list_entries BEGIN INSERT INTO waiting_list_entries_fts(docid,first_name,last_name,course) VALUES (new.id,new.first_name,new.last_name,new.course); END;
+CREATE TRIGGER waiting_list_entries_fts_update AFTER UPDATE OF first_name,last_name,course ON waiting_list_entries BEGIN DELETE FROM waiting_list_entries_fts WHERE docid = old.id; INSERT INTO waiting_list_entries_fts(docid,first_name,last_name,course) VALUES (new.id,new.first_name,new.last_name,new.course); END;
+CREATE TRIGGER waiting_list_entries_fts_delete AFTER DELETE ON waiting_list_entries BEGIN DELETE FROM waiting_list_entries_fts WHERE docid = old.id; END;
+CREATE TABLE admissions(id INTEGER PRIMARY KEY,first_name TEXT,last_name TEXT,course TEXT,priority TEXT,admitted_at INTEGER NOT NULL);
+CREATE INDEX index_admissions_course ON admissions(course);
+CREATE TABLE course_demand(course TEXT NOT NULL,priority TEXT NOT NULL,entry_count INTEGER NOT NULL,PRIMARY KEY(course,priority));
+CREATE TRIGGER course_demand_insert AFTER INSERT ON waiting_list_entries BEGIN INSERT OR IGNORE INTO course_demand(course,priority,entry_count) VALUES (IFNULL(new.course,''),IFNULL(new.priority,''),0); UPDATE course_demand SET entry_count = entry_count + 1 WHERE course = IFNULL(new.course,'') AND priority = IFNULL(new.priority,''); END;
+CREATE TRIGGER course_demand_update AFTER UPDATE OF course,priority ON waiting_list_entries WHEN old.course IS NOT new.course OR old.priority IS NOT new.priority BEGIN UPDATE course_demand SET entry_count = entry_count - 1 WHERE course = IFNULL(old.course,'') AND priority = IFNULL(old.priority,''); DELETE FROM course_demand WHERE course = IFNULL(old.course,'') AND priority = IFNULL(old.priority,'') AND entry_count = 0; INSERT OR IGNORE INTO course_demand(course,priority,entry_count) VALUES (IFNULL(new.course,''),IFNULL(new.priority,''),0); UPDATE course_demand SET entry_count = entry_count + 1 WHERE course = IFNULL(new.course,'') AND priority = IFNULL(new.priority,''); END;
+CREATE TRIGGER course_demand_delete AFTER DELETE ON waiting_list_entries BEGIN UPDATE course_demand SET entry_count = entry_count - 1 WHERE course = IFNULL(old.course,'') AND priority = IFNULL(old.priority,''); DELETE FROM course_demand WHERE course = IFNULL(old.course,'') AND priority = IFNULL(old.priority,'') AND entry_count = 0; END;
+CREATE TABLE pending_backfills(version INTEGER PRIMARY KEY,next_id INTEGER NOT NULL,end_id INTEGER NOT NULL);
@@ -0,0 +1,129 @@
+package com.davidread.courseregistrationwaitinglist.Benchmark;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * This class holds the latencies of one benchmark scenario at one table size and summarizes them.
+ * A scenario that measures allocation also holds the bytes its operations allocated.
+ */
+public class BenchmarkResult {
+
+    // Class variables.
+    private final String scenario;
+    private final int tableSize;
+    private final long[] latencyNanos;
+    private final long rowsTouched;
+    private final long allocatedBytes;
+
+    /**
+     * Constructs a result from the latency of each operation and the total rows the operations
+     * read or wrote.
+     */
+    public BenchmarkResult(String scenario, int tableSize, long[] latencyNanos, long rowsTouched) {
+        this(scenario, tableSize, latencyNanos, rowsTouched, -1);
+    }
+
+    /**
+     * Constructs a result from the latency of each operation, the total rows the operations read
+     * or wrote, and the total bytes they allocated, or -1 if allocation was not measured.
+     */
+    public BenchmarkResult(String scenario, int tableSize, long[] latencyNanos, long rowsTouched, long allocatedBytes) {
+        this.scenario = scenario;
+        this.tableSize = tableSize;
+        this.latencyNanos = latencyNanos.clone();
+        this.rowsTouched = rowsTouched;
+        this.allocatedBytes = allocatedBytes;
+        Arrays.sort(this.latencyNanos);
+    }
+
+    /**
+     * Returns the name of the scenario.
+     */
+    public String getScenario() {
+        return scenario;
+    }
+
+    /**
+     * Returns the number of rows in the table when the scenario ran.
+     */
+    public int getTableSize() {
+        return tableSize;
+    }
+
+    /**
+     * Returns the total rows the operations read or wrote.
+     */
+    public long getRowsTouched() {
+        return rowsTouched;
+    }
+
+    /**
+     * Returns the latency at the specified percentile, between 0 and 100, in nanoseconds.
+     */
+    public long percentileNanos(double percentile) {
+        if (latencyNanos.length == 0)
+            return 0;
+        int index = (int) Math.ceil(percentile / 100 * latencyNanos.length) - 1;
+        return latencyNanos[Math.max(0, Math.min(index, latencyNanos.length - 1))];
+    }
+
+    /**
+     * Returns the sum of every operation latency in nanoseconds.
+     */
+    public long totalNanos() {
+        long total = 0;
+        for (long latency : latencyNanos)
+            total += latency;
+        return total;
+    }
+
+    /**
+     * Returns the number of rows read or written per second across all operations.
+     */
+    public double rowsPerSecond() {
+        long total = totalNanos();
+        return total == 0 ? 0 : rowsTouched * 1e9 / total;
+    }
+
+    /**
+     * Returns the bytes allocated per 10000 rows read or written, or -1 if allocation was not
+     * measured.
+     */
+    public long allocatedBytesPer10kRows() {
+        if (allocatedBytes < 0 || rowsTouched == 0)
+            return -1;
+        return allocatedBytes * 10_000 / rowsTouched;
+    }
+
+    /**
+     * Returns this result as a single line JSON object.
+     */
+    public String toJson() {
+        return String.format(Locale.ROOT,
+                "{\"scenario\":\"%s\",\"tableSize\":%d,\"operations\":%d,\"rowsTouched\":%d,"
+                        + "\"meanNanos\":%d,\"p50Nanos\":%d,\"p90Nanos\":%d,\"p99Nanos\":%d,\"maxNanos\":%d,\"rowsPerSecond\":%.1f%s}",
+                scenario, tableSize, latencyNanos.length, rowsTouched,
+                latencyNanos.length == 0 ? 0 : totalNanos() / latencyNanos.length,
+                percentileNanos(50), percentileNanos(90), percentileNanos(99), percentileNanos(100), rowsPerSecond(),
+                allocatedBytes < 0 ? "" : ",\"allocatedBytesPer10kRows\":" + allocatedBytesPer10kRows());
+    }
+
+    /**
+     * Returns this result as a line of a human readable table.
+     */
+    public String toTableRow() {
+        return String.format(Locale.ROOT, "%-24s %9d %7d %12.1f %12.1f %12.1f %14.0f%s",
+                scenario, tableSize, latencyNanos.length,
+                percentileNanos(50) / 1e3, percentileNanos(99) / 1e3, percentileNanos(100) / 1e3, rowsPerSecond(),
+                allocatedBytes < 0 ? "" : String.format(Locale.ROOT, "   %d bytes allocated per 10k rows", allocatedBytesPer10kRows()));
+    }
+
+    /**
+     * Returns the header matching toTableRow().
+     */
+    public static String tableHeader() {
+        return String.format(Locale.ROOT, "%-24s %9s %7s %12s %12s %12s %14s",
+                "scenario", "rows", "ops", "p50 (us)", "p99 (us)", "max (us)", "rows/s");
+    }
+}
@@ -0,0 +1,164 @@
+package com.davidread.courseregistrationwaitinglist.Benchmark;
+
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
+import com.davidread.courseregistrationwaitinglist.Sync.SyncBatchFormat;
+import com.davidread.courseregistrationwaitinglist.Sync.SyncPullBatch;
+import com.davidread.courseregistrationwaitinglist.Sync.SyncPushBatch;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class is an in-memory stand-in for the registrar backend, served over HTTP on the loopback
+ * interface so the benchmark can time sync with real requests. It keeps the winning version of
+ * every row by its student and course keys, resolving conflicts the way the devices do, and logs
+ * each row under the server sequence number of its last change. A pull returns the rows logged
+ * after the cursor, leaving out those whose winning change came from the device pulling. A push
+ * whose batch sequence number the device has already sent is acknowledged without being applied
+ * again.
+ */
+public class MockRegistrarServer implements AutoCloseable {
+
+    // Class objects.
+    private final HttpServer server;
+    private final Map<String, SyncChange> rows = new HashMap<>();
+    private final Map<String, Long> rowSeqs = new HashMap<>();
+    private final TreeMap<Long, String> log = new TreeMap<>();
+    private final Map<String, Long> lastBatchSeqs = new HashMap<>();
+    private long lastSeq;
+
+    /**
+     * Starts a server on a free loopback port.
+     */
+    public MockRegistrarServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/push", this::handlePush);
+        server.createContext("/pull", this::handlePull);
+        server.start();
+    }
+
+    /**
+     * Returns the base URL of the server, for the HTTP transport.
+     */
+    public URL getBaseUrl() throws MalformedURLException {
+        return new URL("http", "127.0.0.1", server.getAddress().getPort(), "/");
+    }
+
+    /**
+     * Returns the number of rows the server holds, deleted ones included.
+     */
+    public synchronized int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /**
+     * Applies a push batch unless it was already applied, then acknowledges it.
+     */
+    private void handlePush(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            SyncPushBatch batch = SyncBatchFormat.readPushBatch(in);
+            synchronized (this) {
+                Long lastBatchSeq = lastBatchSeqs.get(batch.getDeviceId());
+                if (lastBatchSeq == null || batch.getBatchSeq() > lastBatchSeq) {
+                    for (SyncChange change : batch.getChanges())
+                        apply(change);
+                    lastBatchSeqs.put(batch.getDeviceId(), batch.getBatchSeq());
+                }
+            }
+            exchange.sendResponseHeaders(204, -1);
+        } catch (IOException e) {
+            exchange.sendResponseHeaders(400, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Returns the rows logged after the cursor that another device changed last.
+     */
+    private void handlePull(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            String deviceId = parameters.get("device");
+            long cursor = Long.parseLong(parameters.get("cursor"));
+            int limit = Integer.parseInt(parameters.get("limit"));
+
+            SyncPullBatch batch;
+            synchronized (this) {
+                List<SyncChange> changes = new ArrayList<>();
+                long nextCursor = cursor;
+                Iterator<Map.Entry<Long, String>> iterator = log.tailMap(cursor, false).entrySet().iterator();
+                while (changes.size() < limit && iterator.hasNext()) {
+                    Map.Entry<Long, String> logEntry = iterator.next();
+                    SyncChange change = rows.get(logEntry.getValue());
+                    if (!deviceId.equals(change.getOrigin()))
+                        changes.add(change);
+                    nextCursor = logEntry.getKey();
+                }
+                batch = new SyncPullBatch(changes, nextCursor, iterator.hasNext());
+            }
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            SyncBatchFormat.writePullBatch(body, batch);
+            exchange.getResponseHeaders().set("Content-Type", SyncBatchFormat.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                body.writeTo(out);
+            }
+        } catch (RuntimeException e) {
+            exchange.sendResponseHeaders(400, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Stores the change if it wins against the version held, moving its row to the end of the log.
+     */
+    private void apply(SyncChange change) {
+        String key = change.getNameKey() + "\u0000" + change.getCourseKey();
+        SyncChange current = rows.get(key);
+        if (current != null && SyncChange.compareVersions(change, current) <= 0)
+            return;
+        rows.put(key, change);
+        Long oldSeq = rowSeqs.put(key, ++lastSeq);
+        if (oldSeq != null)
+            log.remove(oldSeq);
+        log.put(lastSeq, key);
+    }
+
+    /**
+     * Splits a query string into its decoded parameters.
+     */
+    private static Map<String, String> parseQuery(String query) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null)
+            return parameters;
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0)
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+        }
+        return parameters;
+    }
+}
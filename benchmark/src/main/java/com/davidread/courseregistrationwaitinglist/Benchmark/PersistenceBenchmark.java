@@ -0,0 +1,1349 @@
+package com.davidread.courseregistrationwaitinglist.Benchmark;
+
+import com.davidread.courseregistrationwaitinglist.Journal.WaitingListJournal;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+import com.davidread.courseregistrationwaitinglist.Repositories.JdbcWaitingListRepository;
+import com.davidread.courseregistrationwaitinglist.Repositories.WaitingListQuery;
+import com.davidread.courseregistrationwaitinglist.Snapshots.BinarySnapshotReader;
+import com.davidread.courseregistrationwaitinglist.Snapshots.BinarySnapshotWriter;
+import com.davidread.courseregistrationwaitinglist.Snapshots.CsvWaitingListEntryReader;
+import com.davidread.courseregistrationwaitinglist.Snapshots.CsvWaitingListEntryWriter;
+import com.davidread.courseregistrationwaitinglist.Sync.HttpSyncTransport;
+import com.davidread.courseregistrationwaitinglist.Sync.SyncEngine;
+import com.davidread.courseregistrationwaitinglist.Sync.SyncResult;
+import com.davidread.courseregistrationwaitinglist.Utilities.WaitingListQueueIndex;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class benchmarks the waiting list persistence layer on a plain JVM. For each table size it
+ * seeds a fresh SQLite database with the same schema and statements the app uses, then measures
+ * inserts, updates, deletes, single lookups, keyset pages, full list loads, and per course ranking,
+ * inserts and lookups that open and close the database around every call as the helper once did,
+ * and the bytes allocated mapping 10000 rows to entries and binding them twice, the way the list
+ * did before the row mapper and the way the mapper does now. Through the JDBC repository of the
+ * core module it measures queue positions, filtered and sorted pages of the list, upserts, course
+ * demand, seat releases, restorable deletes with their undo, purge, and incremental vacuum. It also
+ * times a round trip of the table through a compressed binary snapshot, sync against a mock
+ * registrar backend on the loopback interface: the first push of every row, a push of only the rows
+ * changed since, and a pull of every row into an empty database, and queue positions, next in line
+ * peeks, and polls through the in-memory queue index against the SQL queries that answer the same
+ * questions. On two more databases seeded alike, one with the journal triggers dropped, it measures
+ * what the change journal adds to bulk inserts, inserts, updates, and deletes, then journal
+ * snapshots, rebuilds, entry histories, and compaction.
+ *
+ * <p>Separately, it grows one database through 1000, 10000, 100000, and 1000000 rows, up to the
+ * largest table size, keeping the number of courses fixed so every queue grows with it, and
+ * measures the next in line query at each step, to show its latency stays flat however long the
+ * table and queues get. On a database seeded with 200000 rows it times full text prefix searches of
+ * the kinds typed into the search box, as the helper runs them, and fails if the 99th percentile of
+ * any kind exceeds the search latency target. To compare journal modes, it runs one thread
+ * inserting rows while several threads load pages of the list and look up single rows, each on its
+ * own connection, first in rollback journal mode and then in write-ahead logging mode, and reports
+ * the throughput and tail latency of the writer and the readers in each. Finally, it ingests 10000
+ * and 100000 entries into empty databases from a list and from a CSV document in batched
+ * transactions, as the bulk insert and import of the app do, against one transaction per row, to
+ * give the rows per second of each. Results are printed as a table and written to a JSON file so
+ * they can be compared across builds.
+ *
+ * <p>Arguments are the table sizes followed by an optional output path ending in .json. The
+ * defaults are 1000, 100000, and 1000000 rows written to build/benchmark-results.json.
+ */
+public class PersistenceBenchmark {
+
+    // Benchmark constants.
+    private static final int[] DEFAULT_TABLE_SIZES = {1_000, 100_000, 1_000_000};
+    private static final int[] BULK_INGEST_SIZES = {10_000, 100_000};
+    private static final int[] NEXT_IN_LINE_GROWTH_SIZES = {1_000, 10_000, 100_000, 1_000_000};
+    private static final int NEXT_IN_LINE_GROWTH_COURSE_COUNT = 50;
+    private static final int SEARCH_TABLE_SIZE = 200_000;
+    private static final int SEARCH_OPERATIONS = 200;
+    private static final int SEARCH_RESULT_LIMIT = 200;
+    private static final long SEARCH_P99_TARGET_NANOS = 50_000_000;
+    private static final int CONCURRENCY_TABLE_SIZE = 50_000;
+    private static final int CONCURRENCY_READER_COUNT = 4;
+    private static final long CONCURRENCY_DURATION_MILLIS = 5_000;
+    private static final String DEFAULT_OUTPUT_PATH = "build/benchmark-results.json";
+    private static final long SEED = 42;
+    private static final int SEED_BATCH_SIZE = 500;
+    private static final int OPERATIONS = 1_000;
+    private static final int WARMUP_OPERATIONS = 100;
+    private static final int PAGE_SIZE = 50;
+    private static final int NEXT_IN_LINE_COUNT = 10;
+    private static final int LIST_ALL_ITERATIONS = 3;
+    private static final int SEATS_RELEASED_PER_COURSE = 3;
+    private static final int PURGE_CHUNK_SIZE = 500;
+    private static final int VACUUM_STEP_PAGES = 256;
+    private static final int MAPPING_ROW_COUNT = 10_000;
+    private static final int MAPPING_ITERATIONS = 20;
+    private static final int MAPPING_BIND_PASSES = 2;
+    private static final String FULL_NAME_FORMAT = "%1$s %2$s";
+
+    // Statements matching those used by DatabaseHelper.
+    private static final String COLUMNS = "id,first_name,last_name,course,priority";
+    private static final String INSERT_STATEMENT = "INSERT INTO waiting_list_entries(first_name,last_name,course,priority,priority_rank,name_key,course_key) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_STATEMENT = "UPDATE waiting_list_entries SET first_name = ?,last_name = ?,course = ?,priority = ?,priority_rank = ?,name_key = ?,course_key = ? WHERE id = ?";
+    private static final String DELETE_STATEMENT = "DELETE FROM waiting_list_entries WHERE id = ?";
+    private static final String LOOKUP_QUERY = "SELECT " + COLUMNS + " FROM waiting_list_entries WHERE id = ?";
+    private static final String PAGE_QUERY = "SELECT " + COLUMNS + " FROM waiting_list_entries WHERE id < ? ORDER BY id DESC LIMIT ?";
+    private static final String LIST_ALL_QUERY = "SELECT " + COLUMNS + " FROM waiting_list_entries ORDER BY id DESC";
+    private static final String MAPPING_QUERY = "SELECT " + COLUMNS + " FROM waiting_list_entries ORDER BY id DESC LIMIT ?";
+    private static final String MAPPING_SELECT_ALL_QUERY = "SELECT * FROM waiting_list_entries ORDER BY id DESC LIMIT ?";
+    private static final String SEARCH_QUERY = "SELECT " + COLUMNS + " FROM waiting_list_entries WHERE id IN ("
+            + "SELECT docid FROM waiting_list_entries_fts WHERE waiting_list_entries_fts MATCH ?) ORDER BY id DESC LIMIT ?";
+    private static final String EXPORT_QUERY = "SELECT " + COLUMNS + " FROM waiting_list_entries ORDER BY id";
+    private static final String NEXT_IN_LINE_QUERY = "SELECT " + COLUMNS + " FROM waiting_list_entries WHERE course_key = ? ORDER BY priority_rank, id LIMIT ?";
+    private static final String QUEUE_INDEX_QUERY = "SELECT id,course_key,priority_rank FROM waiting_list_entries";
+    private static final String QUEUE_POSITION_QUERY = "SELECT COUNT(*) FROM waiting_list_entries AS entry JOIN waiting_list_entries AS queued"
+            + " ON queued.course_key = entry.course_key WHERE entry.id = ?"
+            + " AND (queued.priority_rank < entry.priority_rank OR (queued.priority_rank = entry.priority_rank AND queued.id <= entry.id))";
+
+    /**
+     * Runs every scenario at every table size.
+     */
+    public static void main(String[] args) throws Exception {
+
+        List<Integer> tableSizes = new ArrayList<>();
+        String outputPath = DEFAULT_OUTPUT_PATH;
+        for (String arg : args) {
+            if (arg.endsWith(".json"))
+                outputPath = arg;
+            else
+                tableSizes.add(Integer.parseInt(arg.replace("_", "")));
+        }
+        if (tableSizes.isEmpty())
+            for (int tableSize : DEFAULT_TABLE_SIZES)
+                tableSizes.add(tableSize);
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        System.out.println(BenchmarkResult.tableHeader());
+        for (int tableSize : tableSizes) {
+            for (BenchmarkResult result : runScenarios(tableSize)) {
+                System.out.println(result.toTableRow());
+                results.add(result);
+            }
+        }
+        List<BenchmarkResult> growthResults = runNextInLineGrowthScenarios(Collections.max(tableSizes));
+        for (BenchmarkResult result : growthResults) {
+            System.out.println(result.toTableRow());
+            results.add(result);
+        }
+        BenchmarkResult smallest = growthResults.get(0);
+        BenchmarkResult largest = growthResults.get(growthResults.size() - 1);
+        System.out.printf(Locale.ROOT, "next_in_line p50 changed %.2fx from %d to %d rows%n",
+                (double) largest.percentileNanos(50) / smallest.percentileNanos(50), smallest.getTableSize(), largest.getTableSize());
+
+        for (BenchmarkResult result : runSearchScenarios()) {
+            System.out.println(result.toTableRow());
+            results.add(result);
+        }
+        for (BenchmarkResult result : results)
+            if (result.getScenario().startsWith("search_") && result.percentileNanos(99) > SEARCH_P99_TARGET_NANOS)
+                throw new IllegalStateException(result.getScenario() + " p99 exceeds the search latency target of "
+                        + SEARCH_P99_TARGET_NANOS / 1_000_000 + " ms");
+
+        for (String journalMode : new String[]{"DELETE", "WAL"}) {
+            for (BenchmarkResult result : runConcurrencyScenarios(journalMode)) {
+                System.out.println(result.toTableRow());
+                System.out.printf(Locale.ROOT, "%s: %.0f operations/s%n", result.getScenario(), result.getRowsTouched() * 1000.0 / CONCURRENCY_DURATION_MILLIS);
+                results.add(result);
+            }
+        }
+
+        for (int rowCount : BULK_INGEST_SIZES) {
+            for (BenchmarkResult result : runBulkIngestScenarios(rowCount)) {
+                System.out.println(result.toTableRow());
+                results.add(result);
+            }
+        }
+
+        writeResults(new File(outputPath), results);
+        System.out.println("Results written to " + outputPath);
+    }
+
+    /**
+     * Seeds a fresh database with the specified number of rows and runs every scenario against it.
+     */
+    private static List<BenchmarkResult> runScenarios(int tableSize) throws SQLException, IOException {
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        File databaseFile = File.createTempFile("waiting-list-benchmark", ".db");
+        WaitingListGenerator generator = new WaitingListGenerator(SEED, Math.max(10, tableSize / 200));
+
+        String url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+        MockRegistrarServer server = null;
+        try (Connection connection = DriverManager.getConnection(url)) {
+
+            createSchema(connection);
+            results.add(seed(connection, generator, tableSize, "bulk_insert"));
+            long maxId = tableSize;
+
+            // Single row writes, each in its own implicit transaction as the app performs them.
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_STATEMENT)) {
+                long[] latencies = new long[OPERATIONS];
+                for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                    long start = System.nanoTime();
+                    bindEntry(statement, generator, 1);
+                    statement.executeUpdate();
+                    maxId++;
+                    if (i >= 0)
+                        latencies[i] = System.nanoTime() - start;
+                }
+                results.add(new BenchmarkResult("insert", tableSize, latencies, OPERATIONS));
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_STATEMENT)) {
+                long[] latencies = new long[OPERATIONS];
+                for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                    long start = System.nanoTime();
+                    bindEntry(statement, generator, 1);
+                    statement.setLong(8, 1 + generator.nextInt((int) maxId));
+                    statement.executeUpdate();
+                    if (i >= 0)
+                        latencies[i] = System.nanoTime() - start;
+                }
+                results.add(new BenchmarkResult("update", tableSize, latencies, OPERATIONS));
+            }
+
+            // Reads.
+            try (PreparedStatement statement = connection.prepareStatement(LOOKUP_QUERY)) {
+                long[] latencies = new long[OPERATIONS];
+                long rows = 0;
+                for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                    long start = System.nanoTime();
+                    statement.setLong(1, 1 + generator.nextInt((int) maxId));
+                    int count = readRows(statement);
+                    if (i >= 0) {
+                        latencies[i] = System.nanoTime() - start;
+                        rows += count;
+                    }
+                }
+                results.add(new BenchmarkResult("lookup", tableSize, latencies, rows));
+            }
+
+            // The same inserts and lookups opening the database and compiling the statement for
+            // every call and closing both after it, as the helper did before it kept one
+            // connection and its compiled statements open.
+            long[] reopenLatencies = new long[OPERATIONS];
+            for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                long start = System.nanoTime();
+                try (Connection callConnection = DriverManager.getConnection(url);
+                     PreparedStatement statement = callConnection.prepareStatement(INSERT_STATEMENT)) {
+                    bindEntry(statement, generator, 1);
+                    statement.executeUpdate();
+                }
+                maxId++;
+                if (i >= 0)
+                    reopenLatencies[i] = System.nanoTime() - start;
+            }
+            results.add(new BenchmarkResult("insert_reopen", tableSize, reopenLatencies, OPERATIONS));
+
+            reopenLatencies = new long[OPERATIONS];
+            long reopenRows = 0;
+            for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                long start = System.nanoTime();
+                int count;
+                try (Connection callConnection = DriverManager.getConnection(url);
+                     PreparedStatement statement = callConnection.prepareStatement(LOOKUP_QUERY)) {
+                    statement.setLong(1, 1 + generator.nextInt((int) maxId));
+                    count = readRows(statement);
+                }
+                if (i >= 0) {
+                    reopenLatencies[i] = System.nanoTime() - start;
+                    reopenRows += count;
+                }
+            }
+            results.add(new BenchmarkResult("lookup_reopen", tableSize, reopenLatencies, reopenRows));
+
+            try (PreparedStatement statement = connection.prepareStatement(PAGE_QUERY)) {
+                long[] latencies = new long[OPERATIONS];
+                long rows = 0;
+                for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                    long start = System.nanoTime();
+                    statement.setLong(1, 1 + generator.nextInt((int) maxId));
+                    statement.setInt(2, PAGE_SIZE);
+                    int count = readRows(statement);
+                    if (i >= 0) {
+                        latencies[i] = System.nanoTime() - start;
+                        rows += count;
+                    }
+                }
+                results.add(new BenchmarkResult("keyset_page", tableSize, latencies, rows));
+            }
+
+            results.add(measureNextInLine(connection, generator, "next_in_line", tableSize));
+
+            try (PreparedStatement statement = connection.prepareStatement(LIST_ALL_QUERY)) {
+                long[] latencies = new long[LIST_ALL_ITERATIONS];
+                long rows = 0;
+                for (int i = 0; i < LIST_ALL_ITERATIONS; i++) {
+                    long start = System.nanoTime();
+                    rows += readRows(statement);
+                    latencies[i] = System.nanoTime() - start;
+                }
+                results.add(new BenchmarkResult("list_all", tableSize, latencies, rows));
+            }
+
+            results.add(measureRowMapping(connection, tableSize, false));
+            results.add(measureRowMapping(connection, tableSize, true));
+
+            results.addAll(roundTripSnapshot(connection, tableSize));
+
+            // Queue positions through the repository. The first call builds the queue index from the table.
+            try (JdbcWaitingListRepository repository = new JdbcWaitingListRepository(DriverManager.getConnection(url))) {
+                long buildStart = System.nanoTime();
+                repository.getQueuePosition(1);
+                results.add(new BenchmarkResult("queue_index_build", tableSize, new long[]{System.nanoTime() - buildStart}, maxId));
+
+                long[] latencies = new long[OPERATIONS];
+                for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                    long start = System.nanoTime();
+                    repository.getQueuePosition(1 + generator.nextInt((int) maxId));
+                    if (i >= 0)
+                        latencies[i] = System.nanoTime() - start;
+                }
+                results.add(new BenchmarkResult("queue_position", tableSize, latencies, OPERATIONS));
+
+                // Pages of the list filtered by course, priority, or both, in every sort order,
+                // continuing from a random anchor.
+                String[] courses = generator.getCourses();
+                int[] sorts = {WaitingListQuery.SORT_ARRIVAL, WaitingListQuery.SORT_PRIORITY, WaitingListQuery.SORT_NAME};
+                latencies = new long[OPERATIONS];
+                long rows = 0;
+                for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                    String course = generator.nextInt(2) == 0 ? null : courses[generator.nextInt(courses.length)];
+                    List<String> priorities = generator.nextInt(2) == 0 ? null : Collections.singletonList(generator.nextPriority());
+                    WaitingListQuery query = new WaitingListQuery(course, priorities, sorts[generator.nextInt(sorts.length)]);
+                    WaitingListEntry anchor = repository.getWaitingListEntry(1 + generator.nextInt((int) maxId));
+                    long start = System.nanoTime();
+                    int count = repository.getWaitingListEntriesFollowing(query, anchor, PAGE_SIZE).size();
+                    if (i >= 0) {
+                        latencies[i] = System.nanoTime() - start;
+                        rows += count;
+                    }
+                }
+                results.add(new BenchmarkResult("query_page", tableSize, latencies, rows));
+
+                // The first sync pushes every row, since the triggers marked each one as changed.
+                server = new MockRegistrarServer();
+                SyncEngine syncEngine = new SyncEngine(repository, new HttpSyncTransport(server.getBaseUrl()));
+                long syncStart = System.nanoTime();
+                int pushedCount = syncEngine.push();
+                results.add(new BenchmarkResult("sync_initial", tableSize, new long[]{System.nanoTime() - syncStart}, pushedCount));
+
+                // Upserts of students already waiting, which find their row through the unique key
+                // index and set its priority.
+                latencies = new long[OPERATIONS];
+                for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                    WaitingListEntry waitingListEntry = null;
+                    while (waitingListEntry == null)
+                        waitingListEntry = repository.getWaitingListEntry(1 + generator.nextInt((int) maxId));
+                    long start = System.nanoTime();
+                    repository.upsertWaitingListEntry(waitingListEntry.getFirstName(), waitingListEntry.getLastName(),
+                            waitingListEntry.getCourse(), generator.nextPriority());
+                    if (i >= 0)
+                        latencies[i] = System.nanoTime() - start;
+                }
+                results.add(new BenchmarkResult("upsert_existing", tableSize, latencies, OPERATIONS));
+
+                // A later sync pushes only the rows the upserts changed.
+                syncStart = System.nanoTime();
+                pushedCount = syncEngine.push();
+                results.add(new BenchmarkResult("sync_delta", tableSize, new long[]{System.nanoTime() - syncStart}, pushedCount));
+
+                // Course demand, read from the counts kept by triggers rather than from the table.
+                latencies = new long[OPERATIONS];
+                rows = 0;
+                for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                    long start = System.nanoTime();
+                    int count = repository.getCourseDemand(courses[generator.nextInt(courses.length)]).size();
+                    if (i >= 0) {
+                        latencies[i] = System.nanoTime() - start;
+                        rows += count;
+                    }
+                }
+                results.add(new BenchmarkResult("course_demand", tableSize, latencies, rows));
+
+                long start = System.nanoTime();
+                rows = repository.getCourseDemand().size();
+                results.add(new BenchmarkResult("course_demand_all", tableSize, new long[]{System.nanoTime() - start}, rows));
+
+                // Seat releases across every course, first one transaction per course, then all
+                // courses in one transaction as at the start of a term.
+                latencies = new long[courses.length];
+                rows = 0;
+                for (int i = 0; i < courses.length; i++) {
+                    start = System.nanoTime();
+                    rows += repository.admitNextInLine(courses[i], SEATS_RELEASED_PER_COURSE).size();
+                    latencies[i] = System.nanoTime() - start;
+                }
+                results.add(new BenchmarkResult("seat_release", tableSize, latencies, rows));
+
+                Map<String, Integer> seatCounts = new LinkedHashMap<>();
+                for (String course : courses)
+                    seatCounts.put(course, SEATS_RELEASED_PER_COURSE);
+                start = System.nanoTime();
+                rows = repository.admitNextInLine(seatCounts).size();
+                results.add(new BenchmarkResult("seat_release_batch", tableSize, new long[]{System.nanoTime() - start}, rows));
+
+                // Deletes from the list, which move each row into the deleted entry table so it
+                // can be restored, then an undo of all of them in one transaction.
+                List<Long> deletedIds = new ArrayList<>();
+                latencies = new long[OPERATIONS];
+                rows = 0;
+                for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                    long id = 1 + generator.nextInt((int) maxId);
+                    start = System.nanoTime();
+                    int count = repository.deleteWaitingListEntries(Collections.singletonList(id));
+                    if (i >= 0) {
+                        latencies[i] = System.nanoTime() - start;
+                        rows += count;
+                    }
+                    if (count > 0)
+                        deletedIds.add(id);
+                }
+                results.add(new BenchmarkResult("soft_delete", tableSize, latencies, rows));
+
+                start = System.nanoTime();
+                rows = repository.restoreWaitingListEntries(deletedIds);
+                results.add(new BenchmarkResult("undo_delete_batch", tableSize, new long[]{System.nanoTime() - start}, rows));
+
+                // The same rows deleted again and purged in chunks once they are old enough, then
+                // the freed pages returned to the file system in steps, as the database
+                // maintenance does when the app is idle.
+                repository.deleteWaitingListEntries(deletedIds);
+                List<Long> chunkLatencies = new ArrayList<>();
+                rows = 0;
+                int purgedCount;
+                do {
+                    start = System.nanoTime();
+                    purgedCount = repository.purgeDeletedWaitingListEntries(Long.MAX_VALUE, PURGE_CHUNK_SIZE);
+                    chunkLatencies.add(System.nanoTime() - start);
+                    rows += purgedCount;
+                } while (purgedCount == PURGE_CHUNK_SIZE);
+                results.add(new BenchmarkResult("purge_chunk", tableSize, toArray(chunkLatencies), rows));
+
+                chunkLatencies.clear();
+                long freePagesBefore = pragmaLong(connection, "freelist_count");
+                while (pragmaLong(connection, "freelist_count") > 0) {
+                    start = System.nanoTime();
+                    incrementalVacuum(connection, VACUUM_STEP_PAGES);
+                    chunkLatencies.add(System.nanoTime() - start);
+                }
+                results.add(new BenchmarkResult("incremental_vacuum", tableSize, toArray(chunkLatencies), freePagesBefore));
+            }
+
+            results.add(pullIntoEmptyDatabase(server, tableSize));
+            results.addAll(compareQueueIndexWithSql(connection, generator, tableSize, maxId));
+
+            try (PreparedStatement statement = connection.prepareStatement(DELETE_STATEMENT)) {
+                long[] latencies = new long[OPERATIONS];
+                long rows = 0;
+                for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                    long start = System.nanoTime();
+                    statement.setLong(1, 1 + generator.nextInt((int) maxId));
+                    int count = statement.executeUpdate();
+                    if (i >= 0) {
+                        latencies[i] = System.nanoTime() - start;
+                        rows += count;
+                    }
+                }
+                results.add(new BenchmarkResult("delete", tableSize, latencies, rows));
+            }
+        } finally {
+            if (server != null)
+                server.close();
+            deleteDatabaseFiles(databaseFile);
+        }
+
+        results.addAll(runJournalScenarios(tableSize));
+        return results;
+    }
+
+    /**
+     * Maps the latest rows of the table, at most the mapping row count of them, to entries and
+     * binds each entry the number of mapping bind passes, as scrolling the list down and back up
+     * does. Without the mapper it selects every column, looks each column up by name for every
+     * row, and formats the full name on every bind, as the helper and adapter did before the row
+     * mapper. With it, it selects only the mapped columns, looks them up once, shares course and
+     * priority strings, and formats the full name once per row, as WaitingListEntryMapper does.
+     * Each mapping is one operation, and the bytes the thread allocates during it are counted.
+     */
+    private static BenchmarkResult measureRowMapping(Connection connection, int tableSize, boolean isMapped) throws SQLException {
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long[] latencies = new long[MAPPING_ITERATIONS];
+        long rows = 0;
+        long allocatedBytes = 0;
+        long checksum = 0;
+
+        try (PreparedStatement statement = connection.prepareStatement(isMapped ? MAPPING_QUERY : MAPPING_SELECT_ALL_QUERY)) {
+            statement.setInt(1, MAPPING_ROW_COUNT);
+            for (int i = -MAPPING_ITERATIONS; i < MAPPING_ITERATIONS; i++) {
+                long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+
+                List<WaitingListEntry> entries = isMapped ? mapRows(statement) : mapRowsByName(statement);
+                for (int pass = 0; pass < MAPPING_BIND_PASSES; pass++)
+                    for (WaitingListEntry entry : entries)
+                        checksum += (isMapped ? entry.getFullName() : String.format(FULL_NAME_FORMAT, entry.getFirstName(), entry.getLastName())).length();
+
+                if (i >= 0) {
+                    latencies[i] = System.nanoTime() - start;
+                    allocatedBytes += threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+                    rows += entries.size();
+                }
+            }
+        }
+
+        if (checksum == 0)
+            throw new IllegalStateException("No rows were mapped");
+        return new BenchmarkResult(isMapped ? "map_rows_mapper" : "map_rows_by_name", tableSize, latencies, rows, allocatedBytes);
+    }
+
+    /**
+     * Maps every row of the query looking each column up by name, as the helper did before the row
+     * mapper.
+     */
+    private static List<WaitingListEntry> mapRowsByName(PreparedStatement statement) throws SQLException {
+        List<WaitingListEntry> entries = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next())
+                entries.add(new WaitingListEntry(
+                        resultSet.getLong(resultSet.findColumn("id")),
+                        resultSet.getString(resultSet.findColumn("first_name")),
+                        resultSet.getString(resultSet.findColumn("last_name")),
+                        resultSet.getString(resultSet.findColumn("course")),
+                        resultSet.getString(resultSet.findColumn("priority"))));
+        }
+        return entries;
+    }
+
+    /**
+     * Maps every row of the query the way WaitingListEntryMapper does.
+     */
+    private static List<WaitingListEntry> mapRows(PreparedStatement statement) throws SQLException {
+        List<WaitingListEntry> entries = new ArrayList<>();
+        Map<String, String> courses = new HashMap<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            int columnIndexId = resultSet.findColumn("id");
+            int columnIndexFirstName = resultSet.findColumn("first_name");
+            int columnIndexLastName = resultSet.findColumn("last_name");
+            int columnIndexCourse = resultSet.findColumn("course");
+            int columnIndexPriority = resultSet.findColumn("priority");
+            while (resultSet.next()) {
+                String firstName = resultSet.getString(columnIndexFirstName);
+                String lastName = resultSet.getString(columnIndexLastName);
+                String course = resultSet.getString(columnIndexCourse);
+                String sharedCourse = courses.get(course);
+                if (sharedCourse == null)
+                    courses.put(course, sharedCourse = course);
+                String priority = resultSet.getString(columnIndexPriority);
+                int priorityRank = WaitingListEntry.getPriorityRank(priority);
+                WaitingListEntry entry = new WaitingListEntry(resultSet.getLong(columnIndexId), firstName, lastName, sharedCourse,
+                        priorityRank < WaitingListEntry.PRIORITIES.length ? WaitingListEntry.PRIORITIES[priorityRank] : priority);
+                entry.setFullName(String.format(FULL_NAME_FORMAT, firstName, lastName));
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Seeds one database in steps through each next in line growth size up to the specified largest
+     * table size, over a fixed number of courses, and measures the next in line query after each
+     * step.
+     */
+    private static List<BenchmarkResult> runNextInLineGrowthScenarios(int largestTableSize) throws SQLException, IOException {
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        File databaseFile = File.createTempFile("waiting-list-benchmark", ".db");
+        WaitingListGenerator generator = new WaitingListGenerator(SEED, NEXT_IN_LINE_GROWTH_COURSE_COUNT);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath())) {
+            createSchema(connection);
+            int rowCount = 0;
+            for (int tableSize : NEXT_IN_LINE_GROWTH_SIZES) {
+                if (tableSize > largestTableSize && rowCount > 0)
+                    break;
+                seed(connection, generator, tableSize - rowCount, "next_in_line_growth_seed");
+                rowCount = tableSize;
+                results.add(measureNextInLine(connection, generator, "next_in_line_growth", tableSize));
+            }
+        } finally {
+            deleteDatabaseFiles(databaseFile);
+        }
+
+        return results;
+    }
+
+    /**
+     * Times the next in line query for random courses of the generator, as the app runs it when
+     * seats are released, returning the result named by the specified scenario.
+     */
+    private static BenchmarkResult measureNextInLine(Connection connection, WaitingListGenerator generator, String scenario, int tableSize) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(NEXT_IN_LINE_QUERY)) {
+            String[] courses = generator.getCourses();
+            long[] latencies = new long[OPERATIONS];
+            long rows = 0;
+            for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                long start = System.nanoTime();
+                statement.setString(1, WaitingListEntry.getCourseKey(courses[generator.nextInt(courses.length)]));
+                statement.setInt(2, NEXT_IN_LINE_COUNT);
+                int count = readRows(statement);
+                if (i >= 0) {
+                    latencies[i] = System.nanoTime() - start;
+                    rows += count;
+                }
+            }
+            return new BenchmarkResult(scenario, tableSize, latencies, rows);
+        }
+    }
+
+    /**
+     * Seeds a fresh database with the search table size and times prefix searches of four kinds,
+     * each as the match expression the helper builds from the typed text: the first letter of a
+     * first name, which matches the most rows, the first three letters of a last name, a first
+     * name with the first letters of a course subject, and the start of a student number, which
+     * matches the fewest. Results are limited as in the search box.
+     */
+    private static List<BenchmarkResult> runSearchScenarios() throws SQLException, IOException {
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        File databaseFile = File.createTempFile("waiting-list-benchmark", ".db");
+        WaitingListGenerator generator = new WaitingListGenerator(SEED, SEARCH_TABLE_SIZE / 200);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath())) {
+            createSchema(connection);
+            seed(connection, generator, SEARCH_TABLE_SIZE, "search_seed");
+
+            try (PreparedStatement statement = connection.prepareStatement(SEARCH_QUERY)) {
+                for (String scenario : new String[]{"search_first_letter", "search_last_name", "search_name_course", "search_number"}) {
+                    long[] latencies = new long[SEARCH_OPERATIONS];
+                    long rows = 0;
+                    for (int i = -WARMUP_OPERATIONS; i < SEARCH_OPERATIONS; i++) {
+                        String matchExpression;
+                        if (scenario.equals("search_first_letter"))
+                            matchExpression = generator.nextFirstName().substring(0, 1) + "*";
+                        else if (scenario.equals("search_last_name"))
+                            matchExpression = generator.nextLastName().substring(0, 3) + "*";
+                        else if (scenario.equals("search_name_course"))
+                            matchExpression = generator.nextFirstName() + "* " + generator.nextCourse().substring(0, 2) + "*";
+                        else
+                            matchExpression = (1 + generator.nextInt(SEARCH_TABLE_SIZE)) / 10 + "*";
+                        long start = System.nanoTime();
+                        statement.setString(1, matchExpression);
+                        statement.setInt(2, SEARCH_RESULT_LIMIT);
+                        int count = readRows(statement);
+                        if (i >= 0) {
+                            latencies[i] = System.nanoTime() - start;
+                            rows += count;
+                        }
+                    }
+                    results.add(new BenchmarkResult(scenario, SEARCH_TABLE_SIZE, latencies, rows));
+                }
+            }
+        } finally {
+            deleteDatabaseFiles(databaseFile);
+        }
+
+        return results;
+    }
+
+    /**
+     * Seeds a fresh database in the specified journal mode, then for the concurrency duration runs
+     * one thread inserting rows, each in its own transaction, while the reader threads alternate
+     * between loading a keyset page and looking up a single row. Every thread has its own
+     * connection, as the writer and the reader pool of the helper do, and waits for locks as
+     * SQLite connections do by default. It returns one result for the writer and one for all
+     * readers, whose rows touched are the operations each completed.
+     */
+    private static List<BenchmarkResult> runConcurrencyScenarios(String journalMode) throws Exception {
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        File databaseFile = File.createTempFile("waiting-list-benchmark", ".db");
+        String url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+        String suffix = "_" + journalMode.toLowerCase(Locale.ROOT);
+        WaitingListGenerator seedGenerator = new WaitingListGenerator(SEED, CONCURRENCY_TABLE_SIZE / 200);
+
+        try {
+            try (Connection connection = DriverManager.getConnection(url)) {
+                createSchema(connection);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA journal_mode=" + journalMode);
+                }
+                seed(connection, seedGenerator, CONCURRENCY_TABLE_SIZE, "concurrency_seed");
+            }
+
+            List<List<Long>> latencies = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            AtomicReference<Exception> failure = new AtomicReference<>();
+            CountDownLatch started = new CountDownLatch(1);
+            long[] deadline = new long[1];
+
+            for (int t = 0; t <= CONCURRENCY_READER_COUNT; t++) {
+                boolean isWriter = t == 0;
+                List<Long> threadLatencies = new ArrayList<>();
+                // The writer continues the seeding generator, so it never repeats a seeded student.
+                WaitingListGenerator generator = isWriter ? seedGenerator : new WaitingListGenerator(SEED + t, CONCURRENCY_TABLE_SIZE / 200);
+                latencies.add(threadLatencies);
+                threads.add(new Thread(() -> {
+                    try (Connection connection = DriverManager.getConnection(url);
+                         PreparedStatement insertStatement = connection.prepareStatement(INSERT_STATEMENT);
+                         PreparedStatement pageStatement = connection.prepareStatement(PAGE_QUERY);
+                         PreparedStatement lookupStatement = connection.prepareStatement(LOOKUP_QUERY)) {
+                        started.await();
+                        for (int i = 0; System.nanoTime() < deadline[0]; i++) {
+                            long start = System.nanoTime();
+                            if (isWriter) {
+                                bindEntry(insertStatement, generator, 1);
+                                insertStatement.executeUpdate();
+                            } else if (i % 2 == 0) {
+                                pageStatement.setLong(1, 1 + generator.nextInt(CONCURRENCY_TABLE_SIZE));
+                                pageStatement.setInt(2, PAGE_SIZE);
+                                readRows(pageStatement);
+                            } else {
+                                lookupStatement.setLong(1, 1 + generator.nextInt(CONCURRENCY_TABLE_SIZE));
+                                readRows(lookupStatement);
+                            }
+                            threadLatencies.add(System.nanoTime() - start);
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }, (isWriter ? "writer" : "reader-" + t) + suffix));
+            }
+
+            for (Thread thread : threads)
+                thread.start();
+            deadline[0] = System.nanoTime() + CONCURRENCY_DURATION_MILLIS * 1_000_000;
+            started.countDown();
+            for (Thread thread : threads)
+                thread.join();
+            if (failure.get() != null)
+                throw failure.get();
+
+            List<Long> readLatencies = new ArrayList<>();
+            for (int t = 1; t < latencies.size(); t++)
+                readLatencies.addAll(latencies.get(t));
+            results.add(new BenchmarkResult("concurrent_write" + suffix, CONCURRENCY_TABLE_SIZE, toArray(latencies.get(0)), latencies.get(0).size()));
+            results.add(new BenchmarkResult("concurrent_read" + suffix, CONCURRENCY_TABLE_SIZE, toArray(readLatencies), readLatencies.size()));
+        } finally {
+            deleteDatabaseFiles(databaseFile);
+        }
+
+        return results;
+    }
+
+    /**
+     * Ingests the specified number of generated entries into three empty databases: one row per
+     * transaction as a baseline, a list in batched transactions through one compiled insert, as
+     * the bulk insert of the app does, and the same entries read back from a CSV document and
+     * inserted alike, as its import does. Batches are the operations of the batched results, and
+     * the time to parse the document is part of each batch of the CSV result.
+     */
+    private static List<BenchmarkResult> runBulkIngestScenarios(int rowCount) throws SQLException, IOException {
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        WaitingListGenerator generator = new WaitingListGenerator(SEED, Math.max(10, rowCount / 200));
+        List<WaitingListEntry> entries = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++)
+            entries.add(new WaitingListEntry(0, generator.nextFirstName(), generator.nextLastName(), generator.nextCourse(), generator.nextPriority()));
+
+        File csvFile = File.createTempFile("waiting-list-benchmark", ".csv");
+        try (CsvWaitingListEntryWriter writer = new CsvWaitingListEntryWriter(new FileOutputStream(csvFile))) {
+            for (WaitingListEntry entry : entries)
+                writer.write(entry);
+        }
+
+        try {
+            for (String scenario : new String[]{"ingest_per_row", "ingest_list", "ingest_csv"}) {
+                File databaseFile = File.createTempFile("waiting-list-benchmark", ".db");
+                try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath())) {
+                    createSchema(connection);
+                    if (scenario.equals("ingest_per_row")) {
+                        long[] latencies = new long[rowCount];
+                        try (PreparedStatement statement = connection.prepareStatement(INSERT_STATEMENT)) {
+                            for (int i = 0; i < rowCount; i++) {
+                                long start = System.nanoTime();
+                                bindEntry(statement, entries.get(i));
+                                statement.executeUpdate();
+                                latencies[i] = System.nanoTime() - start;
+                            }
+                        }
+                        results.add(new BenchmarkResult(scenario, rowCount, latencies, rowCount));
+                    } else if (scenario.equals("ingest_list")) {
+                        results.add(ingestInBatches(connection, entries.iterator(), scenario, rowCount));
+                    } else {
+                        try (CsvWaitingListEntryReader reader = new CsvWaitingListEntryReader(new FileInputStream(csvFile))) {
+                            results.add(ingestInBatches(connection, new CsvIterator(reader), scenario, rowCount));
+                        }
+                    }
+                } finally {
+                    deleteDatabaseFiles(databaseFile);
+                }
+            }
+        } finally {
+            if (!csvFile.delete())
+                csvFile.deleteOnExit();
+        }
+
+        return results;
+    }
+
+    /**
+     * Inserts every entry the iterator returns in batched transactions through one compiled
+     * insert. Each batch, including taking its entries from the iterator, is one operation of the
+     * returned result, named by the specified scenario.
+     */
+    private static BenchmarkResult ingestInBatches(Connection connection, Iterator<WaitingListEntry> entries, String scenario, int rowCount) throws SQLException {
+
+        List<Long> latencies = new ArrayList<>();
+        long rows = 0;
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_STATEMENT)) {
+            while (entries.hasNext()) {
+                long start = System.nanoTime();
+                for (int i = 0; i < SEED_BATCH_SIZE && entries.hasNext(); i++) {
+                    bindEntry(statement, entries.next());
+                    statement.executeUpdate();
+                    rows++;
+                }
+                connection.commit();
+                latencies.add(System.nanoTime() - start);
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        return new BenchmarkResult(scenario, rowCount, toArray(latencies), rows);
+    }
+
+    /**
+     * Times the queue index against the SQL queries answering the same questions: the position of
+     * a random entry, which SQL counts over the entries ahead of it in its queue, the entry next in
+     * line for a random course, and polling that entry. An index poll only removes the entry from
+     * the index, while an SQL poll reads and deletes the row in one transaction, as admitting does.
+     * The index is built from the table first, so both sides answer over the same rows.
+     */
+    private static List<BenchmarkResult> compareQueueIndexWithSql(Connection connection, WaitingListGenerator generator, int tableSize, long maxId) throws SQLException {
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        String[] courseKeys = new String[generator.getCourses().length];
+        for (int i = 0; i < courseKeys.length; i++)
+            courseKeys[i] = WaitingListEntry.getCourseKey(generator.getCourses()[i]);
+
+        WaitingListQueueIndex queueIndex = new WaitingListQueueIndex();
+        try (PreparedStatement statement = connection.prepareStatement(QUEUE_INDEX_QUERY);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next())
+                queueIndex.add(resultSet.getLong(1), resultSet.getString(2), resultSet.getInt(3));
+        }
+
+        long[] latencies = new long[OPERATIONS];
+        for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+            long id = 1 + generator.nextInt((int) maxId);
+            long start = System.nanoTime();
+            queueIndex.positionOf(id);
+            if (i >= 0)
+                latencies[i] = System.nanoTime() - start;
+        }
+        results.add(new BenchmarkResult("queue_index_position", tableSize, latencies, OPERATIONS));
+
+        try (PreparedStatement statement = connection.prepareStatement(QUEUE_POSITION_QUERY)) {
+            latencies = new long[OPERATIONS];
+            for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                long start = System.nanoTime();
+                statement.setLong(1, 1 + generator.nextInt((int) maxId));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    resultSet.getInt(1);
+                }
+                if (i >= 0)
+                    latencies[i] = System.nanoTime() - start;
+            }
+            results.add(new BenchmarkResult("queue_sql_position", tableSize, latencies, OPERATIONS));
+        }
+
+        latencies = new long[OPERATIONS];
+        for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+            String courseKey = courseKeys[generator.nextInt(courseKeys.length)];
+            long start = System.nanoTime();
+            queueIndex.peekNext(courseKey);
+            if (i >= 0)
+                latencies[i] = System.nanoTime() - start;
+        }
+        results.add(new BenchmarkResult("queue_index_peek", tableSize, latencies, OPERATIONS));
+
+        try (PreparedStatement statement = connection.prepareStatement(NEXT_IN_LINE_QUERY)) {
+            latencies = new long[OPERATIONS];
+            for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                long start = System.nanoTime();
+                statement.setString(1, courseKeys[generator.nextInt(courseKeys.length)]);
+                statement.setInt(2, 1);
+                readRows(statement);
+                if (i >= 0)
+                    latencies[i] = System.nanoTime() - start;
+            }
+            results.add(new BenchmarkResult("queue_sql_peek", tableSize, latencies, OPERATIONS));
+        }
+
+        latencies = new long[OPERATIONS];
+        long rows = 0;
+        for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+            String courseKey = courseKeys[generator.nextInt(courseKeys.length)];
+            long start = System.nanoTime();
+            long id = queueIndex.pollNext(courseKey);
+            if (i >= 0) {
+                latencies[i] = System.nanoTime() - start;
+                rows += id == -1 ? 0 : 1;
+            }
+        }
+        results.add(new BenchmarkResult("queue_index_poll", tableSize, latencies, rows));
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement selectStatement = connection.prepareStatement(NEXT_IN_LINE_QUERY);
+             PreparedStatement deleteStatement = connection.prepareStatement(DELETE_STATEMENT)) {
+            latencies = new long[OPERATIONS];
+            rows = 0;
+            for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                long start = System.nanoTime();
+                selectStatement.setString(1, courseKeys[generator.nextInt(courseKeys.length)]);
+                selectStatement.setInt(2, 1);
+                int count = 0;
+                try (ResultSet resultSet = selectStatement.executeQuery()) {
+                    if (resultSet.next()) {
+                        deleteStatement.setLong(1, resultSet.getLong(1));
+                        count = deleteStatement.executeUpdate();
+                    }
+                }
+                connection.commit();
+                if (i >= 0) {
+                    latencies[i] = System.nanoTime() - start;
+                    rows += count;
+                }
+            }
+            results.add(new BenchmarkResult("queue_sql_poll", tableSize, latencies, rows));
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        return results;
+    }
+
+    /**
+     * Syncs a fresh database, as on a newly set up device, which pulls every row the backend holds
+     * in batches. The whole sync is one operation of the returned result.
+     */
+    private static BenchmarkResult pullIntoEmptyDatabase(MockRegistrarServer server, int tableSize) throws SQLException, IOException {
+
+        File databaseFile = File.createTempFile("waiting-list-benchmark", ".db");
+
+        try {
+            Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+            createSchema(connection);
+            try (JdbcWaitingListRepository repository = new JdbcWaitingListRepository(connection)) {
+                SyncEngine syncEngine = new SyncEngine(repository, new HttpSyncTransport(server.getBaseUrl()));
+                long start = System.nanoTime();
+                SyncResult syncResult = syncEngine.sync();
+                return new BenchmarkResult("sync_pull", tableSize, new long[]{System.nanoTime() - start}, syncResult.getAppliedCount());
+            }
+        } finally {
+            deleteDatabaseFiles(databaseFile);
+        }
+    }
+
+    /**
+     * Measures what the change journal costs. The same writes run against two fresh databases
+     * seeded alike, first with the journal triggers dropped and then with them in place, so the two
+     * sets of write results differ only by journaling. The journaled database is then used to
+     * measure reading and compacting the journal.
+     */
+    private static List<BenchmarkResult> runJournalScenarios(int tableSize) throws SQLException, IOException {
+
+        List<BenchmarkResult> results = new ArrayList<>();
+
+        for (boolean isJournaled : new boolean[]{false, true}) {
+
+            String suffix = isJournaled ? "_journaled" : "_unjournaled";
+            File databaseFile = File.createTempFile("waiting-list-benchmark", ".db");
+            WaitingListGenerator generator = new WaitingListGenerator(SEED, Math.max(10, tableSize / 200));
+
+            try {
+                Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+                createSchema(connection);
+                if (!isJournaled)
+                    try (Statement statement = connection.createStatement()) {
+                        for (String trigger : new String[]{"journal_insert", "journal_update", "journal_delete"})
+                            statement.execute("DROP TRIGGER " + trigger);
+                    }
+
+                try (JdbcWaitingListRepository repository = new JdbcWaitingListRepository(connection)) {
+
+                    results.add(seed(connection, generator, tableSize, "bulk_insert" + suffix));
+                    long maxId = tableSize;
+
+                    try (PreparedStatement statement = connection.prepareStatement(INSERT_STATEMENT)) {
+                        long[] latencies = new long[OPERATIONS];
+                        for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                            long start = System.nanoTime();
+                            bindEntry(statement, generator, 1);
+                            statement.executeUpdate();
+                            maxId++;
+                            if (i >= 0)
+                                latencies[i] = System.nanoTime() - start;
+                        }
+                        results.add(new BenchmarkResult("insert" + suffix, tableSize, latencies, OPERATIONS));
+                    }
+
+                    try (PreparedStatement statement = connection.prepareStatement(UPDATE_STATEMENT)) {
+                        long[] latencies = new long[OPERATIONS];
+                        for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                            long start = System.nanoTime();
+                            bindEntry(statement, generator, 1);
+                            statement.setLong(8, 1 + generator.nextInt((int) maxId));
+                            statement.executeUpdate();
+                            if (i >= 0)
+                                latencies[i] = System.nanoTime() - start;
+                        }
+                        results.add(new BenchmarkResult("update" + suffix, tableSize, latencies, OPERATIONS));
+                    }
+
+                    try (PreparedStatement statement = connection.prepareStatement(DELETE_STATEMENT)) {
+                        long[] latencies = new long[OPERATIONS];
+                        long rows = 0;
+                        for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+                            long start = System.nanoTime();
+                            statement.setLong(1, 1 + generator.nextInt((int) maxId));
+                            int count = statement.executeUpdate();
+                            if (i >= 0) {
+                                latencies[i] = System.nanoTime() - start;
+                                rows += count;
+                            }
+                        }
+                        results.add(new BenchmarkResult("delete" + suffix, tableSize, latencies, rows));
+                    }
+
+                    if (isJournaled)
+                        results.addAll(readAndCompactJournal(repository, generator, tableSize, maxId));
+                }
+            } finally {
+                deleteDatabaseFiles(databaseFile);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Times a snapshot of the whole table, a rebuild of the list from it replaying a tail of
+     * events, reads of the history of single entries, and compaction in chunks down to the latest
+     * snapshot, as the database maintenance runs it.
+     */
+    private static List<BenchmarkResult> readAndCompactJournal(JdbcWaitingListRepository repository, WaitingListGenerator generator, int tableSize, long maxId) {
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        WaitingListJournal journal = new WaitingListJournal(repository);
+
+        long start = System.nanoTime();
+        long snapshotSeq = repository.takeJournalSnapshot();
+        results.add(new BenchmarkResult("journal_snapshot", tableSize, new long[]{System.nanoTime() - start}, repository.getSnapshotEntries(snapshotSeq).size()));
+
+        // A tail of priority changes since the snapshot, as a rebuild finds it between two snapshots.
+        for (int i = 0; i < OPERATIONS; i++)
+            repository.updateWaitingListEntryPriorities(Collections.singletonList(1 + (long) generator.nextInt((int) maxId)), generator.nextPriority());
+        start = System.nanoTime();
+        List<WaitingListEntry> rebuiltEntries = journal.getWaitingListEntriesAt(Long.MAX_VALUE);
+        results.add(new BenchmarkResult("journal_rebuild", tableSize, new long[]{System.nanoTime() - start}, rebuiltEntries.size()));
+
+        long[] latencies = new long[OPERATIONS];
+        long rows = 0;
+        for (int i = -WARMUP_OPERATIONS; i < OPERATIONS; i++) {
+            long id = 1 + generator.nextInt((int) maxId);
+            start = System.nanoTime();
+            int count = journal.getHistory(id).size();
+            if (i >= 0) {
+                latencies[i] = System.nanoTime() - start;
+                rows += count;
+            }
+        }
+        results.add(new BenchmarkResult("journal_entry_history", tableSize, latencies, rows));
+
+        // A second snapshot, after which compaction keeping only the latest removes the first
+        // snapshot and every event up to the second.
+        repository.takeJournalSnapshot();
+        List<Long> chunkLatencies = new ArrayList<>();
+        rows = 0;
+        int removedCount;
+        do {
+            start = System.nanoTime();
+            removedCount = repository.compactJournal(1, WaitingListJournal.DEFAULT_COMPACT_CHUNK_SIZE);
+            chunkLatencies.add(System.nanoTime() - start);
+            rows += removedCount;
+        } while (removedCount == WaitingListJournal.DEFAULT_COMPACT_CHUNK_SIZE);
+        results.add(new BenchmarkResult("journal_compact_chunk", tableSize, toArray(chunkLatencies), rows));
+
+        return results;
+    }
+
+    /**
+     * Creates the schema of the current database version, in write-ahead logging and incremental
+     * auto vacuum mode as on the device.
+     */
+    private static void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA auto_vacuum=INCREMENTAL");
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+            JdbcWaitingListRepository.createSchema(connection);
+            statement.execute("CREATE VIRTUAL TABLE waiting_list_entries_fts USING fts4(first_name,last_name,course)");
+            statement.execute("CREATE TRIGGER waiting_list_entries_fts_insert AFTER INSERT ON waiting_list_entries BEGIN"
+                    + " INSERT INTO waiting_list_entries_fts(docid,first_name,last_name,course) VALUES (new.id,new.first_name,new.last_name,new.course); END");
+            statement.execute("CREATE TRIGGER waiting_list_entries_fts_update AFTER UPDATE OF first_name,last_name,course ON waiting_list_entries BEGIN"
+                    + " DELETE FROM waiting_list_entries_fts WHERE docid = old.id;"
+                    + " INSERT INTO waiting_list_entries_fts(docid,first_name,last_name,course) VALUES (new.id,new.first_name,new.last_name,new.course); END");
+            statement.execute("CREATE TRIGGER waiting_list_entries_fts_delete AFTER DELETE ON waiting_list_entries BEGIN"
+                    + " DELETE FROM waiting_list_entries_fts WHERE docid = old.id; END");
+        }
+    }
+
+    /**
+     * Inserts the specified number of rows in batched transactions, as the bulk insert does. Each
+     * batch is one operation of the returned result, named by the specified scenario.
+     */
+    private static BenchmarkResult seed(Connection connection, WaitingListGenerator generator, int tableSize, String scenario) throws SQLException {
+
+        int batchCount = (tableSize + SEED_BATCH_SIZE - 1) / SEED_BATCH_SIZE;
+        long[] latencies = new long[batchCount];
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_STATEMENT)) {
+            for (int batch = 0; batch < batchCount; batch++) {
+                long start = System.nanoTime();
+                int batchEnd = Math.min((batch + 1) * SEED_BATCH_SIZE, tableSize);
+                for (int i = batch * SEED_BATCH_SIZE; i < batchEnd; i++) {
+                    bindEntry(statement, generator, 1);
+                    statement.executeUpdate();
+                }
+                connection.commit();
+                latencies[batch] = System.nanoTime() - start;
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        return new BenchmarkResult(scenario, tableSize, latencies, tableSize);
+    }
+
+    /**
+     * Streams the table into a gzip compressed binary snapshot file and reads it back, timing each
+     * direction as one operation.
+     */
+    private static List<BenchmarkResult> roundTripSnapshot(Connection connection, int tableSize) throws SQLException, IOException {
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        File snapshotFile = File.createTempFile("waiting-list-benchmark", ".wlsnap");
+
+        try {
+            long exportedCount = 0;
+            long start = System.nanoTime();
+            try (PreparedStatement statement = connection.prepareStatement(EXPORT_QUERY);
+                 ResultSet resultSet = statement.executeQuery();
+                 BinarySnapshotWriter writer = new BinarySnapshotWriter(new FileOutputStream(snapshotFile), true)) {
+                while (resultSet.next()) {
+                    writer.write(new WaitingListEntry(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getString(4), resultSet.getString(5)));
+                    exportedCount++;
+                }
+            }
+            results.add(new BenchmarkResult("snapshot_export", tableSize, new long[]{System.nanoTime() - start}, exportedCount));
+
+            long importedCount = 0;
+            start = System.nanoTime();
+            try (BinarySnapshotReader reader = new BinarySnapshotReader(new FileInputStream(snapshotFile))) {
+                while (reader.read() != null)
+                    importedCount++;
+            }
+            results.add(new BenchmarkResult("snapshot_read", tableSize, new long[]{System.nanoTime() - start}, importedCount));
+        } finally {
+            if (!snapshotFile.delete())
+                snapshotFile.deleteOnExit();
+        }
+
+        return results;
+    }
+
+    /**
+     * Binds a generated entry to the seven entry parameters starting at the specified index.
+     */
+    private static void bindEntry(PreparedStatement statement, WaitingListGenerator generator, int firstIndex) throws SQLException {
+        String firstName = generator.nextFirstName();
+        String lastName = generator.nextLastName();
+        String course = generator.nextCourse();
+        String priority = generator.nextPriority();
+        statement.setString(firstIndex, firstName);
+        statement.setString(firstIndex + 1, lastName);
+        statement.setString(firstIndex + 2, course);
+        statement.setString(firstIndex + 3, priority);
+        statement.setInt(firstIndex + 4, WaitingListEntry.getPriorityRank(priority));
+        statement.setString(firstIndex + 5, WaitingListEntry.getNameKey(firstName, lastName));
+        statement.setString(firstIndex + 6, WaitingListEntry.getCourseKey(course));
+    }
+
+    /**
+     * Binds the specified entry to the seven entry parameters of the insert statement.
+     */
+    private static void bindEntry(PreparedStatement statement, WaitingListEntry entry) throws SQLException {
+        statement.setString(1, entry.getFirstName());
+        statement.setString(2, entry.getLastName());
+        statement.setString(3, entry.getCourse());
+        statement.setString(4, entry.getPriority());
+        statement.setInt(5, WaitingListEntry.getPriorityRank(entry.getPriority()));
+        statement.setString(6, WaitingListEntry.getNameKey(entry.getFirstName(), entry.getLastName()));
+        statement.setString(7, WaitingListEntry.getCourseKey(entry.getCourse()));
+    }
+
+    /**
+     * Runs the query and reads every column of every row, as mapping rows to entries does. It
+     * returns the number of rows read.
+     */
+    private static int readRows(PreparedStatement statement) throws SQLException {
+        int count = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                resultSet.getLong(1);
+                resultSet.getString(2);
+                resultSet.getString(3);
+                resultSet.getString(4);
+                resultSet.getString(5);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the value of a pragma that answers with a single number.
+     */
+    private static long pragmaLong(Connection connection, String pragma) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA " + pragma)) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Returns at most the specified number of free pages to the file system. The pragma frees one
+     * page per step of its statement, so every row it yields is read.
+     */
+    private static void incrementalVacuum(Connection connection, int pageCount) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (statement.execute("PRAGMA incremental_vacuum(" + pageCount + ")"))
+                try (ResultSet resultSet = statement.getResultSet()) {
+                    while (resultSet.next()) {
+                        // Each step frees one page.
+                    }
+                }
+        }
+    }
+
+    /**
+     * Returns the latencies as an array.
+     */
+    private static long[] toArray(List<Long> latencies) {
+        long[] array = new long[latencies.size()];
+        for (int i = 0; i < array.length; i++)
+            array[i] = latencies.get(i);
+        return array;
+    }
+
+    /**
+     * Writes the results as a JSON document.
+     */
+    private static void writeResults(File outputFile, List<BenchmarkResult> results) throws IOException {
+        File parent = outputFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+            throw new IOException("Could not create " + parent);
+        try (PrintWriter writer = new PrintWriter(outputFile, StandardCharsets.UTF_8.name())) {
+            writer.println("{");
+            writer.println("  \"timestamp\": " + System.currentTimeMillis() + ",");
+            writer.println("  \"results\": [");
+            for (int i = 0; i < results.size(); i++)
+                writer.println("    " + results.get(i).toJson() + (i < results.size() - 1 ? "," : ""));
+            writer.println("  ]");
+            writer.println("}");
+        }
+    }
+
+    /**
+     * Deletes the database file along with its rollback journal, write-ahead log, and shared memory
+     * files.
+     */
+    private static void deleteDatabaseFiles(File databaseFile) {
+        for (String suffix : new String[]{"", "-journal", "-wal", "-shm"}) {
+            File file = new File(databaseFile.getPath() + suffix);
+            if (file.exists() && !file.delete())
+                file.deleteOnExit();
+        }
+    }
+
+    /**
+     * This class iterates over the entries of a CSV reader, reading one ahead so it can tell when
+     * the document ends.
+     */
+    private static class CsvIterator implements Iterator<WaitingListEntry> {
+
+        // Class objects.
+        private final CsvWaitingListEntryReader reader;
+        private WaitingListEntry next;
+
+        /**
+         * Constructs an iterator over the entries of the specified reader.
+         */
+        CsvIterator(CsvWaitingListEntryReader reader) throws IOException {
+            this.reader = reader;
+            next = reader.read();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public WaitingListEntry next() {
+            WaitingListEntry entry = next;
+            try {
+                next = reader.read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return entry;
+        }
+    }
+}
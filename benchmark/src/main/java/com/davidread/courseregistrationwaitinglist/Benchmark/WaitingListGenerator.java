@@ -0,0 +1,80 @@
+package com.davidread.courseregistrationwaitinglist.Benchmark;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.util.Random;
+
+/**
+ * This class generates synthetic waiting list entries. Output is deterministic for a given seed.
+ * Course demand is skewed so a few courses have long waiting lists and most have short ones, and
+ * lower priorities are more common than higher ones, as at the start of a real term. Every last
+ * name carries a student number, so no two generated entries are the same student.
+ */
+public class WaitingListGenerator {
+
+    // Name and priority pools.
+    private static final String[] FIRST_NAMES = {"Ava", "Ben", "Chloe", "Daniel", "Emma", "Finn", "Grace", "Henry", "Isla", "Jack",
+            "Kai", "Liam", "Mia", "Noah", "Olivia", "Priya", "Quinn", "Ravi", "Sofia", "Theo", "Uma", "Victor", "Wen", "Yusuf", "Zoe"};
+    private static final String[] LAST_NAMES = {"Adams", "Brown", "Chen", "Davis", "Evans", "Garcia", "Hughes", "Ito", "Jones", "Kim",
+            "Lopez", "Miller", "Nguyen", "Okafor", "Patel", "Read", "Smith", "Taylor", "Usman", "Wilson"};
+    private static final String[] COURSE_SUBJECTS = {"CS", "MATH", "PHYS", "CHEM", "BIOL", "ENGL", "HIST", "ECON"};
+    private static final int[] PRIORITY_WEIGHTS = {5, 15, 20, 25, 35};
+
+    // Class objects.
+    private final Random random;
+    private final String[] courses;
+    private long studentNumber;
+
+    /**
+     * Constructs a generator spreading entries over the specified number of courses.
+     */
+    public WaitingListGenerator(long seed, int courseCount) {
+        random = new Random(seed);
+        courses = new String[courseCount];
+        for (int i = 0; i < courseCount; i++)
+            courses[i] = COURSE_SUBJECTS[i % COURSE_SUBJECTS.length] + " " + (100 + i / COURSE_SUBJECTS.length);
+    }
+
+    /**
+     * Returns the course names entries are spread over.
+     */
+    public String[] getCourses() {
+        return courses;
+    }
+
+    public String nextFirstName() {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+    }
+
+    public String nextLastName() {
+        return LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " " + ++studentNumber;
+    }
+
+    /**
+     * Returns a course, favoring courses near the start of the course array.
+     */
+    public String nextCourse() {
+        double skewed = Math.pow(random.nextDouble(), 3);
+        return courses[(int) (skewed * courses.length)];
+    }
+
+    /**
+     * Returns a priority following the priority weights.
+     */
+    public String nextPriority() {
+        int roll = random.nextInt(100);
+        for (int i = 0; i < PRIORITY_WEIGHTS.length; i++) {
+            roll -= PRIORITY_WEIGHTS[i];
+            if (roll < 0)
+                return WaitingListEntry.PRIORITIES[i];
+        }
+        return WaitingListEntry.PRIORITIES[WaitingListEntry.PRIORITIES.length - 1];
+    }
+
+    /**
+     * Returns a random integer between zero inclusive and the bound exclusive.
+     */
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+}
@@ -0,0 +1,182 @@
+package com.davidread.courseregistrationwaitinglist.Journal;
+
+import com.davidread.courseregistrationwaitinglist.Models.JournalEvent;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+import com.davidread.courseregistrationwaitinglist.Sync.SyncSchema;
+
+/**
+ * This class holds the SQL of the change journal. The app and the JDBC repository both create
+ * their journal tables and triggers from it and read and compact the journal through it, so the
+ * two cannot drift apart.
+ *
+ * <p>Triggers append an event to the journal event table for every row inserted into, updated in,
+ * or deleted from the waiting list entry table, in the transaction that changed the row, so no
+ * write path can change the list without a record of it. An update is recorded only if it changed
+ * the attributes of the row. Events are numbered in the order they were recorded, and the journal
+ * event table is declared with AUTOINCREMENT so a number is never handed out twice, even after the
+ * events holding the highest numbers have been compacted away.
+ *
+ * <p>A snapshot copies every row of the waiting list entry table along with the number of the last
+ * event it includes and the time it was taken. The state at any time is rebuilt from the last
+ * snapshot taken at or before that time by replaying only the events recorded after it. The first
+ * snapshot is taken when the tables are created. Compaction keeps a number of the latest
+ * snapshots and removes the older ones with every event up to the oldest snapshot kept, since
+ * nothing can be rebuilt from them any more.
+ */
+public final class JournalSchema {
+
+    // SQLite constants of the snapshot tables. The snapshot entry table shares the names of the
+    // waiting list entry columns it copies.
+    public static final String SNAPSHOT_TABLE_NAME = "journal_snapshots";
+    public static final String SNAPSHOT_ENTRY_TABLE_NAME = "journal_snapshot_entries";
+    public static final String COLUMN_SEQ = "seq";
+    public static final String COLUMN_TAKEN_AT = "taken_at";
+    public static final String COLUMN_SNAPSHOT_SEQ = "snapshot_seq";
+
+    // The attribute columns recorded by events and snapshots.
+    private static final String ATTRIBUTE_COLUMNS = WaitingListEntry.COLUMN_FIRST_NAME + ","
+            + WaitingListEntry.COLUMN_LAST_NAME + ","
+            + WaitingListEntry.COLUMN_COURSE + ","
+            + WaitingListEntry.COLUMN_PRIORITY;
+
+    // The columns of an event, in the order the event queries select them.
+    private static final String EVENT_COLUMNS = JournalEvent.COLUMN_SEQ + ","
+            + JournalEvent.COLUMN_ENTRY_ID + ","
+            + JournalEvent.COLUMN_TYPE + ","
+            + JournalEvent.COLUMN_RECORDED_AT + ","
+            + ATTRIBUTE_COLUMNS;
+
+    // The number of the last event recorded, or 0 if there has been none.
+    private static final String LAST_EVENT_SEQ = "IFNULL((SELECT seq FROM sqlite_sequence WHERE name = '" + JournalEvent.TABLE_NAME + "'), 0)";
+
+    // The number of the oldest snapshot kept.
+    private static final String OLDEST_SNAPSHOT_SEQ = "(SELECT MIN(" + COLUMN_SEQ + ") FROM " + SNAPSHOT_TABLE_NAME + ")";
+
+    // Queries. The snapshot entry query selects the columns of a waiting list entry object in the
+    // order the repositories map them.
+    public static final String SELECT_SNAPSHOT_SEQ_AT_QUERY = "SELECT " + COLUMN_SEQ
+            + " FROM " + SNAPSHOT_TABLE_NAME
+            + " WHERE " + COLUMN_TAKEN_AT + " <= ?"
+            + " ORDER BY " + COLUMN_SEQ + " DESC LIMIT 1";
+    public static final String SELECT_SNAPSHOT_ENTRIES_QUERY = "SELECT "
+            + WaitingListEntry.COLUMN_ID + ","
+            + ATTRIBUTE_COLUMNS
+            + " FROM " + SNAPSHOT_ENTRY_TABLE_NAME
+            + " WHERE " + COLUMN_SNAPSHOT_SEQ + " = ?"
+            + " ORDER BY " + WaitingListEntry.COLUMN_ID;
+    public static final String SELECT_EVENTS_AFTER_QUERY = "SELECT " + EVENT_COLUMNS
+            + " FROM " + JournalEvent.TABLE_NAME
+            + " WHERE " + JournalEvent.COLUMN_SEQ + " > ?"
+            + " ORDER BY " + JournalEvent.COLUMN_SEQ + " LIMIT ?";
+    public static final String SELECT_ENTRY_EVENTS_QUERY = "SELECT " + EVENT_COLUMNS
+            + " FROM " + JournalEvent.TABLE_NAME
+            + " WHERE " + JournalEvent.COLUMN_ENTRY_ID + " = ?"
+            + " ORDER BY " + JournalEvent.COLUMN_SEQ;
+    public static final String COUNT_EVENTS_SINCE_SNAPSHOT_QUERY = "SELECT COUNT(*) FROM " + JournalEvent.TABLE_NAME
+            + " WHERE " + JournalEvent.COLUMN_SEQ + " > IFNULL((SELECT MAX(" + COLUMN_SEQ + ") FROM " + SNAPSHOT_TABLE_NAME + "), 0)";
+
+    // Snapshot statements, run in one transaction. The header is not inserted if no event has been
+    // recorded since the last snapshot, and the rows are copied only if it was.
+    public static final String INSERT_SNAPSHOT_STATEMENT = "INSERT OR IGNORE INTO " + SNAPSHOT_TABLE_NAME + "("
+            + COLUMN_SEQ + "," + COLUMN_TAKEN_AT
+            + ") SELECT " + LAST_EVENT_SEQ + "," + SyncSchema.NOW_MILLIS;
+    public static final String INSERT_SNAPSHOT_ENTRIES_STATEMENT = "INSERT INTO " + SNAPSHOT_ENTRY_TABLE_NAME + "("
+            + COLUMN_SNAPSHOT_SEQ + "," + WaitingListEntry.COLUMN_ID + "," + ATTRIBUTE_COLUMNS
+            + ") SELECT (SELECT MAX(" + COLUMN_SEQ + ") FROM " + SNAPSHOT_TABLE_NAME + "),"
+            + WaitingListEntry.COLUMN_ID + "," + ATTRIBUTE_COLUMNS
+            + " FROM " + WaitingListEntry.TABLE_NAME;
+    public static final String SELECT_LAST_SNAPSHOT_SEQ_QUERY = "SELECT MAX(" + COLUMN_SEQ + ") FROM " + SNAPSHOT_TABLE_NAME;
+
+    // Compaction statements. The first removes every snapshot header older than the number of
+    // latest snapshots to keep, so nothing is rebuilt from them from then on. The others remove at
+    // most a limit of the rows left behind, oldest first. DELETE with LIMIT is not compiled into
+    // SQLite on Android.
+    public static final String DELETE_EXPIRED_SNAPSHOTS_STATEMENT = "DELETE FROM " + SNAPSHOT_TABLE_NAME
+            + " WHERE " + COLUMN_SEQ + " < (SELECT MIN(" + COLUMN_SEQ + ") FROM (SELECT " + COLUMN_SEQ + " FROM " + SNAPSHOT_TABLE_NAME
+            + " ORDER BY " + COLUMN_SEQ + " DESC LIMIT ?))";
+    public static final String DELETE_EXPIRED_SNAPSHOT_ENTRIES_STATEMENT = "DELETE FROM " + SNAPSHOT_ENTRY_TABLE_NAME
+            + " WHERE rowid IN (SELECT rowid FROM " + SNAPSHOT_ENTRY_TABLE_NAME
+            + " WHERE " + COLUMN_SNAPSHOT_SEQ + " < " + OLDEST_SNAPSHOT_SEQ
+            + " LIMIT ?)";
+    public static final String DELETE_EXPIRED_EVENTS_STATEMENT = "DELETE FROM " + JournalEvent.TABLE_NAME
+            + " WHERE " + JournalEvent.COLUMN_SEQ + " IN (SELECT " + JournalEvent.COLUMN_SEQ + " FROM " + JournalEvent.TABLE_NAME
+            + " WHERE " + JournalEvent.COLUMN_SEQ + " <= " + OLDEST_SNAPSHOT_SEQ
+            + " ORDER BY " + JournalEvent.COLUMN_SEQ + " LIMIT ?)";
+
+    private JournalSchema() {
+    }
+
+    /**
+     * Returns the statements that create the journal event table with its entry id index, the
+     * snapshot tables, the first snapshot, and the journal triggers unless they exist. The first
+     * snapshot copies the rows the waiting list entry table holds when it is taken, and is not
+     * taken again once any snapshot exists.
+     */
+    public static String[] createStatements() {
+
+        StringBuilder isChanged = new StringBuilder();
+        for (String column : ATTRIBUTE_COLUMNS.split(","))
+            isChanged.append(isChanged.length() == 0 ? "" : " OR ").append("old.").append(column).append(" IS NOT new.").append(column);
+
+        return new String[]{
+                "CREATE TABLE IF NOT EXISTS " + JournalEvent.TABLE_NAME + "("
+                        + JournalEvent.COLUMN_SEQ + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                        + JournalEvent.COLUMN_ENTRY_ID + " INTEGER NOT NULL,"
+                        + JournalEvent.COLUMN_TYPE + " INTEGER NOT NULL,"
+                        + JournalEvent.COLUMN_RECORDED_AT + " INTEGER NOT NULL,"
+                        + WaitingListEntry.COLUMN_FIRST_NAME + " TEXT,"
+                        + WaitingListEntry.COLUMN_LAST_NAME + " TEXT,"
+                        + WaitingListEntry.COLUMN_COURSE + " TEXT,"
+                        + WaitingListEntry.COLUMN_PRIORITY + " TEXT"
+                        + ")",
+                "CREATE INDEX IF NOT EXISTS " + JournalEvent.INDEX_ENTRY_ID + " ON " + JournalEvent.TABLE_NAME
+                        + "(" + JournalEvent.COLUMN_ENTRY_ID + ")",
+                "CREATE TABLE IF NOT EXISTS " + SNAPSHOT_TABLE_NAME + "("
+                        + COLUMN_SEQ + " INTEGER PRIMARY KEY,"
+                        + COLUMN_TAKEN_AT + " INTEGER NOT NULL"
+                        + ")",
+                "CREATE TABLE IF NOT EXISTS " + SNAPSHOT_ENTRY_TABLE_NAME + "("
+                        + COLUMN_SNAPSHOT_SEQ + " INTEGER NOT NULL,"
+                        + WaitingListEntry.COLUMN_ID + " INTEGER NOT NULL,"
+                        + WaitingListEntry.COLUMN_FIRST_NAME + " TEXT,"
+                        + WaitingListEntry.COLUMN_LAST_NAME + " TEXT,"
+                        + WaitingListEntry.COLUMN_COURSE + " TEXT,"
+                        + WaitingListEntry.COLUMN_PRIORITY + " TEXT,"
+                        + "PRIMARY KEY(" + COLUMN_SNAPSHOT_SEQ + "," + WaitingListEntry.COLUMN_ID + ")"
+                        + ")",
+                "INSERT INTO " + SNAPSHOT_ENTRY_TABLE_NAME + "("
+                        + COLUMN_SNAPSHOT_SEQ + "," + WaitingListEntry.COLUMN_ID + "," + ATTRIBUTE_COLUMNS
+                        + ") SELECT 0," + WaitingListEntry.COLUMN_ID + "," + ATTRIBUTE_COLUMNS
+                        + " FROM " + WaitingListEntry.TABLE_NAME
+                        + " WHERE NOT EXISTS (SELECT 1 FROM " + SNAPSHOT_TABLE_NAME + ")",
+                "INSERT OR IGNORE INTO " + SNAPSHOT_TABLE_NAME + "(" + COLUMN_SEQ + "," + COLUMN_TAKEN_AT + ")"
+                        + " SELECT 0," + SyncSchema.NOW_MILLIS
+                        + " WHERE NOT EXISTS (SELECT 1 FROM " + SNAPSHOT_TABLE_NAME + ")",
+                "CREATE TRIGGER IF NOT EXISTS journal_insert AFTER INSERT ON " + WaitingListEntry.TABLE_NAME
+                        + " BEGIN " + insertEventStatement("new", JournalEvent.TYPE_INSERT) + " END",
+                "CREATE TRIGGER IF NOT EXISTS journal_update AFTER UPDATE OF " + ATTRIBUTE_COLUMNS + " ON " + WaitingListEntry.TABLE_NAME
+                        + " WHEN " + isChanged
+                        + " BEGIN " + insertEventStatement("new", JournalEvent.TYPE_UPDATE) + " END",
+                "CREATE TRIGGER IF NOT EXISTS journal_delete AFTER DELETE ON " + WaitingListEntry.TABLE_NAME
+                        + " BEGIN " + insertEventStatement("old", JournalEvent.TYPE_DELETE) + " END"
+        };
+    }
+
+    /**
+     * Returns the trigger statement that appends an event of the specified type holding the
+     * specified row, which is either new or old.
+     */
+    private static String insertEventStatement(String row, int type) {
+        StringBuilder values = new StringBuilder(row).append(".").append(WaitingListEntry.COLUMN_ID)
+                .append(",").append(type)
+                .append(",").append(SyncSchema.NOW_MILLIS);
+        for (String column : ATTRIBUTE_COLUMNS.split(","))
+            values.append(",").append(row).append(".").append(column);
+        return "INSERT INTO " + JournalEvent.TABLE_NAME + "("
+                + JournalEvent.COLUMN_ENTRY_ID + ","
+                + JournalEvent.COLUMN_TYPE + ","
+                + JournalEvent.COLUMN_RECORDED_AT + ","
+                + ATTRIBUTE_COLUMNS
+                + ") VALUES (" + values + ");";
+    }
+}
@@ -0,0 +1,59 @@
+package com.davidread.courseregistrationwaitinglist.Journal;
+
+import com.davidread.courseregistrationwaitinglist.Models.JournalEvent;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.util.List;
+
+/**
+ * This interface provides the change journal kept with the waiting list: the events recorded for
+ * every change, the snapshots the state is rebuilt from, and the means to take a snapshot and to
+ * compact what is no longer needed. Events are recorded by the store itself as the list changes,
+ * so there is no method to append one.
+ */
+public interface JournalStore {
+
+    /**
+     * Returns the number of the last snapshot taken at or before the specified time in
+     * milliseconds since the epoch, or -1 if there is none left.
+     */
+    long getSnapshotSeqAt(long time);
+
+    /**
+     * Returns every waiting list entry object held by the snapshot with the specified number,
+     * ordered by id.
+     */
+    List<WaitingListEntry> getSnapshotEntries(long snapshotSeq);
+
+    /**
+     * Returns at most the specified number of events recorded after the event with the specified
+     * number, in the order they were recorded.
+     */
+    List<JournalEvent> getJournalEventsAfter(long afterSeq, int limit);
+
+    /**
+     * Returns every event left in the journal for the waiting list entry object with the
+     * specified id, in the order they were recorded.
+     */
+    List<JournalEvent> getJournalEventsForEntry(long entryId);
+
+    /**
+     * Returns the number of events recorded since the last snapshot.
+     */
+    int countJournalEventsSinceSnapshot();
+
+    /**
+     * Takes a snapshot of every waiting list entry object in a single transaction and returns its
+     * number, or -1 if no event has been recorded since the last snapshot, in which case none is
+     * taken.
+     */
+    long takeJournalSnapshot();
+
+    /**
+     * Removes every snapshot but the specified number of latest ones, then permanently removes at
+     * most the specified number of rows they leave behind, snapshot rows first and then every
+     * event up to the oldest snapshot kept. It returns the number of rows removed, so callers can
+     * compact in small chunks until it returns less than the limit.
+     */
+    int compactJournal(int keptSnapshotCount, int limit);
+}
@@ -0,0 +1,132 @@
+package com.davidread.courseregistrationwaitinglist.Journal;
+
+import com.davidread.courseregistrationwaitinglist.Models.JournalEvent;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+import com.davidread.courseregistrationwaitinglist.Utilities.WaitingListQueueIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class reads the waiting list as it was at any time from the change journal of a journal
+ * store, and keeps the journal from growing without bound.
+ *
+ * <p>The state at a time is rebuilt from the last snapshot taken at or before it, replaying the
+ * events recorded after the snapshot page by page until one recorded after the time is reached.
+ * A snapshot is taken once the events since the last one reach the snapshot interval, so a rebuild
+ * never replays many more events than that. Compaction keeps the latest snapshots, so the journal
+ * holds about the number of kept snapshots times the snapshot interval events, and the list can
+ * be rebuilt as far back as the oldest snapshot kept. Compaction running meanwhile can remove the
+ * snapshot a rebuild reads, so callers run the two one after the other, as the app does by running
+ * both on its writer thread.
+ */
+public class WaitingListJournal {
+
+    // Default policy constants.
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 10000;
+    public static final int DEFAULT_KEPT_SNAPSHOT_COUNT = 4;
+    public static final int DEFAULT_COMPACT_CHUNK_SIZE = 1000;
+
+    // Events read per page while replaying.
+    private static final int REPLAY_PAGE_SIZE = 1000;
+
+    // Class objects.
+    private final JournalStore store;
+
+    // Policy variables.
+    private final int snapshotInterval;
+    private final int keptSnapshotCount;
+    private final int compactChunkSize;
+
+    /**
+     * Constructs the journal of the specified store with the default policy.
+     */
+    public WaitingListJournal(JournalStore store) {
+        this(store, DEFAULT_SNAPSHOT_INTERVAL, DEFAULT_KEPT_SNAPSHOT_COUNT, DEFAULT_COMPACT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs the journal of the specified store, taking a snapshot every specified number of
+     * events, keeping the specified number of latest snapshots, which must be at least one, and
+     * compacting the specified number of rows per step.
+     */
+    public WaitingListJournal(JournalStore store, int snapshotInterval, int keptSnapshotCount, int compactChunkSize) {
+        if (keptSnapshotCount < 1)
+            throw new IllegalArgumentException("At least one snapshot must be kept");
+        this.store = store;
+        this.snapshotInterval = snapshotInterval;
+        this.keptSnapshotCount = keptSnapshotCount;
+        this.compactChunkSize = compactChunkSize;
+    }
+
+    /**
+     * Returns every waiting list entry object as it was at the specified time in milliseconds since
+     * the epoch, ordered by id, or null if the journal no longer reaches back that far.
+     */
+    public List<WaitingListEntry> getWaitingListEntriesAt(long time) {
+
+        long snapshotSeq = store.getSnapshotSeqAt(time);
+        if (snapshotSeq < 0)
+            return null;
+
+        Map<Long, WaitingListEntry> entriesById = new TreeMap<>();
+        for (WaitingListEntry entry : store.getSnapshotEntries(snapshotSeq))
+            entriesById.put(entry.getId(), entry);
+
+        long afterSeq = snapshotSeq;
+        List<JournalEvent> events;
+        do {
+            events = store.getJournalEventsAfter(afterSeq, REPLAY_PAGE_SIZE);
+            for (JournalEvent event : events) {
+                if (event.getRecordedAt() > time)
+                    return new ArrayList<>(entriesById.values());
+                if (event.getType() == JournalEvent.TYPE_DELETE)
+                    entriesById.remove(event.getEntryId());
+                else
+                    entriesById.put(event.getEntryId(), event.toWaitingListEntry());
+                afterSeq = event.getSeq();
+            }
+        } while (events.size() == REPLAY_PAGE_SIZE);
+
+        return new ArrayList<>(entriesById.values());
+    }
+
+    /**
+     * Returns the position the waiting list entry object with the specified id had in the queue
+     * for its course at the specified time, where 1 was next in line, or -1 if it was not waiting
+     * then or the journal no longer reaches back that far.
+     */
+    public int getQueuePositionAt(long id, long time) {
+        List<WaitingListEntry> entries = getWaitingListEntriesAt(time);
+        if (entries == null)
+            return -1;
+        WaitingListQueueIndex queueIndex = new WaitingListQueueIndex();
+        for (WaitingListEntry entry : entries)
+            queueIndex.add(entry.getId(), WaitingListEntry.getCourseKey(entry.getCourse()), WaitingListEntry.getPriorityRank(entry.getPriority()));
+        return queueIndex.positionOf(id);
+    }
+
+    /**
+     * Returns every event left in the journal for the waiting list entry object with the specified
+     * id, oldest first.
+     */
+    public List<JournalEvent> getHistory(long entryId) {
+        return store.getJournalEventsForEntry(entryId);
+    }
+
+    /**
+     * Runs one step of journal maintenance: it takes a snapshot if the events since the last one
+     * have reached the snapshot interval, and otherwise compacts one chunk. It returns true if
+     * there is more to do, so callers can run steps in separate transactions until it returns
+     * false.
+     */
+    public boolean maintain() {
+        if (store.countJournalEventsSinceSnapshot() >= snapshotInterval) {
+            store.takeJournalSnapshot();
+            return true;
+        }
+        return store.compactJournal(keptSnapshotCount, compactChunkSize) == compactChunkSize;
+    }
+}
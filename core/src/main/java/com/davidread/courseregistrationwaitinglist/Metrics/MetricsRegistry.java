@@ -0,0 +1,127 @@
+package com.davidread.courseregistrationwaitinglist.Metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class keeps the metrics of every operation by name, creating them on first use. Callers
+ * check isEnabled() before timing anything, so a disabled registry costs one volatile read per
+ * operation. A call that takes at least the slow threshold is counted as slow, and record() says
+ * so, so the caller can log it along with whatever describes the call.
+ *
+ * <p>The metrics are dumped as a plain text table with one row per operation, giving the number
+ * of calls, latency percentiles and maximum in microseconds, total time in milliseconds, rows
+ * read and written, and slow calls.
+ */
+public class MetricsRegistry {
+
+    // Dump format.
+    private static final String HEADER_FORMAT = "%-28s %8s %10s %10s %10s %10s %10s %12s %12s %6s%n";
+    private static final String ROW_FORMAT = "%-28s %8d %10.1f %10.1f %10.1f %10.1f %10.1f %12d %12d %6d%n";
+
+    // Class objects.
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private volatile boolean isEnabled;
+    private volatile long slowThresholdNanos;
+
+    /**
+     * Constructs an empty registry.
+     */
+    public MetricsRegistry(boolean isEnabled, long slowThresholdNanos) {
+        this.isEnabled = isEnabled;
+        this.slowThresholdNanos = slowThresholdNanos;
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    public void setEnabled(boolean isEnabled) {
+        this.isEnabled = isEnabled;
+    }
+
+    public long getSlowThresholdNanos() {
+        return slowThresholdNanos;
+    }
+
+    public void setSlowThresholdNanos(long slowThresholdNanos) {
+        this.slowThresholdNanos = slowThresholdNanos;
+    }
+
+    /**
+     * Returns the metrics of the operation with the specified name, creating them if this is the
+     * first call for it.
+     */
+    public OperationMetrics getOperation(String name) {
+        OperationMetrics operation = operations.get(name);
+        if (operation == null) {
+            OperationMetrics newOperation = new OperationMetrics(name);
+            operation = operations.putIfAbsent(name, newOperation);
+            if (operation == null)
+                operation = newOperation;
+        }
+        return operation;
+    }
+
+    /**
+     * Records one call of the operation with the specified name. It returns true if the call was
+     * slow.
+     */
+    public boolean record(String name, long elapsedNanos, long rowsRead, long rowsWritten) {
+        boolean isSlow = elapsedNanos >= slowThresholdNanos;
+        getOperation(name).record(elapsedNanos, rowsRead, rowsWritten, isSlow);
+        return isSlow;
+    }
+
+    /**
+     * Returns the metrics of every operation called so far, ordered by name.
+     */
+    public List<OperationMetrics> getOperations() {
+        List<OperationMetrics> sortedOperations = new ArrayList<>(operations.values());
+        Collections.sort(sortedOperations, new Comparator<OperationMetrics>() {
+            @Override
+            public int compare(OperationMetrics first, OperationMetrics second) {
+                return first.getName().compareTo(second.getName());
+            }
+        });
+        return sortedOperations;
+    }
+
+    /**
+     * Clears the metrics of every operation.
+     */
+    public void reset() {
+        for (OperationMetrics operation : operations.values())
+            operation.reset();
+    }
+
+    /**
+     * Appends the metrics of every operation to the specified output as a text table.
+     */
+    public void dump(Appendable out) throws IOException {
+        out.append(String.format(Locale.ROOT, HEADER_FORMAT,
+                "operation", "calls", "p50 (us)", "p90 (us)", "p99 (us)", "max (us)", "total (ms)", "rows read", "rows written", "slow"));
+        for (OperationMetrics operation : getOperations()) {
+            LatencyHistogram latencies = operation.getLatencies();
+            if (latencies.getCount() == 0)
+                continue;
+            out.append(String.format(Locale.ROOT, ROW_FORMAT,
+                    operation.getName(),
+                    latencies.getCount(),
+                    latencies.getPercentileNanos(50) / 1e3,
+                    latencies.getPercentileNanos(90) / 1e3,
+                    latencies.getPercentileNanos(99) / 1e3,
+                    latencies.getMaxNanos() / 1e3,
+                    latencies.getTotalNanos() / 1e6,
+                    operation.getRowsRead(),
+                    operation.getRowsWritten(),
+                    operation.getSlowCount()));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.davidread.courseregistrationwaitinglist.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class holds the metrics of one named operation: a histogram of its latencies, the number of
+ * rows it read and wrote, and the number of calls slower than the slow threshold of its registry.
+ * Every counter may be updated from any thread.
+ */
+public class OperationMetrics {
+
+    // Class objects.
+    private final String name;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong slowCount = new AtomicLong();
+
+    /**
+     * Constructs empty metrics for the operation with the specified name.
+     */
+    public OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records one call of the operation.
+     */
+    public void record(long elapsedNanos, long rowsRead, long rowsWritten, boolean isSlow) {
+        latencies.record(elapsedNanos);
+        if (rowsRead != 0)
+            this.rowsRead.addAndGet(rowsRead);
+        if (rowsWritten != 0)
+            this.rowsWritten.addAndGet(rowsWritten);
+        if (isSlow)
+            slowCount.incrementAndGet();
+    }
+
+    /**
+     * Clears every counter.
+     */
+    public void reset() {
+        latencies.reset();
+        rowsRead.set(0);
+        rowsWritten.set(0);
+        slowCount.set(0);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    public long getSlowCount() {
+        return slowCount.get();
+    }
+}
@@ -1,18 +1,21 @@
 package com.davidread.courseregistrationwaitinglist.Models;
 
 /**
- * This model class represents a single entry in the course registration waiting list. It has
- * attributes for a unique identifier, first name, last name, course, and priority.
+ * This model class represents a student admitted to a course from the waiting list. It keeps the
+ * id and attributes the waiting list entry had when it was admitted, along with the time it was
+ * admitted in milliseconds since the epoch.
  */
-public class WaitingListEntry {
+public class Admission {
 
     // SQLite constants.
-    public static final String TABLE_NAME = "waiting_list_entries";
+    public static final String TABLE_NAME = "admissions";
     public static final String COLUMN_ID = "id";
     public static final String COLUMN_FIRST_NAME = "first_name";
     public static final String COLUMN_LAST_NAME = "last_name";
     public static final String COLUMN_COURSE = "course";
     public static final String COLUMN_PRIORITY = "priority";
+    public static final String COLUMN_ADMITTED_AT = "admitted_at";
+    public static final String INDEX_COURSE = "index_admissions_course";
 
     // Model variables.
     private long id;
@@ -20,22 +23,24 @@ public class WaitingListEntry {
     private String lastName;
     private String course;
     private String priority;
+    private long admittedAt;
 
     /**
-     * Constructs a waiting list entry with null attributes.
+     * Constructs an admission with null attributes.
      */
-    public WaitingListEntry() {
+    public Admission() {
     }
 
     /**
-     * Constructs a waiting list entry with the specified attributes.
+     * Constructs an admission of the specified waiting list entry at the specified time.
      */
-    public WaitingListEntry(long id, String firstName, String lastName, String course, String priority) {
-        this.id = id;
-        this.firstName = firstName;
-        this.lastName = lastName;
-        this.course = course;
-        this.priority = priority;
+    public Admission(WaitingListEntry waitingListEntry, long admittedAt) {
+        this.id = waitingListEntry.getId();
+        this.firstName = waitingListEntry.getFirstName();
+        this.lastName = waitingListEntry.getLastName();
+        this.course = waitingListEntry.getCourse();
+        this.priority = waitingListEntry.getPriority();
+        this.admittedAt = admittedAt;
     }
 
     public long getId() {
@@ -77,4 +82,12 @@ public class WaitingListEntry {
     public void setPriority(String priority) {
         this.priority = priority;
     }
+
+    public long getAdmittedAt() {
+        return admittedAt;
+    }
+
+    public void setAdmittedAt(long admittedAt) {
+        this.admittedAt = admittedAt;
+    }
 }
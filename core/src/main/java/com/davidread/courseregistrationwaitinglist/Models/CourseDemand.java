@@ -0,0 +1,73 @@
+package com.davidread.courseregistrationwaitinglist.Models;
+
+/**
+ * This model class represents the number of waiting list entries for one course and priority. The
+ * counts are kept current as entries are written, so reading them does not depend on the size of
+ * the waiting list. Entries are counted by course key, so spellings of a course that differ only
+ * in case or whitespace share one count, shown under the spelling last counted into it. A null
+ * course or priority is counted under the empty string. Objects are ordered by course, then by
+ * priority from highest to lowest.
+ */
+public class CourseDemand implements Comparable<CourseDemand> {
+
+    // SQLite constants.
+    public static final String TABLE_NAME = "course_demand";
+    public static final String COLUMN_COURSE_KEY = "course_key";
+    public static final String COLUMN_COURSE = "course";
+    public static final String COLUMN_PRIORITY = "priority";
+    public static final String COLUMN_ENTRY_COUNT = "entry_count";
+
+    // Model variables.
+    private String course;
+    private String priority;
+    private int entryCount;
+
+    /**
+     * Constructs a course demand with null attributes.
+     */
+    public CourseDemand() {
+    }
+
+    /**
+     * Constructs a course demand with the specified attributes.
+     */
+    public CourseDemand(String course, String priority, int entryCount) {
+        this.course = course;
+        this.priority = priority;
+        this.entryCount = entryCount;
+    }
+
+    @Override
+    public int compareTo(CourseDemand other) {
+        int comparison = course.compareTo(other.course);
+        if (comparison == 0)
+            comparison = Integer.compare(WaitingListEntry.getPriorityRank(priority), WaitingListEntry.getPriorityRank(other.priority));
+        if (comparison == 0)
+            comparison = priority.compareTo(other.priority);
+        return comparison;
+    }
+
+    public String getCourse() {
+        return course;
+    }
+
+    public void setCourse(String course) {
+        this.course = course;
+    }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public void setEntryCount(int entryCount) {
+        this.entryCount = entryCount;
+    }
+}
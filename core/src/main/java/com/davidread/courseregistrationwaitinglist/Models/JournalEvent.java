@@ -0,0 +1,128 @@
+package com.davidread.courseregistrationwaitinglist.Models;
+
+/**
+ * This model class represents one event of the change journal, which records every insert,
+ * update, and delete of a waiting list entry object in the order they were made. An insert or
+ * update event holds the attributes the object had after the change, and a delete event holds
+ * those it had before it. Events are never changed once recorded, so the journal shows how an
+ * object came to be where it is, or why it is no longer there.
+ */
+public class JournalEvent {
+
+    // SQLite constants of the journal event table. Its attribute columns share the names of the
+    // waiting list entry columns they are copied from.
+    public static final String TABLE_NAME = "journal_events";
+    public static final String COLUMN_SEQ = "seq";
+    public static final String COLUMN_ENTRY_ID = "entry_id";
+    public static final String COLUMN_TYPE = "type";
+    public static final String COLUMN_RECORDED_AT = "recorded_at";
+    public static final String INDEX_ENTRY_ID = "index_journal_events_entry_id";
+
+    // Event types.
+    public static final int TYPE_INSERT = 0;
+    public static final int TYPE_UPDATE = 1;
+    public static final int TYPE_DELETE = 2;
+
+    // Model variables.
+    private long seq;
+    private long entryId;
+    private int type;
+    private long recordedAt;
+    private String firstName;
+    private String lastName;
+    private String course;
+    private String priority;
+
+    /**
+     * Constructs an event with null attributes.
+     */
+    public JournalEvent() {
+    }
+
+    /**
+     * Constructs an event with the specified attributes.
+     */
+    public JournalEvent(long seq, long entryId, int type, long recordedAt, String firstName, String lastName, String course, String priority) {
+        this.seq = seq;
+        this.entryId = entryId;
+        this.type = type;
+        this.recordedAt = recordedAt;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.course = course;
+        this.priority = priority;
+    }
+
+    /**
+     * Returns the waiting list entry object this event leaves behind, or null for a delete event.
+     */
+    public WaitingListEntry toWaitingListEntry() {
+        if (type == TYPE_DELETE)
+            return null;
+        return new WaitingListEntry(entryId, firstName, lastName, course, priority);
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public void setEntryId(long entryId) {
+        this.entryId = entryId;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public void setType(int type) {
+        this.type = type;
+    }
+
+    public long getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(long recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getCourse() {
+        return course;
+    }
+
+    public void setCourse(String course) {
+        this.course = course;
+    }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+}
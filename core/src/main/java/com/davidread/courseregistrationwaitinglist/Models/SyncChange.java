@@ -0,0 +1,142 @@
+package com.davidread.courseregistrationwaitinglist.Models;
+
+/**
+ * This model class represents one change to the waiting list exchanged with the registrar
+ * backend. A change either sets the attributes of a student waiting for a course or deletes them.
+ * Devices number their rows independently, so a change identifies its row by the normalized name
+ * and course keys rather than by id. Each change carries the time it was made and the device it
+ * was made on, which together decide which of two conflicting changes wins.
+ */
+public class SyncChange {
+
+    // SQLite constants of the tombstone table, which remembers deleted rows until they are pushed.
+    // Its columns share the names of the waiting list entry columns they are copied from.
+    public static final String TOMBSTONE_TABLE_NAME = "sync_tombstones";
+    public static final String INDEX_TOMBSTONE_CHANGE_SEQ = "index_sync_tombstones_change_seq";
+
+    // Model variables.
+    private String firstName;
+    private String lastName;
+    private String course;
+    private String priority;
+    private long updatedAt;
+    private String origin;
+    private boolean isDeleted;
+
+    // Local variables. The change sequence number orders the changes of this device and is not sent.
+    private long changeSeq;
+
+    /**
+     * Constructs a change with null attributes.
+     */
+    public SyncChange() {
+    }
+
+    /**
+     * Constructs a change with the specified attributes. The priority of a delete is ignored.
+     */
+    public SyncChange(String firstName, String lastName, String course, String priority, long updatedAt, String origin, boolean isDeleted) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.course = course;
+        this.priority = priority;
+        this.updatedAt = updatedAt;
+        this.origin = origin;
+        this.isDeleted = isDeleted;
+    }
+
+    /**
+     * Returns a negative number, zero, or a positive number as the first change is older than,
+     * the same version as, or newer than the second. The later update time wins. Ties are broken
+     * by origin and then in favor of deletes, so every device and the backend pick the same
+     * winner whatever order the changes arrive in.
+     */
+    public static int compareVersions(SyncChange first, SyncChange second) {
+        if (first.updatedAt != second.updatedAt)
+            return first.updatedAt < second.updatedAt ? -1 : 1;
+        String firstOrigin = first.origin == null ? "" : first.origin;
+        String secondOrigin = second.origin == null ? "" : second.origin;
+        int originComparison = firstOrigin.compareTo(secondOrigin);
+        if (originComparison != 0)
+            return originComparison;
+        return Boolean.compare(first.isDeleted, second.isDeleted);
+    }
+
+    /**
+     * Returns the key of the student this change is for.
+     */
+    public String getNameKey() {
+        return WaitingListEntry.getNameKey(firstName, lastName);
+    }
+
+    /**
+     * Returns the key of the course this change is for.
+     */
+    public String getCourseKey() {
+        return WaitingListEntry.getCourseKey(course);
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getCourse() {
+        return course;
+    }
+
+    public void setCourse(String course) {
+        this.course = course;
+    }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public boolean isDeleted() {
+        return isDeleted;
+    }
+
+    public void setDeleted(boolean isDeleted) {
+        this.isDeleted = isDeleted;
+    }
+
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+}
@@ -0,0 +1,165 @@
+package com.davidread.courseregistrationwaitinglist.Models;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * This model class represents a single entry in the course registration waiting list. It has
+ * attributes for a unique identifier, first name, last name, course, and priority.
+ */
+public class WaitingListEntry {
+
+    // SQLite constants.
+    public static final String TABLE_NAME = "waiting_list_entries";
+    public static final String COLUMN_ID = "id";
+    public static final String COLUMN_FIRST_NAME = "first_name";
+    public static final String COLUMN_LAST_NAME = "last_name";
+    public static final String COLUMN_COURSE = "course";
+    public static final String COLUMN_PRIORITY = "priority";
+    public static final String COLUMN_PRIORITY_RANK = "priority_rank";
+    public static final String COLUMN_NAME_KEY = "name_key";
+    public static final String COLUMN_COURSE_KEY = "course_key";
+    public static final String COLUMN_CHANGE_SEQ = "change_seq";
+    public static final String COLUMN_UPDATED_AT = "updated_at";
+    public static final String COLUMN_ORIGIN = "origin";
+    public static final String INDEX_COURSE_KEY_PRIORITY_RANK = "index_waiting_list_entries_course_key_priority_rank";
+    public static final String INDEX_NAME_KEY_COURSE_KEY = "index_waiting_list_entries_name_key_course_key";
+    public static final String INDEX_CHANGE_SEQ = "index_waiting_list_entries_change_seq";
+    public static final String SEARCH_TABLE_NAME = "waiting_list_entries_fts";
+    public static final String SEARCH_COLUMN_DOCID = "docid";
+
+    // Priorities from highest to lowest. These mirror the priority selections in the string resources.
+    public static final String[] PRIORITIES = {"Graduate", "4th Year", "3rd Year", "2nd Year", "1st Year"};
+
+    // Model variables.
+    private long id;
+    private String firstName;
+    private String lastName;
+    private String course;
+    private String priority;
+
+    // Display variables. The full name is formatted when the object is read from the database.
+    private String fullName;
+
+    /**
+     * Constructs a waiting list entry with null attributes.
+     */
+    public WaitingListEntry() {
+    }
+
+    /**
+     * Constructs a waiting list entry with the specified attributes.
+     */
+    public WaitingListEntry(long id, String firstName, String lastName, String course, String priority) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.course = course;
+        this.priority = priority;
+    }
+
+    /**
+     * Returns the rank of the specified priority, where 0 is the highest priority. Priorities that
+     * are not recognized rank below every known priority.
+     */
+    public static int getPriorityRank(String priority) {
+        for (int i = 0; i < PRIORITIES.length; i++)
+            if (PRIORITIES[i].equals(priority))
+                return i;
+        return PRIORITIES.length;
+    }
+
+    /**
+     * Returns the key identifying the student with the specified names. Names that differ only in
+     * case, surrounding or repeated whitespace, or Unicode compatibility forms have the same key.
+     */
+    public static String getNameKey(String firstName, String lastName) {
+        return normalizeKey(firstName) + '\u001F' + normalizeKey(lastName);
+    }
+
+    /**
+     * Returns the key identifying the specified course. Courses that differ only in case,
+     * surrounding or repeated whitespace, or Unicode compatibility forms have the same key.
+     */
+    public static String getCourseKey(String course) {
+        return normalizeKey(course);
+    }
+
+    /**
+     * Returns the text in compatibility composed form and lower case, with whitespace trimmed and
+     * each run of inner whitespace replaced by a single space. Null is treated as empty.
+     */
+    private static String normalizeKey(String text) {
+        if (text == null)
+            return "";
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder key = new StringBuilder(normalized.length());
+        boolean isSpacePending = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                isSpacePending = key.length() > 0;
+                continue;
+            }
+            if (isSpacePending)
+                key.append(' ');
+            isSpacePending = false;
+            key.append(c);
+        }
+        return key.toString();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+        this.fullName = null;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+        this.fullName = null;
+    }
+
+    public String getCourse() {
+        return course;
+    }
+
+    public void setCourse(String course) {
+        this.course = course;
+    }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Returns the formatted full name, or null if it has not been formatted since the name was
+     * last set.
+     */
+    public String getFullName() {
+        return fullName;
+    }
+
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.davidread.courseregistrationwaitinglist.Repositories;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+/**
+ * This class holds the SQL that keeps deleted waiting list entry objects restorable. The app and
+ * the JDBC repository both delete, restore, and purge through it, so the two cannot drift apart.
+ *
+ * <p>A deleted row is copied into the deleted entry table with the time it was deleted, then
+ * deleted from the waiting list entry table in the same transaction. Every query, index, and
+ * trigger of the waiting list entry table sees only live rows, so none of them has to know about
+ * deleted ones, and the triggers keeping search, course demand, and sync current treat a delete
+ * and a restore as the delete and insert they are. A restored row is copied back with its id, so
+ * it returns to its place in every sort. Deleted rows are purged in small chunks once they are
+ * older than the caller keeps them for.
+ */
+public final class DeletedEntrySchema {
+
+    // SQLite constants of the deleted entry table.
+    public static final String TABLE_NAME = "deleted_waiting_list_entries";
+    public static final String COLUMN_DELETED_AT = "deleted_at";
+    public static final String INDEX_DELETED_AT = "index_deleted_waiting_list_entries_deleted_at";
+
+    // The columns copied between the two tables. The sync columns are not copied, since the sync
+    // triggers stamp a restored row as a new local change.
+    private static final String COPIED_COLUMNS = WaitingListEntry.COLUMN_ID + ","
+            + WaitingListEntry.COLUMN_FIRST_NAME + ","
+            + WaitingListEntry.COLUMN_LAST_NAME + ","
+            + WaitingListEntry.COLUMN_COURSE + ","
+            + WaitingListEntry.COLUMN_PRIORITY + ","
+            + WaitingListEntry.COLUMN_PRIORITY_RANK + ","
+            + WaitingListEntry.COLUMN_NAME_KEY + ","
+            + WaitingListEntry.COLUMN_COURSE_KEY;
+
+    // SQL string prefixes completed with one placeholder per id of a batch and a closing
+    // parenthesis. The copy statement takes the deleted time before the ids. A row is restorable
+    // unless its id is taken or its student waits for the course again, and only the ids the
+    // restorable query returns are restored and removed, so a row that is not restored stays
+    // deleted until it is purged.
+    public static final String COPY_TO_DELETED_STATEMENT_PREFIX = "INSERT OR REPLACE INTO " + TABLE_NAME + "("
+            + COPIED_COLUMNS + "," + COLUMN_DELETED_AT
+            + ") SELECT " + COPIED_COLUMNS + ", ? FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (";
+    public static final String SELECT_RESTORABLE_IDS_QUERY_PREFIX = "SELECT " + WaitingListEntry.COLUMN_ID + " FROM " + TABLE_NAME + " d"
+            + " WHERE NOT EXISTS (SELECT 1 FROM " + WaitingListEntry.TABLE_NAME + " w"
+            + " WHERE w." + WaitingListEntry.COLUMN_ID + " = d." + WaitingListEntry.COLUMN_ID + ")"
+            + " AND NOT EXISTS (SELECT 1 FROM " + WaitingListEntry.TABLE_NAME + " w"
+            + " WHERE w." + WaitingListEntry.COLUMN_NAME_KEY + " = d." + WaitingListEntry.COLUMN_NAME_KEY
+            + " AND w." + WaitingListEntry.COLUMN_COURSE_KEY + " = d." + WaitingListEntry.COLUMN_COURSE_KEY + ")"
+            + " AND " + WaitingListEntry.COLUMN_ID + " IN (";
+    public static final String RESTORE_STATEMENT_PREFIX = "INSERT INTO " + WaitingListEntry.TABLE_NAME + "("
+            + COPIED_COLUMNS
+            + ") SELECT " + COPIED_COLUMNS + " FROM " + TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (";
+    public static final String DELETE_DELETED_STATEMENT_PREFIX = "DELETE FROM " + TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (";
+
+    // Purges at most a limit of rows deleted before a time, oldest first, reading them through the
+    // deleted time index. DELETE with LIMIT is not compiled into SQLite on Android.
+    public static final String PURGE_STATEMENT = "DELETE FROM " + TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (SELECT " + WaitingListEntry.COLUMN_ID + " FROM " + TABLE_NAME
+            + " WHERE " + COLUMN_DELETED_AT + " < ?"
+            + " ORDER BY " + COLUMN_DELETED_AT + " LIMIT ?)";
+
+    private DeletedEntrySchema() {
+    }
+
+    /**
+     * Returns the statements that create the deleted entry table and its deleted time index unless
+     * they exist.
+     */
+    public static String[] createStatements() {
+        return new String[]{
+                "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + "("
+                        + WaitingListEntry.COLUMN_ID + " INTEGER PRIMARY KEY,"
+                        + WaitingListEntry.COLUMN_FIRST_NAME + " TEXT,"
+                        + WaitingListEntry.COLUMN_LAST_NAME + " TEXT,"
+                        + WaitingListEntry.COLUMN_COURSE + " TEXT,"
+                        + WaitingListEntry.COLUMN_PRIORITY + " TEXT,"
+                        + WaitingListEntry.COLUMN_PRIORITY_RANK + " INTEGER NOT NULL,"
+                        + WaitingListEntry.COLUMN_NAME_KEY + " TEXT,"
+                        + WaitingListEntry.COLUMN_COURSE_KEY + " TEXT,"
+                        + COLUMN_DELETED_AT + " INTEGER NOT NULL"
+                        + ")",
+                "CREATE INDEX IF NOT EXISTS " + INDEX_DELETED_AT + " ON " + TABLE_NAME + "(" + COLUMN_DELETED_AT + ")"
+        };
+    }
+}
@@ -0,0 +1,363 @@
+package com.davidread.courseregistrationwaitinglist.Repositories;
+
+import com.davidread.courseregistrationwaitinglist.Models.Admission;
+import com.davidread.courseregistrationwaitinglist.Models.CourseDemand;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+import com.davidread.courseregistrationwaitinglist.Utilities.WaitingListQueueIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class stores waiting list entry objects in memory. Entries are kept in id order and queue
+ * positions are answered by a queue index, so it behaves like the SQLite repository without any
+ * storage. Deleted objects are kept aside with their deleted time until they are restored or
+ * purged. Objects are copied on the way in and out so callers cannot change stored state. Every
+ * method is synchronized.
+ */
+public class InMemoryWaitingListRepository implements WaitingListRepository {
+
+    // Class objects.
+    private final TreeMap<Long, WaitingListEntry> waitingListEntriesById = new TreeMap<>();
+    private final WaitingListQueueIndex queueIndex = new WaitingListQueueIndex();
+    private final TreeMap<Long, Admission> admissionsById = new TreeMap<>();
+    private final HashMap<String, TreeMap<String, CourseDemand>> courseDemandByCourseKey = new HashMap<>();
+    private final HashMap<String, Long> idsByKey = new HashMap<>();
+    private final TreeMap<Long, WaitingListEntry> deletedWaitingListEntriesById = new TreeMap<>();
+    private final HashMap<Long, Long> deletedAtById = new HashMap<>();
+    private long lastId;
+
+    @Override
+    public synchronized long insertWaitingListEntry(String firstName, String lastName, String course, String priority) {
+        if (idsByKey.containsKey(keyOf(firstName, lastName, course)))
+            throw new RepositoryException(firstName + " " + lastName + " already waits for " + course, null);
+        long id = ++lastId;
+        putWaitingListEntry(new WaitingListEntry(id, firstName, lastName, course, priority));
+        return id;
+    }
+
+    @Override
+    public synchronized long upsertWaitingListEntry(String firstName, String lastName, String course, String priority) {
+        Long id = idsByKey.get(keyOf(firstName, lastName, course));
+        if (id == null)
+            return insertWaitingListEntry(firstName, lastName, course, priority);
+        WaitingListEntry waitingListEntry = waitingListEntriesById.get(id);
+        putWaitingListEntry(new WaitingListEntry(id, waitingListEntry.getFirstName(), waitingListEntry.getLastName(), waitingListEntry.getCourse(), priority));
+        return id;
+    }
+
+    @Override
+    public synchronized WaitingListEntry getWaitingListEntry(long id) {
+        return copyOf(waitingListEntriesById.get(id));
+    }
+
+    @Override
+    public synchronized List<WaitingListEntry> getWaitingListEntriesFollowing(WaitingListQuery query, WaitingListEntry anchor, int limit) {
+        List<WaitingListEntry> waitingListEntries = new ArrayList<>();
+        for (WaitingListEntry waitingListEntry : sortedMatches(query))
+            if (anchor == null || query.compare(waitingListEntry, anchor) > 0)
+                waitingListEntries.add(waitingListEntry);
+        return copyOf(waitingListEntries.subList(0, Math.min(limit, waitingListEntries.size())));
+    }
+
+    @Override
+    public synchronized List<WaitingListEntry> getWaitingListEntriesPreceding(WaitingListQuery query, WaitingListEntry anchor, int limit) {
+        List<WaitingListEntry> waitingListEntries = new ArrayList<>();
+        for (WaitingListEntry waitingListEntry : sortedMatches(query))
+            if (query.compare(waitingListEntry, anchor) < 0)
+                waitingListEntries.add(waitingListEntry);
+        return copyOf(waitingListEntries.subList(Math.max(0, waitingListEntries.size() - limit), waitingListEntries.size()));
+    }
+
+    @Override
+    public synchronized List<WaitingListEntry> getNextInLine(String course, int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Negative number of entries: " + n);
+        List<WaitingListEntry> waitingListEntries = new ArrayList<>();
+        for (long id : queueIndex.peekNext(WaitingListEntry.getCourseKey(course), n))
+            waitingListEntries.add(copyOf(waitingListEntriesById.get(id)));
+        return waitingListEntries;
+    }
+
+    @Override
+    public synchronized int getQueuePosition(long id) {
+        return queueIndex.positionOf(id);
+    }
+
+    @Override
+    public synchronized void updateWaitingListEntry(long oldId, String newFirstName, String newLastName, String newCourse, String newPriority) {
+        if (!waitingListEntriesById.containsKey(oldId))
+            return;
+        Long otherId = idsByKey.get(keyOf(newFirstName, newLastName, newCourse));
+        if (otherId != null && otherId < oldId) {
+            removeWaitingListEntry(oldId);
+            WaitingListEntry other = waitingListEntriesById.get(otherId);
+            putWaitingListEntry(new WaitingListEntry(otherId, other.getFirstName(), other.getLastName(), other.getCourse(), newPriority));
+            return;
+        }
+        if (otherId != null && otherId != oldId)
+            removeWaitingListEntry(otherId);
+        putWaitingListEntry(new WaitingListEntry(oldId, newFirstName, newLastName, newCourse, newPriority));
+    }
+
+    @Override
+    public synchronized void deleteWaitingListEntry(long id) {
+        moveToDeleted(id, System.currentTimeMillis());
+    }
+
+    @Override
+    public synchronized int deleteWaitingListEntries(Collection<Long> ids) {
+        long deletedAt = System.currentTimeMillis();
+        int deletedCount = 0;
+        for (long id : new HashSet<>(ids))
+            if (moveToDeleted(id, deletedAt))
+                deletedCount++;
+        return deletedCount;
+    }
+
+    @Override
+    public synchronized int restoreWaitingListEntries(Collection<Long> ids) {
+        int restoredCount = 0;
+        for (long id : new HashSet<>(ids)) {
+            WaitingListEntry waitingListEntry = deletedWaitingListEntriesById.get(id);
+            if (waitingListEntry == null || waitingListEntriesById.containsKey(id)
+                    || idsByKey.containsKey(keyOf(waitingListEntry.getFirstName(), waitingListEntry.getLastName(), waitingListEntry.getCourse())))
+                continue;
+            deletedWaitingListEntriesById.remove(id);
+            deletedAtById.remove(id);
+            putWaitingListEntry(waitingListEntry);
+            restoredCount++;
+        }
+        return restoredCount;
+    }
+
+    @Override
+    public synchronized int purgeDeletedWaitingListEntries(long deletedBefore, int limit) {
+        List<Map.Entry<Long, Long>> purgeable = new ArrayList<>();
+        for (Map.Entry<Long, Long> deletedAt : deletedAtById.entrySet())
+            if (deletedAt.getValue() < deletedBefore)
+                purgeable.add(deletedAt);
+        Collections.sort(purgeable, (first, second) -> Long.compare(first.getValue(), second.getValue()));
+        int purgedCount = Math.min(limit, purgeable.size());
+        for (Map.Entry<Long, Long> deletedAt : new ArrayList<>(purgeable.subList(0, purgedCount))) {
+            deletedWaitingListEntriesById.remove(deletedAt.getKey());
+            deletedAtById.remove(deletedAt.getKey());
+        }
+        return purgedCount;
+    }
+
+    @Override
+    public synchronized int updateWaitingListEntryPriorities(Collection<Long> ids, String newPriority) {
+        int updatedCount = 0;
+        for (long id : new HashSet<>(ids)) {
+            WaitingListEntry waitingListEntry = waitingListEntriesById.get(id);
+            if (waitingListEntry == null)
+                continue;
+            updateWaitingListEntry(id, waitingListEntry.getFirstName(), waitingListEntry.getLastName(), waitingListEntry.getCourse(), newPriority);
+            updatedCount++;
+        }
+        return updatedCount;
+    }
+
+    @Override
+    public synchronized int updateWaitingListEntryCourses(Collection<Long> ids, String newCourse) {
+        int updatedCount = 0;
+        for (long id : new HashSet<>(ids)) {
+            WaitingListEntry waitingListEntry = waitingListEntriesById.get(id);
+            if (waitingListEntry == null)
+                continue;
+            Long otherId = idsByKey.get(keyOf(waitingListEntry.getFirstName(), waitingListEntry.getLastName(), newCourse));
+            if (otherId != null && otherId != id)
+                continue;
+            updateWaitingListEntry(id, waitingListEntry.getFirstName(), waitingListEntry.getLastName(), newCourse, waitingListEntry.getPriority());
+            updatedCount++;
+        }
+        return updatedCount;
+    }
+
+    @Override
+    public synchronized List<Admission> admitNextInLine(String course, int seatCount) {
+        return admitNextInLine(Collections.singletonMap(course, seatCount));
+    }
+
+    @Override
+    public synchronized List<Admission> admitNextInLine(Map<String, Integer> seatCounts) {
+        for (int seatCount : seatCounts.values())
+            if (seatCount < 0)
+                throw new IllegalArgumentException("Negative seat count: " + seatCount);
+        List<Admission> admissions = new ArrayList<>();
+        long admittedAt = System.currentTimeMillis();
+        for (Map.Entry<String, Integer> seatCount : seatCounts.entrySet()) {
+            for (int i = 0; i < seatCount.getValue(); i++) {
+                long id = queueIndex.peekNext(WaitingListEntry.getCourseKey(seatCount.getKey()));
+                if (id == -1)
+                    break;
+                Admission admission = new Admission(removeWaitingListEntry(id), admittedAt);
+                admissionsById.put(id, admission);
+                admissions.add(copyOf(admission));
+            }
+        }
+        return admissions;
+    }
+
+    @Override
+    public synchronized List<CourseDemand> getCourseDemand() {
+        List<CourseDemand> courseDemand = new ArrayList<>();
+        for (TreeMap<String, CourseDemand> courseDemandByPriority : courseDemandByCourseKey.values())
+            for (CourseDemand counted : courseDemandByPriority.values())
+                courseDemand.add(copyOf(counted));
+        Collections.sort(courseDemand);
+        return courseDemand;
+    }
+
+    @Override
+    public synchronized List<CourseDemand> getCourseDemand(String course) {
+        List<CourseDemand> courseDemand = new ArrayList<>();
+        TreeMap<String, CourseDemand> courseDemandByPriority = courseDemandByCourseKey.get(WaitingListEntry.getCourseKey(course));
+        if (courseDemandByPriority != null)
+            for (CourseDemand counted : courseDemandByPriority.values())
+                courseDemand.add(copyOf(counted));
+        Collections.sort(courseDemand);
+        return courseDemand;
+    }
+
+    /**
+     * Stores the waiting list entry object, replacing any with the same id, and updates the key
+     * map, the course demand counts, and the queue index.
+     */
+    private void putWaitingListEntry(WaitingListEntry waitingListEntry) {
+        WaitingListEntry previous = waitingListEntriesById.put(waitingListEntry.getId(), waitingListEntry);
+        if (previous != null) {
+            idsByKey.remove(keyOf(previous.getFirstName(), previous.getLastName(), previous.getCourse()));
+            countDemand(previous, -1);
+        }
+        idsByKey.put(keyOf(waitingListEntry.getFirstName(), waitingListEntry.getLastName(), waitingListEntry.getCourse()), waitingListEntry.getId());
+        countDemand(waitingListEntry, 1);
+        queueIndex.add(waitingListEntry.getId(), WaitingListEntry.getCourseKey(waitingListEntry.getCourse()),
+                WaitingListEntry.getPriorityRank(waitingListEntry.getPriority()));
+    }
+
+    /**
+     * Removes the waiting list entry object with the specified id along with its key, course
+     * demand count, and queue index entry. It returns the removed object, or null if there is none.
+     */
+    private WaitingListEntry removeWaitingListEntry(long id) {
+        WaitingListEntry waitingListEntry = waitingListEntriesById.remove(id);
+        if (waitingListEntry != null) {
+            idsByKey.remove(keyOf(waitingListEntry.getFirstName(), waitingListEntry.getLastName(), waitingListEntry.getCourse()));
+            countDemand(waitingListEntry, -1);
+        }
+        queueIndex.remove(id);
+        return waitingListEntry;
+    }
+
+    /**
+     * Removes the waiting list entry object with the specified id and keeps it with the specified
+     * deleted time until it is restored or purged. It returns true if the object existed.
+     */
+    private boolean moveToDeleted(long id, long deletedAt) {
+        WaitingListEntry waitingListEntry = removeWaitingListEntry(id);
+        if (waitingListEntry == null)
+            return false;
+        deletedWaitingListEntriesById.put(id, waitingListEntry);
+        deletedAtById.put(id, deletedAt);
+        return true;
+    }
+
+    /**
+     * Returns the key that is unique to a student waiting for a course.
+     */
+    private static String keyOf(String firstName, String lastName, String course) {
+        return WaitingListEntry.getNameKey(firstName, lastName) + '\u001E' + WaitingListEntry.getCourseKey(course);
+    }
+
+    /**
+     * Adds the delta to the count of the course key and priority of the waiting list entry object,
+     * removing counts that fall to zero. Counting an object in also makes its spelling of the
+     * course the one shown for the count, as the SQLite triggers do. Nothing happens if the object
+     * is null.
+     */
+    private void countDemand(WaitingListEntry waitingListEntry, int delta) {
+        if (waitingListEntry == null)
+            return;
+        String courseKey = WaitingListEntry.getCourseKey(waitingListEntry.getCourse());
+        String course = waitingListEntry.getCourse() == null ? "" : waitingListEntry.getCourse();
+        String priority = waitingListEntry.getPriority() == null ? "" : waitingListEntry.getPriority();
+        TreeMap<String, CourseDemand> courseDemandByPriority = courseDemandByCourseKey.get(courseKey);
+        if (courseDemandByPriority == null) {
+            courseDemandByPriority = new TreeMap<>();
+            courseDemandByCourseKey.put(courseKey, courseDemandByPriority);
+        }
+        CourseDemand courseDemand = courseDemandByPriority.get(priority);
+        if (courseDemand == null) {
+            courseDemand = new CourseDemand(course, priority, 0);
+            courseDemandByPriority.put(priority, courseDemand);
+        }
+        courseDemand.setEntryCount(courseDemand.getEntryCount() + delta);
+        if (delta > 0)
+            courseDemand.setCourse(course);
+        if (courseDemand.getEntryCount() <= 0)
+            courseDemandByPriority.remove(priority);
+        if (courseDemandByPriority.isEmpty())
+            courseDemandByCourseKey.remove(courseKey);
+    }
+
+    /**
+     * Returns every stored waiting list entry object shown by the query, in the order of the query.
+     */
+    private List<WaitingListEntry> sortedMatches(WaitingListQuery query) {
+        List<WaitingListEntry> waitingListEntries = new ArrayList<>();
+        for (WaitingListEntry waitingListEntry : waitingListEntriesById.values())
+            if (query.matches(waitingListEntry))
+                waitingListEntries.add(waitingListEntry);
+        Collections.sort(waitingListEntries, query);
+        return waitingListEntries;
+    }
+
+    /**
+     * Returns copies of the waiting list entry objects in the same order.
+     */
+    private static List<WaitingListEntry> copyOf(List<WaitingListEntry> waitingListEntries) {
+        List<WaitingListEntry> copies = new ArrayList<>(waitingListEntries.size());
+        for (WaitingListEntry waitingListEntry : waitingListEntries)
+            copies.add(copyOf(waitingListEntry));
+        return copies;
+    }
+
+    /**
+     * Returns a copy of the waiting list entry object, or null if it is null.
+     */
+    private static WaitingListEntry copyOf(WaitingListEntry waitingListEntry) {
+        if (waitingListEntry == null)
+            return null;
+        return new WaitingListEntry(waitingListEntry.getId(), waitingListEntry.getFirstName(), waitingListEntry.getLastName(),
+                waitingListEntry.getCourse(), waitingListEntry.getPriority());
+    }
+
+    /**
+     * Returns a copy of the course demand object.
+     */
+    private static CourseDemand copyOf(CourseDemand courseDemand) {
+        return new CourseDemand(courseDemand.getCourse(), courseDemand.getPriority(), courseDemand.getEntryCount());
+    }
+
+    /**
+     * Returns a copy of the admission object.
+     */
+    private static Admission copyOf(Admission admission) {
+        Admission copy = new Admission();
+        copy.setId(admission.getId());
+        copy.setFirstName(admission.getFirstName());
+        copy.setLastName(admission.getLastName());
+        copy.setCourse(admission.getCourse());
+        copy.setPriority(admission.getPriority());
+        copy.setAdmittedAt(admission.getAdmittedAt());
+        return copy;
+    }
+}
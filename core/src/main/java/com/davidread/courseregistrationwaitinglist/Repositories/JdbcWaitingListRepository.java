@@ -0,0 +1,1063 @@
+package com.davidread.courseregistrationwaitinglist.Repositories;
+
+import com.davidread.courseregistrationwaitinglist.Journal.JournalSchema;
+import com.davidread.courseregistrationwaitinglist.Journal.JournalStore;
+import com.davidread.courseregistrationwaitinglist.Models.Admission;
+import com.davidread.courseregistrationwaitinglist.Models.CourseDemand;
+import com.davidread.courseregistrationwaitinglist.Models.JournalEvent;
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+import com.davidread.courseregistrationwaitinglist.Sync.SyncSchema;
+import com.davidread.courseregistrationwaitinglist.Sync.SyncStore;
+import com.davidread.courseregistrationwaitinglist.Utilities.WaitingListQueueIndex;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class stores waiting list entry objects in an SQLite database reached through JDBC, using
+ * the same table and statements as the app. It holds one connection and prepares each statement
+ * once. The JDBC driver is supplied by whoever uses this class. Every method is synchronized.
+ * It is also a sync store, with the sync tables and triggers the app uses, so the benchmark can
+ * sync it against a mock backend. It keeps the change journal of the app as well, so the benchmark
+ * can measure what journaling costs.
+ */
+public class JdbcWaitingListRepository implements WaitingListRepository, SyncStore, JournalStore, AutoCloseable {
+
+    // Most ids bound to one batch statement, which keeps well under the SQLite variable limit.
+    private static final int BATCH_ID_CHUNK_SIZE = 500;
+
+    // SQL strings.
+    private static final String COLUMNS = WaitingListEntry.COLUMN_ID + ","
+            + WaitingListEntry.COLUMN_FIRST_NAME + ","
+            + WaitingListEntry.COLUMN_LAST_NAME + ","
+            + WaitingListEntry.COLUMN_COURSE + ","
+            + WaitingListEntry.COLUMN_PRIORITY;
+    private static final String INSERT_WAITING_LIST_ENTRY_STATEMENT = "INSERT INTO " + WaitingListEntry.TABLE_NAME + "("
+            + WaitingListEntry.COLUMN_FIRST_NAME + ","
+            + WaitingListEntry.COLUMN_LAST_NAME + ","
+            + WaitingListEntry.COLUMN_COURSE + ","
+            + WaitingListEntry.COLUMN_PRIORITY + ","
+            + WaitingListEntry.COLUMN_PRIORITY_RANK + ","
+            + WaitingListEntry.COLUMN_NAME_KEY + ","
+            + WaitingListEntry.COLUMN_COURSE_KEY
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_WAITING_LIST_ENTRY_STATEMENT = "UPDATE " + WaitingListEntry.TABLE_NAME + " SET "
+            + WaitingListEntry.COLUMN_FIRST_NAME + " = ?,"
+            + WaitingListEntry.COLUMN_LAST_NAME + " = ?,"
+            + WaitingListEntry.COLUMN_COURSE + " = ?,"
+            + WaitingListEntry.COLUMN_PRIORITY + " = ?,"
+            + WaitingListEntry.COLUMN_PRIORITY_RANK + " = ?,"
+            + WaitingListEntry.COLUMN_NAME_KEY + " = ?,"
+            + WaitingListEntry.COLUMN_COURSE_KEY + " = ?"
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " = ?";
+    private static final String UPDATE_WAITING_LIST_ENTRY_PRIORITY_STATEMENT = "UPDATE " + WaitingListEntry.TABLE_NAME + " SET "
+            + WaitingListEntry.COLUMN_PRIORITY + " = ?,"
+            + WaitingListEntry.COLUMN_PRIORITY_RANK + " = ?"
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " = ?";
+    private static final String DELETE_WAITING_LIST_ENTRY_STATEMENT = "DELETE FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " = ?";
+    private static final String SELECT_WAITING_LIST_ENTRY_QUERY = "SELECT " + COLUMNS + " FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " = ?";
+    private static final String SELECT_WAITING_LIST_ENTRY_BY_KEYS_QUERY = "SELECT " + COLUMNS + " FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_NAME_KEY + " = ?"
+            + " AND " + WaitingListEntry.COLUMN_COURSE_KEY + " = ?";
+    // The query plan test explains this query, so it is visible to the package.
+    static final String SELECT_NEXT_IN_LINE_QUERY = "SELECT " + COLUMNS + " FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_COURSE_KEY + " = ?"
+            + " ORDER BY " + WaitingListEntry.COLUMN_PRIORITY_RANK + ", " + WaitingListEntry.COLUMN_ID + " LIMIT ?";
+    private static final String DELETE_WAITING_LIST_ENTRIES_STATEMENT_PREFIX = "DELETE FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (";
+    private static final String UPDATE_WAITING_LIST_ENTRY_PRIORITIES_STATEMENT_PREFIX = "UPDATE " + WaitingListEntry.TABLE_NAME + " SET "
+            + WaitingListEntry.COLUMN_PRIORITY + " = ?,"
+            + WaitingListEntry.COLUMN_PRIORITY_RANK + " = ?"
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (";
+    private static final String UPDATE_WAITING_LIST_ENTRY_COURSES_STATEMENT_PREFIX = "UPDATE OR IGNORE " + WaitingListEntry.TABLE_NAME + " SET "
+            + WaitingListEntry.COLUMN_COURSE + " = ?,"
+            + WaitingListEntry.COLUMN_COURSE_KEY + " = ?"
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (";
+    private static final String INSERT_ADMISSIONS_STATEMENT_PREFIX = "INSERT INTO " + Admission.TABLE_NAME + "("
+            + Admission.COLUMN_ID + ","
+            + Admission.COLUMN_FIRST_NAME + ","
+            + Admission.COLUMN_LAST_NAME + ","
+            + Admission.COLUMN_COURSE + ","
+            + Admission.COLUMN_PRIORITY + ","
+            + Admission.COLUMN_ADMITTED_AT
+            + ") SELECT " + COLUMNS + ", ? FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " IN (";
+    private static final String COURSE_DEMAND_COLUMNS = CourseDemand.COLUMN_COURSE + ","
+            + CourseDemand.COLUMN_PRIORITY + ","
+            + CourseDemand.COLUMN_ENTRY_COUNT;
+    private static final String SELECT_ALL_COURSE_DEMAND_QUERY = "SELECT " + COURSE_DEMAND_COLUMNS + " FROM " + CourseDemand.TABLE_NAME;
+    private static final String SELECT_COURSE_DEMAND_QUERY = "SELECT " + COURSE_DEMAND_COLUMNS + " FROM " + CourseDemand.TABLE_NAME
+            + " WHERE " + CourseDemand.COLUMN_COURSE_KEY + " = ?";
+    private static final String SELECT_QUEUE_INDEX_QUERY = "SELECT "
+            + WaitingListEntry.COLUMN_ID + ","
+            + WaitingListEntry.COLUMN_COURSE_KEY + ","
+            + WaitingListEntry.COLUMN_PRIORITY
+            + " FROM " + WaitingListEntry.TABLE_NAME;
+
+    // Class objects.
+    private final Connection connection;
+    private final PreparedStatement insertStatement;
+    private final PreparedStatement updateStatement;
+    private final PreparedStatement updatePriorityStatement;
+    private final PreparedStatement deleteStatement;
+    private final PreparedStatement selectStatement;
+    private final PreparedStatement selectByKeysStatement;
+    private final PreparedStatement selectNextInLineStatement;
+    private final PreparedStatement selectCourseDemandStatement;
+    private WaitingListQueueIndex queueIndex;
+
+    /**
+     * Constructs a repository over the specified connection, which must already hold the waiting
+     * list entry table. The connection is closed when the repository is closed.
+     */
+    public JdbcWaitingListRepository(Connection connection) throws SQLException {
+        this.connection = connection;
+        insertStatement = connection.prepareStatement(INSERT_WAITING_LIST_ENTRY_STATEMENT, Statement.RETURN_GENERATED_KEYS);
+        updateStatement = connection.prepareStatement(UPDATE_WAITING_LIST_ENTRY_STATEMENT);
+        updatePriorityStatement = connection.prepareStatement(UPDATE_WAITING_LIST_ENTRY_PRIORITY_STATEMENT);
+        deleteStatement = connection.prepareStatement(DELETE_WAITING_LIST_ENTRY_STATEMENT);
+        selectStatement = connection.prepareStatement(SELECT_WAITING_LIST_ENTRY_QUERY);
+        selectByKeysStatement = connection.prepareStatement(SELECT_WAITING_LIST_ENTRY_BY_KEYS_QUERY);
+        selectNextInLineStatement = connection.prepareStatement(SELECT_NEXT_IN_LINE_QUERY);
+        selectCourseDemandStatement = connection.prepareStatement(SELECT_COURSE_DEMAND_QUERY);
+    }
+
+    /**
+     * Creates the waiting list entry table, its course key priority rank index, its unique student and
+     * course index, the indexes serving the sorts of the list, the admission table, the course demand table with its triggers, the sync
+     * tables with their triggers, the deleted entry table, and the journal tables with their triggers
+     * if they do not exist.
+     */
+    public static void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + WaitingListEntry.TABLE_NAME + "("
+                    + WaitingListEntry.COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + WaitingListEntry.COLUMN_FIRST_NAME + " TEXT,"
+                    + WaitingListEntry.COLUMN_LAST_NAME + " TEXT,"
+                    + WaitingListEntry.COLUMN_COURSE + " TEXT,"
+                    + WaitingListEntry.COLUMN_PRIORITY + " TEXT,"
+                    + WaitingListEntry.COLUMN_PRIORITY_RANK + " INTEGER NOT NULL DEFAULT " + WaitingListEntry.PRIORITIES.length + ","
+                    + WaitingListEntry.COLUMN_NAME_KEY + " TEXT,"
+                    + WaitingListEntry.COLUMN_COURSE_KEY + " TEXT,"
+                    + SyncSchema.entryColumnDefinitions()
+                    + ")");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + WaitingListEntry.INDEX_COURSE_KEY_PRIORITY_RANK
+                    + " ON " + WaitingListEntry.TABLE_NAME + "("
+                    + WaitingListEntry.COLUMN_COURSE_KEY + ","
+                    + WaitingListEntry.COLUMN_PRIORITY_RANK + ","
+                    + WaitingListEntry.COLUMN_ID
+                    + ")");
+            statement.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + WaitingListEntry.INDEX_NAME_KEY_COURSE_KEY
+                    + " ON " + WaitingListEntry.TABLE_NAME + "("
+                    + WaitingListEntry.COLUMN_NAME_KEY + ","
+                    + WaitingListEntry.COLUMN_COURSE_KEY
+                    + ")");
+            statement.execute("CREATE TABLE IF NOT EXISTS " + Admission.TABLE_NAME + "("
+                    + Admission.COLUMN_ID + " INTEGER PRIMARY KEY,"
+                    + Admission.COLUMN_FIRST_NAME + " TEXT,"
+                    + Admission.COLUMN_LAST_NAME + " TEXT,"
+                    + Admission.COLUMN_COURSE + " TEXT,"
+                    + Admission.COLUMN_PRIORITY + " TEXT,"
+                    + Admission.COLUMN_ADMITTED_AT + " INTEGER NOT NULL"
+                    + ")");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + Admission.INDEX_COURSE
+                    + " ON " + Admission.TABLE_NAME + "(" + Admission.COLUMN_COURSE + ")");
+            statement.execute("CREATE TABLE IF NOT EXISTS " + CourseDemand.TABLE_NAME + "("
+                    + CourseDemand.COLUMN_COURSE_KEY + " TEXT NOT NULL,"
+                    + CourseDemand.COLUMN_PRIORITY + " TEXT NOT NULL,"
+                    + CourseDemand.COLUMN_COURSE + " TEXT NOT NULL,"
+                    + CourseDemand.COLUMN_ENTRY_COUNT + " INTEGER NOT NULL,"
+                    + "PRIMARY KEY(" + CourseDemand.COLUMN_COURSE_KEY + "," + CourseDemand.COLUMN_PRIORITY + ")"
+                    + ")");
+            statement.execute("CREATE TRIGGER IF NOT EXISTS " + CourseDemand.TABLE_NAME + "_insert AFTER INSERT ON " + WaitingListEntry.TABLE_NAME
+                    + " BEGIN " + courseDemandStatements("new", true) + " END");
+            statement.execute("CREATE TRIGGER IF NOT EXISTS " + CourseDemand.TABLE_NAME + "_update AFTER UPDATE OF "
+                    + WaitingListEntry.COLUMN_COURSE + "," + WaitingListEntry.COLUMN_COURSE_KEY + "," + WaitingListEntry.COLUMN_PRIORITY
+                    + " ON " + WaitingListEntry.TABLE_NAME
+                    + " WHEN old." + WaitingListEntry.COLUMN_COURSE + " IS NOT new." + WaitingListEntry.COLUMN_COURSE
+                    + " OR old." + WaitingListEntry.COLUMN_COURSE_KEY + " IS NOT new." + WaitingListEntry.COLUMN_COURSE_KEY
+                    + " OR old." + WaitingListEntry.COLUMN_PRIORITY + " IS NOT new." + WaitingListEntry.COLUMN_PRIORITY
+                    + " BEGIN " + courseDemandStatements("old", false) + " " + courseDemandStatements("new", true) + " END");
+            statement.execute("CREATE TRIGGER IF NOT EXISTS " + CourseDemand.TABLE_NAME + "_delete AFTER DELETE ON " + WaitingListEntry.TABLE_NAME
+                    + " BEGIN " + courseDemandStatements("old", false) + " END");
+            for (String createIndexStatement : WaitingListQuery.createIndexStatements())
+                statement.execute(createIndexStatement);
+            for (String syncStatement : SyncSchema.createStatements())
+                statement.execute(syncStatement);
+            for (String deletedEntryStatement : DeletedEntrySchema.createStatements())
+                statement.execute(deletedEntryStatement);
+            for (String journalStatement : JournalSchema.createStatements())
+                statement.execute(journalStatement);
+        }
+    }
+
+    /**
+     * Returns the trigger statements that count the specified row, which is either new or old,
+     * into or out of the course demand count of its course key and priority. A count is created at
+     * zero before it is first incremented and removed once it is decremented to zero. Counting a
+     * row in also makes its spelling of the course the one shown for the count.
+     */
+    private static String courseDemandStatements(String row, boolean increment) {
+        String courseKey = "IFNULL(" + row + "." + WaitingListEntry.COLUMN_COURSE_KEY + ",'')";
+        String course = "IFNULL(" + row + "." + WaitingListEntry.COLUMN_COURSE + ",'')";
+        String priority = "IFNULL(" + row + "." + WaitingListEntry.COLUMN_PRIORITY + ",'')";
+        String where = " WHERE " + CourseDemand.COLUMN_COURSE_KEY + " = " + courseKey + " AND " + CourseDemand.COLUMN_PRIORITY + " = " + priority;
+        if (increment)
+            return "INSERT OR IGNORE INTO " + CourseDemand.TABLE_NAME + "(" + CourseDemand.COLUMN_COURSE_KEY + "," + COURSE_DEMAND_COLUMNS
+                    + ") VALUES (" + courseKey + "," + course + "," + priority + ",0);"
+                    + " UPDATE " + CourseDemand.TABLE_NAME + " SET " + CourseDemand.COLUMN_ENTRY_COUNT + " = " + CourseDemand.COLUMN_ENTRY_COUNT + " + 1,"
+                    + CourseDemand.COLUMN_COURSE + " = " + course + where + ";";
+        return "UPDATE " + CourseDemand.TABLE_NAME + " SET " + CourseDemand.COLUMN_ENTRY_COUNT + " = " + CourseDemand.COLUMN_ENTRY_COUNT + " - 1" + where + ";"
+                + " DELETE FROM " + CourseDemand.TABLE_NAME + where + " AND " + CourseDemand.COLUMN_ENTRY_COUNT + " = 0;";
+    }
+
+    @Override
+    public synchronized long insertWaitingListEntry(String firstName, String lastName, String course, String priority) {
+        try {
+            long id = insert(firstName, lastName, course, priority);
+            if (queueIndex != null)
+                queueIndex.add(id, WaitingListEntry.getCourseKey(course), WaitingListEntry.getPriorityRank(priority));
+            return id;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to insert waiting list entry", e);
+        }
+    }
+
+    /**
+     * Looks the student and course up through the unique key index and either sets the priority of
+     * the row found or inserts a new row, in one transaction. SQLite only supports ON CONFLICT DO
+     * UPDATE from version 3.24, which older Android releases do not ship, so the app and this
+     * repository both upsert this way.
+     */
+    @Override
+    public synchronized long upsertWaitingListEntry(String firstName, String lastName, String course, String priority) {
+        try {
+            long id;
+
+            connection.setAutoCommit(false);
+            try {
+                WaitingListEntry existing = selectByKeys(firstName, lastName, course);
+                if (existing == null) {
+                    id = insert(firstName, lastName, course, priority);
+                } else {
+                    id = existing.getId();
+                    updatePriority(id, priority);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+
+            if (queueIndex != null)
+                queueIndex.add(id, WaitingListEntry.getCourseKey(course), WaitingListEntry.getPriorityRank(priority));
+            return id;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to upsert waiting list entry", e);
+        }
+    }
+
+    @Override
+    public synchronized WaitingListEntry getWaitingListEntry(long id) {
+        try {
+            selectStatement.setLong(1, id);
+            List<WaitingListEntry> waitingListEntries = query(selectStatement);
+            return waitingListEntries.isEmpty() ? null : waitingListEntries.get(0);
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read waiting list entry " + id, e);
+        }
+    }
+
+    @Override
+    public synchronized List<WaitingListEntry> getWaitingListEntriesFollowing(WaitingListQuery query, WaitingListEntry anchor, int limit) {
+        try {
+            return query(query.getSelectQuery(COLUMNS, anchor != null, true), query.getSelectionArgs(anchor, limit));
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read waiting list entries following " + (anchor == null ? "the start" : anchor.getId()), e);
+        }
+    }
+
+    @Override
+    public synchronized List<WaitingListEntry> getWaitingListEntriesPreceding(WaitingListQuery query, WaitingListEntry anchor, int limit) {
+        try {
+            List<WaitingListEntry> waitingListEntries = query(query.getSelectQuery(COLUMNS, true, false), query.getSelectionArgs(anchor, limit));
+            Collections.reverse(waitingListEntries);
+            return waitingListEntries;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read waiting list entries preceding " + anchor.getId(), e);
+        }
+    }
+
+    @Override
+    public synchronized List<WaitingListEntry> getNextInLine(String course, int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Negative number of entries: " + n);
+        try {
+            selectNextInLineStatement.setString(1, WaitingListEntry.getCourseKey(course));
+            selectNextInLineStatement.setInt(2, n);
+            return query(selectNextInLineStatement);
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read next in line for " + course, e);
+        }
+    }
+
+    /**
+     * Returns the queue position from an in-memory queue index, which is built from the table on
+     * first use and kept current by the write methods of this repository.
+     */
+    @Override
+    public synchronized int getQueuePosition(long id) {
+        try {
+            if (queueIndex == null)
+                queueIndex = buildQueueIndex();
+            return queueIndex.positionOf(id);
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to build queue index", e);
+        }
+    }
+
+    @Override
+    public synchronized void updateWaitingListEntry(long oldId, String newFirstName, String newLastName, String newCourse, String newPriority) {
+        try {
+            long keptId = oldId, deletedId = -1;
+            boolean isUpdated;
+
+            connection.setAutoCommit(false);
+            try {
+                // Only an existing row is merged with the row already holding its new keys.
+                selectStatement.setLong(1, oldId);
+                WaitingListEntry other = query(selectStatement).isEmpty() ? null : selectByKeys(newFirstName, newLastName, newCourse);
+                if (other != null && other.getId() != oldId) {
+                    deletedId = Math.max(oldId, other.getId());
+                    deleteStatement.setLong(1, deletedId);
+                    deleteStatement.executeUpdate();
+                }
+                if (other != null && other.getId() < oldId) {
+                    keptId = other.getId();
+                    isUpdated = updatePriority(keptId, newPriority);
+                } else {
+                    bindWaitingListEntry(updateStatement, newFirstName, newLastName, newCourse, newPriority);
+                    updateStatement.setLong(8, oldId);
+                    isUpdated = updateStatement.executeUpdate() > 0;
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+
+            if (queueIndex != null) {
+                if (deletedId != -1)
+                    queueIndex.remove(deletedId);
+                if (isUpdated)
+                    queueIndex.add(keptId, WaitingListEntry.getCourseKey(newCourse), WaitingListEntry.getPriorityRank(newPriority));
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to update waiting list entry " + oldId, e);
+        }
+    }
+
+    @Override
+    public synchronized void deleteWaitingListEntry(long id) {
+        try {
+            moveToDeleted(Collections.singletonList(id));
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to delete waiting list entry " + id, e);
+        }
+    }
+
+    @Override
+    public synchronized int deleteWaitingListEntries(Collection<Long> ids) {
+        try {
+            return moveToDeleted(ids);
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to delete " + ids.size() + " waiting list entries", e);
+        }
+    }
+
+    /**
+     * Reads which of the rows can be restored, then copies those back from the deleted entry table
+     * and removes them from it, one statement per chunk of ids each, in one transaction. The queue
+     * index does not know the course and priority of each restored object, so it is dropped and
+     * built again on next use.
+     */
+    @Override
+    public synchronized int restoreWaitingListEntries(Collection<Long> ids) {
+        try {
+            int restoredCount;
+
+            connection.setAutoCommit(false);
+            try {
+                Collection<Long> restorableIds = selectIds(DeletedEntrySchema.SELECT_RESTORABLE_IDS_QUERY_PREFIX, ids);
+                restoredCount = executeForIdChunks(DeletedEntrySchema.RESTORE_STATEMENT_PREFIX, new Object[0], restorableIds);
+                executeForIdChunks(DeletedEntrySchema.DELETE_DELETED_STATEMENT_PREFIX, new Object[0], restorableIds);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+
+            if (restoredCount > 0)
+                queueIndex = null;
+            return restoredCount;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to restore " + ids.size() + " waiting list entries", e);
+        }
+    }
+
+    @Override
+    public synchronized int purgeDeletedWaitingListEntries(long deletedBefore, int limit) {
+        try (PreparedStatement statement = connection.prepareStatement(DeletedEntrySchema.PURGE_STATEMENT)) {
+            statement.setLong(1, deletedBefore);
+            statement.setInt(2, limit);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to purge deleted waiting list entries", e);
+        }
+    }
+
+    @Override
+    public synchronized int updateWaitingListEntryPriorities(Collection<Long> ids, String newPriority) {
+        try {
+            int newPriorityRank = WaitingListEntry.getPriorityRank(newPriority);
+            int updatedCount = executeForIds(UPDATE_WAITING_LIST_ENTRY_PRIORITIES_STATEMENT_PREFIX, new Object[]{newPriority, newPriorityRank}, ids);
+            if (queueIndex != null)
+                for (long id : ids) {
+                    String courseKey = queueIndex.courseOf(id);
+                    if (courseKey != null)
+                        queueIndex.add(id, courseKey, newPriorityRank);
+                }
+            return updatedCount;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to update the priority of " + ids.size() + " waiting list entries", e);
+        }
+    }
+
+    /**
+     * Moves the waiting list entry objects to the course. The queue index does not know the
+     * priority of each moved object, so it is dropped and built again on next use.
+     */
+    @Override
+    public synchronized int updateWaitingListEntryCourses(Collection<Long> ids, String newCourse) {
+        try {
+            int updatedCount = executeForIds(UPDATE_WAITING_LIST_ENTRY_COURSES_STATEMENT_PREFIX,
+                    new Object[]{newCourse, WaitingListEntry.getCourseKey(newCourse)}, ids);
+            if (updatedCount > 0)
+                queueIndex = null;
+            return updatedCount;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to move " + ids.size() + " waiting list entries to " + newCourse, e);
+        }
+    }
+
+    @Override
+    public synchronized List<Admission> admitNextInLine(String course, int seatCount) {
+        return admitNextInLine(Collections.singletonMap(course, seatCount));
+    }
+
+    /**
+     * Admits the next in line for every course. For each course the ranked ids are read through
+     * the course key priority rank index, then copied into the admission table and deleted with one
+     * statement per chunk of ids.
+     */
+    @Override
+    public synchronized List<Admission> admitNextInLine(Map<String, Integer> seatCounts) {
+        for (int seatCount : seatCounts.values())
+            if (seatCount < 0)
+                throw new IllegalArgumentException("Negative seat count: " + seatCount);
+        try {
+            List<Admission> admissions = new ArrayList<>();
+            long admittedAt = System.currentTimeMillis();
+
+            connection.setAutoCommit(false);
+            try {
+                for (Map.Entry<String, Integer> seatCount : seatCounts.entrySet()) {
+                    selectNextInLineStatement.setString(1, WaitingListEntry.getCourseKey(seatCount.getKey()));
+                    selectNextInLineStatement.setInt(2, seatCount.getValue());
+                    List<WaitingListEntry> waitingListEntries = query(selectNextInLineStatement);
+                    if (waitingListEntries.isEmpty())
+                        continue;
+                    List<Long> ids = new ArrayList<>(waitingListEntries.size());
+                    for (WaitingListEntry waitingListEntry : waitingListEntries) {
+                        ids.add(waitingListEntry.getId());
+                        admissions.add(new Admission(waitingListEntry, admittedAt));
+                    }
+                    executeForIdChunks(INSERT_ADMISSIONS_STATEMENT_PREFIX, new Object[]{admittedAt}, ids);
+                    executeForIdChunks(DELETE_WAITING_LIST_ENTRIES_STATEMENT_PREFIX, new Object[0], ids);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+
+            if (queueIndex != null)
+                for (Admission admission : admissions)
+                    queueIndex.remove(admission.getId());
+            return admissions;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to admit next in line for " + seatCounts.size() + " courses", e);
+        }
+    }
+
+    @Override
+    public synchronized List<CourseDemand> getCourseDemand() {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_ALL_COURSE_DEMAND_QUERY)) {
+            return readCourseDemand(resultSet);
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read course demand", e);
+        }
+    }
+
+    @Override
+    public synchronized List<CourseDemand> getCourseDemand(String course) {
+        try {
+            selectCourseDemandStatement.setString(1, WaitingListEntry.getCourseKey(course));
+            try (ResultSet resultSet = selectCourseDemandStatement.executeQuery()) {
+                return readCourseDemand(resultSet);
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read course demand for " + course, e);
+        }
+    }
+
+    @Override
+    public synchronized String getDeviceId() {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SyncSchema.SELECT_STATE_QUERY)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read device id", e);
+        }
+    }
+
+    @Override
+    public synchronized List<SyncChange> getPendingChanges(int limit) {
+        try (PreparedStatement statement = connection.prepareStatement(SyncSchema.SELECT_PENDING_CHANGES_QUERY)) {
+            statement.setInt(1, limit);
+            List<SyncChange> changes = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    SyncChange change = new SyncChange(
+                            resultSet.getString(1),
+                            resultSet.getString(2),
+                            resultSet.getString(3),
+                            resultSet.getString(4),
+                            resultSet.getLong(5),
+                            resultSet.getString(6),
+                            resultSet.getInt(7) != 0
+                    );
+                    change.setChangeSeq(resultSet.getLong(8));
+                    changes.add(change);
+                }
+            }
+            return changes;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read pending changes", e);
+        }
+    }
+
+    @Override
+    public synchronized void markPushed(long changeSeq) {
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement updatePushedStatement = connection.prepareStatement(SyncSchema.UPDATE_PUSHED_CHANGE_SEQ_STATEMENT);
+                 PreparedStatement deleteTombstonesStatement = connection.prepareStatement(SyncSchema.DELETE_PUSHED_TOMBSTONES_STATEMENT)) {
+                updatePushedStatement.setLong(1, changeSeq);
+                updatePushedStatement.executeUpdate();
+                deleteTombstonesStatement.setLong(1, changeSeq);
+                deleteTombstonesStatement.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to mark changes up to " + changeSeq + " pushed", e);
+        }
+    }
+
+    @Override
+    public synchronized long getPullCursor() {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SyncSchema.SELECT_STATE_QUERY)) {
+            return resultSet.next() ? resultSet.getLong(3) : 0;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read pull cursor", e);
+        }
+    }
+
+    /**
+     * Compares each change with the local row or tombstone holding the same keys and writes the
+     * changes that win, with the triggers standing aside. Rows changed this way are not known by
+     * id, so the queue index is dropped once the transaction commits.
+     */
+    @Override
+    public synchronized int applyRemoteChanges(List<SyncChange> changes, long pullCursor) {
+        try {
+            int appliedCount = 0;
+
+            connection.setAutoCommit(false);
+            try (PreparedStatement applyingRemoteStatement = connection.prepareStatement(SyncSchema.UPDATE_APPLYING_REMOTE_STATEMENT);
+                 PreparedStatement pullCursorStatement = connection.prepareStatement(SyncSchema.UPDATE_PULL_CURSOR_STATEMENT);
+                 PreparedStatement rowVersionStatement = connection.prepareStatement(SyncSchema.SELECT_ROW_VERSION_QUERY);
+                 PreparedStatement tombstoneVersionStatement = connection.prepareStatement(SyncSchema.SELECT_TOMBSTONE_VERSION_QUERY);
+                 PreparedStatement insertRemoteStatement = connection.prepareStatement(SyncSchema.INSERT_REMOTE_ROW_STATEMENT);
+                 PreparedStatement updateRemoteStatement = connection.prepareStatement(SyncSchema.UPDATE_REMOTE_ROW_STATEMENT);
+                 PreparedStatement deleteRemoteStatement = connection.prepareStatement(SyncSchema.DELETE_REMOTE_ROW_STATEMENT);
+                 PreparedStatement deleteTombstoneStatement = connection.prepareStatement(SyncSchema.DELETE_TOMBSTONE_STATEMENT)) {
+
+                applyingRemoteStatement.setInt(1, 1);
+                applyingRemoteStatement.executeUpdate();
+
+                for (SyncChange change : changes) {
+
+                    String nameKey = change.getNameKey();
+                    String courseKey = change.getCourseKey();
+
+                    // Find the local version of the row, which is either the row or its tombstone.
+                    long localId = 0;
+                    SyncChange localVersion = null;
+                    rowVersionStatement.setString(1, nameKey);
+                    rowVersionStatement.setString(2, courseKey);
+                    try (ResultSet resultSet = rowVersionStatement.executeQuery()) {
+                        if (resultSet.next()) {
+                            localId = resultSet.getLong(1);
+                            localVersion = new SyncChange(null, null, null, null, resultSet.getLong(2), resultSet.getString(3), false);
+                        }
+                    }
+                    if (localVersion == null) {
+                        tombstoneVersionStatement.setString(1, nameKey);
+                        tombstoneVersionStatement.setString(2, courseKey);
+                        try (ResultSet resultSet = tombstoneVersionStatement.executeQuery()) {
+                            if (resultSet.next())
+                                localVersion = new SyncChange(null, null, null, null, resultSet.getLong(1), resultSet.getString(2), true);
+                        }
+                    }
+                    if (localVersion != null && SyncChange.compareVersions(change, localVersion) <= 0)
+                        continue;
+
+                    if (change.isDeleted()) {
+                        if (localId != 0) {
+                            deleteRemoteStatement.setLong(1, localId);
+                            deleteRemoteStatement.executeUpdate();
+                        }
+                    } else if (localId != 0) {
+                        bindWaitingListEntry(updateRemoteStatement, change.getFirstName(), change.getLastName(), change.getCourse(), change.getPriority());
+                        updateRemoteStatement.setLong(8, change.getUpdatedAt());
+                        updateRemoteStatement.setString(9, change.getOrigin());
+                        updateRemoteStatement.setLong(10, localId);
+                        updateRemoteStatement.executeUpdate();
+                    } else {
+                        bindWaitingListEntry(insertRemoteStatement, change.getFirstName(), change.getLastName(), change.getCourse(), change.getPriority());
+                        insertRemoteStatement.setLong(8, change.getUpdatedAt());
+                        insertRemoteStatement.setString(9, change.getOrigin());
+                        insertRemoteStatement.executeUpdate();
+                    }
+                    deleteTombstoneStatement.setString(1, nameKey);
+                    deleteTombstoneStatement.setString(2, courseKey);
+                    deleteTombstoneStatement.executeUpdate();
+                    appliedCount++;
+                }
+
+                pullCursorStatement.setLong(1, pullCursor);
+                pullCursorStatement.executeUpdate();
+                applyingRemoteStatement.setInt(1, 0);
+                applyingRemoteStatement.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+
+            if (appliedCount > 0)
+                queueIndex = null;
+            return appliedCount;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to apply remote changes", e);
+        }
+    }
+
+    @Override
+    public synchronized long getSnapshotSeqAt(long time) {
+        try (PreparedStatement statement = connection.prepareStatement(JournalSchema.SELECT_SNAPSHOT_SEQ_AT_QUERY)) {
+            statement.setLong(1, time);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : -1;
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read snapshot at " + time, e);
+        }
+    }
+
+    @Override
+    public synchronized List<WaitingListEntry> getSnapshotEntries(long snapshotSeq) {
+        try {
+            return query(JournalSchema.SELECT_SNAPSHOT_ENTRIES_QUERY, new Object[]{snapshotSeq});
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read snapshot " + snapshotSeq, e);
+        }
+    }
+
+    @Override
+    public synchronized List<JournalEvent> getJournalEventsAfter(long afterSeq, int limit) {
+        try (PreparedStatement statement = connection.prepareStatement(JournalSchema.SELECT_EVENTS_AFTER_QUERY)) {
+            statement.setLong(1, afterSeq);
+            statement.setInt(2, limit);
+            return readJournalEvents(statement);
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read journal events after " + afterSeq, e);
+        }
+    }
+
+    @Override
+    public synchronized List<JournalEvent> getJournalEventsForEntry(long entryId) {
+        try (PreparedStatement statement = connection.prepareStatement(JournalSchema.SELECT_ENTRY_EVENTS_QUERY)) {
+            statement.setLong(1, entryId);
+            return readJournalEvents(statement);
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to read journal events for waiting list entry " + entryId, e);
+        }
+    }
+
+    @Override
+    public synchronized int countJournalEventsSinceSnapshot() {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(JournalSchema.COUNT_EVENTS_SINCE_SNAPSHOT_QUERY)) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to count journal events", e);
+        }
+    }
+
+    @Override
+    public synchronized long takeJournalSnapshot() {
+        try {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                long snapshotSeq = -1;
+                if (statement.executeUpdate(JournalSchema.INSERT_SNAPSHOT_STATEMENT) > 0) {
+                    statement.executeUpdate(JournalSchema.INSERT_SNAPSHOT_ENTRIES_STATEMENT);
+                    try (ResultSet resultSet = statement.executeQuery(JournalSchema.SELECT_LAST_SNAPSHOT_SEQ_QUERY)) {
+                        resultSet.next();
+                        snapshotSeq = resultSet.getLong(1);
+                    }
+                }
+                connection.commit();
+                return snapshotSeq;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to take journal snapshot", e);
+        }
+    }
+
+    @Override
+    public synchronized int compactJournal(int keptSnapshotCount, int limit) {
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement snapshotsStatement = connection.prepareStatement(JournalSchema.DELETE_EXPIRED_SNAPSHOTS_STATEMENT);
+                 PreparedStatement snapshotEntriesStatement = connection.prepareStatement(JournalSchema.DELETE_EXPIRED_SNAPSHOT_ENTRIES_STATEMENT);
+                 PreparedStatement eventsStatement = connection.prepareStatement(JournalSchema.DELETE_EXPIRED_EVENTS_STATEMENT)) {
+                snapshotsStatement.setInt(1, keptSnapshotCount);
+                snapshotsStatement.executeUpdate();
+                snapshotEntriesStatement.setInt(1, limit);
+                int removedCount = snapshotEntriesStatement.executeUpdate();
+                if (removedCount < limit) {
+                    eventsStatement.setInt(1, limit - removedCount);
+                    removedCount += eventsStatement.executeUpdate();
+                }
+                connection.commit();
+                return removedCount;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to compact journal", e);
+        }
+    }
+
+    /**
+     * Closes every prepared statement and the connection.
+     */
+    @Override
+    public synchronized void close() throws SQLException {
+        insertStatement.close();
+        updateStatement.close();
+        updatePriorityStatement.close();
+        deleteStatement.close();
+        selectStatement.close();
+        selectByKeysStatement.close();
+        selectNextInLineStatement.close();
+        selectCourseDemandStatement.close();
+        connection.close();
+    }
+
+    /**
+     * Binds the attributes of a waiting list entry, its priority rank, and its keys to the first
+     * seven parameters of the statement.
+     */
+    private static void bindWaitingListEntry(PreparedStatement statement, String firstName, String lastName, String course, String priority) throws SQLException {
+        statement.setString(1, firstName);
+        statement.setString(2, lastName);
+        statement.setString(3, course);
+        statement.setString(4, priority);
+        statement.setInt(5, WaitingListEntry.getPriorityRank(priority));
+        statement.setString(6, WaitingListEntry.getNameKey(firstName, lastName));
+        statement.setString(7, WaitingListEntry.getCourseKey(course));
+    }
+
+    /**
+     * Inserts a row with the specified attributes and returns its id.
+     */
+    private long insert(String firstName, String lastName, String course, String priority) throws SQLException {
+        bindWaitingListEntry(insertStatement, firstName, lastName, course, priority);
+        insertStatement.executeUpdate();
+        try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
+            if (!generatedKeys.next())
+                throw new SQLException("No id was generated for the inserted waiting list entry");
+            return generatedKeys.getLong(1);
+        }
+    }
+
+    /**
+     * Sets the priority and priority rank of the row with the specified id. It returns true if the
+     * row exists.
+     */
+    private boolean updatePriority(long id, String priority) throws SQLException {
+        updatePriorityStatement.setString(1, priority);
+        updatePriorityStatement.setInt(2, WaitingListEntry.getPriorityRank(priority));
+        updatePriorityStatement.setLong(3, id);
+        return updatePriorityStatement.executeUpdate() > 0;
+    }
+
+    /**
+     * Returns the row of the student waiting for the course, found through the unique key index,
+     * or null if there is none.
+     */
+    private WaitingListEntry selectByKeys(String firstName, String lastName, String course) throws SQLException {
+        selectByKeysStatement.setString(1, WaitingListEntry.getNameKey(firstName, lastName));
+        selectByKeysStatement.setString(2, WaitingListEntry.getCourseKey(course));
+        List<WaitingListEntry> waitingListEntries = query(selectByKeysStatement);
+        return waitingListEntries.isEmpty() ? null : waitingListEntries.get(0);
+    }
+
+    /**
+     * Runs a statement ending in an id list once per chunk of ids, all in one transaction. The
+     * statement prefix must end with an open parenthesis. Leading arguments are bound before the
+     * ids. It returns the total number of rows changed.
+     */
+    private int executeForIds(String statementPrefix, Object[] leadingArgs, Collection<Long> ids) throws SQLException {
+
+        int changedCount;
+
+        connection.setAutoCommit(false);
+        try {
+            changedCount = executeForIdChunks(statementPrefix, leadingArgs, ids);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        return changedCount;
+    }
+
+    /**
+     * Copies the rows with the specified ids into the deleted entry table and deletes them, one
+     * statement per chunk of ids each, in one transaction. It returns the number of rows deleted.
+     */
+    private int moveToDeleted(Collection<Long> ids) throws SQLException {
+
+        int deletedCount;
+
+        connection.setAutoCommit(false);
+        try {
+            executeForIdChunks(DeletedEntrySchema.COPY_TO_DELETED_STATEMENT_PREFIX, new Object[]{System.currentTimeMillis()}, ids);
+            deletedCount = executeForIdChunks(DELETE_WAITING_LIST_ENTRIES_STATEMENT_PREFIX, new Object[0], ids);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        if (queueIndex != null)
+            for (long id : ids)
+                queueIndex.remove(id);
+        return deletedCount;
+    }
+
+    /**
+     * Runs a statement ending in an id list once per chunk of ids, in whatever transaction the
+     * caller has open. It returns the total number of rows changed.
+     */
+    private int executeForIdChunks(String statementPrefix, Object[] leadingArgs, Collection<Long> ids) throws SQLException {
+
+        int changedCount = 0;
+        Iterator<Long> iterator = ids.iterator();
+
+        while (iterator.hasNext()) {
+            List<Long> chunk = new ArrayList<>(BATCH_ID_CHUNK_SIZE);
+            while (iterator.hasNext() && chunk.size() < BATCH_ID_CHUNK_SIZE)
+                chunk.add(iterator.next());
+            try (PreparedStatement statement = connection.prepareStatement(statementPrefix + placeholders(chunk.size()) + ")")) {
+                for (int i = 0; i < leadingArgs.length; i++)
+                    statement.setObject(i + 1, leadingArgs[i]);
+                for (int i = 0; i < chunk.size(); i++)
+                    statement.setLong(leadingArgs.length + i + 1, chunk.get(i));
+                changedCount += statement.executeUpdate();
+            }
+        }
+
+        return changedCount;
+    }
+
+    /**
+     * Runs a query ending in an id list once per chunk of ids, in whatever transaction the caller
+     * has open, and returns the distinct ids it selects.
+     */
+    private Collection<Long> selectIds(String queryPrefix, Collection<Long> ids) throws SQLException {
+
+        Set<Long> selectedIds = new LinkedHashSet<>();
+        Iterator<Long> iterator = ids.iterator();
+
+        while (iterator.hasNext()) {
+            List<Long> chunk = new ArrayList<>(BATCH_ID_CHUNK_SIZE);
+            while (iterator.hasNext() && chunk.size() < BATCH_ID_CHUNK_SIZE)
+                chunk.add(iterator.next());
+            try (PreparedStatement statement = connection.prepareStatement(queryPrefix + placeholders(chunk.size()) + ")")) {
+                for (int i = 0; i < chunk.size(); i++)
+                    statement.setLong(i + 1, chunk.get(i));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next())
+                        selectedIds.add(resultSet.getLong(1));
+                }
+            }
+        }
+
+        return selectedIds;
+    }
+
+    /**
+     * Returns the specified number of comma separated parameter placeholders.
+     */
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++)
+            placeholders.append(i == 0 ? "?" : ",?");
+        return placeholders.toString();
+    }
+
+    /**
+     * Runs the query and maps each row to a waiting list entry object.
+     */
+    private static List<WaitingListEntry> query(PreparedStatement statement) throws SQLException {
+        List<WaitingListEntry> waitingListEntries = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next())
+                waitingListEntries.add(new WaitingListEntry(
+                        resultSet.getLong(1),
+                        resultSet.getString(2),
+                        resultSet.getString(3),
+                        resultSet.getString(4),
+                        resultSet.getString(5)
+                ));
+        }
+        return waitingListEntries;
+    }
+
+    /**
+     * Prepares the query, binds the specified parameters, and maps each row to a waiting list entry
+     * object.
+     */
+    private List<WaitingListEntry> query(String query, Object[] args) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int i = 0; i < args.length; i++)
+                statement.setObject(i + 1, args[i]);
+            return query(statement);
+        }
+    }
+
+    /**
+     * Maps each row of the result set to a course demand object and returns them in order.
+     */
+    private static List<CourseDemand> readCourseDemand(ResultSet resultSet) throws SQLException {
+        List<CourseDemand> courseDemand = new ArrayList<>();
+        while (resultSet.next())
+            courseDemand.add(new CourseDemand(resultSet.getString(1), resultSet.getString(2), resultSet.getInt(3)));
+        Collections.sort(courseDemand);
+        return courseDemand;
+    }
+
+    /**
+     * Runs the statement and maps each row to a journal event object.
+     */
+    private static List<JournalEvent> readJournalEvents(PreparedStatement statement) throws SQLException {
+        List<JournalEvent> events = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next())
+                events.add(new JournalEvent(
+                        resultSet.getLong(1),
+                        resultSet.getLong(2),
+                        resultSet.getInt(3),
+                        resultSet.getLong(4),
+                        resultSet.getString(5),
+                        resultSet.getString(6),
+                        resultSet.getString(7),
+                        resultSet.getString(8)
+                ));
+        }
+        return events;
+    }
+
+    /**
+     * Builds a queue index holding every row of the table.
+     */
+    private WaitingListQueueIndex buildQueueIndex() throws SQLException {
+        WaitingListQueueIndex newQueueIndex = new WaitingListQueueIndex();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_QUEUE_INDEX_QUERY)) {
+            while (resultSet.next())
+                newQueueIndex.add(resultSet.getLong(1), resultSet.getString(2), WaitingListEntry.getPriorityRank(resultSet.getString(3)));
+        }
+        return newQueueIndex;
+    }
+}
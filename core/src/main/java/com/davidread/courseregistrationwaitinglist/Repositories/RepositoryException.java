@@ -0,0 +1,14 @@
+package com.davidread.courseregistrationwaitinglist.Repositories;
+
+/**
+ * This exception is thrown when a repository cannot complete an operation because its underlying
+ * storage failed.
+ */
+public class RepositoryException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RepositoryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
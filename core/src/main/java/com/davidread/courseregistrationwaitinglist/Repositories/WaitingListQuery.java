@@ -0,0 +1,233 @@
+package com.davidread.courseregistrationwaitinglist.Repositories;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This class describes which waiting list entry objects the list shows and in what order: only
+ * those for one course, only those with one of a set of priorities, or both, sorted by arrival,
+ * by priority, or by name. It builds the keyset queries that read the objects following or
+ * preceding an anchor object, one page at a time, and the indexes that serve them.
+ *
+ * <p>The course filter matches the course key, so it shows every spelling of the course that
+ * differs only in case or whitespace, the same objects the unique index treats as one course.
+ *
+ * <p>Every sort ends with the id, so the order is total and a page can continue from the last
+ * object of the page before. The course filter and the sort keys are matched by an index for every
+ * combination, so a page is read in order from an index without a scan of the table or a sort.
+ * There are few priorities, so the priority filter is applied to the rows the index yields rather
+ * than given indexes of its own. Keyset conditions are spelled out rather than written as row
+ * values, which older SQLite versions on the device do not support.
+ */
+public class WaitingListQuery implements Comparator<WaitingListEntry> {
+
+    // Sort orders.
+    public static final int SORT_ARRIVAL = 0;
+    public static final int SORT_PRIORITY = 1;
+    public static final int SORT_NAME = 2;
+
+    // SQLite constants of the indexes serving the sorts.
+    public static final String INDEX_COURSE_KEY_ID = "index_waiting_list_entries_course_key_id";
+    public static final String INDEX_PRIORITY_RANK_ID = "index_waiting_list_entries_priority_rank_id";
+    public static final String INDEX_NAME_KEY_ID = "index_waiting_list_entries_name_key_id";
+    public static final String INDEX_COURSE_KEY_NAME_KEY_ID = "index_waiting_list_entries_course_key_name_key_id";
+
+    // Query showing every object, newest first.
+    public static final WaitingListQuery ALL = new WaitingListQuery(null, null, SORT_ARRIVAL);
+
+    // Query variables. Bit i of the priority mask is set if objects of priority rank i are shown.
+    private final String course;
+    private final String courseKey;
+    private final int priorityMask;
+    private final int sort;
+
+    /**
+     * Constructs a query for the objects of the specified course with one of the specified
+     * priorities, sorted by the specified sort order. A null course shows every course, and a null
+     * or empty collection of priorities, or one holding every priority, shows every priority.
+     */
+    public WaitingListQuery(String course, Collection<String> priorities, int sort) {
+        if (sort != SORT_ARRIVAL && sort != SORT_PRIORITY && sort != SORT_NAME)
+            throw new IllegalArgumentException("Unknown sort order " + sort);
+        int priorityMask = 0;
+        if (priorities != null)
+            for (String priority : priorities)
+                priorityMask |= 1 << WaitingListEntry.getPriorityRank(priority);
+        int knownPrioritiesMask = (1 << WaitingListEntry.PRIORITIES.length) - 1;
+        this.course = course;
+        this.courseKey = course == null ? null : WaitingListEntry.getCourseKey(course);
+        this.priorityMask = (priorityMask & knownPrioritiesMask) == knownPrioritiesMask ? 0 : priorityMask;
+        this.sort = sort;
+    }
+
+    /**
+     * Returns the statements creating the indexes that serve the sorts if they do not exist. The
+     * course key priority rank index created with the table serves the priority sort of one
+     * course.
+     */
+    public static String[] createIndexStatements() {
+        return new String[]{
+                "CREATE INDEX IF NOT EXISTS " + INDEX_COURSE_KEY_ID + " ON " + WaitingListEntry.TABLE_NAME + "("
+                        + WaitingListEntry.COLUMN_COURSE_KEY + "," + WaitingListEntry.COLUMN_ID + ")",
+                "CREATE INDEX IF NOT EXISTS " + INDEX_PRIORITY_RANK_ID + " ON " + WaitingListEntry.TABLE_NAME + "("
+                        + WaitingListEntry.COLUMN_PRIORITY_RANK + "," + WaitingListEntry.COLUMN_ID + ")",
+                "CREATE INDEX IF NOT EXISTS " + INDEX_NAME_KEY_ID + " ON " + WaitingListEntry.TABLE_NAME + "("
+                        + WaitingListEntry.COLUMN_NAME_KEY + "," + WaitingListEntry.COLUMN_ID + ")",
+                "CREATE INDEX IF NOT EXISTS " + INDEX_COURSE_KEY_NAME_KEY_ID + " ON " + WaitingListEntry.TABLE_NAME + "("
+                        + WaitingListEntry.COLUMN_COURSE_KEY + "," + WaitingListEntry.COLUMN_NAME_KEY + "," + WaitingListEntry.COLUMN_ID + ")"
+        };
+    }
+
+    /**
+     * Returns the course shown, or null if every course is shown.
+     */
+    public String getCourse() {
+        return course;
+    }
+
+    /**
+     * Returns the priorities shown from highest to lowest, or an empty list if every priority is
+     * shown.
+     */
+    public List<String> getPriorities() {
+        List<String> priorities = new ArrayList<>();
+        for (int rank = 0; rank < WaitingListEntry.PRIORITIES.length; rank++)
+            if ((priorityMask & (1 << rank)) != 0)
+                priorities.add(WaitingListEntry.PRIORITIES[rank]);
+        return priorities;
+    }
+
+    public int getSort() {
+        return sort;
+    }
+
+    /**
+     * Returns true if the query shows only some of the objects.
+     */
+    public boolean isFiltered() {
+        return course != null || priorityMask != 0;
+    }
+
+    /**
+     * Returns true if the specified object is shown by this query.
+     */
+    public boolean matches(WaitingListEntry waitingListEntry) {
+        if (courseKey != null && !courseKey.equals(WaitingListEntry.getCourseKey(waitingListEntry.getCourse())))
+            return false;
+        return priorityMask == 0 || (priorityMask & (1 << WaitingListEntry.getPriorityRank(waitingListEntry.getPriority()))) != 0;
+    }
+
+    /**
+     * Compares two objects in the order of this query, the same order the queries read them in.
+     */
+    @Override
+    public int compare(WaitingListEntry first, WaitingListEntry second) {
+        if (sort == SORT_ARRIVAL)
+            return Long.compare(second.getId(), first.getId());
+        int comparison;
+        if (sort == SORT_PRIORITY)
+            comparison = Integer.compare(WaitingListEntry.getPriorityRank(first.getPriority()), WaitingListEntry.getPriorityRank(second.getPriority()));
+        else
+            comparison = WaitingListEntry.getNameKey(first.getFirstName(), first.getLastName())
+                    .compareTo(WaitingListEntry.getNameKey(second.getFirstName(), second.getLastName()));
+        return comparison != 0 ? comparison : Long.compare(first.getId(), second.getId());
+    }
+
+    /**
+     * Returns the query selecting the specified columns of at most a limit of objects shown by this
+     * query. With an anchor, the objects are those following the anchor in the order of this query,
+     * or preceding it in the opposite order if not forward. Without an anchor, the objects are
+     * those at the start of the order. The limit is the last parameter.
+     */
+    public String getSelectQuery(String columns, boolean hasAnchor, boolean isForward) {
+
+        StringBuilder query = new StringBuilder("SELECT ").append(columns).append(" FROM ").append(WaitingListEntry.TABLE_NAME);
+        List<String> conditions = new ArrayList<>();
+
+        if (course != null)
+            conditions.add(WaitingListEntry.COLUMN_COURSE_KEY + " = ?");
+
+        // A unary plus keeps the priority condition from being matched by an index, so the index chosen is the one serving the sort.
+        if (priorityMask != 0) {
+            StringBuilder ranks = new StringBuilder();
+            for (int rank = 0; rank <= WaitingListEntry.PRIORITIES.length; rank++) {
+                if ((priorityMask & (1 << rank)) == 0)
+                    continue;
+                if (ranks.length() > 0)
+                    ranks.append(',');
+                ranks.append(rank);
+            }
+            conditions.add("+" + WaitingListEntry.COLUMN_PRIORITY_RANK + " IN (" + ranks + ")");
+        }
+
+        String sortColumn = getSortColumn();
+        String after = isForward ? " > ?" : " < ?";
+        if (hasAnchor && sortColumn == null)
+            conditions.add(WaitingListEntry.COLUMN_ID + (isForward ? " < ?" : " > ?"));
+        else if (hasAnchor)
+            conditions.add(sortColumn + (isForward ? " >= ?" : " <= ?")
+                    + " AND (" + sortColumn + after + " OR " + WaitingListEntry.COLUMN_ID + after + ")");
+
+        for (int i = 0; i < conditions.size(); i++)
+            query.append(i == 0 ? " WHERE " : " AND ").append(conditions.get(i));
+
+        String direction = isForward ? " ASC" : " DESC";
+        if (sortColumn == null)
+            query.append(" ORDER BY ").append(WaitingListEntry.COLUMN_ID).append(isForward ? " DESC" : " ASC");
+        else
+            query.append(" ORDER BY ").append(sortColumn).append(direction).append(", ").append(WaitingListEntry.COLUMN_ID).append(direction);
+
+        return query.append(" LIMIT ?").toString();
+    }
+
+    /**
+     * Returns the parameters of the query returned by getSelectQuery() for the specified anchor,
+     * which may be null, and limit.
+     */
+    public Object[] getSelectionArgs(WaitingListEntry anchor, int limit) {
+        List<Object> args = new ArrayList<>();
+        if (courseKey != null)
+            args.add(courseKey);
+        if (anchor != null && sort == SORT_ARRIVAL) {
+            args.add(anchor.getId());
+        } else if (anchor != null) {
+            Object sortKey = sort == SORT_PRIORITY
+                    ? (Object) WaitingListEntry.getPriorityRank(anchor.getPriority())
+                    : WaitingListEntry.getNameKey(anchor.getFirstName(), anchor.getLastName());
+            args.add(sortKey);
+            args.add(sortKey);
+            args.add(anchor.getId());
+        }
+        args.add(limit);
+        return args.toArray();
+    }
+
+    /**
+     * Returns the column sorted on before the id, or null if the sort is by id alone.
+     */
+    private String getSortColumn() {
+        if (sort == SORT_PRIORITY)
+            return WaitingListEntry.COLUMN_PRIORITY_RANK;
+        if (sort == SORT_NAME)
+            return WaitingListEntry.COLUMN_NAME_KEY;
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof WaitingListQuery))
+            return false;
+        WaitingListQuery other = (WaitingListQuery) object;
+        return priorityMask == other.priorityMask && sort == other.sort
+                && (course == null ? other.course == null : course.equals(other.course));
+    }
+
+    @Override
+    public int hashCode() {
+        return ((course == null ? 0 : course.hashCode()) * 31 + priorityMask) * 31 + sort;
+    }
+}
@@ -0,0 +1,148 @@
+package com.davidread.courseregistrationwaitinglist.Repositories;
+
+import com.davidread.courseregistrationwaitinglist.Models.Admission;
+import com.davidread.courseregistrationwaitinglist.Models.CourseDemand;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This interface defines how waiting list entry objects are stored and queried, independent of the
+ * storage behind it. The app implements it with SQLite on Android. The JDBC and in-memory
+ * implementations let the same operations run on a plain JVM.
+ *
+ * <p>Courses are compared by their normalized keys throughout, as they are when checking that a
+ * student waits for a course only once. The queue, the course demand, and the admissions of a
+ * course take in every spelling of it that differs only in case, whitespace, or Unicode
+ * compatibility form.
+ */
+public interface WaitingListRepository {
+
+    /**
+     * Inserts a waiting list entry object with the specified attributes. It returns the id of the
+     * inserted object. Each student may wait for a course only once, where students and courses
+     * are compared by their normalized keys, so it throws if the student already waits for the
+     * course.
+     */
+    long insertWaitingListEntry(String firstName, String lastName, String course, String priority);
+
+    /**
+     * Inserts a waiting list entry object with the specified attributes, or if the student already
+     * waits for the course, sets the priority of the existing object instead. The existing object
+     * keeps its id and so its place among entries of the same priority. It returns the id of the
+     * inserted or updated object.
+     */
+    long upsertWaitingListEntry(String firstName, String lastName, String course, String priority);
+
+    /**
+     * Returns the waiting list entry object with the specified id, or null if there is none.
+     */
+    WaitingListEntry getWaitingListEntry(long id);
+
+    /**
+     * Returns at most the specified number of waiting list entry objects shown by the specified
+     * query that follow the specified anchor object in the order of the query, or the first of
+     * them if the anchor is null. They are returned in the order of the query.
+     */
+    List<WaitingListEntry> getWaitingListEntriesFollowing(WaitingListQuery query, WaitingListEntry anchor, int limit);
+
+    /**
+     * Returns at most the specified number of waiting list entry objects shown by the specified
+     * query that precede the specified anchor object in the order of the query, choosing those
+     * closest to it. They are returned in the order of the query.
+     */
+    List<WaitingListEntry> getWaitingListEntriesPreceding(WaitingListQuery query, WaitingListEntry anchor, int limit);
+
+    /**
+     * Returns at most the specified number of waiting list entry objects for the specified course,
+     * highest priority first, then earliest added first. It throws an illegal argument exception if
+     * the number is negative.
+     */
+    List<WaitingListEntry> getNextInLine(String course, int n);
+
+    /**
+     * Returns the position of the waiting list entry object with the specified id in the queue for
+     * its course, where 1 is next in line, or -1 if there is no such object.
+     */
+    int getQueuePosition(long id);
+
+    /**
+     * Updates the waiting list entry object with the specified old id with the specified new
+     * attributes. If the new attributes name a student who already waits for the new course in
+     * another object, the two are merged: the object added first is kept with the new priority
+     * and the other is deleted.
+     */
+    void updateWaitingListEntry(long oldId, String newFirstName, String newLastName, String newCourse, String newPriority);
+
+    /**
+     * Deletes the waiting list entry object with the specified id. It can be restored until it is
+     * purged.
+     */
+    void deleteWaitingListEntry(long id);
+
+    /**
+     * Deletes every waiting list entry object with one of the specified ids in a single
+     * transaction. They can be restored until they are purged. It returns the number of objects
+     * deleted.
+     */
+    int deleteWaitingListEntries(Collection<Long> ids);
+
+    /**
+     * Restores every deleted waiting list entry object with one of the specified ids that has not
+     * been purged, with its id and attributes, in a single transaction. An object whose student has
+     * waited for the course again since it was deleted is not restored, and stays deleted until it
+     * is purged. It returns the number of objects restored.
+     */
+    int restoreWaitingListEntries(Collection<Long> ids);
+
+    /**
+     * Permanently removes at most the specified number of deleted waiting list entry objects that
+     * were deleted before the specified time in milliseconds since the epoch, oldest first. It
+     * returns the number of objects removed, so callers can purge in small chunks until it
+     * returns less than the limit.
+     */
+    int purgeDeletedWaitingListEntries(long deletedBefore, int limit);
+
+    /**
+     * Sets the priority of every waiting list entry object with one of the specified ids in a
+     * single transaction. It returns the number of objects updated.
+     */
+    int updateWaitingListEntryPriorities(Collection<Long> ids, String newPriority);
+
+    /**
+     * Moves every waiting list entry object with one of the specified ids to the specified course
+     * in a single transaction. Objects whose student already waits for the course are left where
+     * they are. It returns the number of objects moved.
+     */
+    int updateWaitingListEntryCourses(Collection<Long> ids, String newCourse);
+
+    /**
+     * Admits at most the specified number of waiting list entry objects for the specified course,
+     * highest priority first, then earliest added first. In a single transaction each admitted
+     * object is recorded as an admission and removed from the waiting list. It returns the
+     * admissions in the order they were admitted. It throws an illegal argument exception if the
+     * number is negative.
+     */
+    List<Admission> admitNextInLine(String course, int seatCount);
+
+    /**
+     * Admits the next in line for every course in the map, up to the number of seats released for
+     * that course, all in a single transaction. It returns the admissions course by course in map
+     * order. It throws an illegal argument exception, admitting no one, if any number is negative.
+     */
+    List<Admission> admitNextInLine(Map<String, Integer> seatCounts);
+
+    /**
+     * Returns the number of waiting list entry objects for every course and priority that has at
+     * least one, ordered by course, then by priority from highest to lowest.
+     */
+    List<CourseDemand> getCourseDemand();
+
+    /**
+     * Returns the number of waiting list entry objects for every priority of the specified course
+     * that has at least one, ordered by priority from highest to lowest.
+     */
+    List<CourseDemand> getCourseDemand(String course);
+}
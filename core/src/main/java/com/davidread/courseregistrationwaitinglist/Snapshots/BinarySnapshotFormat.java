@@ -0,0 +1,99 @@
+package com.davidread.courseregistrationwaitinglist.Snapshots;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * This class holds the constants and primitive encodings of the binary snapshot format.
+ *
+ * <p>A snapshot starts with the four magic bytes "WLSN", a version byte, and a flags byte. If the
+ * gzip flag is set, everything after the header is gzip compressed. The body is a sequence of
+ * records, each starting with a record type byte. A course or priority record appends a string to
+ * the course or priority dictionary. An entry record holds the id as a zigzag encoded difference
+ * from the previous id, the first and last names, and references into the course and priority
+ * dictionaries. An end record holds the number of entry records and closes the snapshot.
+ *
+ * <p>Integers are unsigned variable length, seven bits per byte, least significant group first.
+ * Strings are a length followed by that many bytes of UTF-8, where the length is stored plus one
+ * so that zero can mean null. Dictionary references are stored the same way: zero for null, or
+ * the position in the dictionary plus one.
+ */
+final class BinarySnapshotFormat {
+
+    // Header constants.
+    static final byte[] MAGIC = {'W', 'L', 'S', 'N'};
+    static final int VERSION = 1;
+    static final int FLAG_GZIP = 1;
+
+    // Record types.
+    static final int RECORD_END = 0;
+    static final int RECORD_COURSE = 1;
+    static final int RECORD_PRIORITY = 2;
+    static final int RECORD_ENTRY = 3;
+
+    // Size of the stream buffers, in bytes.
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private BinarySnapshotFormat() {
+    }
+
+    /**
+     * Writes an unsigned variable length integer.
+     */
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Reads an unsigned variable length integer.
+     */
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new SnapshotFormatException("Variable length integer is too long");
+    }
+
+    /**
+     * Reads a variable length integer that must fit in an int.
+     */
+    static int readVarInt(InputStream in) throws IOException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE)
+            throw new SnapshotFormatException("Variable length integer is too large: " + value);
+        return (int) value;
+    }
+
+    /**
+     * Returns the zigzag encoding of a signed value, so small negative values stay small.
+     */
+    static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Returns the signed value of a zigzag encoded value.
+     */
+    static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads one byte, throwing if the stream has ended.
+     */
+    static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1)
+            throw new SnapshotFormatException("Snapshot ended early");
+        return b;
+    }
+}
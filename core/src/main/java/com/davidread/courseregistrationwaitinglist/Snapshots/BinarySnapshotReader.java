@@ -0,0 +1,174 @@
+package com.davidread.courseregistrationwaitinglist.Snapshots;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * This class reads waiting list entry objects from a stream in the binary snapshot format
+ * described by BinarySnapshotFormat. Entries are decoded one at a time as they are read. Every
+ * entry of a course or priority shares the one string read from the dictionary.
+ */
+public class BinarySnapshotReader implements WaitingListEntryReader {
+
+    // Class objects.
+    private final InputStream in;
+    private final ArrayList<String> courses = new ArrayList<>();
+    private final ArrayList<String> priorities = new ArrayList<>();
+    private byte[] stringBuffer = new byte[64];
+    private long previousId;
+    private long entryCount;
+    private boolean isEnded;
+
+    /**
+     * Constructs a binary snapshot reader over the specified stream and reads the header. The
+     * stream is closed when the reader is closed.
+     */
+    public BinarySnapshotReader(InputStream in) throws IOException {
+
+        InputStream bufferedIn = new BufferedInputStream(in, BinarySnapshotFormat.BUFFER_SIZE);
+
+        for (byte magicByte : BinarySnapshotFormat.MAGIC)
+            if (BinarySnapshotFormat.readByte(bufferedIn) != magicByte)
+                throw new SnapshotFormatException("Not a waiting list snapshot");
+
+        int version = BinarySnapshotFormat.readByte(bufferedIn);
+        if (version != BinarySnapshotFormat.VERSION)
+            throw new SnapshotFormatException("Unsupported snapshot version " + version);
+
+        int flags = BinarySnapshotFormat.readByte(bufferedIn);
+        if ((flags & BinarySnapshotFormat.FLAG_GZIP) != 0) {
+            try {
+                this.in = new BufferedInputStream(new GZIPInputStream(bufferedIn, BinarySnapshotFormat.BUFFER_SIZE), BinarySnapshotFormat.BUFFER_SIZE);
+            } catch (EOFException e) {
+                throw new SnapshotFormatException("Snapshot ended early");
+            }
+        } else {
+            this.in = bufferedIn;
+        }
+    }
+
+    /**
+     * Returns true if the stream starts with the snapshot magic bytes. The stream must support
+     * mark and reset, and is left at the position it started at.
+     */
+    public static boolean isBinarySnapshot(InputStream in) throws IOException {
+        in.mark(BinarySnapshotFormat.MAGIC.length);
+        try {
+            for (byte magicByte : BinarySnapshotFormat.MAGIC)
+                if (in.read() != magicByte)
+                    return false;
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Returns the next waiting list entry object, or null once the end record has been read. It
+     * throws if the number of entries read does not match the end record, or if the stream ends
+     * before the end record or goes on after it, including within compressed data.
+     */
+    @Override
+    public WaitingListEntry read() throws IOException {
+        try {
+            return readEntry();
+        } catch (EOFException e) {
+            throw new SnapshotFormatException("Snapshot ended early");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads records up to and including the next entry record, returning its object, or null once
+     * the end record has been read.
+     */
+    private WaitingListEntry readEntry() throws IOException {
+
+        while (!isEnded) {
+
+            int recordType = BinarySnapshotFormat.readByte(in);
+
+            switch (recordType) {
+
+                case BinarySnapshotFormat.RECORD_COURSE:
+                    courses.add(readString());
+                    break;
+
+                case BinarySnapshotFormat.RECORD_PRIORITY:
+                    priorities.add(readString());
+                    break;
+
+                case BinarySnapshotFormat.RECORD_ENTRY:
+                    long id = previousId + BinarySnapshotFormat.zigzagDecode(BinarySnapshotFormat.readVarLong(in));
+                    String firstName = readString();
+                    String lastName = readString();
+                    String course = dereference(courses, BinarySnapshotFormat.readVarInt(in));
+                    String priority = dereference(priorities, BinarySnapshotFormat.readVarInt(in));
+                    previousId = id;
+                    entryCount++;
+                    return new WaitingListEntry(id, firstName, lastName, course, priority);
+
+                case BinarySnapshotFormat.RECORD_END:
+                    long expectedEntryCount = BinarySnapshotFormat.readVarLong(in);
+                    if (expectedEntryCount != entryCount)
+                        throw new SnapshotFormatException("Snapshot holds " + entryCount + " entries but expected " + expectedEntryCount);
+                    // Reading to the end of the stream also checks the gzip trailer, if any.
+                    if (in.read() != -1)
+                        throw new SnapshotFormatException("Snapshot has data after the end record");
+                    isEnded = true;
+                    break;
+
+                default:
+                    throw new SnapshotFormatException("Unknown snapshot record type " + recordType);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads a string written as its length plus one followed by its UTF-8 bytes.
+     */
+    private String readString() throws IOException {
+
+        int lengthPlusOne = BinarySnapshotFormat.readVarInt(in);
+        if (lengthPlusOne == 0)
+            return null;
+
+        int length = lengthPlusOne - 1;
+        if (length > stringBuffer.length)
+            stringBuffer = new byte[Math.max(length, stringBuffer.length * 2)];
+
+        int offset = 0;
+        while (offset < length) {
+            int count = in.read(stringBuffer, offset, length - offset);
+            if (count == -1)
+                throw new SnapshotFormatException("Snapshot ended early");
+            offset += count;
+        }
+
+        return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the dictionary string a reference points to, or null for a zero reference.
+     */
+    private static String dereference(ArrayList<String> dictionary, int reference) throws SnapshotFormatException {
+        if (reference == 0)
+            return null;
+        if (reference > dictionary.size())
+            throw new SnapshotFormatException("Dictionary reference " + reference + " is out of range");
+        return dictionary.get(reference - 1);
+    }
+}
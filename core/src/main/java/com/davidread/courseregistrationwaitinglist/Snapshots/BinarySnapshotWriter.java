@@ -0,0 +1,103 @@
+package com.davidread.courseregistrationwaitinglist.Snapshots;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class writes waiting list entry objects in the binary snapshot format described by
+ * BinarySnapshotFormat. Course and priority strings are written once, the first time they are
+ * seen, and referenced by position afterwards, so memory use grows with the number of distinct
+ * courses rather than the number of entries. Entries written in id order keep each id to a byte
+ * or two.
+ */
+public class BinarySnapshotWriter implements WaitingListEntryWriter {
+
+    // Class objects.
+    private final OutputStream out;
+    private final HashMap<String, Integer> courseReferences = new HashMap<>();
+    private final HashMap<String, Integer> priorityReferences = new HashMap<>();
+    private long previousId;
+    private long entryCount;
+    private boolean isClosed;
+
+    /**
+     * Constructs a binary snapshot writer over the specified stream and writes the header. The body
+     * is gzip compressed if compress is true. The stream is closed when the writer is closed.
+     */
+    public BinarySnapshotWriter(OutputStream out, boolean compress) throws IOException {
+        OutputStream bufferedOut = new BufferedOutputStream(out, BinarySnapshotFormat.BUFFER_SIZE);
+        bufferedOut.write(BinarySnapshotFormat.MAGIC);
+        bufferedOut.write(BinarySnapshotFormat.VERSION);
+        bufferedOut.write(compress ? BinarySnapshotFormat.FLAG_GZIP : 0);
+        this.out = compress ? new BufferedOutputStream(new GZIPOutputStream(bufferedOut, BinarySnapshotFormat.BUFFER_SIZE), BinarySnapshotFormat.BUFFER_SIZE) : bufferedOut;
+    }
+
+    @Override
+    public void write(WaitingListEntry waitingListEntry) throws IOException {
+
+        int courseReference = getReference(courseReferences, BinarySnapshotFormat.RECORD_COURSE, waitingListEntry.getCourse());
+        int priorityReference = getReference(priorityReferences, BinarySnapshotFormat.RECORD_PRIORITY, waitingListEntry.getPriority());
+
+        out.write(BinarySnapshotFormat.RECORD_ENTRY);
+        BinarySnapshotFormat.writeVarLong(out, BinarySnapshotFormat.zigzagEncode(waitingListEntry.getId() - previousId));
+        writeString(waitingListEntry.getFirstName());
+        writeString(waitingListEntry.getLastName());
+        BinarySnapshotFormat.writeVarLong(out, courseReference);
+        BinarySnapshotFormat.writeVarLong(out, priorityReference);
+
+        previousId = waitingListEntry.getId();
+        entryCount++;
+    }
+
+    /**
+     * Writes the end record, finishes compression if any, and closes the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (isClosed)
+            return;
+        isClosed = true;
+        try {
+            out.write(BinarySnapshotFormat.RECORD_END);
+            BinarySnapshotFormat.writeVarLong(out, entryCount);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the dictionary reference of the value, first writing a dictionary record of the
+     * specified type if the value has not been seen before.
+     */
+    private int getReference(HashMap<String, Integer> references, int recordType, String value) throws IOException {
+        if (value == null)
+            return 0;
+        Integer reference = references.get(value);
+        if (reference != null)
+            return reference;
+        out.write(recordType);
+        writeString(value);
+        reference = references.size() + 1;
+        references.put(value, reference);
+        return reference;
+    }
+
+    /**
+     * Writes a string as its length plus one followed by its UTF-8 bytes, or a zero for null.
+     */
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.write(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        BinarySnapshotFormat.writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,167 @@
+package com.davidread.courseregistrationwaitinglist.Snapshots;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class reads waiting list entry objects from UTF-8 CSV with a header row. Columns are found
+ * by their header names, so they may appear in any order and unknown columns are ignored. The id
+ * column is optional. Quoted fields may hold commas, doubled quotes, and line breaks as in
+ * RFC 4180. Unquoted empty fields are read as null. Blank lines are skipped. A row with fewer
+ * fields than the header row, as left by a file cut short, is rejected.
+ */
+public class CsvWaitingListEntryReader implements WaitingListEntryReader {
+
+    // Class objects.
+    private final Reader reader;
+    private final int[] columnPositions = new int[CsvWaitingListEntryWriter.HEADER.length];
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private int headerFieldCount;
+    private int lineNumber;
+    private int pushedBack = -2;
+
+    /**
+     * Constructs a CSV reader over the specified stream and reads the header row. The stream is
+     * closed when the reader is closed.
+     */
+    public CsvWaitingListEntryReader(InputStream in) throws IOException {
+
+        reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BinarySnapshotFormat.BUFFER_SIZE);
+
+        if (!readRow())
+            throw new SnapshotFormatException("CSV has no header row");
+
+        // Drop a byte order mark written by some spreadsheets.
+        if (fields.get(0) != null && fields.get(0).startsWith("\uFEFF"))
+            fields.set(0, fields.get(0).substring(1));
+        headerFieldCount = fields.size();
+
+        for (int i = 0; i < columnPositions.length; i++) {
+            columnPositions[i] = fields.indexOf(CsvWaitingListEntryWriter.HEADER[i]);
+            if (columnPositions[i] == -1 && i > 0)
+                throw new SnapshotFormatException("CSV has no " + CsvWaitingListEntryWriter.HEADER[i] + " column");
+        }
+    }
+
+    @Override
+    public WaitingListEntry read() throws IOException {
+
+        if (!readRow())
+            return null;
+        if (fields.size() < headerFieldCount)
+            throw new SnapshotFormatException("CSV line " + lineNumber + " has " + fields.size() + " fields but the header has " + headerFieldCount);
+
+        String id = getField(0);
+        try {
+            return new WaitingListEntry(
+                    id == null ? 0 : Long.parseLong(id.trim()),
+                    getField(1),
+                    getField(2),
+                    getField(3),
+                    getField(4)
+            );
+        } catch (NumberFormatException e) {
+            throw new SnapshotFormatException("CSV line " + lineNumber + " has an invalid id: " + id);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Returns the field of the current row in the column with the specified header position, or
+     * null if the column is missing.
+     */
+    private String getField(int headerPosition) {
+        int columnPosition = columnPositions[headerPosition];
+        return columnPosition == -1 ? null : fields.get(columnPosition);
+    }
+
+    /**
+     * Reads the next row that is not blank into the field list. It returns false at the end of the
+     * stream.
+     */
+    private boolean readRow() throws IOException {
+
+        int c;
+        do {
+            c = next();
+            if (c == -1)
+                return false;
+        } while (c == '\r' || c == '\n');
+        pushBack(c);
+
+        fields.clear();
+        lineNumber++;
+
+        while (true) {
+
+            field.setLength(0);
+            boolean isQuoted = false;
+            c = next();
+
+            if (c == '"') {
+                isQuoted = true;
+                while (true) {
+                    c = next();
+                    if (c == -1)
+                        throw new SnapshotFormatException("CSV line " + lineNumber + " has an unterminated quote");
+                    if (c == '"') {
+                        c = next();
+                        if (c != '"')
+                            break;
+                    }
+                    if (c == '\n')
+                        lineNumber++;
+                    field.append((char) c);
+                }
+            }
+
+            while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                field.append((char) c);
+                c = next();
+            }
+
+            fields.add(!isQuoted && field.length() == 0 ? null : field.toString());
+
+            if (c != ',') {
+                if (c == '\r') {
+                    c = next();
+                    if (c != '\n')
+                        pushBack(c);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the next character, or -1 at the end of the stream.
+     */
+    private int next() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    /**
+     * Makes the specified character the next one returned.
+     */
+    private void pushBack(int c) {
+        pushedBack = c;
+    }
+}
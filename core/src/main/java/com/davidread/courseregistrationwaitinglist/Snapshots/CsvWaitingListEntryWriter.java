@@ -0,0 +1,89 @@
+package com.davidread.courseregistrationwaitinglist.Snapshots;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class writes waiting list entry objects as UTF-8 CSV with a header row, for use in
+ * spreadsheets and other tools. Fields holding a comma, quote, or line break are quoted as in
+ * RFC 4180. Null fields are written empty and empty strings are written as a pair of quotes, so
+ * the two can be told apart when the file is read back.
+ */
+public class CsvWaitingListEntryWriter implements WaitingListEntryWriter {
+
+    // The header row, which names the columns in the order they are written.
+    static final String[] HEADER = {
+            WaitingListEntry.COLUMN_ID,
+            WaitingListEntry.COLUMN_FIRST_NAME,
+            WaitingListEntry.COLUMN_LAST_NAME,
+            WaitingListEntry.COLUMN_COURSE,
+            WaitingListEntry.COLUMN_PRIORITY
+    };
+
+    // Class objects.
+    private final Writer writer;
+
+    /**
+     * Constructs a CSV writer over the specified stream and writes the header row. The stream is
+     * closed when the writer is closed.
+     */
+    public CsvWaitingListEntryWriter(OutputStream out) throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BinarySnapshotFormat.BUFFER_SIZE);
+        writeRow(HEADER);
+    }
+
+    @Override
+    public void write(WaitingListEntry waitingListEntry) throws IOException {
+        writeRow(new String[]{
+                String.valueOf(waitingListEntry.getId()),
+                waitingListEntry.getFirstName(),
+                waitingListEntry.getLastName(),
+                waitingListEntry.getCourse(),
+                waitingListEntry.getPriority()
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Writes the fields as one row ending in a CRLF line break.
+     */
+    private void writeRow(String[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0)
+                writer.write(',');
+            writeField(fields[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Writes a field, quoting it and doubling its quotes if it is empty or holds a comma, quote,
+     * or line break.
+     */
+    private void writeField(String field) throws IOException {
+        if (field == null)
+            return;
+        boolean isQuoted = field.isEmpty();
+        for (int i = 0; i < field.length() && !isQuoted; i++) {
+            char c = field.charAt(i);
+            isQuoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!isQuoted) {
+            writer.write(field);
+            return;
+        }
+        writer.write('"');
+        writer.write(field.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
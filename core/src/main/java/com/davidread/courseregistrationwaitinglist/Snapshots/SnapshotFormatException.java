@@ -0,0 +1,16 @@
+package com.davidread.courseregistrationwaitinglist.Snapshots;
+
+import java.io.IOException;
+
+/**
+ * This exception is thrown when a snapshot or CSV stream is not in the expected format, is of an
+ * unsupported version, or ends early.
+ */
+public class SnapshotFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SnapshotFormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.davidread.courseregistrationwaitinglist.Snapshots;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * This interface reads waiting list entry objects from a stream one at a time, so a whole table
+ * can be imported without holding it in memory.
+ */
+public interface WaitingListEntryReader extends Closeable {
+
+    /**
+     * Returns the next waiting list entry object, or null once every object has been read.
+     */
+    WaitingListEntry read() throws IOException;
+}
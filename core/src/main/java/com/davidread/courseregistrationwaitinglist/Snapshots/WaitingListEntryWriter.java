@@ -0,0 +1,19 @@
+package com.davidread.courseregistrationwaitinglist.Snapshots;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * This interface writes waiting list entry objects to a stream one at a time, so a whole table
+ * can be exported without holding it in memory. Closing the writer finishes the stream and closes
+ * it.
+ */
+public interface WaitingListEntryWriter extends Closeable {
+
+    /**
+     * Writes the waiting list entry object after those already written.
+     */
+    void write(WaitingListEntry waitingListEntry) throws IOException;
+}
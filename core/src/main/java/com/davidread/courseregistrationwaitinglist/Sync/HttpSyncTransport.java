@@ -0,0 +1,120 @@
+package com.davidread.courseregistrationwaitinglist.Sync;
+
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.List;
+
+/**
+ * This class talks to the registrar backend over HTTP. A push is a POST of a push batch to the
+ * push endpoint, answered by any 2xx status once the batch is stored. A pull is a GET of the pull
+ * endpoint with the device id, cursor, and limit as query parameters, answered by a pull batch.
+ * Both endpoints are resolved against the base URL, which should end with a slash. Response
+ * bodies are read to their end so kept alive connections are reused between the batches of a
+ * sync. A request that fails can simply be made again.
+ */
+public class HttpSyncTransport implements SyncTransport {
+
+    // Endpoint paths, relative to the base URL.
+    private static final String PUSH_PATH = "push";
+    private static final String PULL_PATH = "pull";
+
+    // Timeouts, in milliseconds.
+    private static final int CONNECT_TIMEOUT_MILLIS = 15_000;
+    private static final int READ_TIMEOUT_MILLIS = 60_000;
+
+    // Class objects.
+    private final URL baseUrl;
+
+    /**
+     * Constructs a transport for the backend at the specified base URL.
+     */
+    public HttpSyncTransport(URL baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Encodes the batch before connecting, so its exact length is sent and the body is not
+     * buffered again by the connection.
+     */
+    @Override
+    public void push(String deviceId, long batchSeq, List<SyncChange> changes) throws IOException {
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        SyncBatchFormat.writePushBatch(body, new SyncPushBatch(deviceId, batchSeq, changes));
+
+        HttpURLConnection connection = open(new URL(baseUrl, PUSH_PATH));
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", SyncBatchFormat.CONTENT_TYPE);
+        connection.setFixedLengthStreamingMode(body.size());
+        try (OutputStream out = connection.getOutputStream()) {
+            body.writeTo(out);
+        }
+        checkStatus(connection, "Push");
+        drain(connection.getInputStream());
+    }
+
+    @Override
+    public SyncPullBatch pull(String deviceId, long cursor, int limit) throws IOException {
+
+        URL pullUrl = new URL(baseUrl, PULL_PATH
+                + "?device=" + URLEncoder.encode(deviceId, "UTF-8")
+                + "&cursor=" + cursor
+                + "&limit=" + limit);
+
+        HttpURLConnection connection = open(pullUrl);
+        connection.setRequestProperty("Accept", SyncBatchFormat.CONTENT_TYPE);
+        checkStatus(connection, "Pull");
+        try (InputStream in = connection.getInputStream()) {
+            SyncPullBatch batch = SyncBatchFormat.readPullBatch(in);
+            drain(in);
+            return batch;
+        }
+    }
+
+    /**
+     * Opens a connection with the transport timeouts. Caches are bypassed, since every response
+     * depends on state the cache cannot see.
+     */
+    private static HttpURLConnection open(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    /**
+     * Throws if the response status is not 2xx.
+     */
+    private static void checkStatus(HttpURLConnection connection, String operation) throws IOException {
+        int status = connection.getResponseCode();
+        if (status < 200 || status >= 300) {
+            InputStream errorStream = connection.getErrorStream();
+            if (errorStream != null)
+                drain(errorStream);
+            throw new SyncException(operation + " failed with HTTP " + status);
+        }
+    }
+
+    /**
+     * Reads a response body to its end and closes it, so its connection can be reused.
+     */
+    private static void drain(InputStream in) throws IOException {
+        try {
+            byte[] buffer = new byte[1024];
+            while (in.read(buffer) != -1) {
+                // Discard.
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
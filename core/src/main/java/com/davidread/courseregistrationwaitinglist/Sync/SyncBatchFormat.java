@@ -0,0 +1,171 @@
+package com.davidread.courseregistrationwaitinglist.Sync;
+
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class reads and writes the batches exchanged with the registrar backend.
+ *
+ * <p>A batch starts with the four magic bytes "WLSY" and a version byte. Everything after the
+ * header is gzip compressed, so the size of a sync grows with the number of changed rows rather
+ * than with the size of the rows. A push batch holds the device id, the batch sequence number, and
+ * the changes. A pull batch holds the next cursor, whether more changes follow, and the changes.
+ * A change is a deleted flag, the first name, last name, course, and priority, the update time,
+ * and the origin. Strings are a presence flag followed by modified UTF-8, so null survives the
+ * trip. The change sequence number of a change is local to its device and is not written.
+ */
+public final class SyncBatchFormat {
+
+    // Content type of a batch in an HTTP request or response.
+    public static final String CONTENT_TYPE = "application/vnd.waiting-list-sync";
+
+    // Header constants.
+    private static final byte[] MAGIC = {'W', 'L', 'S', 'Y'};
+    private static final int VERSION = 1;
+
+    // Size of the stream buffers, in bytes.
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private SyncBatchFormat() {
+    }
+
+    /**
+     * Writes a push batch and finishes the stream without closing it.
+     */
+    public static void writePushBatch(OutputStream out, SyncPushBatch batch) throws IOException {
+        GZIPOutputStream gzipOut = startBatch(out);
+        DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(gzipOut, BUFFER_SIZE));
+        dataOut.writeUTF(batch.getDeviceId());
+        dataOut.writeLong(batch.getBatchSeq());
+        writeChanges(dataOut, batch.getChanges());
+        dataOut.flush();
+        gzipOut.finish();
+    }
+
+    /**
+     * Reads a push batch.
+     */
+    public static SyncPushBatch readPushBatch(InputStream in) throws IOException {
+        DataInputStream dataIn = startReading(in);
+        String deviceId = dataIn.readUTF();
+        long batchSeq = dataIn.readLong();
+        return new SyncPushBatch(deviceId, batchSeq, readChanges(dataIn));
+    }
+
+    /**
+     * Writes a pull batch and finishes the stream without closing it.
+     */
+    public static void writePullBatch(OutputStream out, SyncPullBatch batch) throws IOException {
+        GZIPOutputStream gzipOut = startBatch(out);
+        DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(gzipOut, BUFFER_SIZE));
+        dataOut.writeLong(batch.getNextCursor());
+        dataOut.writeBoolean(batch.hasMore());
+        writeChanges(dataOut, batch.getChanges());
+        dataOut.flush();
+        gzipOut.finish();
+    }
+
+    /**
+     * Reads a pull batch.
+     */
+    public static SyncPullBatch readPullBatch(InputStream in) throws IOException {
+        DataInputStream dataIn = startReading(in);
+        long nextCursor = dataIn.readLong();
+        boolean hasMore = dataIn.readBoolean();
+        return new SyncPullBatch(readChanges(dataIn), nextCursor, hasMore);
+    }
+
+    /**
+     * Writes the header and returns a stream compressing everything after it. The gzip stream is
+     * finished rather than closed, so the underlying stream stays open.
+     */
+    private static GZIPOutputStream startBatch(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        return new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+
+    /**
+     * Checks the header and returns a stream decompressing everything after it.
+     */
+    private static DataInputStream startReading(InputStream in) throws IOException {
+        for (byte magicByte : MAGIC) {
+            int b = in.read();
+            if (b != magicByte)
+                throw new SyncException("Not a waiting list sync batch");
+        }
+        int version = in.read();
+        if (version != VERSION)
+            throw new SyncException("Unsupported sync batch version " + version);
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+    /**
+     * Writes the number of changes followed by each change.
+     */
+    private static void writeChanges(DataOutputStream dataOut, List<SyncChange> changes) throws IOException {
+        dataOut.writeInt(changes.size());
+        for (SyncChange change : changes) {
+            dataOut.writeBoolean(change.isDeleted());
+            writeString(dataOut, change.getFirstName());
+            writeString(dataOut, change.getLastName());
+            writeString(dataOut, change.getCourse());
+            writeString(dataOut, change.getPriority());
+            dataOut.writeLong(change.getUpdatedAt());
+            writeString(dataOut, change.getOrigin());
+        }
+    }
+
+    /**
+     * Reads the number of changes followed by each change.
+     */
+    private static List<SyncChange> readChanges(DataInputStream dataIn) throws IOException {
+        try {
+            int count = dataIn.readInt();
+            if (count < 0)
+                throw new SyncException("Sync batch has a negative change count");
+            List<SyncChange> changes = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                boolean isDeleted = dataIn.readBoolean();
+                String firstName = readString(dataIn);
+                String lastName = readString(dataIn);
+                String course = readString(dataIn);
+                String priority = readString(dataIn);
+                long updatedAt = dataIn.readLong();
+                String origin = readString(dataIn);
+                changes.add(new SyncChange(firstName, lastName, course, priority, updatedAt, origin, isDeleted));
+            }
+            return changes;
+        } catch (EOFException e) {
+            throw new SyncException("Sync batch ended early");
+        }
+    }
+
+    /**
+     * Writes a presence flag followed by the string if it is not null.
+     */
+    private static void writeString(DataOutputStream dataOut, String value) throws IOException {
+        dataOut.writeBoolean(value != null);
+        if (value != null)
+            dataOut.writeUTF(value);
+    }
+
+    /**
+     * Reads a string written by writeString().
+     */
+    private static String readString(DataInputStream dataIn) throws IOException {
+        return dataIn.readBoolean() ? dataIn.readUTF() : null;
+    }
+}
@@ -0,0 +1,82 @@
+package com.davidread.courseregistrationwaitinglist.Sync;
+
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * This class syncs a local store with the registrar backend. It first pushes the local changes
+ * that have not been pushed, one batch at a time, then pulls the changes other devices have made
+ * since the last pull, one batch at a time. Only changed rows are sent in either direction.
+ *
+ * <p>The store records its progress after every batch, so a sync that fails partway leaves every
+ * completed batch in place and the next sync resumes after it. A push batch whose acknowledgement
+ * was lost is sent again with the same batch sequence number. Applying a change twice leaves the
+ * same result, since conflicts are resolved by comparing versions rather than arrival order.
+ */
+public class SyncEngine {
+
+    // Default number of changes per batch.
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    // Class objects.
+    private final SyncStore store;
+    private final SyncTransport transport;
+    private final int batchSize;
+
+    /**
+     * Constructs a sync engine between the specified store and transport with the default batch
+     * size.
+     */
+    public SyncEngine(SyncStore store, SyncTransport transport) {
+        this(store, transport, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a sync engine between the specified store and transport with the specified batch
+     * size.
+     */
+    public SyncEngine(SyncStore store, SyncTransport transport, int batchSize) {
+        this.store = store;
+        this.transport = transport;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Pushes every pending local change, then pulls every remote change. It returns the counts of
+     * the changes moved in each direction. It throws on the first batch that fails.
+     */
+    public SyncResult sync() throws IOException {
+        int pushedCount = push();
+        int pulledCount = 0;
+        int appliedCount = 0;
+        String deviceId = store.getDeviceId();
+        while (true) {
+            SyncPullBatch batch = transport.pull(deviceId, store.getPullCursor(), batchSize);
+            appliedCount += store.applyRemoteChanges(batch.getChanges(), batch.getNextCursor());
+            pulledCount += batch.getChanges().size();
+            if (!batch.hasMore())
+                break;
+        }
+        return new SyncResult(pushedCount, pulledCount, appliedCount);
+    }
+
+    /**
+     * Pushes every pending local change, one batch at a time. It returns the number of changes
+     * pushed.
+     */
+    public int push() throws IOException {
+        String deviceId = store.getDeviceId();
+        int pushedCount = 0;
+        while (true) {
+            List<SyncChange> changes = store.getPendingChanges(batchSize);
+            if (changes.isEmpty())
+                return pushedCount;
+            long batchSeq = changes.get(changes.size() - 1).getChangeSeq();
+            transport.push(deviceId, batchSeq, changes);
+            store.markPushed(batchSeq);
+            pushedCount += changes.size();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.davidread.courseregistrationwaitinglist.Sync;
+
+import java.io.IOException;
+
+/**
+ * This exception is thrown when the backend rejects a sync request or answers with a batch that
+ * is not in the expected format.
+ */
+public class SyncException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SyncException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,38 @@
+package com.davidread.courseregistrationwaitinglist.Sync;
+
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
+
+import java.util.List;
+
+/**
+ * This class represents one batch of changes pulled from the backend, along with the cursor to
+ * pull the next batch from and whether the backend holds more changes after it.
+ */
+public class SyncPullBatch {
+
+    // Class objects.
+    private final List<SyncChange> changes;
+    private final long nextCursor;
+    private final boolean hasMore;
+
+    /**
+     * Constructs a pull batch with the specified changes and cursor.
+     */
+    public SyncPullBatch(List<SyncChange> changes, long nextCursor, boolean hasMore) {
+        this.changes = changes;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<SyncChange> getChanges() {
+        return changes;
+    }
+
+    public long getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+}
@@ -0,0 +1,38 @@
+package com.davidread.courseregistrationwaitinglist.Sync;
+
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
+
+import java.util.List;
+
+/**
+ * This class represents one batch of changes pushed by a device, identified by the device id and
+ * the change sequence number of the last change in the batch.
+ */
+public class SyncPushBatch {
+
+    // Class objects.
+    private final String deviceId;
+    private final long batchSeq;
+    private final List<SyncChange> changes;
+
+    /**
+     * Constructs a push batch with the specified device id, batch sequence number, and changes.
+     */
+    public SyncPushBatch(String deviceId, long batchSeq, List<SyncChange> changes) {
+        this.deviceId = deviceId;
+        this.batchSeq = batchSeq;
+        this.changes = changes;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public long getBatchSeq() {
+        return batchSeq;
+    }
+
+    public List<SyncChange> getChanges() {
+        return changes;
+    }
+}
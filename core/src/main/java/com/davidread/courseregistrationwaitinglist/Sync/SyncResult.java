@@ -0,0 +1,35 @@
+package com.davidread.courseregistrationwaitinglist.Sync;
+
+/**
+ * This class represents the outcome of a sync: how many local changes were pushed, how many
+ * remote changes were pulled, and how many of the pulled changes were applied rather than losing
+ * to an unpushed local change.
+ */
+public class SyncResult {
+
+    // Class variables.
+    private final int pushedCount;
+    private final int pulledCount;
+    private final int appliedCount;
+
+    /**
+     * Constructs a sync result with the specified counts.
+     */
+    public SyncResult(int pushedCount, int pulledCount, int appliedCount) {
+        this.pushedCount = pushedCount;
+        this.pulledCount = pulledCount;
+        this.appliedCount = appliedCount;
+    }
+
+    public int getPushedCount() {
+        return pushedCount;
+    }
+
+    public int getPulledCount() {
+        return pulledCount;
+    }
+
+    public int getAppliedCount() {
+        return appliedCount;
+    }
+}
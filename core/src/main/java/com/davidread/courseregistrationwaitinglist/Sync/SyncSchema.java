@@ -0,0 +1,216 @@
+package com.davidread.courseregistrationwaitinglist.Sync;
+
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+/**
+ * This class holds the SQL that tracks local changes for sync. The app and the JDBC repository
+ * both create their sync tables and triggers from it, so the two cannot drift apart.
+ *
+ * <p>The single row of the sync state table holds the id of this device, the last change sequence
+ * number handed out, the last one pushed to the backend, and the cursor of the last change pulled
+ * from it. Triggers give every inserted or edited waiting list entry the next change sequence
+ * number, the current time, and this device as its origin, and copy every deleted row into the
+ * tombstone table the same way. A row or tombstone whose change sequence number is above the
+ * pushed one is dirty. While remote changes are applied, the applying remote flag is set and the
+ * triggers stand aside, so pulled changes are not pushed back.
+ */
+public final class SyncSchema {
+
+    // SQLite constants of the sync state table.
+    public static final String STATE_TABLE_NAME = "sync_state";
+    public static final String COLUMN_ID = "id";
+    public static final String COLUMN_DEVICE_ID = "device_id";
+    public static final String COLUMN_LAST_CHANGE_SEQ = "last_change_seq";
+    public static final String COLUMN_PUSHED_CHANGE_SEQ = "pushed_change_seq";
+    public static final String COLUMN_PULL_CURSOR = "pull_cursor";
+    public static final String COLUMN_APPLYING_REMOTE = "applying_remote";
+
+    // The current time in milliseconds since the epoch, as SQLite computes it.
+    public static final String NOW_MILLIS = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+
+    // Sync statements. A tombstone whose keys a live row holds again is not pushed, since the row
+    // is. Remote rows are written with the waiting list entry attributes, priority rank, and keys
+    // bound to the first seven parameters, as local rows are, followed by the update time and
+    // origin. Their change sequence number is zero, so they are never pushed.
+    public static final String SELECT_STATE_QUERY = "SELECT "
+            + COLUMN_DEVICE_ID + ","
+            + COLUMN_PUSHED_CHANGE_SEQ + ","
+            + COLUMN_PULL_CURSOR
+            + " FROM " + STATE_TABLE_NAME + " WHERE " + COLUMN_ID + " = 0";
+    public static final String SELECT_PENDING_CHANGES_QUERY = "SELECT "
+            + WaitingListEntry.COLUMN_FIRST_NAME + ","
+            + WaitingListEntry.COLUMN_LAST_NAME + ","
+            + WaitingListEntry.COLUMN_COURSE + ","
+            + WaitingListEntry.COLUMN_PRIORITY + ","
+            + WaitingListEntry.COLUMN_UPDATED_AT + ","
+            + WaitingListEntry.COLUMN_ORIGIN + ",0,"
+            + WaitingListEntry.COLUMN_CHANGE_SEQ
+            + " FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_CHANGE_SEQ + " > (SELECT " + COLUMN_PUSHED_CHANGE_SEQ + " FROM " + STATE_TABLE_NAME + " WHERE " + COLUMN_ID + " = 0)"
+            + " UNION ALL SELECT "
+            + WaitingListEntry.COLUMN_FIRST_NAME + ","
+            + WaitingListEntry.COLUMN_LAST_NAME + ","
+            + WaitingListEntry.COLUMN_COURSE + ",NULL,"
+            + WaitingListEntry.COLUMN_UPDATED_AT + ","
+            + WaitingListEntry.COLUMN_ORIGIN + ",1,"
+            + WaitingListEntry.COLUMN_CHANGE_SEQ
+            + " FROM " + SyncChange.TOMBSTONE_TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_CHANGE_SEQ + " > (SELECT " + COLUMN_PUSHED_CHANGE_SEQ + " FROM " + STATE_TABLE_NAME + " WHERE " + COLUMN_ID + " = 0)"
+            + " AND NOT EXISTS (SELECT 1 FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.TABLE_NAME + "." + WaitingListEntry.COLUMN_NAME_KEY + " = " + SyncChange.TOMBSTONE_TABLE_NAME + "." + WaitingListEntry.COLUMN_NAME_KEY
+            + " AND " + WaitingListEntry.TABLE_NAME + "." + WaitingListEntry.COLUMN_COURSE_KEY + " = " + SyncChange.TOMBSTONE_TABLE_NAME + "." + WaitingListEntry.COLUMN_COURSE_KEY + ")"
+            + " ORDER BY 8 LIMIT ?";
+    public static final String UPDATE_PUSHED_CHANGE_SEQ_STATEMENT = "UPDATE " + STATE_TABLE_NAME
+            + " SET " + COLUMN_PUSHED_CHANGE_SEQ + " = MAX(" + COLUMN_PUSHED_CHANGE_SEQ + ", ?)"
+            + " WHERE " + COLUMN_ID + " = 0";
+    public static final String DELETE_PUSHED_TOMBSTONES_STATEMENT = "DELETE FROM " + SyncChange.TOMBSTONE_TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_CHANGE_SEQ + " <= ?";
+    public static final String UPDATE_APPLYING_REMOTE_STATEMENT = "UPDATE " + STATE_TABLE_NAME
+            + " SET " + COLUMN_APPLYING_REMOTE + " = ?"
+            + " WHERE " + COLUMN_ID + " = 0";
+    public static final String UPDATE_PULL_CURSOR_STATEMENT = "UPDATE " + STATE_TABLE_NAME
+            + " SET " + COLUMN_PULL_CURSOR + " = ?"
+            + " WHERE " + COLUMN_ID + " = 0";
+    public static final String SELECT_ROW_VERSION_QUERY = "SELECT "
+            + WaitingListEntry.COLUMN_ID + ","
+            + WaitingListEntry.COLUMN_UPDATED_AT + ","
+            + WaitingListEntry.COLUMN_ORIGIN
+            + " FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_NAME_KEY + " = ?"
+            + " AND " + WaitingListEntry.COLUMN_COURSE_KEY + " = ?";
+    public static final String SELECT_TOMBSTONE_VERSION_QUERY = "SELECT "
+            + WaitingListEntry.COLUMN_UPDATED_AT + ","
+            + WaitingListEntry.COLUMN_ORIGIN
+            + " FROM " + SyncChange.TOMBSTONE_TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_NAME_KEY + " = ?"
+            + " AND " + WaitingListEntry.COLUMN_COURSE_KEY + " = ?";
+    public static final String INSERT_REMOTE_ROW_STATEMENT = "INSERT INTO " + WaitingListEntry.TABLE_NAME + "("
+            + WaitingListEntry.COLUMN_FIRST_NAME + ","
+            + WaitingListEntry.COLUMN_LAST_NAME + ","
+            + WaitingListEntry.COLUMN_COURSE + ","
+            + WaitingListEntry.COLUMN_PRIORITY + ","
+            + WaitingListEntry.COLUMN_PRIORITY_RANK + ","
+            + WaitingListEntry.COLUMN_NAME_KEY + ","
+            + WaitingListEntry.COLUMN_COURSE_KEY + ","
+            + WaitingListEntry.COLUMN_UPDATED_AT + ","
+            + WaitingListEntry.COLUMN_ORIGIN
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    public static final String UPDATE_REMOTE_ROW_STATEMENT = "UPDATE " + WaitingListEntry.TABLE_NAME + " SET "
+            + WaitingListEntry.COLUMN_FIRST_NAME + " = ?,"
+            + WaitingListEntry.COLUMN_LAST_NAME + " = ?,"
+            + WaitingListEntry.COLUMN_COURSE + " = ?,"
+            + WaitingListEntry.COLUMN_PRIORITY + " = ?,"
+            + WaitingListEntry.COLUMN_PRIORITY_RANK + " = ?,"
+            + WaitingListEntry.COLUMN_NAME_KEY + " = ?,"
+            + WaitingListEntry.COLUMN_COURSE_KEY + " = ?,"
+            + WaitingListEntry.COLUMN_UPDATED_AT + " = ?,"
+            + WaitingListEntry.COLUMN_ORIGIN + " = ?,"
+            + WaitingListEntry.COLUMN_CHANGE_SEQ + " = 0"
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " = ?";
+    public static final String DELETE_REMOTE_ROW_STATEMENT = "DELETE FROM " + WaitingListEntry.TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_ID + " = ?";
+    public static final String DELETE_TOMBSTONE_STATEMENT = "DELETE FROM " + SyncChange.TOMBSTONE_TABLE_NAME
+            + " WHERE " + WaitingListEntry.COLUMN_NAME_KEY + " = ?"
+            + " AND " + WaitingListEntry.COLUMN_COURSE_KEY + " = ?";
+
+    // The columns copied into a tombstone, in the order the tombstone statements list them.
+    static final String TOMBSTONE_COLUMNS = WaitingListEntry.COLUMN_NAME_KEY + ","
+            + WaitingListEntry.COLUMN_COURSE_KEY + ","
+            + WaitingListEntry.COLUMN_FIRST_NAME + ","
+            + WaitingListEntry.COLUMN_LAST_NAME + ","
+            + WaitingListEntry.COLUMN_COURSE + ","
+            + WaitingListEntry.COLUMN_CHANGE_SEQ + ","
+            + WaitingListEntry.COLUMN_UPDATED_AT + ","
+            + WaitingListEntry.COLUMN_ORIGIN;
+
+    private SyncSchema() {
+    }
+
+    /**
+     * Returns the column definitions of the sync columns of the waiting list entry table, for its
+     * create statement.
+     */
+    public static String entryColumnDefinitions() {
+        return WaitingListEntry.COLUMN_CHANGE_SEQ + " INTEGER NOT NULL DEFAULT 0,"
+                + WaitingListEntry.COLUMN_UPDATED_AT + " INTEGER NOT NULL DEFAULT 0,"
+                + WaitingListEntry.COLUMN_ORIGIN + " TEXT";
+    }
+
+    /**
+     * Returns the statements that create the sync state row, the tombstone table, the change
+     * sequence indexes, and the triggers unless they exist. The waiting list entry table must
+     * already have its sync columns. The device id is generated at random.
+     */
+    public static String[] createStatements() {
+
+        String whereState = " WHERE " + COLUMN_ID + " = 0";
+        String isLocal = "(SELECT " + COLUMN_APPLYING_REMOTE + " FROM " + STATE_TABLE_NAME + whereState + ") = 0";
+        String nextChangeSeq = "UPDATE " + STATE_TABLE_NAME + " SET " + COLUMN_LAST_CHANGE_SEQ + " = " + COLUMN_LAST_CHANGE_SEQ + " + 1" + whereState + ";";
+        String stampNewRow = "UPDATE " + WaitingListEntry.TABLE_NAME + " SET "
+                + WaitingListEntry.COLUMN_CHANGE_SEQ + " = (SELECT " + COLUMN_LAST_CHANGE_SEQ + " FROM " + STATE_TABLE_NAME + whereState + "),"
+                + WaitingListEntry.COLUMN_UPDATED_AT + " = " + NOW_MILLIS + ","
+                + WaitingListEntry.COLUMN_ORIGIN + " = (SELECT " + COLUMN_DEVICE_ID + " FROM " + STATE_TABLE_NAME + whereState + ")"
+                + " WHERE " + WaitingListEntry.COLUMN_ID + " = new." + WaitingListEntry.COLUMN_ID + ";";
+        String deleteNewTombstone = "DELETE FROM " + SyncChange.TOMBSTONE_TABLE_NAME
+                + " WHERE " + WaitingListEntry.COLUMN_NAME_KEY + " = new." + WaitingListEntry.COLUMN_NAME_KEY
+                + " AND " + WaitingListEntry.COLUMN_COURSE_KEY + " = new." + WaitingListEntry.COLUMN_COURSE_KEY + ";";
+        String insertOldTombstone = "INSERT OR REPLACE INTO " + SyncChange.TOMBSTONE_TABLE_NAME + "(" + TOMBSTONE_COLUMNS + ")"
+                + " SELECT old." + WaitingListEntry.COLUMN_NAME_KEY
+                + ",old." + WaitingListEntry.COLUMN_COURSE_KEY
+                + ",old." + WaitingListEntry.COLUMN_FIRST_NAME
+                + ",old." + WaitingListEntry.COLUMN_LAST_NAME
+                + ",old." + WaitingListEntry.COLUMN_COURSE
+                + "," + COLUMN_LAST_CHANGE_SEQ + "," + NOW_MILLIS + "," + COLUMN_DEVICE_ID
+                + " FROM " + STATE_TABLE_NAME + whereState;
+        String isKeyChanged = " AND (old." + WaitingListEntry.COLUMN_NAME_KEY + " IS NOT new." + WaitingListEntry.COLUMN_NAME_KEY
+                + " OR old." + WaitingListEntry.COLUMN_COURSE_KEY + " IS NOT new." + WaitingListEntry.COLUMN_COURSE_KEY + ")";
+        String syncedColumns = WaitingListEntry.COLUMN_FIRST_NAME + ","
+                + WaitingListEntry.COLUMN_LAST_NAME + ","
+                + WaitingListEntry.COLUMN_COURSE + ","
+                + WaitingListEntry.COLUMN_PRIORITY;
+        StringBuilder isChanged = new StringBuilder();
+        for (String column : syncedColumns.split(","))
+            isChanged.append(isChanged.length() == 0 ? "" : " OR ").append("old.").append(column).append(" IS NOT new.").append(column);
+
+        return new String[]{
+                "CREATE TABLE IF NOT EXISTS " + STATE_TABLE_NAME + "("
+                        + COLUMN_ID + " INTEGER PRIMARY KEY CHECK (" + COLUMN_ID + " = 0),"
+                        + COLUMN_DEVICE_ID + " TEXT NOT NULL,"
+                        + COLUMN_LAST_CHANGE_SEQ + " INTEGER NOT NULL,"
+                        + COLUMN_PUSHED_CHANGE_SEQ + " INTEGER NOT NULL,"
+                        + COLUMN_PULL_CURSOR + " INTEGER NOT NULL,"
+                        + COLUMN_APPLYING_REMOTE + " INTEGER NOT NULL"
+                        + ")",
+                "INSERT OR IGNORE INTO " + STATE_TABLE_NAME + "(" + COLUMN_ID + "," + COLUMN_DEVICE_ID + "," + COLUMN_LAST_CHANGE_SEQ + ","
+                        + COLUMN_PUSHED_CHANGE_SEQ + "," + COLUMN_PULL_CURSOR + "," + COLUMN_APPLYING_REMOTE
+                        + ") VALUES (0, lower(hex(randomblob(16))), 0, 0, 0, 0)",
+                "CREATE TABLE IF NOT EXISTS " + SyncChange.TOMBSTONE_TABLE_NAME + "("
+                        + WaitingListEntry.COLUMN_NAME_KEY + " TEXT NOT NULL,"
+                        + WaitingListEntry.COLUMN_COURSE_KEY + " TEXT NOT NULL,"
+                        + WaitingListEntry.COLUMN_FIRST_NAME + " TEXT,"
+                        + WaitingListEntry.COLUMN_LAST_NAME + " TEXT,"
+                        + WaitingListEntry.COLUMN_COURSE + " TEXT,"
+                        + WaitingListEntry.COLUMN_CHANGE_SEQ + " INTEGER NOT NULL,"
+                        + WaitingListEntry.COLUMN_UPDATED_AT + " INTEGER NOT NULL,"
+                        + WaitingListEntry.COLUMN_ORIGIN + " TEXT,"
+                        + "PRIMARY KEY(" + WaitingListEntry.COLUMN_NAME_KEY + "," + WaitingListEntry.COLUMN_COURSE_KEY + ")"
+                        + ")",
+                "CREATE INDEX IF NOT EXISTS " + SyncChange.INDEX_TOMBSTONE_CHANGE_SEQ + " ON " + SyncChange.TOMBSTONE_TABLE_NAME
+                        + "(" + WaitingListEntry.COLUMN_CHANGE_SEQ + ")",
+                "CREATE INDEX IF NOT EXISTS " + WaitingListEntry.INDEX_CHANGE_SEQ + " ON " + WaitingListEntry.TABLE_NAME
+                        + "(" + WaitingListEntry.COLUMN_CHANGE_SEQ + ")",
+                "CREATE TRIGGER IF NOT EXISTS sync_insert AFTER INSERT ON " + WaitingListEntry.TABLE_NAME
+                        + " WHEN " + isLocal
+                        + " BEGIN " + nextChangeSeq + " " + stampNewRow + " " + deleteNewTombstone + " END",
+                "CREATE TRIGGER IF NOT EXISTS sync_update AFTER UPDATE OF " + syncedColumns + " ON " + WaitingListEntry.TABLE_NAME
+                        + " WHEN " + isLocal + " AND (" + isChanged + ")"
+                        + " BEGIN " + nextChangeSeq + " "
+                        + insertOldTombstone + " AND old." + WaitingListEntry.COLUMN_NAME_KEY + " IS NOT NULL" + isKeyChanged + "; "
+                        + nextChangeSeq + " " + stampNewRow + " " + deleteNewTombstone + " END",
+                "CREATE TRIGGER IF NOT EXISTS sync_delete AFTER DELETE ON " + WaitingListEntry.TABLE_NAME
+                        + " WHEN " + isLocal + " AND old." + WaitingListEntry.COLUMN_NAME_KEY + " IS NOT NULL"
+                        + " BEGIN " + nextChangeSeq + " " + insertOldTombstone + "; END"
+        };
+    }
+}
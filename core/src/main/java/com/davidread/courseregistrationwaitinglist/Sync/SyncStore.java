@@ -0,0 +1,42 @@
+package com.davidread.courseregistrationwaitinglist.Sync;
+
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
+
+import java.util.List;
+
+/**
+ * This interface provides the local side of sync: the changes waiting to be pushed and the place
+ * pulled changes are applied. Progress in both directions is stored with the data, so a sync that
+ * is interrupted at any point resumes from the last batch that completed.
+ */
+public interface SyncStore {
+
+    /**
+     * Returns the id of this device, which is the origin of every change made on it.
+     */
+    String getDeviceId();
+
+    /**
+     * Returns up to the specified number of changes made on this device that have not been pushed,
+     * in the order they were made. Each change has its change sequence number set.
+     */
+    List<SyncChange> getPendingChanges(int limit);
+
+    /**
+     * Records that every change up to and including the specified change sequence number has been
+     * accepted by the backend. Tombstones that are no longer needed are removed.
+     */
+    void markPushed(long changeSeq);
+
+    /**
+     * Returns the cursor of the last change pulled from the backend, or 0 if none has been.
+     */
+    long getPullCursor();
+
+    /**
+     * Applies the specified changes pulled from the backend and stores the new pull cursor, all in
+     * one transaction. A change is skipped if this device holds an unpushed change to the same row
+     * that wins against it. It returns the number of changes applied.
+     */
+    int applyRemoteChanges(List<SyncChange> changes, long pullCursor);
+}
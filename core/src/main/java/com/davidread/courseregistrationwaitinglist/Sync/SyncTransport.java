@@ -0,0 +1,26 @@
+package com.davidread.courseregistrationwaitinglist.Sync;
+
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * This interface provides the remote side of sync: a registrar backend that accepts batches of
+ * changes and hands out the changes other devices have made.
+ */
+public interface SyncTransport {
+
+    /**
+     * Sends a batch of changes made on the specified device. The batch is identified by the change
+     * sequence number of its last change, so a batch sent again after its acknowledgement was lost
+     * can be recognized. It returns once the backend has stored the batch.
+     */
+    void push(String deviceId, long batchSeq, List<SyncChange> changes) throws IOException;
+
+    /**
+     * Returns up to the specified number of changes stored by the backend after the specified
+     * cursor, leaving out changes made on the specified device.
+     */
+    SyncPullBatch pull(String deviceId, long cursor, int limit) throws IOException;
+}
@@ -0,0 +1,189 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import java.util.Random;
+
+/**
+ * This class is a sorted set of long keys that also knows how many keys are less than any given
+ * key. It is a treap where each node stores the size of its subtree, so insert, remove, first,
+ * rank, and index queries all take logarithmic time on average.
+ */
+public class OrderStatisticTree {
+
+    // Class objects.
+    private final Random random = new Random();
+    private Node root;
+
+    /**
+     * Adds the specified key. It returns false if the key was already present.
+     */
+    public boolean add(long key) {
+        if (contains(key))
+            return false;
+        Node[] parts = split(root, key);
+        root = merge(merge(parts[0], new Node(key, random.nextInt())), parts[1]);
+        return true;
+    }
+
+    /**
+     * Removes the specified key. It returns false if the key was not present.
+     */
+    public boolean remove(long key) {
+        if (!contains(key))
+            return false;
+        root = remove(root, key);
+        return true;
+    }
+
+    /**
+     * Returns true if the specified key is present.
+     */
+    public boolean contains(long key) {
+        Node node = root;
+        while (node != null) {
+            if (key == node.key)
+                return true;
+            node = key < node.key ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of keys less than the specified key.
+     */
+    public int rankOf(long key) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            if (key <= node.key) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the key with the specified number of keys less than it. The index must be less than
+     * the size of the tree.
+     */
+    public long get(int index) {
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.key;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest key. The tree must not be empty.
+     */
+    public long first() {
+        Node node = root;
+        while (node.left != null)
+            node = node.left;
+        return node.key;
+    }
+
+    /**
+     * Returns the number of keys.
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns true if there are no keys.
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Splits the subtree into the nodes with keys less than the specified key and the rest.
+     */
+    private static Node[] split(Node node, long key) {
+        if (node == null)
+            return new Node[]{null, null};
+        if (node.key < key) {
+            Node[] parts = split(node.right, key);
+            node.right = parts[0];
+            node.update();
+            return new Node[]{node, parts[1]};
+        } else {
+            Node[] parts = split(node.left, key);
+            node.left = parts[1];
+            node.update();
+            return new Node[]{parts[0], node};
+        }
+    }
+
+    /**
+     * Merges two subtrees where every key of the left subtree is less than every key of the right.
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null)
+            return right;
+        if (right == null)
+            return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+    }
+
+    /**
+     * Removes the node with the specified key from the subtree and returns the new subtree root.
+     */
+    private static Node remove(Node node, long key) {
+        if (node.key == key)
+            return merge(node.left, node.right);
+        if (key < node.key)
+            node.left = remove(node.left, key);
+        else
+            node.right = remove(node.right, key);
+        node.update();
+        return node;
+    }
+
+    /**
+     * Returns the size of the subtree, which is zero for an empty subtree.
+     */
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * This class represents a single node of the tree.
+     */
+    private static class Node {
+
+        final long key;
+        final int priority;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(long key, int priority) {
+            this.key = key;
+            this.priority = priority;
+        }
+
+        void update() {
+            size = size(left) + size(right) + 1;
+        }
+    }
+}
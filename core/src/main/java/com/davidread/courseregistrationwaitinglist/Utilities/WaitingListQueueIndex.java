@@ -0,0 +1,138 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is an in-memory index of where each waiting list entry stands in the queue for its
+ * course. Entries of a course are ordered by priority rank, then by id, which is the order they
+ * are admitted in. Position lookups and next in line operations take logarithmic time. This class
+ * is not thread safe.
+ *
+ * <p>The index compares courses as plain strings. Callers pass course keys, so every spelling of a
+ * course waits in one queue.
+ */
+public class WaitingListQueueIndex {
+
+    // Bits of a tree key holding the id. The priority rank is stored in the bits above them.
+    private static final int ID_BITS = 48;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+
+    // Class objects.
+    private final Map<String, OrderStatisticTree> queuesByCourse = new HashMap<>();
+    private final Map<Long, QueueEntry> queueEntriesById = new HashMap<>();
+
+    /**
+     * Adds the entry with the specified attributes to the queue of its course. If the entry is
+     * already indexed it is moved to its new place instead.
+     */
+    public void add(long id, String course, int priorityRank) {
+        remove(id);
+        QueueEntry queueEntry = new QueueEntry(course, toKey(priorityRank, id));
+        OrderStatisticTree queue = queuesByCourse.get(course);
+        if (queue == null) {
+            queue = new OrderStatisticTree();
+            queuesByCourse.put(course, queue);
+        }
+        queue.add(queueEntry.key);
+        queueEntriesById.put(id, queueEntry);
+    }
+
+    /**
+     * Removes the entry with the specified id. It returns false if the entry was not indexed.
+     */
+    public boolean remove(long id) {
+        QueueEntry queueEntry = queueEntriesById.remove(id);
+        if (queueEntry == null)
+            return false;
+        OrderStatisticTree queue = queuesByCourse.get(queueEntry.course);
+        queue.remove(queueEntry.key);
+        if (queue.isEmpty())
+            queuesByCourse.remove(queueEntry.course);
+        return true;
+    }
+
+    /**
+     * Returns the position of the entry with the specified id in the queue of its course, where 1
+     * is next in line. It returns -1 if the entry is not indexed.
+     */
+    public int positionOf(long id) {
+        QueueEntry queueEntry = queueEntriesById.get(id);
+        if (queueEntry == null)
+            return -1;
+        return queuesByCourse.get(queueEntry.course).rankOf(queueEntry.key) + 1;
+    }
+
+    /**
+     * Returns the course of the entry with the specified id, or null if the entry is not indexed.
+     */
+    public String courseOf(long id) {
+        QueueEntry queueEntry = queueEntriesById.get(id);
+        return queueEntry == null ? null : queueEntry.course;
+    }
+
+    /**
+     * Returns the id of the entry next in line for the specified course, or -1 if its queue is
+     * empty.
+     */
+    public long peekNext(String course) {
+        OrderStatisticTree queue = queuesByCourse.get(course);
+        if (queue == null)
+            return -1;
+        return queue.first() & ID_MASK;
+    }
+
+    /**
+     * Returns the ids of at most the specified number of entries next in line for the specified
+     * course, in the order they would be polled.
+     */
+    public long[] peekNext(String course, int n) {
+        OrderStatisticTree queue = queuesByCourse.get(course);
+        int count = queue == null ? 0 : Math.min(n, queue.size());
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++)
+            ids[i] = queue.get(i) & ID_MASK;
+        return ids;
+    }
+
+    /**
+     * Removes the entry next in line for the specified course and returns its id, or returns -1 if
+     * its queue is empty.
+     */
+    public long pollNext(String course) {
+        long id = peekNext(course);
+        if (id != -1)
+            remove(id);
+        return id;
+    }
+
+    /**
+     * Returns the number of entries waiting for the specified course.
+     */
+    public int sizeOf(String course) {
+        OrderStatisticTree queue = queuesByCourse.get(course);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Returns the tree key for an entry. Ordering keys numerically orders entries by priority rank,
+     * then by id.
+     */
+    private static long toKey(int priorityRank, long id) {
+        return ((long) priorityRank << ID_BITS) | (id & ID_MASK);
+    }
+
+    /**
+     * This class records the course queue and tree key of an indexed entry.
+     */
+    private static class QueueEntry {
+
+        final String course;
+        final long key;
+
+        QueueEntry(String course, long key) {
+            this.course = course;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.davidread.courseregistrationwaitinglist.Journal;
+
+import com.davidread.courseregistrationwaitinglist.Models.JournalEvent;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+import com.davidread.courseregistrationwaitinglist.Repositories.JdbcWaitingListRepository;
+import com.davidread.courseregistrationwaitinglist.Repositories.WaitingListQuery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests rebuilding the waiting list at a point in time from the journal the JDBC
+ * repository keeps. Random writes are made to the repository, and after each one the list and the
+ * queue positions are recorded along with the time. Every recorded time the journal still reaches
+ * must rebuild to exactly what was recorded, before and after snapshots are taken and the journal
+ * is compacted. The journal records times from the clock of the database, so the tests wait for
+ * the clock to move on around each recorded time.
+ */
+public class WaitingListJournalTest {
+
+    // Policy of the journal under test, small enough that the tests take and compact snapshots.
+    private static final int SNAPSHOT_INTERVAL = 5;
+    private static final int KEPT_SNAPSHOT_COUNT = 2;
+    private static final int COMPACT_CHUNK_SIZE = 3;
+
+    // Random writes made by the rebuild test.
+    private static final int WRITE_COUNT = 80;
+
+    // Pools the random writes draw from.
+    private static final String[] LAST_NAMES = {"Lovelace", "Turing", "Hopper", "Liskov", "Knuth", "Dijkstra"};
+    private static final String[] COURSES = {"CS 101", "MATH 201"};
+
+    // Time waited on each side of a recorded time, so no write shares its millisecond.
+    private static final long CLOCK_MARGIN_MILLIS = 3;
+
+    // Class objects.
+    private JdbcWaitingListRepository repository;
+    private WaitingListJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        JdbcWaitingListRepository.createSchema(connection);
+        repository = new JdbcWaitingListRepository(connection);
+        journal = new WaitingListJournal(repository, SNAPSHOT_INTERVAL, KEPT_SNAPSHOT_COUNT, COMPACT_CHUNK_SIZE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.close();
+    }
+
+    @Test
+    public void getWaitingListEntriesAt_afterRandomWritesAndCompaction_returnsTheListAsItWas() throws Exception {
+
+        Random random = new Random(7);
+        List<Long> times = new ArrayList<>();
+        List<String> lists = new ArrayList<>();
+        List<List<Integer>> positions = new ArrayList<>();
+        long maxId = 0;
+        boolean isCompactedPastACheckpoint = false;
+
+        for (int i = 0; i < WRITE_COUNT; i++) {
+
+            long id = 1 + random.nextInt((int) maxId + 1);
+            String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            String course = COURSES[random.nextInt(COURSES.length)];
+            String priority = WaitingListEntry.PRIORITIES[random.nextInt(WaitingListEntry.PRIORITIES.length)];
+            try {
+                switch (random.nextInt(6)) {
+                    case 0:
+                    case 1:
+                        maxId = Math.max(maxId, repository.upsertWaitingListEntry("Student", lastName, course, priority));
+                        break;
+                    case 2:
+                        repository.updateWaitingListEntry(id, "Student", lastName, course, priority);
+                        break;
+                    case 3:
+                        repository.deleteWaitingListEntries(Collections.singletonList(id));
+                        break;
+                    case 4:
+                        repository.restoreWaitingListEntries(Collections.singletonList(id));
+                        break;
+                    default:
+                        repository.admitNextInLine(course, 1);
+                        break;
+                }
+            } catch (RuntimeException e) {
+                // A write that collides with a waiting student is refused, and records no event.
+            }
+
+            times.add(checkpoint());
+            lists.add(describe(repository.getWaitingListEntriesFollowing(WaitingListQuery.ALL, null, 1000)));
+            List<Integer> checkpointPositions = new ArrayList<>();
+            for (long entryId = 1; entryId <= maxId; entryId++)
+                checkpointPositions.add(repository.getQueuePosition(entryId));
+            positions.add(checkpointPositions);
+
+            // Maintain the journal as the app does after writes, one step at a time.
+            while (journal.maintain()) {
+                assertRebuilds(times, lists, positions);
+            }
+            assertRebuilds(times, lists, positions);
+            isCompactedPastACheckpoint |= journal.getWaitingListEntriesAt(times.get(0)) == null;
+        }
+
+        assertTrue("The journal was never compacted past a recorded time", isCompactedPastACheckpoint);
+    }
+
+    @Test
+    public void getWaitingListEntriesAt_beforeTheFirstSnapshot_returnsNull() throws Exception {
+        long beforeJournal = System.currentTimeMillis() - 60000;
+
+        assertNull(journal.getWaitingListEntriesAt(beforeJournal));
+        assertEquals(-1, journal.getQueuePositionAt(1, beforeJournal));
+    }
+
+    @Test
+    public void getWaitingListEntriesAt_replaysPastSeveralPages() throws Exception {
+        JournalStore store = repository;
+        for (int i = 0; i < 2500; i++)
+            repository.insertWaitingListEntry("Student", "Number " + i, COURSES[i % COURSES.length], "Graduate");
+        long time = checkpoint();
+        repository.deleteWaitingListEntries(Arrays.asList(1L, 2L, 3L));
+
+        assertTrue(store.countJournalEventsSinceSnapshot() > 2500);
+        assertEquals(2500, journal.getWaitingListEntriesAt(time).size());
+        assertEquals(2497, journal.getWaitingListEntriesAt(checkpoint()).size());
+    }
+
+    @Test
+    public void getQueuePositionAt_returnsThePositionBeforeAStudentAhead() throws Exception {
+        long adaId = repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "1st Year");
+        long alanId = repository.insertWaitingListEntry("Alan", "Turing", "CS 101", "Graduate");
+        long beforeAdmission = checkpoint();
+        repository.admitNextInLine("CS 101", 1);
+        long afterAdmission = checkpoint();
+
+        assertEquals(1, journal.getQueuePositionAt(alanId, beforeAdmission));
+        assertEquals(2, journal.getQueuePositionAt(adaId, beforeAdmission));
+        assertEquals(1, journal.getQueuePositionAt(adaId, afterAdmission));
+        assertEquals(-1, journal.getQueuePositionAt(alanId, afterAdmission));
+    }
+
+    @Test
+    public void getHistory_recordsEveryChangeThatAltersTheEntry() throws Exception {
+        long id = repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "1st Year");
+        repository.updateWaitingListEntry(id, "Ada", "Lovelace", "CS 101", "1st Year");
+        repository.updateWaitingListEntryPriorities(Collections.singletonList(id), "Graduate");
+        repository.deleteWaitingListEntries(Collections.singletonList(id));
+        repository.restoreWaitingListEntries(Collections.singletonList(id));
+
+        List<JournalEvent> history = journal.getHistory(id);
+
+        assertEquals(4, history.size());
+        assertEquals(JournalEvent.TYPE_INSERT, history.get(0).getType());
+        assertEquals(JournalEvent.TYPE_UPDATE, history.get(1).getType());
+        assertEquals("Graduate", history.get(1).getPriority());
+        assertEquals(JournalEvent.TYPE_DELETE, history.get(2).getType());
+        assertEquals(JournalEvent.TYPE_INSERT, history.get(3).getType());
+    }
+
+    @Test
+    public void maintain_keepsTheJournalBounded() {
+        JournalStore store = repository;
+        long id = repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "1st Year");
+        for (int i = 0; i < 20 * SNAPSHOT_INTERVAL; i++) {
+            repository.updateWaitingListEntryPriorities(Collections.singletonList(id), WaitingListEntry.PRIORITIES[i % 2]);
+            while (journal.maintain()) {
+            }
+        }
+
+        assertTrue(store.countJournalEventsSinceSnapshot() < SNAPSHOT_INTERVAL);
+        assertTrue(journal.getHistory(id).size() <= KEPT_SNAPSHOT_COUNT * SNAPSHOT_INTERVAL);
+        assertFalse(journal.getHistory(id).isEmpty());
+        assertNotNull(journal.getWaitingListEntriesAt(System.currentTimeMillis()));
+    }
+
+    /**
+     * Asserts that every recorded time rebuilds to the list and queue positions recorded for it,
+     * or to null if the journal no longer reaches back that far, in which case no earlier time may
+     * be reached either. The latest recorded time must always be reached.
+     */
+    private void assertRebuilds(List<Long> times, List<String> lists, List<List<Integer>> positions) {
+        boolean isReached = false;
+        for (int i = 0; i < times.size(); i++) {
+            List<WaitingListEntry> entries = journal.getWaitingListEntriesAt(times.get(i));
+            if (entries == null) {
+                assertFalse("Time " + i + " is not reached but an earlier one is", isReached);
+                continue;
+            }
+            isReached = true;
+            assertEquals("List at time " + i, lists.get(i), describe(entries));
+            for (int j = 0; j < positions.get(i).size(); j++)
+                assertEquals("Position of " + (j + 1) + " at time " + i, (int) positions.get(i).get(j), journal.getQueuePositionAt(j + 1, times.get(i)));
+        }
+        assertTrue("The latest time is not reached", isReached);
+    }
+
+    /**
+     * Returns the current time, with the clock moved on since the last write and before the next,
+     * so the time falls strictly between them.
+     */
+    private static long checkpoint() throws InterruptedException {
+        Thread.sleep(CLOCK_MARGIN_MILLIS);
+        long time = System.currentTimeMillis();
+        Thread.sleep(CLOCK_MARGIN_MILLIS);
+        return time;
+    }
+
+    private static String describe(List<WaitingListEntry> entries) {
+        List<String> lines = new ArrayList<>();
+        for (WaitingListEntry entry : entries)
+            lines.add(entry.getId() + "|" + entry.getFirstName() + "|" + entry.getLastName() + "|" + entry.getCourse() + "|" + entry.getPriority());
+        Collections.sort(lines);
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,12 @@
+package com.davidread.courseregistrationwaitinglist.Repositories;
+
+/**
+ * This class runs the repository tests against the in-memory repository.
+ */
+public class InMemoryWaitingListRepositoryTest extends WaitingListRepositoryTest {
+
+    @Override
+    protected WaitingListRepository createRepository() {
+        return new InMemoryWaitingListRepository();
+    }
+}
@@ -0,0 +1,205 @@
+package com.davidread.courseregistrationwaitinglist.Repositories;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class checks that SQLite serves the queries of the JDBC repository from their indexes. It
+ * seeds an in-memory database through the repository, asks SQLite for the plan of each query, and
+ * fails if a plan scans the table where it should search an index, or sorts the matching rows in a
+ * temporary b-tree, since either makes the query slower as the table grows. Page queries of the
+ * list are checked for every sort order, with and without a course filter and a priority filter,
+ * for the first page and for the pages following and preceding an anchor.
+ */
+public class JdbcWaitingListRepositoryQueryPlanTest {
+
+    // Rows seeded before each plan is read.
+    private static final int SEEDED_ROW_COUNT = 500;
+
+    // Course every seeded row waits for when all rows are in one course.
+    private static final String COURSE = "CS 101";
+
+    // Columns selected by page queries, as by the repository.
+    private static final String COLUMNS = "id,first_name,last_name,course,priority";
+
+    // Access path of page queries sorted by arrival without a course filter, which read the table in id order.
+    private static final String PRIMARY_KEY = "INTEGER PRIMARY KEY";
+
+    // Class objects.
+    private Connection connection;
+    private JdbcWaitingListRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        JdbcWaitingListRepository.createSchema(connection);
+        repository = new JdbcWaitingListRepository(connection);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.close();
+    }
+
+    @Test
+    public void nextInLine_searchesTheCourseKeyPriorityRankIndexWithoutSorting() throws Exception {
+        seed(10);
+
+        assertSearchesWithoutSorting(explain(JdbcWaitingListRepository.SELECT_NEXT_IN_LINE_QUERY, WaitingListEntry.getCourseKey(COURSE), 10),
+                WaitingListEntry.INDEX_COURSE_KEY_PRIORITY_RANK);
+    }
+
+    @Test
+    public void nextInLine_withOneAnalyzedCourseHoldingEveryRow_stillSearchesTheIndex() throws Exception {
+        seed(1);
+        analyze();
+
+        assertSearchesWithoutSorting(explain(JdbcWaitingListRepository.SELECT_NEXT_IN_LINE_QUERY, WaitingListEntry.getCourseKey(COURSE), 10),
+                WaitingListEntry.INDEX_COURSE_KEY_PRIORITY_RANK);
+    }
+
+    @Test
+    public void pageQueries_sortedByArrival_readTheTableOrCourseIndexInOrder() throws Exception {
+        seed(10);
+
+        assertPageQueriesRead(WaitingListQuery.SORT_ARRIVAL, PRIMARY_KEY, WaitingListQuery.INDEX_COURSE_KEY_ID);
+    }
+
+    @Test
+    public void pageQueries_sortedByPriority_readThePriorityIndexesInOrder() throws Exception {
+        seed(10);
+
+        assertPageQueriesRead(WaitingListQuery.SORT_PRIORITY, WaitingListQuery.INDEX_PRIORITY_RANK_ID, WaitingListEntry.INDEX_COURSE_KEY_PRIORITY_RANK);
+    }
+
+    @Test
+    public void pageQueries_sortedByName_readTheNameIndexesInOrder() throws Exception {
+        seed(10);
+
+        assertPageQueriesRead(WaitingListQuery.SORT_NAME, WaitingListQuery.INDEX_NAME_KEY_ID, WaitingListQuery.INDEX_COURSE_KEY_NAME_KEY_ID);
+    }
+
+    @Test
+    public void pageQueries_afterAnalyze_stillReadTheirIndexes() throws Exception {
+        seed(10);
+        analyze();
+
+        assertPageQueriesRead(WaitingListQuery.SORT_ARRIVAL, PRIMARY_KEY, WaitingListQuery.INDEX_COURSE_KEY_ID);
+        assertPageQueriesRead(WaitingListQuery.SORT_PRIORITY, WaitingListQuery.INDEX_PRIORITY_RANK_ID, WaitingListEntry.INDEX_COURSE_KEY_PRIORITY_RANK);
+        assertPageQueriesRead(WaitingListQuery.SORT_NAME, WaitingListQuery.INDEX_NAME_KEY_ID, WaitingListQuery.INDEX_COURSE_KEY_NAME_KEY_ID);
+    }
+
+    /**
+     * Asserts that every page query in the specified sort order, with and without a priority
+     * filter, reads the first specified access path without a course filter and the second with
+     * one, does not sort in a temporary b-tree, and reaches the rows past an anchor by a search
+     * rather than by scanning from the start.
+     */
+    private void assertPageQueriesRead(int sort, String unfilteredPath, String courseFilteredPath) throws SQLException {
+
+        List<String> failures = new ArrayList<>();
+        WaitingListEntry anchor = new WaitingListEntry(SEEDED_ROW_COUNT / 2, "Student", "Number 250", COURSE, WaitingListEntry.PRIORITIES[2]);
+
+        for (String course : new String[]{null, COURSE}) {
+            for (List<String> priorities : Arrays.asList(Collections.<String>emptyList(), Arrays.asList(WaitingListEntry.PRIORITIES[1], WaitingListEntry.PRIORITIES[3]))) {
+                WaitingListQuery query = new WaitingListQuery(course, priorities, sort);
+                String path = course == null ? unfilteredPath : courseFilteredPath;
+                for (WaitingListEntry pageAnchor : new WaitingListEntry[]{null, anchor}) {
+                    for (boolean isForward : pageAnchor == null ? new boolean[]{true} : new boolean[]{true, false}) {
+                        String sql = query.getSelectQuery(COLUMNS, pageAnchor != null, isForward);
+                        List<String> plan = explain(sql, query.getSelectionArgs(pageAnchor, 1));
+                        if (!isServedBy(plan, path, pageAnchor != null || course != null))
+                            failures.add(sql + "\n    " + String.join("\n    ", plan));
+                    }
+                }
+            }
+        }
+
+        assertTrue("Page queries not served by their index:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    /**
+     * Returns true if the plan reads the table through the specified access path, by a search if
+     * one is required, and does not sort in a temporary b-tree.
+     */
+    private static boolean isServedBy(List<String> plan, String path, boolean isSearchRequired) {
+        boolean isPathRead = false;
+        for (String step : plan) {
+            if (step.contains("TEMP B-TREE"))
+                return false;
+            boolean isRead = path.equals(PRIMARY_KEY)
+                    ? step.equals("SCAN " + WaitingListEntry.TABLE_NAME) || step.contains(PRIMARY_KEY)
+                    : step.contains("INDEX " + path + " ") || step.endsWith("INDEX " + path);
+            isPathRead |= isRead && (!isSearchRequired || step.startsWith("SEARCH"));
+        }
+        return isPathRead;
+    }
+
+    /**
+     * Inserts the seeded rows through the repository, spread over the specified number of courses,
+     * the first of which is the course the queries filter on.
+     */
+    private void seed(int courseCount) {
+        for (int i = 0; i < SEEDED_ROW_COUNT; i++) {
+            String course = i % courseCount == 0 ? COURSE : "MATH " + (200 + i % courseCount);
+            repository.insertWaitingListEntry("Student", "Number " + i, course, WaitingListEntry.PRIORITIES[i % WaitingListEntry.PRIORITIES.length]);
+        }
+    }
+
+    /**
+     * Gathers the statistics the query planner uses to choose between indexes, as the database
+     * maintenance of the app does.
+     */
+    private void analyze() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+    }
+
+    /**
+     * Returns the steps of the plan SQLite chooses for the specified query with the specified
+     * arguments bound.
+     */
+    private List<String> explain(String sql, Object... args) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            for (int i = 0; i < args.length; i++)
+                statement.setObject(i + 1, args[i]);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next())
+                    plan.add(resultSet.getString("detail"));
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Asserts that the plan searches the table through the specified index and does not sort the
+     * rows it finds.
+     */
+    private static void assertSearchesWithoutSorting(List<String> plan, String index) {
+        boolean isIndexSearched = false;
+        for (String step : plan) {
+            assertFalse("Sorts in a temporary b-tree: " + plan, step.contains("TEMP B-TREE"));
+            isIndexSearched |= step.startsWith("SEARCH") && step.contains("INDEX " + index + " ");
+        }
+        assertTrue("Does not search " + index + ": " + plan, isIndexSearched);
+    }
+}
@@ -0,0 +1,27 @@
+package com.davidread.courseregistrationwaitinglist.Repositories;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+/**
+ * This class runs the repository tests against the JDBC repository over an in-memory SQLite
+ * database, which runs the same SQL as the app.
+ */
+public class JdbcWaitingListRepositoryTest extends WaitingListRepositoryTest {
+
+    // Class objects.
+    private JdbcWaitingListRepository jdbcRepository;
+
+    @Override
+    protected WaitingListRepository createRepository() throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        JdbcWaitingListRepository.createSchema(connection);
+        jdbcRepository = new JdbcWaitingListRepository(connection);
+        return jdbcRepository;
+    }
+
+    @Override
+    protected void closeRepository() throws Exception {
+        jdbcRepository.close();
+    }
+}
@@ -0,0 +1,216 @@
+package com.davidread.courseregistrationwaitinglist.Repositories;
+
+import com.davidread.courseregistrationwaitinglist.Models.Admission;
+import com.davidread.courseregistrationwaitinglist.Models.CourseDemand;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class checks that the in-memory and JDBC repositories behave the same. It applies one long
+ * random sequence of writes to both, with few enough students and courses that writes collide on
+ * the same rows, and after every write compares what each write returned and everything the
+ * repositories answer: the stored entries, queue positions, the next in line for every course,
+ * course demand, and a random filtered and sorted page of the list.
+ */
+public class WaitingListRepositoryParityTest {
+
+    // Random writes applied to both repositories.
+    private static final int OPERATION_COUNT = 2000;
+
+    // Pools the random writes draw from. Courses include spellings differing in case and spacing.
+    private static final String[] FIRST_NAMES = {"Ada", "Alan", "Grace"};
+    private static final String[] LAST_NAMES = {"Lovelace", "Turing", "Hopper", "Liskov"};
+    private static final String[] COURSES = {"CS 101", "cs  101", "MATH 201", "PHYS 150"};
+
+    // Most ids one write names, and most rows one read returns.
+    private static final int MAX_IDS_PER_WRITE = 3;
+    private static final int MAX_ROWS = 1000;
+
+    // Class objects.
+    private Random random;
+    private InMemoryWaitingListRepository inMemoryRepository;
+    private JdbcWaitingListRepository jdbcRepository;
+    private long maxId;
+
+    @Before
+    public void setUp() throws Exception {
+        random = new Random(42);
+        inMemoryRepository = new InMemoryWaitingListRepository();
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        JdbcWaitingListRepository.createSchema(connection);
+        jdbcRepository = new JdbcWaitingListRepository(connection);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        jdbcRepository.close();
+    }
+
+    @Test
+    public void randomWrites_leaveBothRepositoriesInTheSameState() {
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            String firstName = pick(FIRST_NAMES);
+            String lastName = pick(LAST_NAMES);
+            String course = pick(COURSES);
+            String priority = pick(WaitingListEntry.PRIORITIES);
+            long id = 1 + random.nextInt((int) maxId + 1);
+            List<Long> ids = randomIds();
+            int count = random.nextInt(MAX_IDS_PER_WRITE + 1);
+
+            String operation;
+            String inMemoryOutcome;
+            String jdbcOutcome;
+            switch (random.nextInt(9)) {
+                case 0:
+                    operation = "insert " + firstName + " " + lastName + " " + course;
+                    inMemoryOutcome = outcomeOf(() -> inMemoryRepository.insertWaitingListEntry(firstName, lastName, course, priority));
+                    jdbcOutcome = outcomeOf(() -> jdbcRepository.insertWaitingListEntry(firstName, lastName, course, priority));
+                    break;
+                case 1:
+                    operation = "upsert " + firstName + " " + lastName + " " + course;
+                    inMemoryOutcome = outcomeOf(() -> inMemoryRepository.upsertWaitingListEntry(firstName, lastName, course, priority));
+                    jdbcOutcome = outcomeOf(() -> jdbcRepository.upsertWaitingListEntry(firstName, lastName, course, priority));
+                    break;
+                case 2:
+                    operation = "update " + id;
+                    inMemoryOutcome = outcomeOf(() -> {
+                        inMemoryRepository.updateWaitingListEntry(id, firstName, lastName, course, priority);
+                        return null;
+                    });
+                    jdbcOutcome = outcomeOf(() -> {
+                        jdbcRepository.updateWaitingListEntry(id, firstName, lastName, course, priority);
+                        return null;
+                    });
+                    break;
+                case 3:
+                    operation = "delete " + ids;
+                    inMemoryOutcome = outcomeOf(() -> inMemoryRepository.deleteWaitingListEntries(ids));
+                    jdbcOutcome = outcomeOf(() -> jdbcRepository.deleteWaitingListEntries(ids));
+                    break;
+                case 4:
+                    operation = "restore " + ids;
+                    inMemoryOutcome = outcomeOf(() -> inMemoryRepository.restoreWaitingListEntries(ids));
+                    jdbcOutcome = outcomeOf(() -> jdbcRepository.restoreWaitingListEntries(ids));
+                    break;
+                case 5:
+                    operation = "set priority of " + ids;
+                    inMemoryOutcome = outcomeOf(() -> inMemoryRepository.updateWaitingListEntryPriorities(ids, priority));
+                    jdbcOutcome = outcomeOf(() -> jdbcRepository.updateWaitingListEntryPriorities(ids, priority));
+                    break;
+                case 6:
+                    operation = "set course of " + ids;
+                    inMemoryOutcome = outcomeOf(() -> inMemoryRepository.updateWaitingListEntryCourses(ids, course));
+                    jdbcOutcome = outcomeOf(() -> jdbcRepository.updateWaitingListEntryCourses(ids, course));
+                    break;
+                case 7:
+                    operation = "admit " + count + " for " + course;
+                    inMemoryOutcome = outcomeOf(() -> describeAdmissions(inMemoryRepository.admitNextInLine(course, count)));
+                    jdbcOutcome = outcomeOf(() -> describeAdmissions(jdbcRepository.admitNextInLine(course, count)));
+                    break;
+                default:
+                    operation = "purge " + count;
+                    inMemoryOutcome = outcomeOf(() -> inMemoryRepository.purgeDeletedWaitingListEntries(Long.MAX_VALUE, count));
+                    jdbcOutcome = outcomeOf(() -> jdbcRepository.purgeDeletedWaitingListEntries(Long.MAX_VALUE, count));
+                    break;
+            }
+
+            String step = "Step " + i + ", " + operation;
+            assertEquals(step, inMemoryOutcome, jdbcOutcome);
+            assertSameState(step);
+        }
+    }
+
+    /**
+     * Asserts that both repositories answer every read the same way.
+     */
+    private void assertSameState(String step) {
+
+        List<WaitingListEntry> entries = jdbcRepository.getWaitingListEntriesFollowing(WaitingListQuery.ALL, null, MAX_ROWS);
+        assertEquals(step, describe(inMemoryRepository.getWaitingListEntriesFollowing(WaitingListQuery.ALL, null, MAX_ROWS)), describe(entries));
+        for (WaitingListEntry entry : entries) {
+            maxId = Math.max(maxId, entry.getId());
+            assertEquals(step + ", position of " + entry.getId(), inMemoryRepository.getQueuePosition(entry.getId()), jdbcRepository.getQueuePosition(entry.getId()));
+        }
+
+        for (String course : COURSES)
+            assertEquals(step + ", next in line for " + course, describe(inMemoryRepository.getNextInLine(course, MAX_ROWS)), describe(jdbcRepository.getNextInLine(course, MAX_ROWS)));
+        assertEquals(step + ", course demand", describeDemand(inMemoryRepository.getCourseDemand()), describeDemand(jdbcRepository.getCourseDemand()));
+
+        List<String> priorities = random.nextBoolean() ? null : Collections.singletonList(pick(WaitingListEntry.PRIORITIES));
+        WaitingListQuery query = new WaitingListQuery(random.nextBoolean() ? null : pick(COURSES), priorities, random.nextInt(3));
+        WaitingListEntry anchor = entries.isEmpty() || random.nextBoolean() ? null : entries.get(random.nextInt(entries.size()));
+        assertEquals(step + ", page following " + (anchor == null ? "the start" : anchor.getId()),
+                describe(inMemoryRepository.getWaitingListEntriesFollowing(query, anchor, MAX_IDS_PER_WRITE)),
+                describe(jdbcRepository.getWaitingListEntriesFollowing(query, anchor, MAX_IDS_PER_WRITE)));
+        if (anchor != null)
+            assertEquals(step + ", page preceding " + anchor.getId(),
+                    describe(inMemoryRepository.getWaitingListEntriesPreceding(query, anchor, MAX_IDS_PER_WRITE)),
+                    describe(jdbcRepository.getWaitingListEntriesPreceding(query, anchor, MAX_IDS_PER_WRITE)));
+    }
+
+    /**
+     * Returns a few random ids, some of which may not exist or repeat.
+     */
+    private List<Long> randomIds() {
+        List<Long> ids = new ArrayList<>();
+        int count = 1 + random.nextInt(MAX_IDS_PER_WRITE);
+        for (int i = 0; i < count; i++)
+            ids.add(1 + (long) random.nextInt((int) maxId + 1));
+        return ids;
+    }
+
+    private <T> T pick(T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Returns what the write returned, or the type of exception it threw.
+     */
+    private static String outcomeOf(Callable<Object> write) {
+        try {
+            return String.valueOf(write.call());
+        } catch (Exception e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    private static String describe(List<WaitingListEntry> entries) {
+        StringBuilder description = new StringBuilder();
+        for (WaitingListEntry entry : entries)
+            description.append(entry.getId()).append(' ').append(entry.getFirstName()).append(' ').append(entry.getLastName())
+                    .append(" / ").append(entry.getCourse()).append(" / ").append(entry.getPriority()).append('\n');
+        return description.toString();
+    }
+
+    private static String describeAdmissions(List<Admission> admissions) {
+        StringBuilder description = new StringBuilder();
+        for (Admission admission : admissions)
+            description.append(admission.getId()).append(' ').append(admission.getCourse()).append(' ').append(admission.getPriority()).append('\n');
+        return description.toString();
+    }
+
+    /**
+     * Describes course demand by course key, since which spelling of a course is shown is not part
+     * of the contract.
+     */
+    private static String describeDemand(List<CourseDemand> courseDemand) {
+        List<String> lines = new ArrayList<>();
+        for (CourseDemand demand : courseDemand)
+            lines.add(WaitingListEntry.getCourseKey(demand.getCourse()) + " / " + demand.getPriority() + " / " + demand.getEntryCount());
+        Collections.sort(lines);
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,202 @@
+package com.davidread.courseregistrationwaitinglist.Repositories;
+
+import com.davidread.courseregistrationwaitinglist.Models.Admission;
+import com.davidread.courseregistrationwaitinglist.Models.CourseDemand;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class holds the tests every waiting list repository must pass. Each implementation runs
+ * them through a subclass that constructs it, so the repositories cannot behave differently.
+ */
+public abstract class WaitingListRepositoryTest {
+
+    // Class objects.
+    protected WaitingListRepository repository;
+
+    /**
+     * Returns a new, empty repository to test.
+     */
+    protected abstract WaitingListRepository createRepository() throws Exception;
+
+    /**
+     * Releases the repository after each test.
+     */
+    protected void closeRepository() throws Exception {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        repository = createRepository();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        closeRepository();
+    }
+
+    @Test
+    public void restore_returnsDeletedEntriesWithTheirIds() {
+        long firstId = repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        long secondId = repository.insertWaitingListEntry("Alan", "Turing", "CS 101", "1st Year");
+
+        assertEquals(2, repository.deleteWaitingListEntries(Arrays.asList(firstId, secondId)));
+        assertNull(repository.getWaitingListEntry(firstId));
+
+        assertEquals(2, repository.restoreWaitingListEntries(Arrays.asList(firstId, secondId)));
+        assertEquals("Ada", repository.getWaitingListEntry(firstId).getFirstName());
+        assertEquals(1, repository.getQueuePosition(firstId));
+        assertEquals(2, repository.getQueuePosition(secondId));
+    }
+
+    @Test
+    public void restore_afterReRegister_keepsTheDeletedEntryUntilItCanBeRestored() {
+        long deletedId = repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        long otherId = repository.insertWaitingListEntry("Alan", "Turing", "CS 101", "1st Year");
+        repository.deleteWaitingListEntries(Arrays.asList(deletedId, otherId));
+
+        // The student is added to the course again before the delete is undone.
+        long reRegisteredId = repository.insertWaitingListEntry("ada", "LOVELACE", "CS 101", "2nd Year");
+        assertNotEquals(deletedId, reRegisteredId);
+
+        assertEquals(1, repository.restoreWaitingListEntries(Arrays.asList(deletedId, otherId)));
+        assertNull(repository.getWaitingListEntry(deletedId));
+        assertEquals("2nd Year", repository.getWaitingListEntry(reRegisteredId).getPriority());
+        assertEquals("Turing", repository.getWaitingListEntry(otherId).getLastName());
+
+        // Once the new entry is gone, the deleted one can still be restored.
+        repository.deleteWaitingListEntry(reRegisteredId);
+        assertEquals(1, repository.restoreWaitingListEntries(Collections.singletonList(deletedId)));
+        assertEquals("Graduate", repository.getWaitingListEntry(deletedId).getPriority());
+        List<WaitingListEntry> nextInLine = repository.getNextInLine("CS 101", 3);
+        assertEquals(2, nextInLine.size());
+        assertEquals(deletedId, nextInLine.get(0).getId());
+    }
+
+    @Test
+    public void restore_ignoresUnknownAndRepeatedIds() {
+        long id = repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        repository.deleteWaitingListEntry(id);
+
+        assertEquals(1, repository.restoreWaitingListEntries(Arrays.asList(id, id, id + 100)));
+        assertEquals(0, repository.restoreWaitingListEntries(Collections.singletonList(id)));
+        assertEquals("Lovelace", repository.getWaitingListEntry(id).getLastName());
+    }
+
+    @Test
+    public void nextInLine_withZero_returnsNoEntries() {
+        repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+
+        assertTrue(repository.getNextInLine("CS 101", 0).isEmpty());
+    }
+
+    @Test
+    public void nextInLine_withNegativeNumber_throws() {
+        repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+
+        assertThrows(IllegalArgumentException.class, () -> repository.getNextInLine("CS 101", -1));
+    }
+
+    @Test
+    public void admit_withZeroSeats_admitsNoOne() {
+        long id = repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+
+        assertTrue(repository.admitNextInLine("CS 101", 0).isEmpty());
+        assertEquals(1, repository.getQueuePosition(id));
+    }
+
+    @Test
+    public void admit_withNegativeSeats_throwsAndAdmitsNoOne() {
+        long firstId = repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        long secondId = repository.insertWaitingListEntry("Alan", "Turing", "CS 102", "Graduate");
+
+        assertThrows(IllegalArgumentException.class, () -> repository.admitNextInLine("CS 101", -1));
+
+        Map<String, Integer> seatCounts = new LinkedHashMap<>();
+        seatCounts.put("CS 101", 1);
+        seatCounts.put("CS 102", -1);
+        assertThrows(IllegalArgumentException.class, () -> repository.admitNextInLine(seatCounts));
+
+        assertEquals(1, repository.getQueuePosition(firstId));
+        assertEquals(1, repository.getQueuePosition(secondId));
+    }
+
+    @Test
+    public void admit_withMoreSeatsThanWaiting_admitsEveryoneInOrder() {
+        long lowId = repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "1st Year");
+        long highId = repository.insertWaitingListEntry("Alan", "Turing", "CS 101", "Graduate");
+        long otherCourseId = repository.insertWaitingListEntry("Grace", "Hopper", "CS 102", "Graduate");
+
+        List<Admission> admissions = repository.admitNextInLine("CS 101", 5);
+
+        assertEquals(2, admissions.size());
+        assertEquals(highId, admissions.get(0).getId());
+        assertEquals(lowId, admissions.get(1).getId());
+        assertTrue(repository.getNextInLine("CS 101", 5).isEmpty());
+        assertEquals(1, repository.getQueuePosition(otherCourseId));
+    }
+
+    @Test
+    public void nextInLine_queuesEverySpellingOfACourseTogether() {
+        long firstId = repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "1st Year");
+        long secondId = repository.insertWaitingListEntry("Alan", "Turing", "cs  101", "Graduate");
+
+        List<WaitingListEntry> nextInLine = repository.getNextInLine("Cs 101", 5);
+
+        assertEquals(2, nextInLine.size());
+        assertEquals(secondId, nextInLine.get(0).getId());
+        assertEquals(firstId, nextInLine.get(1).getId());
+        assertEquals(2, repository.getQueuePosition(firstId));
+    }
+
+    @Test
+    public void admit_admitsEverySpellingOfACourseInOrder() {
+        long firstId = repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "1st Year");
+        long secondId = repository.insertWaitingListEntry("Alan", "Turing", "cs  101", "Graduate");
+
+        List<Admission> admissions = repository.admitNextInLine("CS 101", 1);
+
+        assertEquals(1, admissions.size());
+        assertEquals(secondId, admissions.get(0).getId());
+        assertEquals(1, repository.getQueuePosition(firstId));
+    }
+
+    @Test
+    public void courseDemand_countsEverySpellingOfACourseTogether() {
+        repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        repository.insertWaitingListEntry("Alan", "Turing", "cs  101", "Graduate");
+
+        List<CourseDemand> courseDemand = repository.getCourseDemand("CS 101");
+
+        assertEquals(1, courseDemand.size());
+        assertEquals(2, courseDemand.get(0).getEntryCount());
+        assertEquals("cs  101", courseDemand.get(0).getCourse());
+        assertEquals(1, repository.getCourseDemand().size());
+    }
+
+    @Test
+    public void query_withCourse_showsEverySpellingOfTheCourse() {
+        repository.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        repository.insertWaitingListEntry("Alan", "Turing", "cs  101", "Graduate");
+        repository.insertWaitingListEntry("Grace", "Hopper", "CS 102", "Graduate");
+
+        WaitingListQuery query = new WaitingListQuery("CS 101", null, WaitingListQuery.SORT_ARRIVAL);
+
+        assertEquals(2, repository.getWaitingListEntriesFollowing(query, null, 10).size());
+    }
+}
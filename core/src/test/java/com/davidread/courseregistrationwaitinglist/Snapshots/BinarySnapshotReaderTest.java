@@ -0,0 +1,187 @@
+package com.davidread.courseregistrationwaitinglist.Snapshots;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests reading back snapshots written by the binary snapshot writer, with and without
+ * compression. A stream that is not a snapshot, is of another version, or is cut short anywhere
+ * must be rejected with a snapshot format exception rather than read as fewer entries.
+ */
+public class BinarySnapshotReaderTest {
+
+    // Entries written by the round trip tests, with ids out of order, nulls, and shared courses.
+    private static final List<WaitingListEntry> ENTRIES = Arrays.asList(
+            new WaitingListEntry(1, "Ada", "Lovelace", "CS 101", "Graduate"),
+            new WaitingListEntry(2, "Alan", "Turing", "CS 101", "1st Year"),
+            new WaitingListEntry(7, "Grace", null, "MATH 201", "Graduate"),
+            new WaitingListEntry(3, "", "Hopper", null, null),
+            new WaitingListEntry(9000000000L, "Zoë", "Ñúñez, \"Jr.\"\n", "CS 101", "Senior")
+    );
+
+    @Test
+    public void roundTrip_returnsEveryEntryInOrder() throws Exception {
+        assertEquals(describe(ENTRIES), describe(readAll(write(ENTRIES, false))));
+    }
+
+    @Test
+    public void roundTrip_compressed_returnsEveryEntryInOrder() throws Exception {
+        assertEquals(describe(ENTRIES), describe(readAll(write(ENTRIES, true))));
+    }
+
+    @Test
+    public void roundTrip_withNoEntries_returnsNothing() throws Exception {
+        assertEquals(0, readAll(write(new ArrayList<>(), true)).size());
+    }
+
+    @Test
+    public void roundTrip_storesEachCourseOnce() throws Exception {
+        List<WaitingListEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            entries.add(new WaitingListEntry(i + 1, "A", "B", "Introduction to Computer Science", "Graduate"));
+
+        byte[] snapshot = write(entries, false);
+
+        // Each entry takes a type byte, an id byte, two one byte names, and two references.
+        assertTrue("Snapshot is " + snapshot.length + " bytes", snapshot.length < 1000 * 8 + 100);
+        assertEquals(describe(entries), describe(readAll(snapshot)));
+    }
+
+    @Test
+    public void read_afterEnd_keepsReturningNull() throws Exception {
+        try (BinarySnapshotReader reader = new BinarySnapshotReader(new ByteArrayInputStream(write(ENTRIES.subList(0, 1), false)))) {
+            assertEquals("Ada", reader.read().getFirstName());
+            assertNull(reader.read());
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void isBinarySnapshot_detectsTheMagicBytesWithoutConsumingThem() throws Exception {
+        byte[] snapshot = write(ENTRIES, true);
+        BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(snapshot));
+
+        assertTrue(BinarySnapshotReader.isBinarySnapshot(in));
+        assertEquals(describe(ENTRIES), describe(readAll(in)));
+        assertFalse(BinarySnapshotReader.isBinarySnapshot(new BufferedInputStream(new ByteArrayInputStream("id,first_name".getBytes("UTF-8")))));
+    }
+
+    @Test
+    public void constructor_withWrongMagicBytes_throws() throws Exception {
+        byte[] snapshot = write(ENTRIES, false);
+        snapshot[0] = 'X';
+
+        assertThrows(SnapshotFormatException.class, () -> new BinarySnapshotReader(new ByteArrayInputStream(snapshot)));
+    }
+
+    @Test
+    public void constructor_withOtherVersion_throws() throws Exception {
+        byte[] snapshot = write(ENTRIES, false);
+        snapshot[BinarySnapshotFormat.MAGIC.length] = BinarySnapshotFormat.VERSION + 1;
+
+        SnapshotFormatException e = assertThrows(SnapshotFormatException.class, () -> new BinarySnapshotReader(new ByteArrayInputStream(snapshot)));
+        assertTrue(e.getMessage(), e.getMessage().contains("version"));
+    }
+
+    @Test
+    public void read_withUnknownRecordType_throws() throws Exception {
+        byte[] snapshot = write(ENTRIES, false);
+        snapshot[BinarySnapshotFormat.MAGIC.length + 2] = 99;
+
+        assertThrows(SnapshotFormatException.class, () -> readAll(snapshot));
+    }
+
+    @Test
+    public void read_withEndRecordCountingOtherEntries_throws() throws Exception {
+        byte[] snapshot = write(ENTRIES, false);
+        snapshot[snapshot.length - 1]++;
+
+        assertThrows(SnapshotFormatException.class, () -> readAll(snapshot));
+    }
+
+    @Test
+    public void read_withDataAfterEndRecord_throws() throws Exception {
+        byte[] snapshot = write(ENTRIES, false);
+
+        assertThrows(SnapshotFormatException.class, () -> readAll(Arrays.copyOf(snapshot, snapshot.length + 1)));
+    }
+
+    @Test
+    public void read_truncatedAtEveryLength_throws() throws Exception {
+        byte[] snapshot = write(ENTRIES, false);
+        for (int length = 0; length < snapshot.length; length++)
+            assertTruncatedSnapshotThrows(Arrays.copyOf(snapshot, length));
+    }
+
+    @Test
+    public void read_compressedTruncatedAtEveryLength_throws() throws Exception {
+        byte[] snapshot = write(ENTRIES, true);
+        for (int length = 0; length < snapshot.length; length++)
+            assertTruncatedSnapshotThrows(Arrays.copyOf(snapshot, length));
+    }
+
+    /**
+     * Asserts that constructing a reader over the truncated snapshot, or reading all of it, throws
+     * a snapshot format exception.
+     */
+    private static void assertTruncatedSnapshotThrows(byte[] snapshot) {
+        IOException e = assertThrows(IOException.class, () -> readAll(snapshot));
+        assertEquals("Truncated to " + snapshot.length + " bytes: " + e, SnapshotFormatException.class, e.getClass());
+    }
+
+    /**
+     * Returns the specified entries written as a snapshot.
+     */
+    private static byte[] write(List<WaitingListEntry> entries, boolean compress) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinarySnapshotWriter writer = new BinarySnapshotWriter(out, compress)) {
+            for (WaitingListEntry entry : entries)
+                writer.write(entry);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<WaitingListEntry> readAll(byte[] snapshot) throws IOException {
+        return readAll(new ByteArrayInputStream(snapshot));
+    }
+
+    /**
+     * Returns every entry of the snapshot in the stream.
+     */
+    private static List<WaitingListEntry> readAll(InputStream in) throws IOException {
+        List<WaitingListEntry> entries = new ArrayList<>();
+        try (BinarySnapshotReader reader = new BinarySnapshotReader(in)) {
+            WaitingListEntry entry;
+            while ((entry = reader.read()) != null)
+                entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the fields of the entries, one per line, since the model does not define equality.
+     */
+    static String describe(List<WaitingListEntry> entries) {
+        StringBuilder description = new StringBuilder();
+        for (WaitingListEntry entry : entries)
+            description.append(entry.getId()).append('|').append(entry.getFirstName()).append('|').append(entry.getLastName())
+                    .append('|').append(entry.getCourse()).append('|').append(entry.getPriority()).append('\n');
+        return description.toString();
+    }
+}
@@ -0,0 +1,148 @@
+package com.davidread.courseregistrationwaitinglist.Snapshots;
+
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.davidread.courseregistrationwaitinglist.Snapshots.BinarySnapshotReaderTest.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests reading back CSV written by the CSV writer, and reading CSV as spreadsheets
+ * write it. CSV has no end marker, so a file cut short between rows cannot be told from a shorter
+ * file, but one cut within a row must be rejected, as must a file without the expected columns.
+ */
+public class CsvWaitingListEntryReaderTest {
+
+    // Entries written by the round trip tests, with fields that must be quoted and nulls.
+    private static final List<WaitingListEntry> ENTRIES = Arrays.asList(
+            new WaitingListEntry(1, "Ada", "Lovelace", "CS 101", "Graduate"),
+            new WaitingListEntry(2, "Alan", "Turing, \"Jr.\"", "CS 101", "1st Year"),
+            new WaitingListEntry(3, "Grace", "Hopper\r\nof the Navy\n", "MATH 201", null),
+            new WaitingListEntry(4, "", null, "\"", ","),
+            new WaitingListEntry(5, "Zoë", "Ñúñez", "CS 101", "Senior")
+    );
+
+    @Test
+    public void roundTrip_returnsEveryEntryInOrder() throws Exception {
+        assertEquals(describe(ENTRIES), describe(readAll(write(ENTRIES))));
+    }
+
+    @Test
+    public void write_quotesOnlyFieldsThatNeedIt() throws Exception {
+        String document = new String(write(ENTRIES.subList(1, 2)), StandardCharsets.UTF_8);
+
+        assertEquals("id,first_name,last_name,course,priority\r\n2,Alan,\"Turing, \"\"Jr.\"\"\",CS 101,1st Year\r\n", document);
+    }
+
+    @Test
+    public void read_tellsNullAndEmptyFieldsApart() throws Exception {
+        List<WaitingListEntry> entries = readAll(csv("id,first_name,last_name,course,priority\n1,,\"\",CS 101,Graduate\n"));
+
+        assertNull(entries.get(0).getFirstName());
+        assertEquals("", entries.get(0).getLastName());
+    }
+
+    @Test
+    public void read_withByteOrderMark_findsTheFirstColumn() throws Exception {
+        List<WaitingListEntry> entries = readAll(csv("\uFEFFid,first_name,last_name,course,priority\r\n7,Ada,Lovelace,CS 101,Graduate\r\n"));
+
+        assertEquals("7|Ada|Lovelace|CS 101|Graduate\n", describe(entries));
+    }
+
+    @Test
+    public void read_withColumnsInAnyOrderAndNoId_findsColumnsByName() throws Exception {
+        List<WaitingListEntry> entries = readAll(csv("priority,course,notes,last_name,first_name\nGraduate,CS 101,x,Lovelace,Ada\n"));
+
+        assertEquals("0|Ada|Lovelace|CS 101|Graduate\n", describe(entries));
+    }
+
+    @Test
+    public void read_skipsBlankLines() throws Exception {
+        List<WaitingListEntry> entries = readAll(csv("first_name,last_name,course,priority\r\n\r\nAda,Lovelace,CS 101,Graduate\n\n\nAlan,Turing,CS 101,Senior\r\n\r\n"));
+
+        assertEquals(2, entries.size());
+        assertEquals("Alan", entries.get(1).getFirstName());
+    }
+
+    @Test
+    public void constructor_withEmptyDocument_throws() {
+        assertThrows(SnapshotFormatException.class, () -> readAll(csv("")));
+    }
+
+    @Test
+    public void constructor_withMissingColumn_throws() {
+        SnapshotFormatException e = assertThrows(SnapshotFormatException.class, () -> readAll(csv("id,first_name,last_name,priority\n1,Ada,Lovelace,Graduate\n")));
+        assertTrue(e.getMessage(), e.getMessage().contains(WaitingListEntry.COLUMN_COURSE));
+    }
+
+    @Test
+    public void constructor_withBinarySnapshot_throws() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinarySnapshotWriter writer = new BinarySnapshotWriter(out, true)) {
+            writer.write(ENTRIES.get(0));
+        }
+
+        assertThrows(SnapshotFormatException.class, () -> readAll(out.toByteArray()));
+    }
+
+    @Test
+    public void read_withInvalidId_throws() {
+        assertThrows(SnapshotFormatException.class, () -> readAll(csv("id,first_name,last_name,course,priority\nfirst,Ada,Lovelace,CS 101,Graduate\n")));
+    }
+
+    @Test
+    public void read_truncatedWithinQuotedField_throws() throws Exception {
+        String document = new String(write(ENTRIES), StandardCharsets.UTF_8);
+
+        SnapshotFormatException e = assertThrows(SnapshotFormatException.class, () -> readAll(csv(document.substring(0, document.indexOf("of the Navy")))));
+        assertTrue(e.getMessage(), e.getMessage().contains("quote"));
+    }
+
+    @Test
+    public void read_truncatedBeforeTheLastComma_throws() throws Exception {
+        String document = new String(write(ENTRIES), StandardCharsets.UTF_8);
+
+        assertThrows(SnapshotFormatException.class, () -> readAll(csv(document.substring(0, document.lastIndexOf(',')))));
+    }
+
+    /**
+     * Returns the specified entries written as CSV.
+     */
+    private static byte[] write(List<WaitingListEntry> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvWaitingListEntryWriter writer = new CsvWaitingListEntryWriter(out)) {
+            for (WaitingListEntry entry : entries)
+                writer.write(entry);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] csv(String document) {
+        return document.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns every entry of the CSV document.
+     */
+    private static List<WaitingListEntry> readAll(byte[] document) throws IOException {
+        List<WaitingListEntry> entries = new ArrayList<>();
+        try (CsvWaitingListEntryReader reader = new CsvWaitingListEntryReader(new ByteArrayInputStream(document))) {
+            WaitingListEntry entry;
+            while ((entry = reader.read()) != null)
+                entries.add(entry);
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,464 @@
+package com.davidread.courseregistrationwaitinglist.Sync;
+
+import com.davidread.courseregistrationwaitinglist.Models.SyncChange;
+import com.davidread.courseregistrationwaitinglist.Models.WaitingListEntry;
+import com.davidread.courseregistrationwaitinglist.Repositories.JdbcWaitingListRepository;
+import com.davidread.courseregistrationwaitinglist.Repositories.WaitingListQuery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests sync between JDBC repositories standing in for two devices and a fake registrar
+ * backend that resolves conflicts the way the real one does. Each batch crosses the fake backend
+ * in the sync batch format. The fake backend can fail a push before or after storing it, and can
+ * fail a pull, so that resuming an interrupted sync can be checked.
+ */
+public class SyncEngineTest {
+
+    // Number of changes per batch, small enough that each sync spans several batches.
+    private static final int BATCH_SIZE = 2;
+
+    // Origin of the changes the fake backend is seeded with, as if made on a third device.
+    private static final String OTHER_DEVICE_ID = "other-device";
+
+    // Update times far before and after any change made by the tests.
+    private static final long LONG_AGO = 1;
+    private static final long FAR_FUTURE = Long.MAX_VALUE / 2;
+
+    // Class objects.
+    private FakeRegistrarBackend backend;
+    private JdbcWaitingListRepository firstDevice;
+    private JdbcWaitingListRepository secondDevice;
+
+    @Before
+    public void setUp() throws Exception {
+        backend = new FakeRegistrarBackend();
+        firstDevice = createDevice();
+        secondDevice = createDevice();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        firstDevice.close();
+        secondDevice.close();
+    }
+
+    @Test
+    public void sync_copiesEntriesToTheOtherDevice() throws Exception {
+        firstDevice.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        firstDevice.insertWaitingListEntry("Alan", "Turing", "CS 101", "1st Year");
+        firstDevice.insertWaitingListEntry("Grace", "Hopper", "MATH 201", "Senior");
+
+        SyncResult firstResult = sync(firstDevice);
+        SyncResult secondResult = sync(secondDevice);
+
+        assertEquals(3, firstResult.getPushedCount());
+        assertEquals(0, firstResult.getPulledCount());
+        assertEquals(3, secondResult.getPulledCount());
+        assertEquals(3, secondResult.getAppliedCount());
+        assertEquals(describe(firstDevice), describe(secondDevice));
+    }
+
+    @Test
+    public void sync_afterOneEdit_pushesOnlyTheChangedRow() throws Exception {
+        for (int i = 0; i < 10; i++)
+            firstDevice.insertWaitingListEntry("Student", "Number " + i, "CS 101", "Graduate");
+        sync(firstDevice);
+
+        firstDevice.upsertWaitingListEntry("Student", "Number 4", "CS 101", "Senior");
+
+        assertEquals(1, sync(firstDevice).getPushedCount());
+        assertEquals(0, sync(firstDevice).getPushedCount());
+        assertEquals(10, sync(secondDevice).getAppliedCount());
+        assertEquals("Senior", findEntry(secondDevice, "Number 4").getPriority());
+    }
+
+    @Test
+    public void sync_withChangesPulledFromTheOtherDevice_doesNotPushThemBack() throws Exception {
+        firstDevice.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        sync(firstDevice);
+        sync(secondDevice);
+
+        assertEquals(0, secondDevice.getPendingChanges(BATCH_SIZE).size());
+        assertEquals(0, sync(secondDevice).getPushedCount());
+    }
+
+    @Test
+    public void sync_withConcurrentEdits_keepsTheLaterEditOnBothDevices() throws Exception {
+        firstDevice.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        sync(firstDevice);
+        sync(secondDevice);
+
+        firstDevice.upsertWaitingListEntry("Ada", "Lovelace", "CS 101", "1st Year");
+        waitForClockTick();
+        secondDevice.upsertWaitingListEntry("Ada", "Lovelace", "CS 101", "Senior");
+
+        // The later edit wins whichever device syncs first.
+        sync(secondDevice);
+        sync(firstDevice);
+        sync(secondDevice);
+
+        assertEquals("Senior", findEntry(firstDevice, "Lovelace").getPriority());
+        assertEquals("Senior", findEntry(secondDevice, "Lovelace").getPriority());
+    }
+
+    @Test
+    public void sync_withNewerRemoteEdit_replacesTheUnpushedLocalEdit() throws Exception {
+        firstDevice.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        backend.store(new SyncChange("ada", "LOVELACE", "cs 101", "Senior", FAR_FUTURE, OTHER_DEVICE_ID, false));
+
+        SyncResult result = sync(firstDevice);
+
+        assertEquals(1, result.getAppliedCount());
+        WaitingListEntry entry = findEntry(firstDevice, "LOVELACE");
+        assertEquals("Senior", entry.getPriority());
+        assertEquals(1, firstDevice.getWaitingListEntriesFollowing(WaitingListQuery.ALL, null, 10).size());
+    }
+
+    @Test
+    public void applyRemoteChanges_withOlderRemoteEdit_keepsTheUnpushedLocalEdit() {
+        firstDevice.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+
+        int appliedCount = firstDevice.applyRemoteChanges(Collections.singletonList(
+                new SyncChange("Ada", "Lovelace", "CS 101", "Senior", LONG_AGO, OTHER_DEVICE_ID, false)), 1);
+
+        assertEquals(0, appliedCount);
+        assertEquals("Graduate", findEntry(firstDevice, "Lovelace").getPriority());
+        assertEquals(1, firstDevice.getPullCursor());
+        assertEquals(1, firstDevice.getPendingChanges(BATCH_SIZE).size());
+    }
+
+    @Test
+    public void applyRemoteChanges_withEqualUpdateTimes_picksTheSameWinnerInAnyOrder() {
+        SyncChange first = new SyncChange("Ada", "Lovelace", "CS 101", "1st Year", 1000, "device-a", false);
+        SyncChange second = new SyncChange("Ada", "Lovelace", "CS 101", "Senior", 1000, "device-b", false);
+        SyncChange delete = new SyncChange("Ada", "Lovelace", "CS 101", null, 1000, "device-b", true);
+
+        firstDevice.applyRemoteChanges(Arrays.asList(first, second), 1);
+        secondDevice.applyRemoteChanges(Arrays.asList(second, first), 1);
+
+        assertEquals("Senior", findEntry(firstDevice, "Lovelace").getPriority());
+        assertEquals("Senior", findEntry(secondDevice, "Lovelace").getPriority());
+
+        // A delete wins a tie with an edit from the same device.
+        assertEquals(1, secondDevice.applyRemoteChanges(Collections.singletonList(delete), 2));
+        assertNull(findEntry(secondDevice, "Lovelace"));
+    }
+
+    @Test
+    public void sync_withDelete_removesTheRowOnTheOtherDevice() throws Exception {
+        long id = firstDevice.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        firstDevice.insertWaitingListEntry("Alan", "Turing", "CS 101", "1st Year");
+        sync(firstDevice);
+        sync(secondDevice);
+
+        firstDevice.deleteWaitingListEntries(Collections.singletonList(id));
+        List<SyncChange> pendingChanges = firstDevice.getPendingChanges(BATCH_SIZE);
+
+        assertEquals(1, pendingChanges.size());
+        assertTrue(pendingChanges.get(0).isDeleted());
+        assertEquals(1, sync(firstDevice).getPushedCount());
+        assertEquals(0, firstDevice.getPendingChanges(BATCH_SIZE).size());
+        assertEquals(1, sync(secondDevice).getAppliedCount());
+        assertNull(findEntry(secondDevice, "Lovelace"));
+        assertEquals("Turing", findEntry(secondDevice, "Turing").getLastName());
+    }
+
+    @Test
+    public void sync_afterDeleteAndReRegister_pushesTheLiveRowRatherThanTheTombstone() throws Exception {
+        long id = firstDevice.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        sync(firstDevice);
+        sync(secondDevice);
+
+        firstDevice.deleteWaitingListEntries(Collections.singletonList(id));
+        firstDevice.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Senior");
+        List<SyncChange> pendingChanges = firstDevice.getPendingChanges(BATCH_SIZE);
+
+        assertEquals(1, pendingChanges.size());
+        assertFalse(pendingChanges.get(0).isDeleted());
+        sync(firstDevice);
+        sync(secondDevice);
+        assertEquals("Senior", findEntry(secondDevice, "Lovelace").getPriority());
+    }
+
+    @Test
+    public void sync_afterDeleteAndRestore_keepsTheRowOnTheOtherDevice() throws Exception {
+        long id = firstDevice.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        sync(firstDevice);
+        sync(secondDevice);
+
+        firstDevice.deleteWaitingListEntries(Collections.singletonList(id));
+        firstDevice.restoreWaitingListEntries(Collections.singletonList(id));
+        sync(firstDevice);
+        sync(secondDevice);
+
+        assertEquals("Graduate", findEntry(secondDevice, "Lovelace").getPriority());
+    }
+
+    @Test
+    public void applyRemoteChanges_withOlderRemoteEditOfLocallyDeletedRow_keepsItDeleted() {
+        long id = firstDevice.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        firstDevice.deleteWaitingListEntries(Collections.singletonList(id));
+
+        int appliedCount = firstDevice.applyRemoteChanges(Collections.singletonList(
+                new SyncChange("Ada", "Lovelace", "CS 101", "Senior", LONG_AGO, OTHER_DEVICE_ID, false)), 1);
+
+        assertEquals(0, appliedCount);
+        assertNull(findEntry(firstDevice, "Lovelace"));
+        assertTrue(firstDevice.getPendingChanges(BATCH_SIZE).get(0).isDeleted());
+    }
+
+    @Test
+    public void applyRemoteChanges_withNewerRemoteEditOfLocallyDeletedRow_bringsItBack() {
+        long id = firstDevice.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+        firstDevice.deleteWaitingListEntries(Collections.singletonList(id));
+
+        int appliedCount = firstDevice.applyRemoteChanges(Collections.singletonList(
+                new SyncChange("Ada", "Lovelace", "CS 101", "Senior", FAR_FUTURE, OTHER_DEVICE_ID, false)), 1);
+
+        assertEquals(1, appliedCount);
+        assertEquals("Senior", findEntry(firstDevice, "Lovelace").getPriority());
+        assertEquals(0, firstDevice.getPendingChanges(BATCH_SIZE).size());
+    }
+
+    @Test
+    public void applyRemoteChanges_withOlderRemoteDeleteOfLocallyEditedRow_keepsTheRow() {
+        firstDevice.insertWaitingListEntry("Ada", "Lovelace", "CS 101", "Graduate");
+
+        int appliedCount = firstDevice.applyRemoteChanges(Collections.singletonList(
+                new SyncChange("Ada", "Lovelace", "CS 101", null, LONG_AGO, OTHER_DEVICE_ID, true)), 1);
+
+        assertEquals(0, appliedCount);
+        assertEquals("Graduate", findEntry(firstDevice, "Lovelace").getPriority());
+    }
+
+    @Test
+    public void sync_afterPushFails_resumesAfterTheLastStoredBatch() throws Exception {
+        for (int i = 0; i < 5; i++)
+            firstDevice.insertWaitingListEntry("Student", "Number " + i, "CS 101", "Graduate");
+
+        backend.failPushAfter(1);
+        assertThrows(IOException.class, () -> sync(firstDevice));
+
+        assertEquals(1, backend.getStoredBatchCount());
+        assertEquals(3, firstDevice.getPendingChanges(Integer.MAX_VALUE).size());
+
+        assertEquals(3, sync(firstDevice).getPushedCount());
+        assertEquals(3, backend.getStoredBatchCount());
+        assertEquals(5, sync(secondDevice).getAppliedCount());
+        assertEquals(describe(firstDevice), describe(secondDevice));
+    }
+
+    @Test
+    public void sync_afterAcknowledgementIsLost_sendsTheBatchAgainAndStoresItOnce() throws Exception {
+        for (int i = 0; i < 3; i++)
+            firstDevice.insertWaitingListEntry("Student", "Number " + i, "CS 101", "Graduate");
+
+        backend.loseAcknowledgementAfter(0);
+        assertThrows(IOException.class, () -> sync(firstDevice));
+
+        assertEquals(1, backend.getStoredBatchCount());
+        assertEquals(3, firstDevice.getPendingChanges(Integer.MAX_VALUE).size());
+
+        assertEquals(3, sync(firstDevice).getPushedCount());
+        assertEquals(3, backend.getReceivedBatchCount());
+        assertEquals(2, backend.getStoredBatchCount());
+        assertEquals(3, backend.getRowCount());
+    }
+
+    @Test
+    public void sync_afterPullFails_resumesFromTheLastAppliedBatch() throws Exception {
+        for (int i = 0; i < 5; i++)
+            firstDevice.insertWaitingListEntry("Student", "Number " + i, "CS 101", "Graduate");
+        sync(firstDevice);
+
+        backend.failPullAfter(1);
+        assertThrows(IOException.class, () -> sync(secondDevice));
+
+        assertEquals(BATCH_SIZE, secondDevice.getWaitingListEntriesFollowing(WaitingListQuery.ALL, null, 10).size());
+        long pullCursor = secondDevice.getPullCursor();
+        assertTrue(pullCursor > 0);
+
+        SyncResult result = sync(secondDevice);
+
+        assertEquals(3, result.getPulledCount());
+        assertEquals(3, result.getAppliedCount());
+        assertEquals(describe(firstDevice), describe(secondDevice));
+    }
+
+    /**
+     * Returns a new device, with its own database and device id.
+     */
+    private static JdbcWaitingListRepository createDevice() throws Exception {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        JdbcWaitingListRepository.createSchema(connection);
+        return new JdbcWaitingListRepository(connection);
+    }
+
+    private SyncResult sync(JdbcWaitingListRepository device) throws IOException {
+        return new SyncEngine(device, backend, BATCH_SIZE).sync();
+    }
+
+    /**
+     * Waits until the clock has moved on, so the next change is stamped later than the last one.
+     */
+    private static void waitForClockTick() throws InterruptedException {
+        Thread.sleep(5);
+    }
+
+    /**
+     * Returns the entry of the device with the specified last name, or null if there is none.
+     */
+    private static WaitingListEntry findEntry(JdbcWaitingListRepository device, String lastName) {
+        for (WaitingListEntry entry : device.getWaitingListEntriesFollowing(WaitingListQuery.ALL, null, 100))
+            if (entry.getLastName().equals(lastName))
+                return entry;
+        return null;
+    }
+
+    /**
+     * Returns the entries of the device by student and course, sorted, since ids differ between
+     * devices.
+     */
+    private static String describe(JdbcWaitingListRepository device) {
+        List<String> lines = new ArrayList<>();
+        for (WaitingListEntry entry : device.getWaitingListEntriesFollowing(WaitingListQuery.ALL, null, 100))
+            lines.add(entry.getFirstName() + "|" + entry.getLastName() + "|" + entry.getCourse() + "|" + entry.getPriority());
+        Collections.sort(lines);
+        return String.join("\n", lines);
+    }
+
+    /**
+     * This class is an in-memory registrar backend. It keeps the winning version of every row by
+     * its student and course keys and logs each row under the sequence number of its last change,
+     * as the real backend does, and ignores a push batch the device has already sent.
+     */
+    private static class FakeRegistrarBackend implements SyncTransport {
+
+        // Class objects.
+        private final Map<String, SyncChange> rows = new HashMap<>();
+        private final Map<String, Long> rowSeqs = new HashMap<>();
+        private final TreeMap<Long, String> log = new TreeMap<>();
+        private final Map<String, Long> lastBatchSeqs = new HashMap<>();
+        private long lastSeq;
+        private int receivedBatchCount;
+        private int storedBatchCount;
+        private int pushesBeforeFailure = -1;
+        private int pushesBeforeLostAcknowledgement = -1;
+        private int pullsBeforeFailure = -1;
+
+        /**
+         * Makes the push after the specified number of further pushes fail before it is stored.
+         */
+        void failPushAfter(int pushCount) {
+            pushesBeforeFailure = pushCount;
+        }
+
+        /**
+         * Makes the push after the specified number of further pushes fail after it is stored.
+         */
+        void loseAcknowledgementAfter(int pushCount) {
+            pushesBeforeLostAcknowledgement = pushCount;
+        }
+
+        /**
+         * Makes the pull after the specified number of further pulls fail.
+         */
+        void failPullAfter(int pullCount) {
+            pullsBeforeFailure = pullCount;
+        }
+
+        int getReceivedBatchCount() {
+            return receivedBatchCount;
+        }
+
+        int getStoredBatchCount() {
+            return storedBatchCount;
+        }
+
+        int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public void push(String deviceId, long batchSeq, List<SyncChange> changes) throws IOException {
+            if (pushesBeforeFailure-- == 0)
+                throw new IOException("Push failed");
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SyncBatchFormat.writePushBatch(out, new SyncPushBatch(deviceId, batchSeq, changes));
+            SyncPushBatch batch = SyncBatchFormat.readPushBatch(new ByteArrayInputStream(out.toByteArray()));
+
+            receivedBatchCount++;
+            Long lastBatchSeq = lastBatchSeqs.get(batch.getDeviceId());
+            if (lastBatchSeq == null || batch.getBatchSeq() > lastBatchSeq) {
+                for (SyncChange change : batch.getChanges())
+                    store(change);
+                lastBatchSeqs.put(batch.getDeviceId(), batch.getBatchSeq());
+                storedBatchCount++;
+            }
+
+            if (pushesBeforeLostAcknowledgement-- == 0)
+                throw new IOException("Acknowledgement lost");
+        }
+
+        @Override
+        public SyncPullBatch pull(String deviceId, long cursor, int limit) throws IOException {
+            if (pullsBeforeFailure-- == 0)
+                throw new IOException("Pull failed");
+
+            List<SyncChange> changes = new ArrayList<>();
+            long nextCursor = cursor;
+            Iterator<Map.Entry<Long, String>> iterator = log.tailMap(cursor, false).entrySet().iterator();
+            while (changes.size() < limit && iterator.hasNext()) {
+                Map.Entry<Long, String> logEntry = iterator.next();
+                SyncChange change = rows.get(logEntry.getValue());
+                if (!deviceId.equals(change.getOrigin()))
+                    changes.add(change);
+                nextCursor = logEntry.getKey();
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SyncBatchFormat.writePullBatch(out, new SyncPullBatch(changes, nextCursor, iterator.hasNext()));
+            return SyncBatchFormat.readPullBatch(new ByteArrayInputStream(out.toByteArray()));
+        }
+
+        /**
+         * Stores the change if it wins against the version held, moving its row to the end of the
+         * log.
+         */
+        void store(SyncChange change) {
+            String key = change.getNameKey() + "\u0000" + change.getCourseKey();
+            SyncChange current = rows.get(key);
+            if (current != null && SyncChange.compareVersions(change, current) <= 0)
+                return;
+            rows.put(key, change);
+            Long oldSeq = rowSeqs.put(key, ++lastSeq);
+            if (oldSeq != null)
+                log.remove(oldSeq);
+            log.put(lastSeq, key);
+        }
+    }
+}
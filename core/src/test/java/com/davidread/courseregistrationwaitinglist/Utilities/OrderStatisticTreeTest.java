@@ -0,0 +1,135 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the order statistic tree. Besides small cases checked by hand, it applies a
+ * long random sequence of adds and removes to the tree and to a sorted set side by side, and checks
+ * that ranks and indexed keys agree after each step.
+ */
+public class OrderStatisticTreeTest {
+
+    // Random operations applied by the comparison with a sorted set.
+    private static final int RANDOM_OPERATION_COUNT = 5000;
+
+    // Keys drawn by the comparison with a sorted set, few enough that adds and removes collide.
+    private static final int RANDOM_KEY_BOUND = 500;
+
+    @Test
+    public void add_keepsKeysInOrder() {
+        OrderStatisticTree tree = treeOf(50, 10, 40, 20, 30);
+
+        assertEquals(5, tree.size());
+        for (int i = 0; i < 5; i++)
+            assertEquals(10L * (i + 1), tree.get(i));
+        assertEquals(10, tree.first());
+    }
+
+    @Test
+    public void add_withPresentKey_returnsFalseAndKeepsSize() {
+        OrderStatisticTree tree = treeOf(1, 2);
+
+        assertFalse(tree.add(2));
+        assertEquals(2, tree.size());
+    }
+
+    @Test
+    public void remove_removesOnlyThatKey() {
+        OrderStatisticTree tree = treeOf(10, 20, 30);
+
+        assertTrue(tree.remove(20));
+        assertFalse(tree.contains(20));
+        assertEquals(2, tree.size());
+        assertEquals(10, tree.get(0));
+        assertEquals(30, tree.get(1));
+    }
+
+    @Test
+    public void remove_withAbsentKey_returnsFalse() {
+        OrderStatisticTree tree = treeOf(10);
+
+        assertFalse(tree.remove(20));
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    public void remove_ofEveryKey_leavesTheTreeEmpty() {
+        OrderStatisticTree tree = treeOf(3, 1, 2);
+
+        tree.remove(1);
+        tree.remove(3);
+        tree.remove(2);
+
+        assertTrue(tree.isEmpty());
+        assertEquals(0, tree.size());
+        assertEquals(0, tree.rankOf(2));
+    }
+
+    @Test
+    public void rankOf_countsKeysLessThanTheKey() {
+        OrderStatisticTree tree = treeOf(10, 20, 30);
+
+        assertEquals(0, tree.rankOf(10));
+        assertEquals(1, tree.rankOf(20));
+        assertEquals(2, tree.rankOf(30));
+        assertEquals(0, tree.rankOf(5));
+        assertEquals(2, tree.rankOf(25));
+        assertEquals(3, tree.rankOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void get_isTheInverseOfRankOf() {
+        OrderStatisticTree tree = treeOf(-7, 0, 3, 1L << 50, Long.MIN_VALUE);
+
+        for (int i = 0; i < tree.size(); i++)
+            assertEquals(i, tree.rankOf(tree.get(i)));
+    }
+
+    @Test
+    public void randomAddsAndRemoves_matchASortedSet() {
+        Random random = new Random(42);
+        OrderStatisticTree tree = new OrderStatisticTree();
+        TreeSet<Long> expected = new TreeSet<>();
+
+        for (int i = 0; i < RANDOM_OPERATION_COUNT; i++) {
+            long key = random.nextInt(RANDOM_KEY_BOUND);
+            if (random.nextInt(3) == 0)
+                assertEquals(expected.remove(key), tree.remove(key));
+            else
+                assertEquals(expected.add(key), tree.add(key));
+
+            assertEquals(expected.size(), tree.size());
+            assertEquals(expected.headSet(key).size(), tree.rankOf(key));
+            if (!expected.isEmpty()) {
+                assertEquals((long) expected.first(), tree.first());
+                int index = random.nextInt(expected.size());
+                assertEquals((long) new ArrayList<>(expected).get(index), tree.get(index));
+            }
+        }
+
+        List<Long> keys = new ArrayList<>(expected);
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals((long) keys.get(i), tree.get(i));
+            assertEquals(i, tree.rankOf(keys.get(i)));
+        }
+    }
+
+    /**
+     * Returns a tree holding the specified keys.
+     */
+    private static OrderStatisticTree treeOf(long... keys) {
+        OrderStatisticTree tree = new OrderStatisticTree();
+        for (long key : keys)
+            assertTrue(tree.add(key));
+        return tree;
+    }
+}
@@ -0,0 +1,116 @@
+package com.davidread.courseregistrationwaitinglist.Utilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class tests the queue index. Entries of a course must be ordered by priority rank and then
+ * by id, whatever order they are added in, and each course must be a queue of its own.
+ */
+public class WaitingListQueueIndexTest {
+
+    // Course keys, as callers pass them.
+    private static final String COURSE = "cs 101";
+    private static final String OTHER_COURSE = "math 201";
+
+    @Test
+    public void positionOf_ordersByPriorityRankThenById() {
+        WaitingListQueueIndex index = new WaitingListQueueIndex();
+        index.add(5, COURSE, 2);
+        index.add(3, COURSE, 1);
+        index.add(9, COURSE, 0);
+        index.add(1, COURSE, 2);
+        index.add(7, COURSE, 1);
+
+        assertEquals(1, index.positionOf(9));
+        assertEquals(2, index.positionOf(3));
+        assertEquals(3, index.positionOf(7));
+        assertEquals(4, index.positionOf(1));
+        assertEquals(5, index.positionOf(5));
+        assertArrayEquals(new long[]{9, 3, 7, 1, 5}, index.peekNext(COURSE, 10));
+    }
+
+    @Test
+    public void pollNext_removesEntriesInQueueOrder() {
+        WaitingListQueueIndex index = new WaitingListQueueIndex();
+        index.add(4, COURSE, 3);
+        index.add(2, COURSE, 3);
+        index.add(8, COURSE, 1);
+
+        assertEquals(8, index.peekNext(COURSE));
+        assertEquals(8, index.pollNext(COURSE));
+        assertEquals(2, index.pollNext(COURSE));
+        assertEquals(4, index.pollNext(COURSE));
+        assertEquals(-1, index.pollNext(COURSE));
+        assertEquals(0, index.sizeOf(COURSE));
+    }
+
+    @Test
+    public void courses_areSeparateQueues() {
+        WaitingListQueueIndex index = new WaitingListQueueIndex();
+        index.add(1, COURSE, 4);
+        index.add(2, OTHER_COURSE, 0);
+        index.add(3, COURSE, 4);
+
+        assertEquals(1, index.positionOf(1));
+        assertEquals(1, index.positionOf(2));
+        assertEquals(2, index.positionOf(3));
+        assertEquals(2, index.sizeOf(COURSE));
+        assertEquals(OTHER_COURSE, index.courseOf(2));
+        assertEquals(1, index.peekNext(COURSE));
+    }
+
+    @Test
+    public void add_ofIndexedEntry_movesItToItsNewPlace() {
+        WaitingListQueueIndex index = new WaitingListQueueIndex();
+        index.add(1, COURSE, 0);
+        index.add(2, COURSE, 1);
+
+        index.add(1, COURSE, 2);
+        assertEquals(2, index.positionOf(1));
+        assertEquals(1, index.positionOf(2));
+
+        index.add(1, OTHER_COURSE, 2);
+        assertEquals(1, index.positionOf(1));
+        assertEquals(1, index.sizeOf(COURSE));
+        assertEquals(1, index.sizeOf(OTHER_COURSE));
+    }
+
+    @Test
+    public void remove_takesTheEntryOutOfItsQueue() {
+        WaitingListQueueIndex index = new WaitingListQueueIndex();
+        index.add(1, COURSE, 0);
+        index.add(2, COURSE, 0);
+
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+        assertEquals(-1, index.positionOf(1));
+        assertNull(index.courseOf(1));
+        assertEquals(1, index.positionOf(2));
+    }
+
+    @Test
+    public void emptyCourse_hasNoNextEntry() {
+        WaitingListQueueIndex index = new WaitingListQueueIndex();
+
+        assertEquals(-1, index.peekNext(COURSE));
+        assertEquals(0, index.peekNext(COURSE, 3).length);
+        assertEquals(0, index.sizeOf(COURSE));
+    }
+
+    @Test
+    public void largeIds_keepTheirOrderWithinARank() {
+        WaitingListQueueIndex index = new WaitingListQueueIndex();
+        long largeId = (1L << 40) + 1;
+        index.add(largeId, COURSE, 1);
+        index.add(largeId - 1, COURSE, 1);
+        index.add(largeId + 1, COURSE, 0);
+
+        assertArrayEquals(new long[]{largeId + 1, largeId - 1, largeId}, index.peekNext(COURSE, 3));
+    }
+}